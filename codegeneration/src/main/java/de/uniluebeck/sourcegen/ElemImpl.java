@@ -23,16 +23,21 @@
  */
 package de.uniluebeck.sourcegen;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.List;
 
 public abstract class ElemImpl implements WorkspaceElement {
 
-	public abstract void toString(StringBuffer buffer, int tabCount);
+	public abstract void toString(SourceWriter buffer, int tabCount);
+
+	public void toString(StringBuffer buffer, int tabCount) {
+		toString(new SourceWriter(buffer), tabCount);
+	}
 
 	@Override
 	public String toString() {
-		StringBuffer buff = new StringBuffer();
-		toString(buff, 0);
+		StringBuilder buff = new StringBuilder();
+		toString(new SourceWriter(buff), 0);
 		return buff.toString();
 	}
 
@@ -41,62 +46,64 @@ public abstract class ElemImpl implements WorkspaceElement {
 	}
 
 	public String toString(int tabCount) {
-		StringBuffer buff = new StringBuffer();
-		toString(buff, tabCount);
+		StringBuilder buff = new StringBuilder();
+		toString(new SourceWriter(buff), tabCount);
 		return buff.toString();
 	}
 
+	public void write(Appendable out) throws IOException {
+		SourceWriter writer = new SourceWriter(out);
+		toString(writer, 0);
+		writer.flush();
+	}
+
+	protected void addLine(SourceWriter buffer, int tabCount, String line) {
+		buffer.addLine(tabCount, line);
+	}
+
 	protected void addLine(StringBuffer buffer, int tabCount, String line) {
-		indent(buffer, tabCount);
-		buffer.append(line);
-		buffer.append("\n");
+		addLine(new SourceWriter(buffer), tabCount, line);
+	}
+
+	protected void indent(SourceWriter buffer, int tabCount) {
+		buffer.indent(tabCount);
 	}
 
 	protected void indent(StringBuffer buffer, int tabCount) {
-		for (int i = 0; i < tabCount; i++)
-			buffer.append("\t");
+		indent(new SourceWriter(buffer), tabCount);
 	}
 
-	protected void toString(StringBuffer buffer, int tabCount, LinkedList<? extends WorkspaceElement> elemList,
+	protected void toString(SourceWriter buffer, int tabCount, List<? extends WorkspaceElement> elemList,
 			boolean lastSeparator) {
 		toString(buffer, tabCount, elemList, "", "\n\n", lastSeparator);
 	}
 
-	protected void toString(StringBuffer buffer, int tabCount, LinkedList<? extends WorkspaceElement> elemList) {
+	protected void toString(SourceWriter buffer, int tabCount, List<? extends WorkspaceElement> elemList) {
 		toString(buffer, tabCount, elemList, "", "\n\n");
 	}
 
-	void toString(StringBuffer buffer, int tabCount, LinkedList<? extends WorkspaceElement> elemList,
+	void toString(SourceWriter buffer, int tabCount, List<? extends WorkspaceElement> elemList,
 			String elemSuffix, String separator, boolean lastSeparator) {
 		if (elemList.size() > 0) {
 			for (WorkspaceElement elem : elemList) {
 				elem.toString(buffer, tabCount);
 				buffer.append(elemSuffix);
-				if (lastSeparator || elem != elemList.getLast())
+				if (lastSeparator || elem != elemList.get(elemList.size() - 1))
 					buffer.append(separator);
 			}
 		}
 	}
 
-	protected void toString(StringBuffer buffer, int tabCount, LinkedList<? extends WorkspaceElement> elemList,
+	protected void toString(SourceWriter buffer, int tabCount, List<? extends WorkspaceElement> elemList,
 			String elemSuffix, String separator) {
 		toString(buffer, tabCount, elemList, elemSuffix, separator, false);
 	}
 
+	protected void appendBody(SourceWriter buffer, CharSequence body, int tabCount) {
+		buffer.appendBody(body, tabCount);
+	}
+
 	protected void appendBody(StringBuffer buffer, StringBuffer body, int tabCount) {
-		int begin = 0, end = 0;
-		if (body.length() > 0) {
-			begin = end = 0;
-			int codeLength = body.length();
-
-			while (begin < codeLength) {
-				end = body.indexOf("\n", begin);
-				end = (end == -1) ? codeLength : end;
-				indent(buffer, tabCount);
-				buffer.append(body, begin, end);
-				buffer.append(end < codeLength - 1 ? "\n" : "");
-				begin = end + 1;
-			}
-		}
+		appendBody(new SourceWriter(buffer), body, tabCount);
 	}
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.uniluebeck.sourcegen;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An insertion-ordered list of the members of a source element, such as the methods of a class, which also indexes
+ * the members by lookup keys. By default a member is its own key, so elements that do not override
+ * <code>equals</code> are indexed by identity; subclasses index members by their names instead by overriding
+ * {@link #keys(Object)}. Duplicate checks then only compare a member with the few members sharing its key instead of
+ * scanning the whole list. Keys must not change while a member is in the list.
+ *
+ * @param <T> The type of the members.
+ */
+public class MemberList<T> extends AbstractList<T> {
+
+	private static final Object[] NO_KEYS = new Object[0];
+
+	private final List<T> members = new ArrayList<T>();
+
+	private final Map<Object, List<T>> index = new HashMap<Object, List<T>>();
+
+	/**
+	 * Returns the keys by which the given member is indexed.
+	 *
+	 * @param member
+	 * @return The member itself, unless overridden.
+	 */
+	protected Object[] keys(T member) {
+		return member == null ? NO_KEYS : new Object[] { member };
+	}
+
+	@Override
+	public T get(int index) {
+		return members.get(index);
+	}
+
+	@Override
+	public int size() {
+		return members.size();
+	}
+
+	@Override
+	public void add(int index, T member) {
+		members.add(index, member);
+		modCount++;
+		if (index == members.size() - 1)
+			index(member);
+		else
+			reindex();
+	}
+
+	@Override
+	public T set(int index, T member) {
+		T old = members.set(index, member);
+		reindex();
+		return old;
+	}
+
+	@Override
+	public T remove(int index) {
+		T old = members.remove(index);
+		modCount++;
+		reindex();
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		members.clear();
+		modCount++;
+		index.clear();
+	}
+
+	/**
+	 * Returns the last member of this list.
+	 *
+	 * @return The last member, or <code>null</code> if the list is empty.
+	 */
+	public T getLast() {
+		return members.isEmpty() ? null : members.get(members.size() - 1);
+	}
+
+	/**
+	 * Returns all members indexed by the given key, in list order.
+	 *
+	 * @param key
+	 * @return The matching members, or an empty list.
+	 */
+	public List<T> getByKey(Object key) {
+		List<T> bucket = index.get(key);
+		return bucket != null ? Collections.unmodifiableList(bucket) : Collections.<T>emptyList();
+	}
+
+	/**
+	 * Checks whether any member is indexed by the given key.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean containsKey(Object key) {
+		return index.containsKey(key);
+	}
+
+	private void index(T member) {
+		for (Object key : keys(member)) {
+			List<T> bucket = index.get(key);
+			if (bucket == null) {
+				bucket = new ArrayList<T>(1);
+				index.put(key, bucket);
+			}
+			bucket.add(member);
+		}
+	}
+
+	private void reindex() {
+		index.clear();
+		for (T member : members)
+			index(member);
+	}
+
+}
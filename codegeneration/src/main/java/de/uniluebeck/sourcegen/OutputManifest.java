@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.uniluebeck.sourcegen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manifest of the files generated into an output directory. For every file it holds the MD5 digest of the content
+ * and the file's modification time after writing. Comparing a newly rendered file against the manifest of the
+ * previous run tells whether it must be written at all. Files of the previous run which have not been generated
+ * again are stale.
+ * 
+ * The manifest is stored as a text file in the output directory, one line per file: digest, modification time and
+ * path relative to the output directory, separated by a space.
+ */
+class OutputManifest {
+
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(OutputManifest.class);
+
+    /** Name of the manifest file in the output directory. */
+    static final String FILE_NAME = ".fabric-manifest";
+
+    private final File directory;
+
+    private final String directoryPath;
+
+    /** Files of the previous run, by relative path. */
+    private final Map<String, Entry> previous = new HashMap<String, Entry>();
+
+    /** Files of the current run, by relative path. */
+    private final Map<String, Entry> current = new ConcurrentSkipListMap<String, Entry>();
+
+    /**
+     * Loads the manifest of the given output directory, if any.
+     * 
+     * @param directory
+     *            the output directory
+     */
+    OutputManifest(File directory) {
+        this.directory = directory;
+        this.directoryPath = directory.getAbsolutePath() + File.separator;
+
+        File manifest = new File(directory, FILE_NAME);
+        if (!manifest.isFile()) {
+            return;
+        }
+
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(manifest));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.split(" ", 3);
+                    if (fields.length == 3) {
+                        previous.put(fields[2], new Entry(fields[0], Long.parseLong(fields[1])));
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to read output manifest " + manifest + ", ignoring it: " + e);
+            previous.clear();
+        }
+    }
+
+    /**
+     * Computes the digest of a file's content.
+     * 
+     * @param content
+     *            the encoded content, which is not consumed
+     * @return the digest as hex string
+     */
+    static String digest(ByteBuffer content) {
+        MessageDigest md = newDigest();
+        md.update(content.duplicate());
+        return toHex(md.digest());
+    }
+
+    /**
+     * Tells whether a file already has the content of the given digest. The file is compared against the manifest of
+     * the previous run; if it has been modified since, its content is read.
+     * 
+     * @param file
+     *            the file
+     * @param digest
+     *            the digest of the file's new content
+     * @return <code>true</code> if the file need not be written
+     */
+    boolean isUnchanged(File file, String digest) {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        Entry entry = previous.get(relativePath(file));
+        if (entry != null && entry.modified == file.lastModified()) {
+            return entry.digest.equals(digest);
+        }
+
+        try {
+            return digest(file).equals(digest);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records a file of the current run, after it has been written or found unchanged.
+     * 
+     * @param file
+     *            the file
+     * @param digest
+     *            the digest of the file's content
+     */
+    void record(File file, String digest) {
+        current.put(relativePath(file), new Entry(digest, file.lastModified()));
+    }
+
+    /**
+     * Keeps a file of the previous run in the manifest, although it has not been generated by the current run. This
+     * way, a stale file which has not been deleted is still known to the next run.
+     * 
+     * @param file
+     *            the file
+     */
+    void retain(File file) {
+        String path = relativePath(file);
+        Entry entry = previous.get(path);
+        if (entry != null) {
+            current.put(path, entry);
+        }
+    }
+
+    /**
+     * Returns the files of the previous run which still exist, but have not been recorded in the current run. Only
+     * files inside the output directory are returned; entries pointing anywhere else, e.g. absolute paths or paths
+     * leading out of the directory, are ignored with a warning.
+     * 
+     * @return the stale files
+     */
+    List<File> getStaleFiles() {
+        List<File> stale = new ArrayList<File>();
+        for (String path : previous.keySet()) {
+            if (!current.containsKey(path)) {
+                File file = new File(directory, path);
+                if (new File(path).isAbsolute() || !isInside(file)) {
+                    log.warn("Ignoring manifest entry " + path + ", which is not inside the output directory "
+                            + directory + ".");
+                } else if (file.isFile()) {
+                    stale.add(file);
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Stores the manifest of the current run in the output directory.
+     * 
+     * @throws IOException
+     */
+    void store() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Output directory " + directory + " could not be created.");
+        }
+
+        PrintWriter out = new PrintWriter(new File(directory, FILE_NAME), "UTF-8");
+        try {
+            for (Map.Entry<String, Entry> entry : current.entrySet()) {
+                out.println(entry.getValue().digest + " " + entry.getValue().modified + " " + entry.getKey());
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Unable to write output manifest in " + directory);
+        }
+    }
+
+    /**
+     * Tells whether a file is inside the output directory, once all links and <code>..</code> are resolved.
+     */
+    private boolean isInside(File file) {
+        try {
+            return file.getCanonicalPath().startsWith(directory.getCanonicalPath() + File.separator);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String relativePath(File file) {
+        String path = file.getAbsolutePath();
+        return path.startsWith(directoryPath) ? path.substring(directoryPath.length()) : path;
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest md = newDigest();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        private final String digest;
+        private final long modified;
+
+        Entry(String digest, long modified) {
+            this.digest = digest;
+            this.modified = modified;
+        }
+    }
+}
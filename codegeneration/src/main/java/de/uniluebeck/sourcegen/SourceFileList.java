@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.uniluebeck.sourcegen;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.uniluebeck.sourcegen.java.JSourceFile;
+
+/**
+ * The list of source files in a {@link Workspace}. Besides keeping the files in the order in which they were added,
+ * the list indexes them by file name and, for Java source files, by package name, so that the language workspaces
+ * can look up existing files without scanning the whole list. The indexes are maintained by every modification of
+ * the list, including modifications through its iterators.
+ * <p>
+ * The file name of a source file never changes. The package name of a Java source file may change; the file then
+ * calls {@link #keysChanged()}, and all lists rebuild their indexes before the next lookup.
+ */
+public class SourceFileList extends AbstractList<SourceFile> {
+
+    private static final List<SourceFile> NONE = Collections.emptyList();
+
+    private final List<SourceFile> files = new ArrayList<SourceFile>();
+
+    private final Map<String, List<SourceFile>> byFileName = new HashMap<String, List<SourceFile>>();
+
+    private final Map<String, List<SourceFile>> byPackageName = new HashMap<String, List<SourceFile>>();
+
+    /** Counts the changes of package names, over all lists. */
+    private static final AtomicInteger keyChanges = new AtomicInteger();
+
+    /** The value of {@link #keyChanges} when the indexes were last rebuilt. */
+    private int indexedKeyChanges = keyChanges.get();
+
+    private int version;
+
+    @Override
+    public SourceFile get(int index) {
+        return files.get(index);
+    }
+
+    @Override
+    public int size() {
+        return files.size();
+    }
+
+    @Override
+    public void add(int index, SourceFile file) {
+        files.add(index, file);
+        modCount++;
+        version++;
+        if (index == files.size() - 1) {
+            index(file);
+        } else {
+            reindex();
+        }
+    }
+
+    @Override
+    public SourceFile set(int index, SourceFile file) {
+        SourceFile old = files.set(index, file);
+        version++;
+        reindex();
+        return old;
+    }
+
+    @Override
+    public SourceFile remove(int index) {
+        SourceFile old = files.remove(index);
+        modCount++;
+        version++;
+        reindex();
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        files.clear();
+        modCount++;
+        version++;
+        reindex();
+    }
+
+    /**
+     * Returns all source files with the given file name, in list order.
+     *
+     * @param fileName
+     * @return The matching files, or an empty list.
+     */
+    public List<SourceFile> getByFileName(String fileName) {
+        checkKeys();
+        List<SourceFile> result = byFileName.get(fileName);
+        return result != null ? Collections.unmodifiableList(result) : NONE;
+    }
+
+    /**
+     * Returns all Java source files in the given package, in list order.
+     *
+     * @param packageName
+     * @return The matching files, or an empty list.
+     */
+    public List<SourceFile> getByPackageName(String packageName) {
+        checkKeys();
+        List<SourceFile> result = byPackageName.get(packageName);
+        return result != null ? Collections.unmodifiableList(result) : NONE;
+    }
+
+    /**
+     * Returns a number which changes whenever files are added, removed or replaced, or a Java source file in the list
+     * has moved to another package. Other indexes over the files can tell by it whether they are up to date.
+     *
+     * @return The version of the list.
+     */
+    public int getVersion() {
+        checkKeys();
+        return version;
+    }
+
+    /**
+     * Tells all lists that the package name of a Java source file has changed, so that they rebuild their indexes.
+     */
+    public static void keysChanged() {
+        keyChanges.incrementAndGet();
+    }
+
+    private void checkKeys() {
+        if (indexedKeyChanges != keyChanges.get()) {
+            version++;
+            reindex();
+        }
+    }
+
+    private void index(SourceFile file) {
+        if (file == null) {
+            return;
+        }
+        put(byFileName, file.getFileName(), file);
+        if (file instanceof JSourceFile) {
+            put(byPackageName, ((JSourceFile) file).getPackageName(), file);
+        }
+    }
+
+    private void reindex() {
+        indexedKeyChanges = keyChanges.get();
+        byFileName.clear();
+        byPackageName.clear();
+        for (SourceFile file : files) {
+            index(file);
+        }
+    }
+
+    private static void put(Map<String, List<SourceFile>> index, String key, SourceFile file) {
+        List<SourceFile> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<SourceFile>(1);
+            index.put(key, bucket);
+        }
+        bucket.add(file);
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.uniluebeck.sourcegen;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes rendered source code to an {@link Appendable}, e.g. a {@link java.io.Writer} or a {@link StringBuilder}, as
+ * it is rendered. It provides the indentation helpers used by the workspace elements.
+ * <p>
+ * Like {@link java.io.PrintWriter}, the writer never throws an {@link IOException} while rendering, so that rendering
+ * methods need not declare it. The first error is kept and thrown by {@link #flush()}; everything written after it is
+ * dropped.
+ */
+public class SourceWriter implements Appendable {
+
+	private final Appendable out;
+
+	private IOException error;
+
+	public SourceWriter(Appendable out) {
+		this.out = out;
+	}
+
+	@Override
+	public SourceWriter append(CharSequence csq) {
+		if (error == null) {
+			try {
+				out.append(csq);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public SourceWriter append(CharSequence csq, int start, int end) {
+		if (error == null) {
+			try {
+				out.append(csq, start, end);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public SourceWriter append(char c) {
+		if (error == null) {
+			try {
+				out.append(c);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the string representation of an object, like {@link StringBuffer#append(Object)}.
+	 */
+	public SourceWriter append(Object obj) {
+		return append(String.valueOf(obj));
+	}
+
+	/**
+	 * Appends the given number of tabs.
+	 */
+	public SourceWriter indent(int tabCount) {
+		for (int i = 0; i < tabCount; i++)
+			append('\t');
+		return this;
+	}
+
+	/**
+	 * Appends an indented line, followed by a line break.
+	 */
+	public SourceWriter addLine(int tabCount, CharSequence line) {
+		indent(tabCount);
+		append(line);
+		return append('\n');
+	}
+
+	/**
+	 * Appends a body of code, indenting each of its lines. A line break at the very end of the body is dropped.
+	 */
+	public SourceWriter appendBody(CharSequence body, int tabCount) {
+		int codeLength = body.length();
+		int begin = 0;
+
+		while (begin < codeLength) {
+			int end = begin;
+			while (end < codeLength && body.charAt(end) != '\n')
+				end++;
+			indent(tabCount);
+			append(body, begin, end);
+			if (end < codeLength - 1)
+				append('\n');
+			begin = end + 1;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns a writer for a body of code, which is appended to this writer as it is written, exactly like
+	 * {@link #appendBody(CharSequence, int)} would append it as a whole. The prefix is appended before the body's first
+	 * character; if nothing is written to the body, the prefix is left out as well.
+	 */
+	public SourceWriter body(int tabCount, CharSequence prefix) {
+		return new SourceWriter(new Body(this, tabCount, prefix));
+	}
+
+	/**
+	 * Flushes the underlying {@link Appendable}, if it is {@link Flushable}.
+	 * 
+	 * @throws IOException
+	 *             if writing has failed, now or before
+	 */
+	public void flush() throws IOException {
+		if (error == null && out instanceof Flushable) {
+			try {
+				((Flushable) out).flush();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Indents each line written to it. A line break is held back until the next character arrives, so that a line
+	 * break at the very end of the body is dropped.
+	 */
+	private static final class Body implements Appendable {
+		private final SourceWriter out;
+		private final int tabCount;
+		private CharSequence prefix;
+		private boolean lineStart = true;
+		private boolean pendingNewline = false;
+
+		Body(SourceWriter out, int tabCount, CharSequence prefix) {
+			this.out = out;
+			this.tabCount = tabCount;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Appendable append(CharSequence csq) {
+			if (csq == null)
+				csq = "null";
+			return append(csq, 0, csq.length());
+		}
+
+		@Override
+		public Appendable append(CharSequence csq, int start, int end) {
+			if (csq == null)
+				csq = "null";
+			for (int i = start; i < end; i++)
+				append(csq.charAt(i));
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) {
+			if (prefix != null) {
+				out.append(prefix);
+				prefix = null;
+			}
+			if (pendingNewline) {
+				out.append('\n');
+				pendingNewline = false;
+				lineStart = true;
+			}
+			if (lineStart) {
+				out.indent(tabCount);
+				lineStart = false;
+			}
+			if (c == '\n')
+				pendingNewline = true;
+			else
+				out.append(c);
+			return this;
+		}
+	}
+}
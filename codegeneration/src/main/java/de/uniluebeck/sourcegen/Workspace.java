@@ -25,11 +25,26 @@ package de.uniluebeck.sourcegen;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.LinkedList;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.LoggerFactory;
 
@@ -113,9 +128,9 @@ public class Workspace {
     // SourceFiles
     // ###################################################################
 
-    private final List<SourceFile> sourceFiles = new LinkedList<SourceFile>();
+    private final SourceFileList sourceFiles = new SourceFileList();
 
-    public List<SourceFile> getSourceFiles() {
+    public SourceFileList getSourceFiles() {
         return this.sourceFiles;
     }
 
@@ -134,41 +149,241 @@ public class Workspace {
     }
 
     /**
-     * Generates all source files
+     * Generates all source files. If {@link #KEY_GENERATE_THREADS} is set to more than one thread, the files are
+     * rendered and written concurrently on that many threads, and the errors of all files are reported together at
+     * the end. The files are the same either way.
+     * <p>
+     * If {@link #KEY_SKIP_UNCHANGED} is set, files whose content has not changed are not written again, which keeps
+     * their modification times. The output directory then holds a manifest of the generated files, which is also used
+     * to find the stale files of earlier runs. These are reported, or deleted if {@link #KEY_REMOVE_STALE} is set.
+     * <p>
+     * Workspaces which share an output directory must be generated together by {@link #generate(List)} instead.
      *
      * @throws Exception
      */
     public void generate() throws Exception {
+        generate(Collections.singletonList(this));
+    }
+
+    /**
+     * Generates the source files of several workspaces, e.g. those of modules running concurrently, one workspace
+     * after the other. Workspaces writing to the same output directory share one manifest, so the files of one
+     * workspace are not taken for stale files by another. Stale files are only looked for, and the manifests only
+     * stored, once all workspaces have been generated.
+     *
+     * @param workspaces
+     * @throws Exception
+     */
+    public static void generate(List<Workspace> workspaces) throws Exception {
+        Map<String, OutputManifest> manifests = new LinkedHashMap<String, OutputManifest>();
+        Map<String, Workspace> owners = new HashMap<String, Workspace>();
+
+        for (Workspace workspace : workspaces) {
+            workspace.manifest = null;
+            if (Boolean.parseBoolean(workspace.properties.getProperty(KEY_SKIP_UNCHANGED, "false").trim())) {
+                String directory = new File(workspace.getOutputDirString()).getAbsolutePath();
+                workspace.manifest = manifests.get(directory);
+                if (workspace.manifest == null) {
+                    workspace.manifest = new OutputManifest(new File(directory));
+                    manifests.put(directory, workspace.manifest);
+                    owners.put(directory, workspace);
+                }
+            }
+            workspace.generateFiles();
+        }
+
+        for (Map.Entry<String, OutputManifest> entry : manifests.entrySet()) {
+            owners.get(entry.getKey()).removeStaleFiles(entry.getValue());
+            entry.getValue().store();
+        }
+    }
+
+    /**
+     * Generates the files of this workspace, checking them against its manifest, if any.
+     *
+     * @throws Exception
+     */
+    private void generateFiles() throws Exception {
         log.info("Generating " + sourceFiles.size() + " source files.");
 
         jPackagePrefix = properties.getProperty(KEY_JAVA_PKG_PREFIX, "");
 
         long timeStart = (new Date()).getTime();
 
+        // Rendering C++ files prepares the classes and namespaces they share, so do that up front
         for (SourceFile sourceFile : sourceFiles) {
+            if (sourceFile instanceof CppSourceFile) {
+                ((CppSourceFile) sourceFile).prepare();
+            }
+        }
+
+        unchangedFiles.set(0);
+
+        int threads = Integer.parseInt(properties.getProperty(KEY_GENERATE_THREADS, "1").trim());
+        if (threads > 1 && sourceFiles.size() > 1) {
+            generateConcurrently(threads);
+        } else {
+            for (SourceFile sourceFile : sourceFiles) {
+                generate(sourceFile);
+            }
+        }
+
+        if (manifest != null) {
+            log.info("Skipped " + unchangedFiles.get() + " unchanged source files.");
+        }
 
-            String dirString = getDirString(sourceFile);
-            String fileString = getFileString(sourceFile);
+        long timeEnd = (new Date()).getTime();
+        log.info("Generated " + sourceFiles.size() + " source files in " + (timeEnd - timeStart) + " ms.");
+    }
+
+    /**
+     * Generates all source files on the given number of threads.
+     *
+     * @param threads
+     * @throws Exception if any of the files could not be generated
+     */
+    private void generateConcurrently(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, sourceFiles.size()));
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(sourceFiles.size());
+
+        try {
+            for (final SourceFile sourceFile : sourceFiles) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        generate(sourceFile);
+                        return null;
+                    }
+                }));
+            }
 
-            File dir = new File(dirString);
-            File file = new File(dirString + fileString);
+            List<String> errors = new ArrayList<String>();
+            Throwable cause = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    errors.add(sourceFiles.get(i).getFileName() + ": " + e.getCause());
+                    if (cause == null) {
+                        cause = e.getCause();
+                    }
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                for (String error : errors) {
+                    log.error("Failed generating " + error);
+                }
+                throw new Exception(errors.size() + " of " + sourceFiles.size() + " source files could not be generated: "
+                        + errors, cause);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders a single source file and writes it to its file.
+     *
+     * @param sourceFile
+     * @throws Exception
+     */
+    private void generate(SourceFile sourceFile) throws Exception {
+        String dirString = getDirString(sourceFile);
+        String fileString = getFileString(sourceFile);
 
-            assureDirExists(dir);
-            assureFileExists(file);
+        File dir = new File(dirString);
+        File file = new File(dirString + fileString);
 
+        assureDirExists(dir);
+
+        // Without a manifest and debug output, the source is streamed to its file instead of being rendered to memory
+        if (manifest == null && !log.isDebugEnabled() && sourceFile instanceof WorkspaceElement) {
             log.info("Generating file " + file.getAbsolutePath() + ".");
+            write(file, (WorkspaceElement) sourceFile);
+            return;
+        }
+
+        String source = sourceFile.toString();
+        ByteBuffer content = Charset.defaultCharset().encode(source + "\n");
 
-            StringBuffer buffer = new StringBuffer(sourceFile.toString());
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        if (manifest == null) {
+            log.info("Generating file " + file.getAbsolutePath() + ".");
+            write(file, content);
+        } else {
+            String digest = OutputManifest.digest(content);
+            if (manifest.isUnchanged(file, digest)) {
+                log.info("Skipping unchanged file " + file.getAbsolutePath() + ".");
+                unchangedFiles.incrementAndGet();
+            } else {
+                log.info("Generating file " + file.getAbsolutePath() + ".");
+                write(file, content);
+            }
+            manifest.record(file, digest);
+        }
 
-            writer.write(buffer.toString() + "\n");
+        if (log.isDebugEnabled()) {
             log.debug("Sourcecode of " + sourceFile.getFileName() + ":\n");
-            log.debug(buffer.toString());
+            log.debug(source);
+        }
+    }
+
+    /**
+     * Streams the given element to a file, replacing the file's former content.
+     *
+     * @param file
+     * @param element
+     * @throws Exception
+     */
+    private void write(File file, WorkspaceElement element) throws Exception {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset()));
+        try {
+            element.write(writer);
+            writer.append('\n');
+        } finally {
             writer.close();
         }
+    }
 
-        long timeEnd = (new Date()).getTime();
-        log.info("Generated " + sourceFiles.size() + " source files in " + (timeEnd - timeStart) + " ms.");
+    /**
+     * Writes the given content to a file, replacing the file's former content.
+     *
+     * @param file
+     * @param content
+     * @throws Exception
+     */
+    private void write(File file, ByteBuffer content) throws Exception {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reports or deletes the files generated by an earlier run, but not by this one. Files which are left are kept in
+     * the manifest.
+     *
+     * @param manifest
+     *            the manifest of the output directory, shared by all workspaces writing to it
+     */
+    private void removeStaleFiles(OutputManifest manifest) {
+        boolean remove = Boolean.parseBoolean(properties.getProperty(KEY_REMOVE_STALE, "false").trim());
+
+        for (File file : manifest.getStaleFiles()) {
+            if (!remove) {
+                log.warn("Stale file " + file.getAbsolutePath() + " has not been generated again.");
+                manifest.retain(file);
+            } else if (file.delete()) {
+                log.info("Deleted stale file " + file.getAbsolutePath() + ".");
+            } else {
+                log.warn("Stale file " + file.getAbsolutePath() + " could not be deleted.");
+                manifest.retain(file);
+            }
+        }
     }
 
     // ###################################################################
@@ -185,24 +400,32 @@ public class Workspace {
 
     public static final String KEY_PROJECTSUBDIR = "project.subdir";
 
+    /** Number of threads generating the source files; 1 (default) generates them one after the other. */
+    public static final String KEY_GENERATE_THREADS = "workspace.threads";
+
+    /** Whether files whose content has not changed are left alone (default false). */
+    public static final String KEY_SKIP_UNCHANGED = "workspace.skip_unchanged";
+
+    /** Whether stale files of earlier runs are deleted (default false); only used with {@link #KEY_SKIP_UNCHANGED}. */
+    public static final String KEY_REMOVE_STALE = "workspace.remove_stale";
+
     private String jPackagePrefix;
 
+    /** Manifest of the output directory in the current run, if unchanged files are skipped. */
+    private OutputManifest manifest;
+
+    private final AtomicInteger unchangedFiles = new AtomicInteger();
+
     public String getJPackagePrefix() {
         return jPackagePrefix;
     }
 
     private void assureDirExists(File dir) throws Exception {
         if (!dir.exists())
-            if (!dir.mkdirs())
+            if (!dir.mkdirs() && !dir.isDirectory()) // may have been created concurrently
                 throw new Exception("File output directory could not be created.");
     }
 
-    private void assureFileExists(File file) throws Exception {
-        if (!file.exists())
-            if (!file.createNewFile())
-                throw new Exception("File could not be created.");
-    }
-
     private String getFileString(SourceFile sourceFile) {
         if (sourceFile instanceof JSourceFile)
             return sourceFile.getFileName() + ".java";
@@ -217,7 +440,7 @@ public class Workspace {
         return sourceFile.getFileName();
     }
 
-    private String getDirString(SourceFile sourceFile) throws Exception {
+    private String getOutputDirString() {
         String projectDirString = properties.getProperty(KEY_PROJECTDIR, System.getProperty("user.dir"));
 
         // Use the desired output directory
@@ -230,6 +453,12 @@ public class Workspace {
         projectDirString = assureTrailingSeparator(projectDirString);
         projectDirString += subDir;
 
+        return assureTrailingSeparator(projectDirString);
+    }
+
+    private String getDirString(SourceFile sourceFile) throws Exception {
+        String projectDirString = getOutputDirString();
+
         if (sourceFile instanceof JSourceFile) {
             JSourceFile jSourceFile = (JSourceFile) sourceFile;
             projectDirString = assureTrailingSeparator(projectDirString);
@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen;
 
+import java.io.IOException;
 
 public interface WorkspaceElement {
 
@@ -33,4 +34,15 @@ public interface WorkspaceElement {
 	public abstract String toString(int tabCount);
 
 	public abstract void toString(StringBuffer buffer, int tabCount);
+
+	/**
+	 * Renders this element into the given writer, indented by the given number of tabs.
+	 */
+	public abstract void toString(SourceWriter buffer, int tabCount);
+
+	/**
+	 * Renders this element directly into the given {@link Appendable}, e.g. a {@link java.io.Writer}, without
+	 * building the whole source in memory.
+	 */
+	public abstract void write(Appendable out) throws IOException;
 }
@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 /**
  * Comment for C/C++ elements
  *
@@ -51,7 +53,7 @@ public class CCommentImpl extends CElemImpl implements CComment {
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		buffer.append("/**" + Cpp.newline);
 		buffer.append(" * ").append(this.getDescription()).append(Cpp.newline);
 		buffer.append(" */" + Cpp.newline);
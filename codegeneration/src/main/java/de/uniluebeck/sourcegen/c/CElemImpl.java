@@ -24,12 +24,13 @@
 package de.uniluebeck.sourcegen.c;
 
 import de.uniluebeck.sourcegen.ElemImpl;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 
 
 abstract class CElemImpl extends ElemImpl implements CElem {
 
-	boolean toStringModifiers(StringBuffer buffer, int tabCount, int modifiers) {
+	boolean toStringModifiers(SourceWriter buffer, int tabCount, int modifiers) {
 		if (Cpp.NONE != modifiers) {
 			indent(buffer, tabCount);
 			//TODO Why is CPP here in the C part?
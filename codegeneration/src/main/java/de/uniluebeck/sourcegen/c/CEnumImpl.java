@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -210,7 +211,7 @@ class CEnumImpl extends CElemImpl implements CEnum {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 		// write comment if necessary
 		if (comment != null) {
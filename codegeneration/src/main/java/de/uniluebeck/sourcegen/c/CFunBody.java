@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 
 
@@ -98,7 +99,7 @@ public class CFunBody extends CElemImpl {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		int begin = 0, end = 0;
 		if (declarations.length() > 0) {
 			int declLength = declarations.length();
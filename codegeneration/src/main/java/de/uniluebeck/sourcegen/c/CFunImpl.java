@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.List;
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -216,7 +217,7 @@ class CFunImpl extends CElemImpl implements CFun {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		if (beforeDirectives.size() > 0) {
 			toString(buffer, tabCount, beforeDirectives, "", "\n");
 			buffer.append("\n");
@@ -242,7 +243,7 @@ class CFunImpl extends CElemImpl implements CFun {
 		toString(buffer, tabCount, afterDirectives, "", "\n");
 	}
 
-	public void toStringForwardDecl(StringBuffer buffer, int tabCount) {
+	public void toStringForwardDecl(SourceWriter buffer, int tabCount) {
 		toString(buffer, tabCount, beforeDirectives);
 		indent(buffer, tabCount);
 		buffer.append(returnType);
@@ -25,6 +25,7 @@ package de.uniluebeck.sourcegen.c;
 
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 
 
@@ -118,7 +119,7 @@ class CFunSignatureImpl extends CElemImpl implements CFunSignature {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("(");
 		for (CParam p : parameters) {
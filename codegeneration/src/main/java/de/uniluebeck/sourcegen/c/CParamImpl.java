@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CConflictingModifierException;
 
 
@@ -133,7 +134,7 @@ class CParamImpl extends CElemImpl implements CParam {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append(type);
 		buffer.append(" ");
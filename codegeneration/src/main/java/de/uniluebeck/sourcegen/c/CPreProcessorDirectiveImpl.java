@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
 
 
@@ -80,7 +81,7 @@ class CPreProcessorDirectiveImpl extends CElemImpl implements CPreProcessorDirec
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append(hash ? "#" : "");
 		buffer.append(directive);
@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.LinkedList;
 
 import de.uniluebeck.sourcegen.ElemImpl;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -600,7 +601,7 @@ public class CSourceFileBase extends ElemImpl {
 
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 		if(beforeDirectives.size() > 0) {
 			toString(buffer, tabCount, beforeDirectives, "", "\n");
@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -198,7 +199,7 @@ public class CSourceFileImpl extends CElemImpl implements CSourceFile {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		base.toString(buffer, tabCount);
 	}
 
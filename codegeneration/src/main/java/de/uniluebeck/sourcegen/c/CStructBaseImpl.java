@@ -23,8 +23,12 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
+import de.uniluebeck.sourcegen.MemberList;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -55,9 +59,15 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	/**
 	 * a list of nested structs and unions contained in this source file, which
 	 * are kept together in one list in order to retain their order of declaration
-	 * in the generated source file
+	 * in the generated source file; they are indexed by both name and variable name,
+	 * as either of them may collide with a new struct or union
 	 */
-	private LinkedList<CStructBaseImpl> structsUnions = new LinkedList<CStructBaseImpl>();
+	private MemberList<CStructBaseImpl> structsUnions = new MemberList<CStructBaseImpl>() {
+		@Override
+		protected Object[] keys(CStructBaseImpl member) {
+			return new Object[] { member.name, member.varname };
+		}
+	};
 
 	/**
 	 * The comment
@@ -77,12 +87,22 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	/**
 	 * the structs' enums
 	 */
-	protected LinkedList<CEnumImpl> enums = new LinkedList<CEnumImpl>();
+	protected MemberList<CEnumImpl> enums = new MemberList<CEnumImpl>() {
+		@Override
+		protected Object[] keys(CEnumImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	/**
 	 * the structs' variables
 	 */
-	protected LinkedList<CParamImpl> vars = new LinkedList<CParamImpl>();
+	protected MemberList<CParamImpl> vars = new MemberList<CParamImpl>() {
+		@Override
+		protected Object[] keys(CParamImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	/**
 	 * the directives which will be printed after struct/structUnion
@@ -190,10 +210,7 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	}
 
 	public boolean contains(CEnum cEnum) {
-		for (CEnum e : enums)
-			if (((CEnumImpl)e).getName().equals(((CEnumImpl)cEnum).getName()))
-				return true;
-		return false;
+		return enums.containsKey(((CEnumImpl)cEnum).getName());
 	}
 
 	public void add(CStruct... struct) throws CDuplicateException {
@@ -213,7 +230,7 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	}
 
 	public boolean contains(CUnion union) {
-		for (CStructBaseImpl u : structsUnions)
+		for (CStructBaseImpl u : getStructsUnionsCollidingWith(union))
 			if (u instanceof CUnion && u.equals(union))
 				return true;
 		return false;
@@ -251,14 +268,26 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	}
 
 	public boolean contains(CStruct struct) {
-		for (CStructBaseImpl elem : structsUnions)
+		for (CStructBaseImpl elem : getStructsUnionsCollidingWith(struct))
 			if (elem instanceof CStruct && elem.equals(struct))
 				return true;
 		return false;
 	}
 
+	/**
+	 * Returns the nested structs and unions whose name or variable name equals
+	 * the name or variable name of the given struct or union, i.e. the only
+	 * candidates for a collision with it.
+	 */
+	private List<CStructBaseImpl> getStructsUnionsCollidingWith(CStructBase other) {
+		CStructBaseImpl o = (CStructBaseImpl) other;
+		List<CStructBaseImpl> result = new ArrayList<CStructBaseImpl>(structsUnions.getByKey(o.name));
+		result.addAll(structsUnions.getByKey(o.varname));
+		return result;
+	}
+
 	public boolean contains(CParam variable) {
-		for (CParam elem : vars)
+		for (CParam elem : vars.getByKey(((CParamImpl)variable).getName()))
 			if (elem.equals(variable))
 				return true;
 		return false;
@@ -424,7 +453,7 @@ abstract class CStructBaseImpl extends CElemImpl implements CStructBase {
 	public abstract void validateFields() throws CCodeValidationException;
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 		// write comment if necessary
 		if (comment != null) {
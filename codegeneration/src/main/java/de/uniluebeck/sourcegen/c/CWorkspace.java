@@ -24,12 +24,12 @@
 package de.uniluebeck.sourcegen.c;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 
 import de.uniluebeck.sourcegen.SourceFile;
+import de.uniluebeck.sourcegen.SourceFileList;
 import de.uniluebeck.sourcegen.Workspace;
 
 public class CWorkspace {
@@ -39,7 +39,7 @@ public class CWorkspace {
     // TODO Make sure that CFun has a working Comparator
     private Set<CFun> globalMethodStoreC = new HashSet<CFun>();
 
-    private final List<SourceFile> sourceFiles;
+    private final SourceFileList sourceFiles;
 
     public CWorkspace(Workspace w) {
         this.sourceFiles = w.getSourceFiles();
@@ -49,8 +49,8 @@ public class CWorkspace {
 
         // check if file is already existing and
         // return instance if so
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CppHeaderFile && ((CppSourceFile) f).getFileName().equals(fileName))
+        for (SourceFile f : sourceFiles.getByFileName(fileName))
+            if (f instanceof CppHeaderFile)
                 return (CppHeaderFile) f;
 
         // create the new instance since it's not yet existing
@@ -64,9 +64,8 @@ public class CWorkspace {
 
         // check if file is already existing and
         // return instance if so
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CppSourceFile && !(f instanceof CppHeaderFile)
-                    && ((CppSourceFile) f).getFileName().equals(fileName))
+        for (SourceFile f : sourceFiles.getByFileName(fileName))
+            if (f instanceof CppSourceFile && !(f instanceof CppHeaderFile))
                 return (CppSourceFile) f;
 
         // create the new instance since it's not yet existing
@@ -79,9 +78,8 @@ public class CWorkspace {
 
         // check if source file already existing and
         // return instance if so
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CSourceFile && !(f instanceof CHeaderFile)
-                    && ((CSourceFile) f).getFileName().equals(fileName))
+        for (SourceFile f : sourceFiles.getByFileName(fileName))
+            if (f instanceof CSourceFile && !(f instanceof CHeaderFile))
                 return (CSourceFile) f;
 
         // create new instance since it's not yet existing
@@ -92,16 +90,16 @@ public class CWorkspace {
     }
 
     public boolean containsCHeaderFile(String fileName) {
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CHeaderFile && f.getFileName().equals(fileName))
+        for (SourceFile f : sourceFiles.getByFileName(fileName))
+            if (f instanceof CHeaderFile)
                 return true;
         return false;
 
     }
 
     public boolean containsCSourceFile(String fileName) {
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CSourceFile && !(f instanceof CHeaderFile) && f.getFileName().equals(fileName))
+        for (SourceFile f : sourceFiles.getByFileName(fileName))
+            if (f instanceof CSourceFile && !(f instanceof CHeaderFile))
                 return true;
         return false;
     }
@@ -110,8 +108,8 @@ public class CWorkspace {
 
         // check if source file already existing and
         // return instance if so
-        for (SourceFile f : sourceFiles)
-            if (f instanceof CHeaderFile && f.getFileName().equals(filename))
+        for (SourceFile f : sourceFiles.getByFileName(filename))
+            if (f instanceof CHeaderFile)
                 return (CHeaderFile) f;
 
         // create new instance since it's not yet existing
@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.MemberList;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.WorkspaceElement;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
 import de.uniluebeck.sourcegen.exceptions.CppCodeValidationException;
@@ -44,33 +46,54 @@ class CppClassImpl extends CElemImpl implements CppClass {
         }
     }
 
+    /**
+     * A list of members with their visibility, indexed by the members themselves.
+     */
+    class VisElemList extends MemberList<VisElem> {
+        @Override
+        protected Object[] keys(VisElem member) {
+            return new Object[] { member.elem };
+        }
+    }
+
     private String className;
 
     private List<CPreProcessorDirectiveImpl> afterDirectives = new LinkedList<CPreProcessorDirectiveImpl>();
 
     private List<CPreProcessorDirectiveImpl> beforeDirectives = new LinkedList<CPreProcessorDirectiveImpl>();
 
-    private List<VisElem> constructors = new LinkedList<VisElem>();
+    private VisElemList constructors = new VisElemList();
 
-    private List<VisElem> destructors = new LinkedList<VisElem>();
+    private VisElemList destructors = new VisElemList();
 
-    private List<VisElem> enums = new LinkedList<VisElem>();
+    private VisElemList enums = new VisElemList();
 
-    private List<VisElem> extendeds = new LinkedList<VisElem>();
+    private VisElemList extendeds = new VisElemList();
 
     private List<String> extendeds_string = new LinkedList<String>();
 
-    private List<VisElem> funs = new LinkedList<VisElem>();
+    private VisElemList funs = new VisElemList();
 
-    private List<VisElem> nested = new LinkedList<VisElem>();
+    private VisElemList nested = new VisElemList();
 
     private List<String> globalDeclarations = new LinkedList<String>();
 
-    private List<VisElem> structsUnions = new LinkedList<VisElem>();
+    private VisElemList structsUnions = new VisElemList() {
+        @Override
+        protected Object[] keys(VisElem member) {
+            CStructBaseImpl s = (CStructBaseImpl) member.elem;
+            return new Object[] { s.name, s.varname };
+        }
+    };
 
-    private List<VisElem> vars = new LinkedList<VisElem>();
+    private VisElemList vars = new VisElemList();
 
-    private List<VisElem> cfuns = new LinkedList<VisElem>();
+    private VisElemList cfuns = new VisElemList() {
+        @Override
+        protected Object[] keys(VisElem member) {
+            return new Object[] { ((CFun) member.elem).getName() };
+        }
+    };
 
     private CComment comment = null;
 
@@ -282,68 +305,61 @@ class CppClassImpl extends CElemImpl implements CppClass {
     }
 
     public boolean contains(CEnum enumObj) {
-        for (VisElem ev : enums)
-            if (((CEnumImpl) ev.elem).equals(enumObj))
-                return true;
-        return false;
+        return enums.containsKey(enumObj);
     }
 
     public boolean contains(CppClass classObj) {
-        for (VisElem ev : nested)
-            if (((CppClass) ev.elem).equals(classObj))
-                return true;
-        return false;
+        return nested.containsKey(classObj);
     }
 
     public boolean contains(CFun fun) {
-        for (VisElem cfv : cfuns)
+        for (VisElem cfv : cfuns.getByKey(fun.getName()))
             if (((CFunImpl) cfv.elem).equals(fun))
                 return true;
         return false;
     }
 
     public boolean contains(CppConstructor constructor) {
-        for (VisElem cv : constructors)
-            if (((CppConstructorImpl) cv.elem).equals(constructor))
-                return true;
-        return false;
+        return constructors.containsKey(constructor);
     }
 
     public boolean contains(CppDestructor destructor) {
-        for (VisElem dv : destructors)
-            if (((CppDestructorImpl) dv.elem).equals(destructor))
-                return true;
-        return false;
+        return destructors.containsKey(destructor);
     }
 
     public boolean contains(CppFun fun) {
-        for (VisElem fv : funs)
-            if (((CppFunImpl) fv.elem).equals(fun))
-                return true;
-        return false;
+        return funs.containsKey(fun);
     }
 
     public boolean contains(CppVar var) {
-        for (VisElem vv : vars)
-            if (((CppVarImpl) vv.elem).equals(var))
-                return true;
-        return false;
+        return vars.containsKey(var);
     }
 
     public boolean contains(CStruct struct) {
-        for (VisElem suv : structsUnions)
+        for (VisElem suv : getStructsUnionsCollidingWith(struct))
             if (suv.elem instanceof CStruct && ((CStruct) suv.elem).equals(struct))
                 return true;
         return false;
     }
 
     public boolean contains(CUnion union) {
-        for (VisElem suv : structsUnions)
+        for (VisElem suv : getStructsUnionsCollidingWith(union))
             if (suv.elem instanceof CUnion && ((CUnion) suv.elem).equals(union))
                 return true;
         return false;
     }
 
+    /**
+     * Returns the structs and unions whose name or variable name equals the name or variable name of the given
+     * struct or union, i.e. the only candidates for a collision with it.
+     */
+    private List<VisElem> getStructsUnionsCollidingWith(CStructBase other) {
+        CStructBaseImpl o = (CStructBaseImpl) other;
+        List<VisElem> result = new ArrayList<VisElem>(structsUnions.getByKey(o.name));
+        result.addAll(structsUnions.getByKey(o.varname));
+        return result;
+    }
+
     public boolean containsAfterDirective(CPreProcessorDirective directive) {
         for (CPreProcessorDirective d : afterDirectives)
             if (d.equals(directive))
@@ -359,10 +375,7 @@ class CppClassImpl extends CElemImpl implements CppClass {
     }
 
     public boolean containsExtended(CppClass extended) {
-        for (VisElem ccv : extendeds)
-            if (((CppClass) ccv.elem).equals(extended))
-                return true;
-        return false;
+        return extendeds.containsKey(extended);
     }
 
     public CPreProcessorDirectiveImpl[] getAfterDirectives() {
@@ -645,7 +658,7 @@ class CppClassImpl extends CElemImpl implements CppClass {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         prepare();
 
         // TODO: Maybe beforeDirectives, globalDeclarations
@@ -676,15 +689,11 @@ class CppClassImpl extends CElemImpl implements CppClass {
          * Public stuff
          * ##################################################################
          */
-        // Needed to get the public stuff one tab count deeper
-        StringBuffer tmp_public = new StringBuffer();
-        toStringHelper(tmp_public, tabCount, Cpp.PUBLIC);
-
-        if (tmp_public.length() > 0) {
-            indent(buffer, tabCount + 1);
-            buffer.append("public:" + Cpp.newline);
-            appendBody(buffer, tmp_public, tabCount + 2);
-        }
+        // Needed to get the public stuff one tab count deeper; the label is only written if there is any
+        StringBuilder label = new StringBuilder();
+        indent(new SourceWriter(label), tabCount + 1);
+        label.append("public:" + Cpp.newline);
+        toStringHelper(buffer.body(tabCount + 2, label), tabCount, Cpp.PUBLIC);
 
         /**
          * ##################################################################
@@ -692,15 +701,10 @@ class CppClassImpl extends CElemImpl implements CppClass {
          * ##################################################################
          */
         // Needed to get the protected stuff one tab count deeper
-        StringBuffer tmp_protected = new StringBuffer();
-        toStringHelper(tmp_protected, tabCount, Cpp.PROTECTED);
-
-        if (tmp_protected.length() > 0) {
-            buffer.append(Cpp.newline);
-            indent(buffer, tabCount + 1);
-            buffer.append("protected:" + Cpp.newline);
-            appendBody(buffer, tmp_protected, tabCount + 2);
-        }
+        label = new StringBuilder(Cpp.newline);
+        indent(new SourceWriter(label), tabCount + 1);
+        label.append("protected:" + Cpp.newline);
+        toStringHelper(buffer.body(tabCount + 2, label), tabCount, Cpp.PROTECTED);
 
         /**
          * ##################################################################
@@ -708,15 +712,10 @@ class CppClassImpl extends CElemImpl implements CppClass {
          * ##################################################################
          */
         // Needed to get the private stuff one tab count deeper
-        StringBuffer tmp_private = new StringBuffer();
-        toStringHelper(tmp_private, tabCount, Cpp.PRIVATE);
-
-        if (tmp_private.length() > 0) {
-            buffer.append(Cpp.newline);
-            indent(buffer, tabCount + 1);
-            buffer.append("private:" + Cpp.newline);
-            appendBody(buffer, tmp_private, tabCount + 2);
-        }
+        label = new StringBuilder(Cpp.newline);
+        indent(new SourceWriter(label), tabCount + 1);
+        label.append("private:" + Cpp.newline);
+        toStringHelper(buffer.body(tabCount + 2, label), tabCount, Cpp.PRIVATE);
 
         /**
          * ##################################################################
@@ -731,12 +730,12 @@ class CppClassImpl extends CElemImpl implements CppClass {
         // TODO: Maybe afterDirectives
     }
 
-    protected void indent(StringBuffer buffer, int tabCount) {
+    protected void indent(SourceWriter buffer, int tabCount) {
         for (int i = 0; i < tabCount; i++)
             buffer.append("\t");
     }
 
-    private void toStringHelper(StringBuffer tmp, int tabCount, long visability) {
+    private void toStringHelper(SourceWriter tmp, int tabCount, long visability) {
         // Nested classes
         if (null != this.getNested(visability) && this.getNested(visability).size() > 0) {
             for (int i = 0; i < this.getNested(visability).size(); ++i) {
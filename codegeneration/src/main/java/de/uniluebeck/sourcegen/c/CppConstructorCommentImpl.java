@@ -28,6 +28,7 @@ package de.uniluebeck.sourcegen.c;
 
 import java.util.Map;
 import java.util.TreeMap;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 
 /**
@@ -74,7 +75,7 @@ public class CppConstructorCommentImpl extends CCommentImpl implements CppConstr
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		//indent(buffer, tabCount);
 		buffer.append("/**" + Cpp.newline);
 
@@ -93,7 +94,7 @@ public class CppConstructorCommentImpl extends CCommentImpl implements CppConstr
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addDescriptionComment(StringBuffer buffer, int tabCount) {
+	protected void addDescriptionComment(SourceWriter buffer, int tabCount) {
 		buffer.append(" * ").append(this.getDescription()).append(Cpp.newline);
 	}
 
@@ -101,7 +102,7 @@ public class CppConstructorCommentImpl extends CCommentImpl implements CppConstr
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addParameterComments(StringBuffer buffer, int tabCount) {
+	protected void addParameterComments(SourceWriter buffer, int tabCount) {
 		for (String key : params.keySet()) {
 			buffer.append(" * @param ").append(key).append(" ").append(params.get(key)).append(Cpp.newline);
 		}
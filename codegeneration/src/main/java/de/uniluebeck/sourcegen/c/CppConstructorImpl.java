@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.LinkedList;
 import java.util.List;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 class CppConstructorImpl extends CElemImpl implements CppConstructor {
@@ -94,7 +95,7 @@ class CppConstructorImpl extends CElemImpl implements CppConstructor {
 
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 		// write comment if necessary
 		if (comment != null) {
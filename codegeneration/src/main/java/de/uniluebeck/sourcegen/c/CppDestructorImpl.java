@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 
@@ -62,7 +63,7 @@ class CppDestructorImpl extends CElemImpl implements CppDestructor {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 		if (comment != null) {
 			comment.toString(buffer, tabCount);
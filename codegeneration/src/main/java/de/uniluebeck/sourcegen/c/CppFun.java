@@ -23,6 +23,7 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 
@@ -66,7 +67,7 @@ public interface CppFun extends CppLangElem {
 	public CppFun appendCode(String string);
 	public String getSignature();
   
-  public void toString(StringBuffer buffer, int tabCount, boolean isLast);
+  public void toString(SourceWriter buffer, int tabCount, boolean isLast);
 
 	/**
 	 * This method is only used by the CppClass
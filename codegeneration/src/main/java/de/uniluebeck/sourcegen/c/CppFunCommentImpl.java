@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 
 /**
@@ -80,7 +82,7 @@ public class CppFunCommentImpl extends CppConstructorCommentImpl implements CppF
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		buffer.append("/**" + Cpp.newline);
 
 		addDescriptionComment(buffer, tabCount);
@@ -109,7 +111,7 @@ public class CppFunCommentImpl extends CppConstructorCommentImpl implements CppF
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addDescriptionComment(StringBuffer buffer, int tabCount) {
+	protected void addDescriptionComment(SourceWriter buffer, int tabCount) {
 		if(getDescription() != null) {
 			buffer.append(" * ").append(getDescription()).append(Cpp.newline);
 		}
@@ -119,7 +121,7 @@ public class CppFunCommentImpl extends CppConstructorCommentImpl implements CppF
 	 * @param buffer
 	 * @param tabCount
 	 */
-	private void addReturnTypeComment(StringBuffer buffer, int tabCount) {
+	private void addReturnTypeComment(SourceWriter buffer, int tabCount) {
 		if (returnType != null) {
 			buffer.append(" * @return ").append(returnType).append(Cpp.newline);
 		}
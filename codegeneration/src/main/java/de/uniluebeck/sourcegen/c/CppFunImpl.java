@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.List;
 import java.util.ArrayList;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 class CppFunImpl extends CElemImpl implements CppFun {
@@ -107,12 +108,12 @@ class CppFunImpl extends CElemImpl implements CppFun {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         this.toString(buffer, tabCount, false);
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount, boolean isLast) {
+    public void toString(SourceWriter buffer, int tabCount, boolean isLast) {
         // Write comment if necessary
         if (comment != null) {
             comment.toString(buffer, tabCount);
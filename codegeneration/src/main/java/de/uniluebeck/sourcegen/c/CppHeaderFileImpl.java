@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 //TODO change to package private. it is public because of Workspace::getCppHeaderFile (new CppHeaderFileImpl(fileName);)
 public class CppHeaderFileImpl extends CppSourceFileImpl implements CppHeaderFile {
 
@@ -31,7 +33,7 @@ public class CppHeaderFileImpl extends CppSourceFileImpl implements CppHeaderFil
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
 
         prepare();
 
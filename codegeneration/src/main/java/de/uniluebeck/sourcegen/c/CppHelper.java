@@ -23,9 +23,11 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 public class CppHelper {
 
-    public static void toStringClass(StringBuffer buffer, CppClass clazz, int tabCount, boolean isLast) {
+    public static void toStringClass(SourceWriter buffer, CppClass clazz, int tabCount, boolean isLast) {
 
         // Public constructors
         if (null != clazz.getConstructors(Cpp.PUBLIC) && clazz.getConstructors(Cpp.PUBLIC).size() > 0) {
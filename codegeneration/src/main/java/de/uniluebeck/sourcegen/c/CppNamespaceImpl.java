@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.List;
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 /**
@@ -101,7 +102,7 @@ class CppNamespaceImpl extends CElemImpl implements CppNamespace {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         prepare();
 
         // Write comment if necessary
@@ -114,7 +115,7 @@ class CppNamespaceImpl extends CElemImpl implements CppNamespace {
 
 
         if (null != cfuns && cfuns.size() > 0) {
-            StringBuffer inner = new StringBuffer();
+            SourceWriter inner = buffer.body(tabCount + 1, "");
             // Add signatures of C functions
             for (CFun fun : cfuns) {
                 if (null != fun.getComment()) {
@@ -122,22 +123,21 @@ class CppNamespaceImpl extends CElemImpl implements CppNamespace {
                 }
                 inner.append(fun.getSignature() + ";" + Cpp.newline + Cpp.newline);
             }
-            appendBody(buffer, inner, tabCount + 1);
             buffer.append(Cpp.newline + Cpp.newline);
         }
 
         if (null != classes && classes.size() > 0) {
-            StringBuffer inner = new StringBuffer();
+            SourceWriter inner = buffer.body(tabCount + 1, "");
             // FIXME: A tab to much
             for (CppClass c : classes) {
-                inner.append(c.toString() + Cpp.newline + Cpp.newline);
+                c.toString(inner, 0);
+                inner.append(Cpp.newline + Cpp.newline);
             }
-            appendBody(buffer, inner, tabCount + 1);
         }
         buffer.append(Cpp.newline + "};" + Cpp.newline);
     }
 
-    protected void indent(StringBuffer buffer, int tabCount) {
+    protected void indent(SourceWriter buffer, int tabCount) {
         for (int i = 0; i < tabCount; i++)
             buffer.append("\t");
     }
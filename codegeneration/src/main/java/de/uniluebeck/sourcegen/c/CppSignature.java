@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.c;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CppDuplicateException;
 
 
@@ -65,7 +66,7 @@ class CppSignature extends CElemImpl {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append(name);
 
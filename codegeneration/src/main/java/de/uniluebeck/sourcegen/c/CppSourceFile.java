@@ -81,4 +81,6 @@ public interface CppSourceFile extends SourceFile, CppElem {
 	public boolean 			containsLibInclude			(String libInclude);
 
 	public boolean 			equals						(CppSourceFile other);
+
+	public void				prepare						();
 }
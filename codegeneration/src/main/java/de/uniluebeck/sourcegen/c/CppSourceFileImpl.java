@@ -26,6 +26,8 @@ package de.uniluebeck.sourcegen.c;
 import java.util.List;
 import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.MemberList;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.CCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.CDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.CPreProcessorValidationException;
@@ -37,7 +39,7 @@ public class CppSourceFileImpl extends CElemImpl implements CppSourceFile {
 	protected List<CppVar> cppVars;
 	protected List<CppClass> cppClasses;
 
-	protected List<CppSourceFileImpl> cppUserHeaderFiles;
+	protected MemberList<CppSourceFileImpl> cppUserHeaderFiles;
 	protected List<CppInclude> cppUserHeaderFilesStrings;
 
 	protected List<CppNamespace> cppNamespace;
@@ -60,7 +62,13 @@ public class CppSourceFileImpl extends CElemImpl implements CppSourceFile {
 		base 		= newBase;
 		cppVars 	= new LinkedList<CppVar>();
 		cppClasses 	= new LinkedList<CppClass>();
-		cppUserHeaderFiles = new LinkedList<CppSourceFileImpl>();
+		cppUserHeaderFiles = new MemberList<CppSourceFileImpl>() {
+			// Indexed by identity and by file name
+			@Override
+			protected Object[] keys(CppSourceFileImpl member) {
+				return new Object[] { member, member.getFileName() };
+			}
+		};
 		cppUserHeaderFilesStrings = new LinkedList<CppInclude>();
 		cppNamespace = new LinkedList<CppNamespace>();
 		cppNamespaces = new LinkedList<String>();
@@ -303,24 +311,20 @@ public class CppSourceFileImpl extends CElemImpl implements CppSourceFile {
 	}
 
 	public boolean containsInclude(String headerFile) {
-    // Check with cppUserHeaderFiles
-    for (CppSourceFileImpl csf : cppUserHeaderFiles) {
-      if (csf.getFileName().equals(headerFile)) {
-        return true;
-      }
+		// Check with cppUserHeaderFiles
+		if (cppUserHeaderFiles.containsKey(headerFile)) {
+			return true;
 		}
 
-    // Check with local strings
+		// Check with local strings
 		return this.cppUserHeaderFilesStrings.contains(headerFile);
 	}
 
 	public boolean containsInclude(CppSourceFile includeFile) {
 		// Check with cppUserHeaderFiles
-		for (CppSourceFileImpl csf : cppUserHeaderFiles) {
-			if (csf.equals(includeFile)) {
-				return true;
-      }
-    }
+		if (cppUserHeaderFiles.containsKey(includeFile)) {
+			return true;
+		}
 
 		// Check with local strings
 		return this.cppUserHeaderFilesStrings.contains(includeFile.getFileName());
@@ -359,7 +363,7 @@ public class CppSourceFileImpl extends CElemImpl implements CppSourceFile {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 
 	    prepare();
 
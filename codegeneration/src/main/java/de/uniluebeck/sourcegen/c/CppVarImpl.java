@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.c;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 class CppVarImpl extends CElemImpl implements CppVar {
 
@@ -68,7 +70,7 @@ class CppVarImpl extends CElemImpl implements CppVar {
   }
 
   @Override
-  public void toString(StringBuffer buffer, int tabCount) {
+  public void toString(SourceWriter buffer, int tabCount) {
     indent(buffer, tabCount);
 
     // write comment if necessary
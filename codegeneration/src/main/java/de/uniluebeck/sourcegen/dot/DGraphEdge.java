@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.dot;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 /**
  * This class represents a directed edge between two nodes in a Graphviz dot
  * graph.
@@ -123,7 +125,7 @@ public class DGraphEdge extends DGraphElement {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         final StringBuilder sb = new StringBuilder( );
         if (this.label != null && !this.label.isEmpty( )) {
             sb.append(String.format("label = \"%s\"", this.label));
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 
 import de.uniluebeck.sourcegen.SourceFile;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 /**
  * This class represents a source file used to generate graph images with
@@ -126,7 +127,7 @@ public class DGraphFile extends DGraphElement implements SourceFile {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         addLine(buffer, tabCount, "digraph G {");
         for (final DGraphNode n : this.nodes.values( )) {
             n.toString(buffer, tabCount + 1);
@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.dot;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 /**
  * This class represents a single node in a Grapviz dot graph.
  * 
@@ -117,7 +119,7 @@ public class DGraphNode extends DGraphElement {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         final StringBuilder sb = new StringBuilder( );
         // add the node's label, if any
         if (this.label != null && !this.label.isEmpty( )) {
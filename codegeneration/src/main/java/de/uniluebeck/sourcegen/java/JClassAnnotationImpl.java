@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 /**
  * Annotation implementation for the annotation of Java classes.
  */
@@ -46,7 +48,7 @@ public class JClassAnnotationImpl extends JElemImpl implements JClassAnnotation
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("@").append(this.description).append("\n");
 	}
@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 /**
  * @author Marco Wegner
@@ -57,7 +59,7 @@ public class JClassCommentImpl extends JElemImpl implements JClassComment {
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("/**\n");
 
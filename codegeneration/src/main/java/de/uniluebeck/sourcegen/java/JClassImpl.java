@@ -28,6 +28,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ResourceBundle;
 
+import de.uniluebeck.sourcegen.MemberList;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.JCodeValidationException;
 import de.uniluebeck.sourcegen.exceptions.JConflictingModifierException;
 import de.uniluebeck.sourcegen.exceptions.JDuplicateException;
@@ -40,23 +42,48 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	protected String className;
 
-	protected LinkedList<JConstructorImpl> constructors = new LinkedList<JConstructorImpl>();
+	protected MemberList<JConstructorImpl> constructors = new MemberList<JConstructorImpl>();
 
-	protected LinkedList<JEnumImpl> enums = new LinkedList<JEnumImpl>();
+	protected MemberList<JEnumImpl> enums = new MemberList<JEnumImpl>() {
+		@Override
+		protected Object[] keys(JEnumImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
-	protected LinkedList<JFieldImpl> fields = new LinkedList<JFieldImpl>();
+	protected MemberList<JFieldImpl> fields = new MemberList<JFieldImpl>() {
+		@Override
+		protected Object[] keys(JFieldImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	protected LinkedList<JInterfaceImpl> implementedInterfaces = new LinkedList<JInterfaceImpl>();
 
 	protected LinkedList<String> implementedInterfacesStrings = new LinkedList<String>();
 
-	protected LinkedList<JMethodImpl> methods = new LinkedList<JMethodImpl>();
+	protected MemberList<JMethodImpl> methods = new MemberList<JMethodImpl>() {
+		@Override
+		protected Object[] keys(JMethodImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	protected int modifiers;
 
-	protected LinkedList<JClassImpl> classes = new LinkedList<JClassImpl>();
+	protected MemberList<JClassImpl> classes = new MemberList<JClassImpl>() {
+		@Override
+		protected Object[] keys(JClassImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
-	protected LinkedList<JInterfaceImpl> interfaces = new LinkedList<JInterfaceImpl>();
+	protected MemberList<JInterfaceImpl> interfaces = new MemberList<JInterfaceImpl>() {
+		@Override
+		protected Object[] keys(JInterfaceImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	protected JClassImpl extendedClass;
 
@@ -196,7 +223,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		// write comment if necessary
 		if (comment != null) {
 			comment.toString(buffer, tabCount);
@@ -271,17 +298,13 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	public boolean contains(JConstructor constructor) {
 
-		for (JConstructor con : constructors)
-			if (con.equals(constructor))
-				return true;
-
-		return false;
+		return constructors.containsKey(constructor);
 
 	}
 
 	public boolean contains(JEnum jEnum) {
 
-		for(JEnum e : enums)
+		for(JEnum e : enums.getByKey(jEnum.getName()))
 			if(e.equals(jEnum))
 				return true;
 
@@ -291,7 +314,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	public boolean contains(JField field) {
 
-		for (JField f : fields)
+		for (JField f : fields.getByKey(((JFieldImpl) field).getName()))
 			if (f.equals(field))
 				return true;
 
@@ -311,7 +334,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	public boolean contains(JMethod method) {
 
-		for (JMethod m : methods)
+		for (JMethod m : methods.getByKey(method.getName()))
 			if (m.equals(method))
 				return true;
 
@@ -321,7 +344,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	public boolean contains(JClass nestedClass) {
 
-		for (JClass jnc : classes)
+		for (JClass jnc : classes.getByKey(nestedClass.getName()))
 			if (jnc.equals(nestedClass))
 				return true;
 
@@ -331,7 +354,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 
 	public boolean contains(JInterface iface) {
 
-		for (JInterface jni : interfaces)
+		for (JInterface jni : interfaces.getByKey(iface.getName()))
 			if (jni.equals(iface))
 				return true;
 
@@ -400,7 +423,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
 	}
 
 	public JClass getJClassByName(String name) {
-		for (JClass c : classes)
+		for (JClass c : classes.getByKey(name))
 			if (c.getName().equals(name))
 				return c;
 		return null;
@@ -447,7 +470,7 @@ class JClassImpl extends JComplexTypeImpl implements JClass {
   public List<JMethod> getJMethodsByName(String name) {
     ArrayList<JMethod> result = null;
 
-    for (JMethod m: this.methods) {
+    for (JMethod m: this.methods.getByKey(name)) {
       // Check if names are equal
       if (m.getName().equals(name)) {
         // Initialize list, if not done before
@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 /**
  * Annotation implementation for the annotation of Java class constructors.
  */
@@ -46,7 +48,7 @@ public class JConstructorAnnotationImpl extends JElemImpl implements JConstructo
      * @see de.uniluebeck.sourcegen.ElemImpl#toString(StringBuffer, int)
      */
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
         indent(buffer, tabCount);
         buffer.append("@").append(this.description).append("\n");
     }
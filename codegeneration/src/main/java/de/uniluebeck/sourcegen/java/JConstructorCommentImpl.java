@@ -28,6 +28,7 @@ package de.uniluebeck.sourcegen.java;
 
 import java.util.Map;
 import java.util.TreeMap;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 
 /**
@@ -90,7 +91,7 @@ public class JConstructorCommentImpl extends JElemImpl implements JConstructorCo
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("/**\n");
 
@@ -106,7 +107,7 @@ public class JConstructorCommentImpl extends JElemImpl implements JConstructorCo
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addDescriptionComment(StringBuffer buffer, int tabCount) {
+	protected void addDescriptionComment(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append(" * ").append(this.description).append("\n");
 		if (!params.isEmpty()) {
@@ -119,7 +120,7 @@ public class JConstructorCommentImpl extends JElemImpl implements JConstructorCo
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addParameterComments(StringBuffer buffer, int tabCount) {
+	protected void addParameterComments(SourceWriter buffer, int tabCount) {
 		for (String key : params.keySet()) {
 			indent(buffer, tabCount);
 			buffer.append(" * @param ").append(key).append(" ").append(params.get(key)).append("\n");
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.JConflictingModifierException;
 import de.uniluebeck.sourcegen.exceptions.JInvalidModifierException;
 
@@ -117,7 +118,7 @@ class JConstructorImpl extends JElemImpl implements JConstructor {
     }
 
     @Override
-    public void toString(StringBuffer buffer, int tabCount) {
+    public void toString(SourceWriter buffer, int tabCount) {
 
         // write comment if necessary
         if (comment != null) {
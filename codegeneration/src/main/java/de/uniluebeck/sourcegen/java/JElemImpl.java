@@ -26,10 +26,11 @@ package de.uniluebeck.sourcegen.java;
 import java.lang.reflect.Modifier;
 
 import de.uniluebeck.sourcegen.ElemImpl;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 abstract class JElemImpl extends ElemImpl implements JElem {
 
-	boolean toStringModifiers(StringBuffer buffer, int tabCount, int modifiers) {
+	boolean toStringModifiers(SourceWriter buffer, int tabCount, int modifiers) {
 		if (JModifier.NONE != modifiers) {
 			indent(buffer, tabCount);
 			buffer.append(Modifier.toString(modifiers));
@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 /**
  * @author wegner
@@ -58,7 +60,7 @@ public class JEnumCommentImpl extends JElemImpl implements JEnumComment {
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("/**\n");
 
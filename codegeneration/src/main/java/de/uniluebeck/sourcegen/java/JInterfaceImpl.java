@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.java;
 import java.util.LinkedList;
 import java.util.ResourceBundle;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.JConflictingModifierException;
 import de.uniluebeck.sourcegen.exceptions.JDuplicateException;
 import de.uniluebeck.sourcegen.exceptions.JInvalidModifierException;
@@ -126,7 +127,7 @@ class JInterfaceImpl extends JComplexTypeImpl implements JInterface {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		if (toStringModifiers(buffer, tabCount, modifiers))
 			buffer.append(" ");
 		buffer.append("interface ");
@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 
 class JMethodBodyImpl extends JElemImpl implements JMethodBody {
@@ -72,7 +74,7 @@ class JMethodBodyImpl extends JElemImpl implements JMethodBody {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		int begin = 0;
 		int end = 0;
 		int declSrcLength = declarationsSrc.length();
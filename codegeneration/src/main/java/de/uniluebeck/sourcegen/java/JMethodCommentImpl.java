@@ -26,6 +26,8 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 
 /**
@@ -87,7 +89,7 @@ public class JMethodCommentImpl extends JConstructorCommentImpl implements JMeth
 	 * @see de.uniluebeck.sourcegen.ElemImpl#toString(java.lang.StringBuffer, int)
 	 */
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("/**\n");
 
@@ -105,7 +107,7 @@ public class JMethodCommentImpl extends JConstructorCommentImpl implements JMeth
 	 * @param buffer
 	 * @param tabCount
 	 */
-	protected void addDescriptionComment(StringBuffer buffer, int tabCount) {
+	protected void addDescriptionComment(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append(" * ").append(getDescription()).append("\n");
 		if (!(getParameters().isEmpty() && getReturnTypeDescription() == null)) {
@@ -118,7 +120,7 @@ public class JMethodCommentImpl extends JConstructorCommentImpl implements JMeth
 	 * @param buffer
 	 * @param tabCount
 	 */
-	private void addReturnTypeComment(StringBuffer buffer, int tabCount) {
+	private void addReturnTypeComment(SourceWriter buffer, int tabCount) {
 		if (returnType != null) {
 			indent(buffer, tabCount);
 			buffer.append(" * @return ").append(returnType).append("\n");
@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.java;
 import java.util.LinkedList;
 import java.util.List;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.JDuplicateException;
 
 
@@ -80,7 +81,7 @@ class JMethodSignatureImpl extends JElemImpl implements JMethodSignature {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		buffer.append("(");
 		for (JParameterImpl param : parameters) {
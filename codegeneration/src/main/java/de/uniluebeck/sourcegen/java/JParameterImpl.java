@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.java;
 import java.lang.reflect.Modifier;
 import java.util.ResourceBundle;
 
+import de.uniluebeck.sourcegen.SourceWriter;
 import org.slf4j.LoggerFactory;
 
 import de.uniluebeck.sourcegen.exceptions.JInvalidModifierException;
@@ -110,7 +111,7 @@ class JParameterImpl extends JElemImpl implements JParameter {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		indent(buffer, tabCount);
 		if (modifiers != JModifier.NONE) {
 			buffer.append(Modifier.toString(modifiers));
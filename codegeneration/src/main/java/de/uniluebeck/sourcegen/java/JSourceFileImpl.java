@@ -23,24 +23,39 @@
  */
 package de.uniluebeck.sourcegen.java;
 
-import java.util.LinkedList;
 
+import de.uniluebeck.sourcegen.MemberList;
+import de.uniluebeck.sourcegen.SourceFileList;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.exceptions.JDuplicateException;
 
 // TODO change to package private. it is public because of Workspace::getJSourceFile (new JSourceFileImpl(packageName,
 // fileName);)
 public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 
-	private LinkedList<JComplexTypeImpl> types = new LinkedList<JComplexTypeImpl>();
+	private MemberList<JComplexTypeImpl> types = new MemberList<JComplexTypeImpl>() {
+		@Override
+		protected Object[] keys(JComplexTypeImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
-	private LinkedList<String> imports = new LinkedList<String>();
+	private MemberList<String> imports = new MemberList<String>();
 
-	private LinkedList<JComplexTypeImpl> importsComplex = new LinkedList<JComplexTypeImpl>();
+	private MemberList<JComplexTypeImpl> importsComplex = new MemberList<JComplexTypeImpl>() {
+		@Override
+		protected Object[] keys(JComplexTypeImpl member) {
+			return new Object[] { member.getName() };
+		}
+	};
 
 	private String fileName;
 
 	private String packageName;
 
+	/** The workspace indexing the classes of this file, if any. */
+	private JavaWorkspace workspace;
+
 	public String getFileName() {
 		return fileName;
 	}
@@ -60,12 +75,14 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 				throw new JDuplicateException("Duplicate Java Complex SimpleType " + typeObject);
 			types.add((JComplexTypeImpl) to);
 			((JComplexTypeImpl) to).setSourceFile(this);
+			if (workspace != null)
+				workspace.typeAdded(to);
 		}
 		return this;
 	}
 
 	public boolean contains(JComplexType typeObject) {
-		for (JComplexTypeImpl type : types)
+		for (JComplexTypeImpl type : types.getByKey(typeObject.getName()))
 			if (type.equals(typeObject))
 				return true;
 		return false;
@@ -81,7 +98,7 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 	}
 
 	public boolean containsImport(JComplexType typeObject) {
-		for (JComplexType to : importsComplex)
+		for (JComplexType to : importsComplex.getByKey(typeObject.getName()))
 			if (to.equals(typeObject))
 				return true;
 		return false;
@@ -97,10 +114,7 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 	}
 
 	public boolean containsImport(String imp) {
-		for (String s : imports)
-			if (s.equals(imp))
-				return true;
-		return false;
+		return imports.containsKey(imp);
 	}
 
 	public JSourceFile addImport(Class<?>... imp) throws JDuplicateException {
@@ -117,7 +131,7 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		if (appendPackageString(buffer, tabCount))
 			buffer.append("\n\n");
 		if (appendImportBlock(buffer, tabCount))
@@ -125,7 +139,7 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 		toString(buffer, tabCount, types, "", "\n\n");
 	}
 
-	boolean appendPackageString(StringBuffer buffer, int tabCount) {
+	boolean appendPackageString(SourceWriter buffer, int tabCount) {
 		boolean hasPackageName = getPackageName() != null && !"".equals(getPackageName());
 
 		// TODO this might not work anymore after refactoring because it used to rely on Workspace.getJPackagePrefix
@@ -140,7 +154,7 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 		return false;
 	}
 
-	boolean appendImportBlock(StringBuffer buffer, int tabCount) {
+	boolean appendImportBlock(SourceWriter buffer, int tabCount) {
 
 		if (importsComplex.size() > 0 || imports.size() > 0) {
 			for (JComplexTypeImpl imp : importsComplex) {
@@ -173,12 +187,27 @@ public class JSourceFileImpl extends JElemImpl implements JSourceFile {
 	}
 
 	public JSourceFile setPackageName(String packageName) {
-		this.packageName = packageName;
+		if (packageName == null ? this.packageName != null : !packageName.equals(this.packageName)) {
+			this.packageName = packageName;
+			SourceFileList.keysChanged();
+		}
 		return this;
 	}
 
+	JavaWorkspace getWorkspace() {
+		return workspace;
+	}
+
+	void setWorkspace(JavaWorkspace workspace) {
+		this.workspace = workspace;
+	}
+
+	MemberList<JComplexTypeImpl> getTypes() {
+		return types;
+	}
+
 	public JClass getClassByName(String className) {
-		for (JComplexTypeImpl c : types)
+		for (JComplexTypeImpl c : types.getByKey(className))
 			if (c instanceof JClassImpl && ((JClassImpl) c).getPackageName().equals(packageName)
 					&& ((JClassImpl) c).getName().equals(className))
 				return (JClass) c;
@@ -23,13 +23,15 @@
  */
 package de.uniluebeck.sourcegen.java;
 
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 
 import de.uniluebeck.sourcegen.SourceFile;
+import de.uniluebeck.sourcegen.SourceFileList;
 import de.uniluebeck.sourcegen.Workspace;
 
 public class JavaWorkspace {
@@ -38,7 +40,19 @@ public class JavaWorkspace {
     private Set<JMethod> globalMethodStoreJava = new HashSet<JMethod>();
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(JavaWorkspace.class);
-    private final List<SourceFile> sourceFiles;
+    private final SourceFileList sourceFiles;
+
+    /**
+     * The classes of all Java source files, by fully qualified name. Built on the first lookup, extended whenever a
+     * class is added to a file, and rebuilt once the list of source files has changed.
+     */
+    private Map<String, JClass> classesByQualifiedName;
+
+    /** The names of the classes in {@link #classesByQualifiedName}. */
+    private Set<String> classNames;
+
+    /** The version of the source file list the class index was built for. */
+    private int indexedVersion;
 
     public JavaWorkspace(Workspace w) {
         this.sourceFiles = w.getSourceFiles();
@@ -46,9 +60,8 @@ public class JavaWorkspace {
 
     public JSourceFile getJSourceFile(String packageName, String fileName) {
             // check if source file already exists
-            for (SourceFile f : this.sourceFiles) {
-                    if (f instanceof JSourceFile && ((JSourceFile) f).getPackageName().equals(packageName)
-                                    && ((JSourceFile) f).getFileName().equals(fileName)) {
+            for (SourceFile f : this.sourceFiles.getByFileName(fileName)) {
+                    if (f instanceof JSourceFile && equal(((JSourceFile) f).getPackageName(), packageName)) {
                             log.error("Sourcefile " + fileName + " gibts schon!! SCHLECHT!");
                             log.info("Folgende JSourceFiles gibt es:");
                             for (SourceFile file : this.sourceFiles)
@@ -58,23 +71,81 @@ public class JavaWorkspace {
                             return (JSourceFile) f;
                     }
             }
-            JSourceFile f = new JSourceFileImpl(packageName, fileName);
+            JSourceFileImpl f = new JSourceFileImpl(packageName, fileName);
+            f.setWorkspace(this);
             this.sourceFiles.add(f);
             log.info("Sourcefile " + fileName + " added to workspace");
             return f;
     }
 
+    /**
+     * Checks whether a Java class of the given name exists in the workspace. Only the simple name of a class is
+     * matched, so a fully qualified name is never found; see {@link #getJavaClass(String)} for these.
+     *
+     * @param clazz
+     * @return
+     */
     public boolean containsJavaClass(String clazz) {
+            indexClasses();
+            return classNames.contains(clazz);
+    }
+
+    /**
+     * Returns the Java class of the given fully qualified name, if it exists in the workspace.
+     *
+     * @param qualifiedName
+     * @return The class, or <code>null</code>.
+     */
+    public JClass getJavaClass(String qualifiedName) {
+            indexClasses();
+            return classesByQualifiedName.get(qualifiedName);
+    }
+
+    /**
+     * Adds a class to the class index, after it has been added to one of the source files.
+     *
+     * @param type
+     */
+    void typeAdded(JComplexType type) {
+            if (classesByQualifiedName != null && type instanceof JClass) {
+                    index((JClass) type);
+            }
+    }
+
+    /**
+     * Builds the class index, unless it is up to date. Source files which have been added to the workspace directly
+     * report their new classes to this workspace from now on.
+     */
+    private void indexClasses() {
+            if (classesByQualifiedName != null && indexedVersion == sourceFiles.getVersion()) {
+                    return;
+            }
+            classesByQualifiedName = new HashMap<String, JClass>();
+            classNames = new HashSet<String>();
             for (SourceFile f : sourceFiles) {
-                    if (f instanceof JSourceFile) {
-                            JSourceFile file = (JSourceFile) f;
-                            JClass jclazz = file.getClassByName(clazz);
-                            if (jclazz != null) {
-                                    return true;
+                    if (f instanceof JSourceFileImpl) {
+                            JSourceFileImpl file = (JSourceFileImpl) f;
+                            if (file.getWorkspace() == null) {
+                                    file.setWorkspace(this);
+                            }
+                            for (JComplexTypeImpl type : file.getTypes()) {
+                                    if (type instanceof JClass) {
+                                            index((JClass) type);
+                                    }
                             }
                     }
             }
-            return false;
+            indexedVersion = sourceFiles.getVersion();
+    }
+
+    private void index(JClass clazz) {
+            String packageName = clazz.getPackageName();
+            String qualifiedName = (packageName == null || packageName.length() == 0) ? clazz.getName() : packageName
+                            + "." + clazz.getName();
+            if (!classesByQualifiedName.containsKey(qualifiedName)) {
+                    classesByQualifiedName.put(qualifiedName, clazz);
+            }
+            classNames.add(clazz.getName());
     }
 
     /**
@@ -89,5 +160,9 @@ public class JavaWorkspace {
             globalMethodStoreJava.add(method);
     }
 
+    private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+    }
+
 }
 
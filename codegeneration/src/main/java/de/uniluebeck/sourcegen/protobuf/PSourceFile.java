@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.LinkedList;
 
 import de.uniluebeck.sourcegen.SourceFile;
+import de.uniluebeck.sourcegen.SourceWriter;
 import de.uniluebeck.sourcegen.protobuf.types.PAbstractElem;
 
 public class PSourceFile extends PAbstractElem implements SourceFile {
@@ -51,7 +52,7 @@ public class PSourceFile extends PAbstractElem implements SourceFile {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		if (packageName != null && !"".equals(packageName))
 			addLine(buffer, tabCount, "package " + packageName + ";");
 
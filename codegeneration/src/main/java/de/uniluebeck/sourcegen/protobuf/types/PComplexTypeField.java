@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.protobuf.types;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 public class PComplexTypeField extends PAbstractField {
 	private PMessage type;
 
@@ -36,7 +38,7 @@ public class PComplexTypeField extends PAbstractField {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		StringBuffer b = new StringBuffer();
 
 		if (isOptional())
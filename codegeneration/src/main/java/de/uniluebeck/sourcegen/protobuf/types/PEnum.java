@@ -26,6 +26,7 @@ package de.uniluebeck.sourcegen.protobuf.types;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 public class PEnum extends PAbstractElem {
 
@@ -51,7 +52,7 @@ public class PEnum extends PAbstractElem {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		int count = 0;
 
 		addLine(buffer, tabCount, "enum " + name + "{");
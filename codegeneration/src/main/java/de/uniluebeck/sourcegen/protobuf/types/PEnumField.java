@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.protobuf.types;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 
 public class PEnumField extends PAbstractField {
 	private PEnum enumType;
@@ -43,7 +45,7 @@ public class PEnumField extends PAbstractField {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		StringBuffer b = new StringBuffer();
 
 		if (isOptional())
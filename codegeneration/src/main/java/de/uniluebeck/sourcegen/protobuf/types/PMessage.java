@@ -25,6 +25,7 @@ package de.uniluebeck.sourcegen.protobuf.types;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import de.uniluebeck.sourcegen.SourceWriter;
 
 public class PMessage extends PAbstractElem {
 	private String name;
@@ -82,7 +83,7 @@ public class PMessage extends PAbstractElem {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		addLine(buffer, tabCount, "message " + name + "{");
 
 		for(POption option : options )
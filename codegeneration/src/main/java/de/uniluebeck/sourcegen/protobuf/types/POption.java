@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.protobuf.types;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 public class POption extends PAbstractElem {
 	private String name;
 	
@@ -34,7 +36,7 @@ public class POption extends PAbstractElem {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		addLine(buffer, tabCount, "option " + name + " = " + value);
 	}
 
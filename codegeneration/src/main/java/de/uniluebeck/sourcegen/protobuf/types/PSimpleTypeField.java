@@ -23,6 +23,8 @@
  */
 package de.uniluebeck.sourcegen.protobuf.types;
 
+import de.uniluebeck.sourcegen.SourceWriter;
+
 public class PSimpleTypeField extends PAbstractField {
 
 	private SimpleType type;
@@ -37,7 +39,7 @@ public class PSimpleTypeField extends PAbstractField {
 	}
 
 	@Override
-	public void toString(StringBuffer buffer, int tabCount) {
+	public void toString(SourceWriter buffer, int tabCount) {
 		StringBuffer b = new StringBuffer();
 
 		if (isOptional())
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.codegeneration;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import de.uniluebeck.sourcegen.Workspace;
+import de.uniluebeck.sourcegen.java.JClass;
+import de.uniluebeck.sourcegen.java.JEnum;
+import de.uniluebeck.sourcegen.java.JModifier;
+import de.uniluebeck.sourcegen.java.JSourceFile;
+import de.uniluebeck.sourcegen.java.JSourceFileImpl;
+import de.uniluebeck.sourcegen.java.JavaWorkspace;
+
+/**
+ * Unit test for the JavaWorkspace class.
+ */
+public class JavaWorkspaceTest
+{
+  /**
+   * Test containsJavaClass() and getJavaClass() for classes added before and after the first lookup.
+   */
+  @Test(timeout = 1000)
+  public void testContainsJavaClass() throws Exception
+  {
+    Workspace workspace = new Workspace(new Properties());
+    JavaWorkspace java = workspace.getJava();
+    JClass first = JClass.factory.create("First");
+    java.getJSourceFile("test.p", "First").add(first);
+
+    assertTrue(java.containsJavaClass("First"));
+    assertSame(first, java.getJavaClass("test.p.First"));
+    assertFalse(java.containsJavaClass("Second"));
+
+    // added to a registered file after the index has been built
+    JClass second = JClass.factory.create("Second");
+    java.getJSourceFile("test.q", "Second").add(second);
+    assertTrue(java.containsJavaClass("Second"));
+    assertSame(second, java.getJavaClass("test.q.Second"));
+
+    // enums are not classes
+    java.getJSourceFile("test.p", "Third").add(JEnum.factory.create(JModifier.PUBLIC, "Third"));
+    assertFalse(java.containsJavaClass("Third"));
+    assertNull(java.getJavaClass("test.p.Third"));
+  }
+
+  /**
+   * Test that fully qualified names are not matched by containsJavaClass().
+   */
+  @Test(timeout = 1000)
+  public void testContainsJavaClassQualifiedName() throws Exception
+  {
+    JavaWorkspace java = new Workspace(new Properties()).getJava();
+    java.getJSourceFile("test.p", "First").add(JClass.factory.create("First"));
+
+    assertFalse(java.containsJavaClass("test.p.First"));
+    assertFalse(java.containsJavaClass("p.First"));
+    assertNull(java.getJavaClass("First"));
+    assertNull(java.getJavaClass("test.q.First"));
+  }
+
+  /**
+   * Test the class index after files have been added to, or removed from, the source file list directly.
+   */
+  @Test(timeout = 1000)
+  public void testSourceFilesChanged() throws Exception
+  {
+    Workspace workspace = new Workspace(new Properties());
+    JavaWorkspace java = workspace.getJava();
+    assertFalse(java.containsJavaClass("First"));
+
+    JSourceFile file = new JSourceFileImpl("test.p", "First");
+    workspace.getSourceFiles().add(file);
+    file.add(JClass.factory.create("First"));
+    assertTrue(java.containsJavaClass("First"));
+
+    // adopted by the workspace, so classes added now are indexed as well
+    file.add(JClass.factory.create("Second"));
+    assertNotNull(java.getJavaClass("test.p.Second"));
+
+    workspace.getSourceFiles().remove(file);
+    assertFalse(java.containsJavaClass("First"));
+    assertNull(java.getJavaClass("test.p.Second"));
+
+    workspace.getSourceFiles().add(file);
+    workspace.getSourceFiles().clear();
+    assertFalse(java.containsJavaClass("First"));
+  }
+
+  /**
+   * Test that a class is found by its new fully qualified name after its file has moved to another package.
+   */
+  @Test(timeout = 1000)
+  public void testSetPackageName() throws Exception
+  {
+    JavaWorkspace java = new Workspace(new Properties()).getJava();
+    JSourceFile file = java.getJSourceFile("test.p", "First").add(JClass.factory.create("First"));
+    assertNotNull(java.getJavaClass("test.p.First"));
+
+    ((JSourceFileImpl) file).setPackageName("test.q");
+
+    assertNull(java.getJavaClass("test.p.First"));
+    assertNotNull(java.getJavaClass("test.q.First"));
+    assertTrue(java.containsJavaClass("First"));
+    assertSame(file, java.getJSourceFile("test.q", "First"));
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.codegeneration;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+import de.uniluebeck.sourcegen.MemberList;
+
+/**
+ * Unit test for the MemberList class.
+ */
+public class MemberListTest
+{
+  /**
+   * Members indexed by their first letter and by their length.
+   */
+  private static MemberList<String> createList(String... members)
+  {
+    MemberList<String> list = new MemberList<String>() {
+      @Override
+      protected Object[] keys(String member)
+      {
+        return new Object[] { member.charAt(0), member.length() };
+      }
+    };
+    list.addAll(Arrays.asList(members));
+    return list;
+  }
+
+  /**
+   * Test that members are their own keys by default.
+   */
+  @Test(timeout = 1000)
+  public void testDefaultKeys() throws Exception
+  {
+    MemberList<String> list = new MemberList<String>();
+    list.add("a");
+    list.add("b");
+    list.add("a");
+    list.add(null);
+
+    assertEquals(Arrays.asList("a", "a"), list.getByKey("a"));
+    assertTrue(list.containsKey("b"));
+    assertFalse(list.containsKey("c"));
+    assertFalse(list.containsKey(null));
+    assertEquals(4, list.size());
+    assertNull(list.getLast());
+  }
+
+  /**
+   * Test the index after adding members at the end and in between.
+   */
+  @Test(timeout = 1000)
+  public void testAdd() throws Exception
+  {
+    MemberList<String> list = createList("ab", "b", "abc");
+    list.add(0, "a");
+    list.addAll(2, Arrays.asList("bc", "c"));
+
+    assertEquals(Arrays.asList("a", "ab", "bc", "c", "b", "abc"), list);
+    assertEquals(Arrays.asList("a", "ab", "abc"), list.getByKey('a'));
+    assertEquals(Arrays.asList("ab", "bc"), list.getByKey(2));
+    assertEquals(Arrays.asList("a", "c", "b"), list.getByKey(1));
+    assertEquals("abc", list.getLast());
+  }
+
+  /**
+   * Test the index after removing and replacing members.
+   */
+  @Test(timeout = 1000)
+  public void testRemoveAndSet() throws Exception
+  {
+    MemberList<String> list = createList("a", "ab", "b", "abc");
+
+    assertEquals("ab", list.remove(1));
+    assertTrue(list.remove("abc"));
+    assertEquals(Arrays.asList("a"), list.getByKey('a'));
+    assertFalse(list.containsKey(2));
+    assertFalse(list.containsKey(3));
+
+    assertEquals("b", list.set(1, "cd"));
+    assertFalse(list.containsKey('b'));
+    assertEquals(Arrays.asList("cd"), list.getByKey('c'));
+    assertEquals(Arrays.asList("cd"), list.getByKey(2));
+    assertEquals("cd", list.getLast());
+
+    list.clear();
+    assertTrue(list.isEmpty());
+    assertFalse(list.containsKey('a'));
+    assertNull(list.getLast());
+  }
+
+  /**
+   * Test the index after modifications through iterators.
+   */
+  @Test(timeout = 1000)
+  public void testIterators() throws Exception
+  {
+    MemberList<String> list = createList("a", "ab", "b", "abc");
+
+    for (Iterator<String> it = list.iterator(); it.hasNext();) {
+      if (it.next().startsWith("a")) {
+        it.remove();
+      }
+    }
+    assertEquals(Arrays.asList("b"), list);
+    assertFalse(list.containsKey('a'));
+
+    ListIterator<String> it = list.listIterator();
+    it.next();
+    it.set("c");
+    it.add("cd");
+    assertEquals(Arrays.asList("c", "cd"), list.getByKey('c'));
+    assertFalse(list.containsKey('b'));
+
+    list.subList(0, 1).clear();
+    assertEquals(Arrays.asList("cd"), list.getByKey('c'));
+    assertFalse(list.containsKey(1));
+  }
+
+  /**
+   * Test that the lists returned by lookups cannot be modified.
+   */
+  @Test(timeout = 1000, expected = UnsupportedOperationException.class)
+  public void testLookupUnmodifiable() throws Exception
+  {
+    MemberList<String> list = createList("a");
+    list.getByKey('a').addAll(Collections.singletonList("b"));
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.codegeneration;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import de.uniluebeck.sourcegen.SourceFile;
+import de.uniluebeck.sourcegen.SourceFileList;
+import de.uniluebeck.sourcegen.c.CppSourceFileImpl;
+import de.uniluebeck.sourcegen.java.JSourceFile;
+import de.uniluebeck.sourcegen.java.JSourceFileImpl;
+
+/**
+ * Unit test for the SourceFileList class.
+ */
+public class SourceFileListTest
+{
+  private final JSourceFileImpl a = new JSourceFileImpl("p", "A");
+  private final JSourceFile b = new JSourceFileImpl("p", "B");
+  private final JSourceFile otherA = new JSourceFileImpl("q", "A");
+  private final SourceFile cppA = new CppSourceFileImpl("A");
+
+  /**
+   * Test the indexes after adding files at the end and in between.
+   */
+  @Test(timeout = 1000)
+  public void testAdd() throws Exception
+  {
+    SourceFileList list = new SourceFileList();
+    list.add(a);
+    list.add(b);
+    list.add(0, otherA);
+    list.addAll(1, Arrays.asList(cppA));
+
+    assertEquals(Arrays.asList(otherA, cppA, a, b), list);
+    assertEquals(Arrays.asList(otherA, cppA, a), list.getByFileName("A"));
+    assertEquals(Arrays.asList(a, b), list.getByPackageName("p"));
+    assertEquals(Arrays.asList(otherA), list.getByPackageName("q"));
+    assertTrue(list.getByFileName("C").isEmpty());
+  }
+
+  /**
+   * Test the indexes after removing and replacing files.
+   */
+  @Test(timeout = 1000)
+  public void testRemoveAndSet() throws Exception
+  {
+    SourceFileList list = new SourceFileList();
+    list.addAll(Arrays.asList(a, b, otherA, cppA));
+
+    list.remove(a);
+    assertEquals(Arrays.asList(otherA, cppA), list.getByFileName("A"));
+    assertEquals(Arrays.asList(b), list.getByPackageName("p"));
+
+    assertSame(b, list.set(0, a));
+    assertEquals(Arrays.asList(a, otherA, cppA), list.getByFileName("A"));
+    assertTrue(list.getByFileName("B").isEmpty());
+    assertEquals(Arrays.asList(a), list.getByPackageName("p"));
+
+    for (Iterator<SourceFile> it = list.iterator(); it.hasNext();) {
+      if (it.next() == otherA) {
+        it.remove();
+      }
+    }
+    assertEquals(Arrays.asList(a, cppA), list.getByFileName("A"));
+    assertTrue(list.getByPackageName("q").isEmpty());
+
+    list.clear();
+    assertTrue(list.getByFileName("A").isEmpty());
+    assertTrue(list.getByPackageName("p").isEmpty());
+  }
+
+  /**
+   * Test that a Java source file is found in its new package after the package name has changed.
+   */
+  @Test(timeout = 1000)
+  public void testSetPackageName() throws Exception
+  {
+    SourceFileList list = new SourceFileList();
+    list.addAll(Arrays.asList(a, b));
+    int version = list.getVersion();
+
+    a.setPackageName("q");
+
+    assertTrue(version != list.getVersion());
+    assertEquals(Arrays.asList(b), list.getByPackageName("p"));
+    assertEquals(Arrays.asList(a), list.getByPackageName("q"));
+    assertEquals(Arrays.asList(a), list.getByFileName("A"));
+
+    version = list.getVersion();
+    a.setPackageName("q");
+    assertEquals(version, list.getVersion());
+  }
+
+  /**
+   * Test that the lists returned by the lookups cannot be modified.
+   */
+  @Test(timeout = 1000, expected = UnsupportedOperationException.class)
+  public void testLookupUnmodifiable() throws Exception
+  {
+    SourceFileList list = new SourceFileList();
+    list.add(a);
+    list.getByFileName("A").addAll(Collections.<SourceFile> singletonList(b));
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.codegeneration;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.uniluebeck.sourcegen.SourceWriter;
+
+/**
+ * Unit test for the SourceWriter class.
+ */
+public class SourceWriterTest
+{
+  private static final String[] BODIES = { "", "a", "\n", "\n\n", "a\n", "a\nb", "a\n\nb\n", "\na", "a\n\n",
+      "if (x) {\n\treturn;\n}\n", "  x\r\n\ty\n\n\n" };
+
+  /**
+   * Test that appendBody() indents like the former StringBuffer based implementation.
+   */
+  @Test(timeout = 1000)
+  public void testAppendBody() throws Exception
+  {
+    for (String body : BODIES) {
+      for (int tabCount = 0; tabCount < 3; tabCount++) {
+        StringBuilder out = new StringBuilder("x");
+        new SourceWriter(out).appendBody(body, tabCount).flush();
+        assertEquals("x" + appendBody(body, tabCount), out.toString());
+      }
+    }
+  }
+
+  /**
+   * Test that a body writer appends what appendBody() would append, however the body is written.
+   */
+  @Test(timeout = 1000)
+  public void testBody() throws Exception
+  {
+    for (String body : BODIES) {
+      for (int tabCount = 0; tabCount < 3; tabCount++) {
+        String expected = body.isEmpty() ? "x" : "x{" + appendBody(body, tabCount);
+
+        // at once
+        StringBuilder out = new StringBuilder("x");
+        SourceWriter writer = new SourceWriter(out);
+        writer.body(tabCount, "{").append(body);
+        writer.flush();
+        assertEquals(expected, out.toString());
+
+        // char by char, and in chunks
+        out = new StringBuilder("x");
+        writer = new SourceWriter(out);
+        SourceWriter bodyWriter = writer.body(tabCount, "{");
+        for (int i = 0; i < body.length(); i++) {
+          bodyWriter.append(body.charAt(i));
+        }
+        writer.flush();
+        assertEquals(expected, out.toString());
+
+        out = new StringBuilder("x");
+        writer = new SourceWriter(out);
+        bodyWriter = writer.body(tabCount, "{");
+        for (int i = 0; i < body.length(); i += 2) {
+          bodyWriter.append(body, i, Math.min(i + 2, body.length()));
+        }
+        writer.flush();
+        assertEquals(expected, out.toString());
+      }
+    }
+  }
+
+  /**
+   * Test that nested body writers indent like nested calls of appendBody().
+   */
+  @Test(timeout = 1000)
+  public void testNestedBody() throws Exception
+  {
+    String inner = "a;\nb;\n";
+    String outer = "{\n" + appendBody(inner, 1) + "\n}\n";
+
+    StringBuilder out = new StringBuilder();
+    SourceWriter writer = new SourceWriter(out);
+    SourceWriter outerWriter = writer.body(1, "");
+    outerWriter.append("{\n");
+    outerWriter.body(1, "").append(inner);
+    outerWriter.append("\n}\n");
+    writer.flush();
+
+    assertEquals(appendBody(outer, 1), out.toString());
+  }
+
+  /**
+   * The implementation of SourceWriter.appendBody() replaced by it.
+   */
+  private static String appendBody(String body, int tabCount)
+  {
+    StringBuffer buffer = new StringBuffer();
+    int begin = 0, end = 0;
+    if (body.length() > 0) {
+      begin = end = 0;
+      int codeLength = body.length();
+
+      while (begin < codeLength) {
+        end = body.indexOf("\n", begin);
+        end = (end == -1) ? codeLength : end;
+        for (int i = 0; i < tabCount; i++)
+          buffer.append("\t");
+        buffer.append(body, begin, end);
+        buffer.append(end < codeLength - 1 ? "\n" : "");
+        begin = end + 1;
+      }
+    }
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.codegeneration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import de.uniluebeck.sourcegen.Workspace;
+import de.uniluebeck.sourcegen.c.Cpp;
+import de.uniluebeck.sourcegen.c.CppClass;
+import de.uniluebeck.sourcegen.c.CppSourceFile;
+import de.uniluebeck.sourcegen.c.CppVar;
+import de.uniluebeck.sourcegen.java.JClass;
+import de.uniluebeck.sourcegen.java.JField;
+import de.uniluebeck.sourcegen.java.JMethod;
+import de.uniluebeck.sourcegen.java.JModifier;
+import de.uniluebeck.sourcegen.java.JSourceFile;
+
+/**
+ * Unit test for the Workspace class.
+ */
+public class WorkspaceTest
+{
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception
+  {
+    directory = File.createTempFile("workspace", "");
+    assertTrue(directory.delete() && directory.mkdir());
+  }
+
+  @After
+  public void tearDown()
+  {
+    delete(directory);
+  }
+
+  /**
+   * Test that generate() writes the same files on several threads as on one.
+   */
+  @Test(timeout = 30000)
+  public void testGenerateConcurrently() throws Exception
+  {
+    File serial = new File(directory, "serial");
+    File concurrent = new File(directory, "concurrent");
+
+    Properties properties = properties(serial);
+    createWorkspace(properties, 40, 10).generate();
+    properties = properties(concurrent);
+    properties.setProperty(Workspace.KEY_GENERATE_THREADS, "4");
+    createWorkspace(properties, 40, 10).generate();
+
+    List<String> files = list(serial, "");
+    assertEquals(40 + 10, files.size());
+    assertEquals(files, list(concurrent, ""));
+    for (String file : files) {
+      assertTrue("File " + file + " differs.", Arrays.equals(read(new File(serial, file)), read(new File(concurrent, file))));
+    }
+  }
+
+  /**
+   * Test that files whose content has not changed are not written again.
+   */
+  @Test(timeout = 30000)
+  public void testSkipUnchanged() throws Exception
+  {
+    Properties properties = properties(directory);
+    properties.setProperty(Workspace.KEY_SKIP_UNCHANGED, "true");
+    createWorkspace(properties, 4, 1).generate();
+
+    File unchanged = new File(directory, "test/package0/Class0.java");
+    File changed = new File(directory, "test/package1/Class1.java");
+    assertTrue(unchanged.setLastModified(1000000000L));
+    assertTrue(changed.setLastModified(1000000000L));
+    byte[] content = read(changed);
+    content[content.length - 2] = ' ';
+    write(changed, content);
+    assertTrue(changed.setLastModified(1000000000L));
+
+    createWorkspace(properties, 4, 1).generate();
+
+    assertEquals(1000000000L, unchanged.lastModified());
+    assertFalse(1000000000L == changed.lastModified());
+    assertFalse(Arrays.equals(content, read(changed)));
+  }
+
+  /**
+   * Test that files of an earlier run which are not generated again are reported, or deleted if requested.
+   */
+  @Test(timeout = 30000)
+  public void testStaleFiles() throws Exception
+  {
+    Properties properties = properties(directory);
+    properties.setProperty(Workspace.KEY_SKIP_UNCHANGED, "true");
+    createWorkspace(properties, 4, 0).generate();
+
+    File stale = new File(directory, "test/package3/Class3.java");
+    createWorkspace(properties, 3, 0).generate();
+    assertTrue(stale.isFile());
+
+    // still known as stale file, since it has not been deleted
+    properties.setProperty(Workspace.KEY_REMOVE_STALE, "true");
+    createWorkspace(properties, 2, 0).generate();
+    assertFalse(stale.isFile());
+    assertFalse(new File(directory, "test/package2/Class2.java").isFile());
+    assertTrue(new File(directory, "test/package1/Class1.java").isFile());
+  }
+
+  /**
+   * Test that manifest entries pointing outside of the output directory are never deleted.
+   */
+  @Test(timeout = 30000)
+  public void testStaleFilesOutsideOutputDirectory() throws Exception
+  {
+    File output = new File(directory, "output");
+    Properties properties = properties(output);
+    properties.setProperty(Workspace.KEY_SKIP_UNCHANGED, "true");
+    properties.setProperty(Workspace.KEY_REMOVE_STALE, "true");
+    createWorkspace(properties, 1, 0).generate();
+
+    File absolute = new File(directory, "absolute.txt");
+    File relative = new File(directory, "relative.txt");
+    write(absolute, new byte[] { 'a' });
+    write(relative, new byte[] { 'r' });
+    File manifest = new File(output, ".fabric-manifest");
+    byte[] entries = ("0 0 " + absolute.getAbsolutePath() + "\n0 0 ../relative.txt\n0 0 test/../../relative.txt\n")
+        .getBytes("UTF-8");
+    byte[] content = read(manifest);
+    byte[] tampered = Arrays.copyOf(content, content.length + entries.length);
+    System.arraycopy(entries, 0, tampered, content.length, entries.length);
+    write(manifest, tampered);
+
+    createWorkspace(properties, 1, 0).generate();
+
+    assertTrue(absolute.isFile());
+    assertTrue(relative.isFile());
+  }
+
+  /**
+   * Test that workspaces sharing an output directory, like those of concurrent modules, share its manifest.
+   */
+  @Test(timeout = 30000)
+  public void testSharedOutputDirectory() throws Exception
+  {
+    Properties properties = properties(directory);
+    properties.setProperty(Workspace.KEY_SKIP_UNCHANGED, "true");
+    properties.setProperty(Workspace.KEY_REMOVE_STALE, "true");
+    Workspace.generate(Arrays.asList(createWorkspace(properties, 4, 0), createWorkspace(properties, 0, 2)));
+
+    List<String> files = list(directory, "");
+    assertEquals(Arrays.asList(".fabric-manifest", "Class0.cpp", "Class1.cpp", "test/package0/Class0.java",
+        "test/package1/Class1.java", "test/package2/Class2.java", "test/package3/Class3.java"), files);
+    for (String file : files) {
+      assertTrue(new File(directory, file).setLastModified(1000000000L));
+    }
+
+    // nothing is stale or changed
+    Workspace.generate(Arrays.asList(createWorkspace(properties, 4, 0), createWorkspace(properties, 0, 2)));
+    assertEquals(files, list(directory, ""));
+    for (String file : files) {
+      if (!file.equals(".fabric-manifest")) {
+        assertEquals(file, 1000000000L, new File(directory, file).lastModified());
+      }
+    }
+
+    // only the file no workspace has generated is stale
+    Workspace.generate(Arrays.asList(createWorkspace(properties, 4, 0), createWorkspace(properties, 0, 1)));
+    assertFalse(new File(directory, "Class1.cpp").isFile());
+    assertEquals(files.size() - 1, list(directory, "").size());
+    assertEquals(1000000000L, new File(directory, "test/package3/Class3.java").lastModified());
+  }
+
+  static Properties properties(File outputDirectory)
+  {
+    Properties properties = new Properties();
+    properties.setProperty("fabric.output_directory", outputDirectory.getPath());
+    return properties;
+  }
+
+  /**
+   * Creates a workspace holding Java and C++ source files.
+   *
+   * @param properties The properties of the workspace.
+   * @param javaFiles The number of Java source files.
+   * @param cppFiles The number of C++ source files.
+   * @return The workspace.
+   */
+  static Workspace createWorkspace(Properties properties, int javaFiles, int cppFiles) throws Exception
+  {
+    Workspace workspace = new Workspace(properties);
+
+    for (int i = 0; i < javaFiles; i++) {
+      JSourceFile file = workspace.getJava().getJSourceFile("test.package" + (i % 4), "Class" + i);
+      JClass classObject = JClass.factory.create(JModifier.PUBLIC, "Class" + i);
+      for (int j = 0; j < 20; j++) {
+        classObject.add(JField.factory.create(JModifier.PRIVATE, "int", "field" + j));
+        JMethod method = JMethod.factory.create(JModifier.PUBLIC, "int", "getField" + j);
+        method.getBody().appendSource("return field" + j + ";");
+        classObject.add(method);
+      }
+      file.add(classObject);
+    }
+
+    for (int i = 0; i < cppFiles; i++) {
+      CppSourceFile file = workspace.getC().getCppSourceFile("Class" + i);
+      CppClass classObject = CppClass.factory.create("Class" + i);
+      for (int j = 0; j < 20; j++) {
+        classObject.add(Cpp.PRIVATE, CppVar.factory.create("int", "field" + j));
+      }
+      file.add(classObject);
+    }
+
+    return workspace;
+  }
+
+  /**
+   * Lists the paths of all files below a directory, relative to it, in order.
+   */
+  static List<String> list(File directory, String prefix)
+  {
+    List<String> files = new ArrayList<String>();
+    File[] children = directory.listFiles();
+    Arrays.sort(children);
+    for (File child : children) {
+      if (child.isDirectory()) {
+        files.addAll(list(child, prefix + child.getName() + "/"));
+      } else {
+        files.add(prefix + child.getName());
+      }
+    }
+    return files;
+  }
+
+  static byte[] read(File file) throws IOException
+  {
+    byte[] content = new byte[(int) file.length()];
+    InputStream in = new FileInputStream(file);
+    try {
+      int length = 0;
+      while (length < content.length) {
+        length += in.read(content, length, content.length - length);
+      }
+    } finally {
+      in.close();
+    }
+    return content;
+  }
+
+  static void write(File file, byte[] content) throws IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content);
+    } finally {
+      out.close();
+    }
+  }
+
+  static void delete(File file)
+  {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
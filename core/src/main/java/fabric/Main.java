@@ -24,7 +24,9 @@
 package fabric;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -42,12 +44,19 @@ import org.slf4j.LoggerFactory;
 import test.CppModule;
 import de.uniluebeck.itm.tr.util.Logging;
 import de.uniluebeck.sourcegen.Workspace;
+import fabric.module.api.FabricMultiplexHandler;
 import fabric.module.api.FabricSchemaTreeItemHandler;
 import fabric.module.api.FabricSchemaTreeWalker;
+import fabric.module.api.FabricTopLevelElementFilter;
+import fabric.module.api.FabricWalkRecorder;
+import fabric.module.api.FabricWalkReplayer;
 import fabric.module.api.ModuleRegistry;
 import fabric.module.dot.FabricDotGraphModule;
 import fabric.module.typegen.FabricTypeGenModule;
 import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.SchemaCatalog;
+import fabric.wsdlschemaparser.schema.SchemaInfoDumper;
+import fabric.wsdlschemaparser.schema.SchemaWatcher;
 import fabric.wsdlschemaparser.wsdl.FWSDL;
 
 public class Main {
@@ -58,13 +67,27 @@ public class Main {
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(Main.class);
 
+    /** Milliseconds between two checks for changed XML Schema files in watch mode. */
+    private static final long WATCH_INTERVAL = 500;
+
     private File wsdlFile = null;
     private File schemaFile = null;
+    private File cacheDirectory = null;
+    private FSchema.Frontend frontend = FSchema.Frontend.XMLBEANS;
+    private File statisticsFile = null;
+    private File recordFile = null;
+    private File replayFile = null;
+    private boolean watch = false;
+    private boolean concurrentModules = false;
+    private FabricTopLevelElementFilter elementFilter = null;
+    private boolean visitTypesOnce = false;
     private Workspace workspace = null;
 
     private final Properties properties = new Properties();
     private final ModuleRegistry registry = new ModuleRegistry();
     private final List<FabricSchemaTreeItemHandler> treeItemHandlers = new ArrayList<FabricSchemaTreeItemHandler>();
+    private final List<Workspace> workspaces = new ArrayList<Workspace>();
+    private final List<String> moduleNames = new ArrayList<String>();
 
     public Main(String[] args) {
 
@@ -78,6 +101,28 @@ public class Main {
         options.addOption("v", "verbose", false, "Verbose logging output");
         options.addOption("h", "help", false, "Help output");
         options.addOption("o", "output", true, "The code output directory");
+        options.addOption("c", "cache", true, "Directory for caching parsed XML Schema trees between runs");
+        options.addOption("s", "stax", false, "Read XML Schema files with the streaming (StAX) front-end");
+        options.addOption("t", "threads", true, "Number of threads for building the XML Schema object tree");
+        options.addOption("k", "catalog", true, "XML catalog file(s) mapping imported schemata to local copies");
+        options.addOption("r", "mirror", true, "Directory holding local copies of remote XML Schema files");
+        options.addOption("j", "statistics", true, "Write statistics of the XML Schema object tree as JSON to this file");
+        options.addOption("C", "concurrent-modules", false,
+                "Run every module on a thread and in a workspace of its own during the tree walk");
+        options.addOption("e", "elements", true, "Comma-separated list of top-level elements to run the modules on");
+        options.addOption("n", "namespaces", true,
+                "Comma-separated list of namespaces of the top-level elements to run the modules on");
+        options.addOption("u", "unique-types", false,
+                "Walk the content of every top-level complex type only once, however often it is referenced");
+        options.addOption("G", "generate-threads", true, "Number of threads for writing the generated files");
+        options.addOption("I", "incremental", false,
+                "Leave generated files alone whose content has not changed since the last run");
+        options.addOption("D", "delete-stale", false,
+                "With -I, delete files generated by an earlier run but not by this one");
+        options.addOption("R", "record", true, "Record the tree walk into this walk log file");
+        options.addOption("P", "replay", true,
+                "Run the modules on the tree walk recorded in this walk log file instead of an XML Schema file");
+        options.addOption("W", "watch", false, "Watch the XML Schema files and run the modules again on every change");
 
         // Load all modules
         try {
@@ -134,18 +179,95 @@ public class Main {
               }
             }
 
-            workspace = new Workspace(properties);
+            // Set cache directory for parsed schema trees
+            if (line.hasOption('c')) {
+                cacheDirectory = new File(line.getOptionValue('c'));
+                Main.log.debug("Caching parsed schema trees in '" + cacheDirectory + "'.");
+            }
+
+            // Write statistics of the schema object tree
+            if (line.hasOption('j')) {
+                statisticsFile = new File(line.getOptionValue('j'));
+                Main.log.debug("Writing schema statistics to '" + statisticsFile + "'.");
+            }
+
+            // Select the streaming front-end for reading XML Schema files
+            if (line.hasOption('s')) {
+                frontend = FSchema.Frontend.STREAMING;
+                Main.log.debug("Reading XML Schema files with the streaming front-end.");
+            }
+
+            // Set number of threads for building the schema object tree
+            if (line.hasOption('t')) {
+                System.setProperty(FSchema.THREADS_PROPERTY, line.getOptionValue('t'));
+                Main.log.debug("Building schema object trees on " + line.getOptionValue('t') + " threads.");
+            }
+
+            // Resolve imported schemata using local copies
+            if (line.hasOption('k')) {
+                System.setProperty(SchemaCatalog.CATALOG_PROPERTY, line.getOptionValue('k'));
+                Main.log.debug("Resolving imports using the XML catalog(s) '" + line.getOptionValue('k') + "'.");
+            }
+            if (line.hasOption('r')) {
+                System.setProperty(SchemaCatalog.MIRROR_PROPERTY, line.getOptionValue('r'));
+                Main.log.debug("Resolving imports using the schema mirror '" + line.getOptionValue('r') + "'.");
+            }
+
+            // Run the modules concurrently
+            if (line.hasOption('C')) {
+                concurrentModules = true;
+                Main.log.debug("Running modules concurrently.");
+            }
+
+            // Restrict the tree walk to some top-level elements
+            if (line.hasOption('e') || line.hasOption('n')) {
+                elementFilter = new FabricTopLevelElementFilter(split(line.getOptionValue('e')),
+                        split(line.getOptionValue('n')));
+                Main.log.debug("Walking top-level elements by " + elementFilter + ".");
+            }
+
+            // Set number of threads for writing the generated files
+            if (line.hasOption('G')) {
+                properties.setProperty(Workspace.KEY_GENERATE_THREADS, line.getOptionValue('G'));
+                Main.log.debug("Writing generated files on " + line.getOptionValue('G') + " threads.");
+            }
+
+            // Only write changed files
+            if (line.hasOption('I')) {
+                properties.setProperty(Workspace.KEY_SKIP_UNCHANGED, "true");
+                Main.log.debug("Writing changed generated files only.");
+            }
+            if (line.hasOption('D')) {
+                properties.setProperty(Workspace.KEY_REMOVE_STALE, "true");
+                Main.log.debug("Deleting stale generated files.");
+            }
+
+            // Record the tree walk
+            if (line.hasOption('R')) {
+                recordFile = new File(line.getOptionValue('R'));
+                Main.log.debug("Recording the tree walk to '" + recordFile + "'.");
+            }
+
+            // Walk every top-level complex type only once
+            if (line.hasOption('u')) {
+                visitTypesOnce = true;
+                Main.log.debug("Walking every top-level complex type only once.");
+            }
 
             // Create module instances
             if (line.hasOption('m')) {
                 for (String moduleName : line.getOptionValue('m').split(",")) {
-                    moduleName = moduleName.trim();
-                    Main.log.debug("Creating instance of module {}", moduleName);
-                    treeItemHandlers.add(registry.get(moduleName).getHandler(workspace));
+                    moduleNames.add(moduleName.trim());
                 }
             }
+            createHandlers();
 
-            if (line.hasOption('x') && line.hasOption('w')) {
+            if (line.hasOption('P')) {
+                if (line.hasOption('x') || line.hasOption('w')) {
+                    throw new Exception("Only one of -x, -w or -P is allowed");
+                }
+                replayFile = new File(line.getOptionValue('P'));
+            } else if (line.hasOption('x') && line.hasOption('w')) {
                 throw new Exception("Only one of -x or -w is allowed");
             } else if (line.hasOption('x')) {
                 schemaFile = new File(line.getOptionValue('x'));
@@ -154,7 +276,15 @@ public class Main {
                 wsdlFile = new File(line.getOptionValue('w'));
                 properties.setProperty("fabric.wsdl", line.getOptionValue('w')); // Add path of WSDL file to properties
             } else {
-                throw new Exception("Supply one of -x or -w");
+                throw new Exception("Supply one of -x, -w or -P");
+            }
+
+            // Keep running and process the XML Schema file again whenever it changes
+            if (line.hasOption('W')) {
+                if (schemaFile == null) {
+                    throw new Exception("-W is only supported with -x");
+                }
+                watch = true;
             }
 
         } catch (Exception e) {
@@ -165,23 +295,140 @@ public class Main {
 
         // Handle the two different file types
         try {
-            if (wsdlFile != null) {
+            if (replayFile != null) {
+                replay();
+
+            } else if (wsdlFile != null) {
                 FWSDL wsdl = new FWSDL(wsdlFile);
                 System.out.println(wsdl.toString());
 
+            } else if (schemaFile != null && watch) {
+                watch();
+
             } else if (schemaFile != null) {
-                FSchema schema = new FSchema(schemaFile);
+                FSchema schema = new FSchema(schemaFile, cacheDirectory, SchemaCatalog.getDefault(), frontend);
                 System.out.println(schema.toString());
+                generate(schema);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs all modules on the Schema object tree and writes the generated files.
+     *
+     * @param schema
+     * @throws Exception
+     */
+    private void generate(FSchema schema) throws Exception {
+        if (statisticsFile != null) {
+            PrintWriter out = new PrintWriter(statisticsFile, "UTF-8");
+            try {
+                new SchemaInfoDumper(schema).dumpStatisticsTo(out);
+            } finally {
+                out.close();
+            }
+        }
 
-                FabricSchemaTreeWalker tw = new FabricSchemaTreeWalker();
-                for (FabricSchemaTreeItemHandler h : treeItemHandlers) {
-                    tw.walk(schema, h);
+        // a single walk serves all modules
+        FabricSchemaTreeWalker tw = new FabricSchemaTreeWalker();
+        tw.setTopLevelElementFilter(elementFilter);
+        tw.setVisitTypesOnce(visitTypesOnce);
+        List<FabricSchemaTreeItemHandler> handlers = treeItemHandlers;
+        FabricWalkRecorder recorder = null;
+        if (recordFile != null) {
+            handlers = new ArrayList<FabricSchemaTreeItemHandler>(treeItemHandlers);
+            recorder = new FabricWalkRecorder(new FileOutputStream(recordFile));
+            handlers.add(recorder);
+        }
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(handlers, concurrentModules);
+        boolean walked = false;
+        try {
+            tw.walk(schema, multiplexer);
+            walked = true;
+        } finally {
+            multiplexer.abort();
+            if (recorder != null) {
+                recorder.close();
+                // do not leave an incomplete walk log behind
+                if (!walked && !recordFile.delete()) {
+                    log.warn("Could not delete incomplete walk log " + recordFile);
                 }
+            }
+        }
+
+        // the workspaces of concurrent modules share the output directory, and thus its manifest
+        Workspace.generate(workspaces);
+    }
+
+    /**
+     * Runs all modules on the tree walk recorded in the walk log file and writes the generated files. No XML Schema
+     * file is parsed.
+     *
+     * @throws Exception
+     */
+    private void replay() throws Exception {
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(treeItemHandlers, concurrentModules);
+        try {
+            new FabricWalkReplayer().replay(replayFile, multiplexer);
+        } finally {
+            multiplexer.abort();
+        }
+
+        // the workspaces of concurrent modules share the output directory, and thus its manifest
+        Workspace.generate(workspaces);
+    }
+
+    /**
+     * Creates a new instance of every selected module. In concurrent mode, every module but the first gets a
+     * workspace of its own, so the modules do not share any mutable state.
+     *
+     * @throws Exception
+     */
+    private void createHandlers() throws Exception {
+        treeItemHandlers.clear();
+        workspaces.clear();
+        workspace = new Workspace(properties);
+        workspaces.add(workspace);
 
-                workspace.generate();
+        for (String moduleName : moduleNames) {
+            Workspace moduleWorkspace = workspace;
+            if (concurrentModules && !treeItemHandlers.isEmpty()) {
+                moduleWorkspace = new Workspace(properties);
+                workspaces.add(moduleWorkspace);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            Main.log.debug("Creating instance of module {}", moduleName);
+            treeItemHandlers.add(registry.get(moduleName).getHandler(moduleWorkspace));
+        }
+    }
+
+    /**
+     * Processes the XML Schema file over and over again, each time one of its documents changes. Only the changed
+     * documents are parsed again, but the whole Schema object tree is rebuilt (see {@link SchemaWatcher}) and all
+     * modules are run on all of its top-level components, not only on those of the changed documents. The modules
+     * write files shared by all components, e.g. one dot graph or common C++ headers, from a single walk; a run on
+     * some components only would leave out the others, and with -D delete their files as stale. The modules also keep
+     * state between the items they handle, so they are created anew for every run.
+     *
+     * @throws Exception
+     */
+    private void watch() throws Exception {
+        SchemaWatcher watcher = new SchemaWatcher(schemaFile);
+
+        while (true) {
+            try {
+                FSchema schema = watcher.load();
+                Main.log.info("Parsed " + watcher.getParsedLocations().size() + " changed XML Schema file(s).");
+                generate(schema);
+            } catch (Exception e) {
+                Main.log.error("Unable to process " + schemaFile + ": " + e, e);
+            }
+
+            Main.log.info("Watching " + schemaFile + " for changes.");
+            Main.log.info("Changed: " + watcher.awaitChanges(WATCH_INTERVAL));
+
+            createHandlers();
         }
     }
 
@@ -197,6 +444,23 @@ public class Main {
         this.registry.register(new FabricTypeGenModule(this.properties));
     }
 
+    /**
+     * Splits a comma-separated option value.
+     *
+     * @param value The option value, may be <code>null</code>.
+     * @return The trimmed values, or <code>null</code> if the option is not set.
+     */
+    private static List<String> split(String value) {
+        if (value == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<String>();
+        for (String v : value.split(",")) {
+            values.add(v.trim());
+        }
+        return values;
+    }
+
     /**
      * Prints the usage of the program.
      *
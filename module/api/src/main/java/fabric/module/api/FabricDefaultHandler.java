@@ -123,4 +123,14 @@ public class FabricDefaultHandler implements FabricSchemaTreeItemHandler {
     public void endLocalComplexType(FComplexType type, FElement parent) {
         // doesn't do anything
     }
+
+    @Override
+    public void recursiveReference(FComplexType type, FElement parent) throws Exception {
+        // doesn't do anything
+    }
+
+    @Override
+    public void typeReference(FComplexType type, FElement parent) throws Exception {
+        // doesn't do anything
+    }
 }
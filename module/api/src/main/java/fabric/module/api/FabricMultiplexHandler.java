@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import fabric.module.api.FabricWalkEvent.Kind;
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSimpleType;
+
+/**
+ * Handler which passes every callback on to several handlers, so that all of
+ * them are served by a single walk of the Schema object tree.
+ * 
+ * By default, each callback is passed to the handlers one after the other, in
+ * the order they were given. In concurrent mode, every handler runs on a
+ * thread of its own and receives the callbacks through a queue, in the order
+ * of the walk. This is only safe for handlers which do not share mutable state
+ * with each other; the Schema object tree itself is only read. Errors of the
+ * handlers are reported by {@link #endSchema(FSchema)} then. If the walk ends
+ * before {@link #endSchema(FSchema)}, e.g. because the walker failed,
+ * {@link #abort()} has to be called to stop the threads.
+ * 
+ * A subtree is only skipped if all handlers want to skip it (see
+ * {@link FabricPruningTreeItemHandler}), and never in concurrent mode. So a
+ * handler may receive the content of an item it wanted to skip.
+ */
+public class FabricMultiplexHandler implements FabricPruningTreeItemHandler {
+
+    /**
+     * The handlers the callbacks are passed to.
+     */
+    private final List<FabricSchemaTreeItemHandler> handlers;
+
+    /**
+     * Whether the handlers run on threads of their own.
+     */
+    private final boolean concurrent;
+
+    /**
+     * The threads running the handlers while walking in concurrent mode.
+     */
+    private final List<Dispatcher> dispatchers = new ArrayList<Dispatcher>( );
+
+    /**
+     * Constructs a new handler passing the callbacks on to the given handlers
+     * one after the other.
+     * 
+     * @param handlers The handlers to pass the callbacks on to.
+     */
+    public FabricMultiplexHandler(List<? extends FabricSchemaTreeItemHandler> handlers) {
+        this(handlers, false);
+    }
+
+    /**
+     * Constructs a new handler passing the callbacks on to the given handlers.
+     * 
+     * @param handlers The handlers to pass the callbacks on to.
+     * @param concurrent Whether every handler runs on a thread of its own.
+     */
+    public FabricMultiplexHandler(List<? extends FabricSchemaTreeItemHandler> handlers, boolean concurrent) {
+        this.handlers = new ArrayList<FabricSchemaTreeItemHandler>(handlers);
+        this.concurrent = concurrent;
+    }
+
+    @Override
+    public void startSchema(FSchema schema) throws Exception {
+        if (concurrent) {
+            dispatchers.clear( );
+            for (FabricSchemaTreeItemHandler handler : handlers) {
+                Dispatcher dispatcher = new Dispatcher(handler, dispatchers.size( ));
+                dispatchers.add(dispatcher);
+                dispatcher.start( );
+            }
+        }
+        fire(new FabricWalkEvent(Kind.START_SCHEMA, schema, null));
+    }
+
+    @Override
+    public void endSchema(FSchema schema) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_SCHEMA, schema, null));
+
+        if (concurrent) {
+            Throwable failure = null;
+            for (Dispatcher dispatcher : dispatchers) {
+                dispatcher.join( );
+                if (failure == null) {
+                    failure = dispatcher.failure;
+                }
+            }
+            dispatchers.clear( );
+
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            } else if (failure != null) {
+                throw new Exception(failure);
+            }
+        }
+    }
+
+    /**
+     * Stops the threads of a walk in concurrent mode which has not reached
+     * {@link #endSchema(FSchema)}. Callbacks already passed on are still
+     * delivered, then the handlers are left as they are. Does nothing if no
+     * walk is in progress, so it may be called after every walk.
+     * 
+     * @throws InterruptedException If interrupted while waiting for the
+     *         threads.
+     */
+    public void abort( ) throws InterruptedException {
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.queue.put(Dispatcher.ABORT);
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.join( );
+        }
+        dispatchers.clear( );
+    }
+
+    @Override
+    public void startTopLevelElement(FElement element) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_TOP_LEVEL_ELEMENT, element, null));
+    }
+
+    @Override
+    public void endTopLevelElement(FElement element) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_TOP_LEVEL_ELEMENT, element, null));
+    }
+
+    @Override
+    public void startLocalElement(FElement element, FComplexType parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_LOCAL_ELEMENT, element, parent));
+    }
+
+    @Override
+    public void endLocalElement(FElement element, FComplexType parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_LOCAL_ELEMENT, element, parent));
+    }
+
+    @Override
+    public void startElementReference(FElement element) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_ELEMENT_REFERENCE, element, null));
+    }
+
+    @Override
+    public void endElementReference(FElement element) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_ELEMENT_REFERENCE, element, null));
+    }
+
+    @Override
+    public void startTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_TOP_LEVEL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void endTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_TOP_LEVEL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void startLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_LOCAL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void endLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_LOCAL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void startTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_TOP_LEVEL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void endTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_TOP_LEVEL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void startLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.START_LOCAL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void endLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.END_LOCAL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void recursiveReference(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.RECURSIVE_REFERENCE, type, parent));
+    }
+
+    @Override
+    public void typeReference(FComplexType type, FElement parent) throws Exception {
+        fire(new FabricWalkEvent(Kind.TYPE_REFERENCE, type, parent));
+    }
+
+    @Override
+    public boolean skipSubtree( ) {
+        if (concurrent || handlers.isEmpty( )) {
+            return false;
+        }
+        for (FabricSchemaTreeItemHandler handler : handlers) {
+            if (!(handler instanceof FabricPruningTreeItemHandler)
+                    || !((FabricPruningTreeItemHandler)handler).skipSubtree( )) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes a callback on to all handlers.
+     * 
+     * @param event The callback.
+     * @throws Exception If a handler fails (only if not in concurrent mode).
+     */
+    private void fire(FabricWalkEvent event) throws Exception {
+        if (concurrent) {
+            for (Dispatcher dispatcher : dispatchers) {
+                dispatcher.queue.put(event);
+            }
+        } else {
+            for (FabricSchemaTreeItemHandler handler : handlers) {
+                event.dispatch(handler);
+            }
+        }
+    }
+
+    /**
+     * Runs one handler in concurrent mode. After the handler has failed, the
+     * remaining callbacks are discarded, so the walk is never blocked.
+     */
+    private static final class Dispatcher extends Thread {
+        /**
+         * Ends the thread without being passed on (see {@link #abort()}).
+         */
+        static final FabricWalkEvent ABORT = new FabricWalkEvent(Kind.END_SCHEMA, null, null);
+
+        private final FabricSchemaTreeItemHandler handler;
+        private final BlockingQueue<FabricWalkEvent> queue = new LinkedBlockingQueue<FabricWalkEvent>( );
+        private volatile Throwable failure;
+
+        Dispatcher(FabricSchemaTreeItemHandler handler, int index) {
+            super("fabric-module-" + index);
+            this.handler = handler;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run( ) {
+            try {
+                FabricWalkEvent event;
+                do {
+                    event = queue.take( );
+                    if (event == ABORT) {
+                        break;
+                    }
+                    if (failure == null) {
+                        try {
+                            event.dispatch(handler);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                } while (event.getKind( ) != Kind.END_SCHEMA);
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+        }
+    }
+}
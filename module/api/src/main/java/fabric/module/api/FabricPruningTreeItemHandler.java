@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+/**
+ * Tree item handler which can prune the Schema object tree while it is being
+ * walked. Right after each call to
+ * {@link #startTopLevelElement(fabric.wsdlschemaparser.schema.FElement)},
+ * {@link #startLocalElement(fabric.wsdlschemaparser.schema.FElement, fabric.wsdlschemaparser.schema.FComplexType)},
+ * {@link #startTopLevelComplexType(fabric.wsdlschemaparser.schema.FComplexType, fabric.wsdlschemaparser.schema.FElement)}
+ * and
+ * {@link #startLocalComplexType(fabric.wsdlschemaparser.schema.FComplexType, fabric.wsdlschemaparser.schema.FElement)}
+ * the walker asks the handler whether to skip the content of the item just
+ * started, i.e. an element's type or a complex type's children. The matching
+ * end callback is issued in any case.
+ * 
+ * @see FabricSchemaTreeWalker
+ */
+public interface FabricPruningTreeItemHandler extends FabricSchemaTreeItemHandler {
+
+    /**
+     * Decides whether the content of the item passed to the last start
+     * callback is skipped.
+     * 
+     * @return <code>true</code> to skip the item's content, <code>false</code>
+     *         to walk it.
+     */
+    public abstract boolean skipSubtree( );
+
+}
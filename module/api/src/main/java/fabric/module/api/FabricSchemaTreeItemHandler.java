@@ -156,4 +156,29 @@ public interface FabricSchemaTreeItemHandler {
      */
     public abstract void endLocalComplexType(FComplexType type, FElement parent) throws Exception;
 
+    /**
+     * Signifies that the specified complex type is used recursively, i.e. it is
+     * referenced again while its own content is being walked. The type's content
+     * is not walked a second time; no start or end callbacks are issued for this
+     * occurrence of the type.
+     * 
+     * @param type The recursively referenced complex type.
+     * @param parent The element referencing the type.
+     * @throws Exception If an error occurs.
+     */
+    public abstract void recursiveReference(FComplexType type, FElement parent) throws Exception;
+
+    /**
+     * Signifies that the specified top-level complex type is referenced again
+     * after its content has already been walked. This is only called if the
+     * walker visits every type once (see
+     * {@link FabricSchemaTreeWalker#setVisitTypesOnce(boolean)}); no start or
+     * end callbacks are issued for this occurrence of the type.
+     * 
+     * @param type The top-level complex type referenced again.
+     * @param parent The element referencing the type.
+     * @throws Exception If an error occurs.
+     */
+    public abstract void typeReference(FComplexType type, FElement parent) throws Exception;
+
 }
@@ -26,6 +26,14 @@
  */
 package fabric.module.api;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +48,21 @@ import fabric.wsdlschemaparser.schema.FTopLevelObjectList;
 /**
  * This class represents the walker on the Schema object tree.
  * 
+ * The tree is walked iteratively, keeping the items still to be handled on an
+ * explicit work stack instead of the call stack. Trees of any depth can be
+ * walked without running out of stack space.
+ * 
+ * The walk can be restricted to some of the top-level elements (see
+ * {@link #setTopLevelElementFilter(FabricTopLevelElementFilter)}), and
+ * handlers implementing {@link FabricPruningTreeItemHandler} can skip the
+ * content of single elements and complex types.
+ * 
+ * Since all elements of a top-level type share the same node of the Schema
+ * object tree, the walker can also visit the content of every top-level
+ * complex type only once (see {@link #setVisitTypesOnce(boolean)}). The walk
+ * then takes time proportional to the number of distinct types rather than to
+ * the number of references to them.
+ * 
  * @author Marco Wegner
  */
 public final class FabricSchemaTreeWalker {
@@ -54,6 +77,46 @@ public final class FabricSchemaTreeWalker {
      */
     private FabricSchemaTreeItemHandler itemHandler;
 
+    /**
+     * The handler deciding which subtrees are skipped, or <code>null</code>
+     * if the item handler does not prune the tree.
+     */
+    private FabricPruningTreeItemHandler pruningHandler;
+
+    /**
+     * Selects the top-level elements to walk, or <code>null</code> to walk
+     * all of them.
+     */
+    private FabricTopLevelElementFilter filter;
+
+    /**
+     * The complex types on the path from the current top-level element down to
+     * the item currently being handled. Recursive types are detected by
+     * identity, since the Schema object tree shares one node per type.
+     */
+    private final Set<FComplexType> typePath = Collections.newSetFromMap(new IdentityHashMap<FComplexType, Boolean>( ));
+
+    /**
+     * Whether the content of every top-level complex type is walked only once.
+     */
+    private boolean visitTypesOnce;
+
+    /**
+     * The top-level complex types whose content has been walked, if every type
+     * is visited only once. Types whose content was skipped are not included.
+     */
+    private final Set<FComplexType> visitedTypes = Collections.newSetFromMap(new IdentityHashMap<FComplexType, Boolean>( ));
+
+    /**
+     * The steps still to be taken, the next one on top.
+     */
+    private final Deque<Step> steps = new ArrayDeque<Step>( );
+
+    /**
+     * Whether debug logging is enabled for the current walk.
+     */
+    private boolean debug;
+
     /**
      * Construct a new Schema object tree walker.
      */
@@ -79,6 +142,30 @@ public final class FabricSchemaTreeWalker {
         return this.itemHandler;
     }
 
+    /**
+     * Restricts the following walks to some of the top-level elements.
+     * 
+     * @param filter The filter selecting the top-level elements to walk, or
+     *        <code>null</code> to walk all of them.
+     */
+    public void setTopLevelElementFilter(FabricTopLevelElementFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Sets whether the following walks visit the content of every top-level
+     * complex type only once. Further references to a type are reported by
+     * {@link FabricSchemaTreeItemHandler#typeReference(FComplexType, FElement)}
+     * instead of walking the type again. Copies of a type, e.g. those
+     * restricted by facets, are distinct types and walked on their own.
+     * 
+     * @param visitTypesOnce <code>true</code> to visit every type once,
+     *        <code>false</code> to walk a type at every reference (default).
+     */
+    public void setVisitTypesOnce(boolean visitTypesOnce) {
+        this.visitTypesOnce = visitTypesOnce;
+    }
+
     /**
      * Walk a Schema object tree. Fabric's default handler for Schema object
      * tree items is used.
@@ -108,6 +195,12 @@ public final class FabricSchemaTreeWalker {
             handler = itemHandler;
         }
         setItemHandler(handler);
+        pruningHandler = (handler instanceof FabricPruningTreeItemHandler) ? (FabricPruningTreeItemHandler)handler
+                : null;
+        typePath.clear( );
+        visitedTypes.clear( );
+        steps.clear( );
+        debug = log.isDebugEnabled( );
 
         handler.startSchema(schema);
         log.debug("Start handling Schema object tree");
@@ -115,7 +208,14 @@ public final class FabricSchemaTreeWalker {
         final FTopLevelObjectList tlo = schema.getTopLevelObjectList( );
 
         for (final FElement e : tlo.getTopLevelElements( )) {
-            handleElement(e, null);
+            if (filter != null && !filter.accept(e)) {
+                if (debug) {
+                    log.debug("Skipping top-level element '{}'", e.getName( ));
+                }
+                continue;
+            }
+            steps.push(new Step(Action.ELEMENT, e, null));
+            run( );
         }
 
         handler.endSchema(schema);
@@ -123,7 +223,59 @@ public final class FabricSchemaTreeWalker {
     }
 
     /**
-     * Handles an element in the Schema object tree.
+     * Takes steps until the work stack is empty.
+     * 
+     * @throws Exception If an error occurs while walking the tree.
+     */
+    private void run( ) throws Exception {
+        final FabricSchemaTreeItemHandler handler = getItemHandler( );
+
+        while (!steps.isEmpty( )) {
+            final Step step = steps.pop( );
+
+            switch (step.action) {
+                case ELEMENT:
+                    handleElement((FElement)step.item, (FComplexType)step.parent);
+                    break;
+                case SCHEMA_TYPE:
+                    handleSchemaType((FSchemaType)step.item, (FElement)step.parent);
+                    break;
+                case CHILD:
+                    handleChild(step.item, (FComplexType)step.parent);
+                    break;
+                case END_TOP_LEVEL_ELEMENT:
+                    handler.endTopLevelElement((FElement)step.item);
+                    if (debug) {
+                        log.debug("Done handling top-level element '{}'", step.item.getName( ));
+                    }
+                    break;
+                case END_LOCAL_ELEMENT:
+                    handler.endLocalElement((FElement)step.item, (FComplexType)step.parent);
+                    if (debug) {
+                        log.debug("Done handling local element '{}'", step.item.getName( ));
+                    }
+                    break;
+                case END_TOP_LEVEL_COMPLEX_TYPE:
+                    handler.endTopLevelComplexType((FComplexType)step.item, (FElement)step.parent);
+                    typePath.remove(step.item);
+                    if (debug) {
+                        log.debug("Done handling top-level complex type '{}'", step.item.getName( ));
+                    }
+                    break;
+                case END_LOCAL_COMPLEX_TYPE:
+                    handler.endLocalComplexType((FComplexType)step.item, (FElement)step.parent);
+                    typePath.remove(step.item);
+                    if (debug) {
+                        log.debug("Done handling local complex type '{}'", step.item.getName( ));
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Handles an element in the Schema object tree. The element's type is
+     * handled by the following steps.
      * 
      * @param e The element to be handled.
      * @param parent The element's parent. If <code>null</code> this usually
@@ -132,26 +284,35 @@ public final class FabricSchemaTreeWalker {
      */
     private void handleElement(FElement e, FComplexType parent) throws Exception {
         final FabricSchemaTreeItemHandler handler = getItemHandler( );
-        final String elemName = e.getName( );
 
         if (e.isReference( )) {
             handler.startElementReference(e);
-            log.debug("Start handling element reference '{}'", elemName);
+            if (debug) {
+                log.debug("Start handling element reference '{}'", e.getName( ));
+            }
             // TODO handle element reference
             handler.endElementReference(e);
-            log.debug("Done handling element reference '{}'", elemName);
+            if (debug) {
+                log.debug("Done handling element reference '{}'", e.getName( ));
+            }
         } else if (e.isTopLevel( )) {
             handler.startTopLevelElement(e);
-            log.debug("Start handling top-level element '{}'", elemName);
-            handleSchemaType(e.getSchemaType( ), e);
-            handler.endTopLevelElement(e);
-            log.debug("Done handling top-level element '{}'", elemName);
+            if (debug) {
+                log.debug("Start handling top-level element '{}'", e.getName( ));
+            }
+            steps.push(new Step(Action.END_TOP_LEVEL_ELEMENT, e, null));
+            if (!skipSubtree( )) {
+                steps.push(new Step(Action.SCHEMA_TYPE, e.getSchemaType( ), e));
+            }
         } else {
             handler.startLocalElement(e, parent);
-            log.debug("Start handling local element '{}'", elemName);
-            handleSchemaType(e.getSchemaType( ), e);
-            handler.endLocalElement(e, parent);
-            log.debug("Done handling local element '{}'", elemName);
+            if (debug) {
+                log.debug("Start handling local element '{}'", e.getName( ));
+            }
+            steps.push(new Step(Action.END_LOCAL_ELEMENT, e, parent));
+            if (!skipSubtree( )) {
+                steps.push(new Step(Action.SCHEMA_TYPE, e.getSchemaType( ), e));
+            }
         }
     }
 
@@ -181,20 +342,27 @@ public final class FabricSchemaTreeWalker {
      */
     private void handleSimpleType(FSimpleType type, FElement parent) throws Exception {
         final FabricSchemaTreeItemHandler handler = getItemHandler( );
-        final String typeName = type.getName( );
 
         if (type.isTopLevel( )) {
             handler.startTopLevelSimpleType(type, parent);
-            log.debug("Start handling top-level simple type '{}'", typeName);
+            if (debug) {
+                log.debug("Start handling top-level simple type '{}'", type.getName( ));
+            }
             handleSimpleTypeContent( );
             handler.endTopLevelSimpleType(type, parent);
-            log.debug("Done handling top-level simple type '{}'", typeName);
+            if (debug) {
+                log.debug("Done handling top-level simple type '{}'", type.getName( ));
+            }
         } else {
             handler.startLocalSimpleType(type, parent);
-            log.debug("Start handling local simple type '{}'", typeName);
+            if (debug) {
+                log.debug("Start handling local simple type '{}'", type.getName( ));
+            }
             handleSimpleTypeContent( );
             handler.endLocalSimpleType(type, parent);
-            log.debug("Done handling local simple type '{}'", typeName);
+            if (debug) {
+                log.debug("Done handling local simple type '{}'", type.getName( ));
+            }
         }
     }
 
@@ -206,7 +374,8 @@ public final class FabricSchemaTreeWalker {
     }
 
     /**
-     * Handles a complex type.
+     * Handles a complex type. Its content is handled by the following steps,
+     * while the type is on the current walk path.
      * 
      * @param type The complex type to be handled.
      * @param parent The complex type's parent element.
@@ -214,40 +383,106 @@ public final class FabricSchemaTreeWalker {
      */
     private void handleComplexType(FComplexType type, FElement parent) throws Exception {
         final FabricSchemaTreeItemHandler handler = getItemHandler( );
-        final String typeName = type.getName( );
 
+        if (typePath.contains(type)) {
+            handler.recursiveReference(type, parent);
+            if (debug) {
+                log.debug("Handled recursive reference to complex type '{}'", type.getName( ));
+            }
+            return;
+        }
+        if (visitedTypes.contains(type)) {
+            handler.typeReference(type, parent);
+            if (debug) {
+                log.debug("Handled reference to visited complex type '{}'", type.getName( ));
+            }
+            return;
+        }
+
+        typePath.add(type);
         if (type.isTopLevel( )) {
             handler.startTopLevelComplexType(type, parent);
-            log.debug("Start handling top-level complex type '{}'", typeName);
-            handleComplexContent(type);
-            handler.endTopLevelComplexType(type, parent);
-            log.debug("Done handling top-level complex type '{}'", typeName);
+            if (debug) {
+                log.debug("Start handling top-level complex type '{}'", type.getName( ));
+            }
+            steps.push(new Step(Action.END_TOP_LEVEL_COMPLEX_TYPE, type, parent));
         } else {
             handler.startLocalComplexType(type, parent);
-            log.debug("Start handling local complex type '{}'", typeName);
-            handleComplexContent(type);
-            handler.endLocalComplexType(type, parent);
-            log.debug("Done handling local complex type '{}'", typeName);
+            if (debug) {
+                log.debug("Start handling local complex type '{}'", type.getName( ));
+            }
+            steps.push(new Step(Action.END_LOCAL_COMPLEX_TYPE, type, parent));
         }
+        if (!skipSubtree( )) {
+            if (visitTypesOnce && type.isTopLevel( )) {
+                visitedTypes.add(type);
+            }
+            pushComplexContent(type);
+        }
+    }
+
+    /**
+     * Asks the pruning handler, if any, whether to skip the content of the
+     * item just started.
+     * 
+     * @return <code>true</code> if the content is skipped.
+     */
+    private boolean skipSubtree( ) {
+        return pruningHandler != null && pruningHandler.skipSubtree( );
     }
 
     /**
-     * Handles the content of a complex type. The content usually comprises more
-     * types, elements and/or attributes.
+     * Schedules the content of a complex type. The content usually comprises
+     * more types, elements and/or attributes. The children are pushed in
+     * reverse, so they are handled in document order.
      * 
      * @param parent The complex type whose children are to be handled.
+     */
+    private void pushComplexContent(FComplexType parent) {
+        final List<FSchemaObject> children = parent.getChildObjects( );
+        for (ListIterator<FSchemaObject> it = children.listIterator(children.size( )); it.hasPrevious( );) {
+            steps.push(new Step(Action.CHILD, it.previous( ), parent));
+        }
+    }
+
+    /**
+     * Handles a child of a complex type.
+     * 
+     * @param o The child to be handled.
+     * @param parent The complex type the child belongs to.
      * @throws Exception If an error occurs while walking the tree.
      */
-    private void handleComplexContent(FComplexType parent) throws Exception {
-        for (final FSchemaObject o : parent.getChildObjects( )) {
-            if (o instanceof FElement) {
-                handleElement((FElement)o, parent);
-            } else if (o instanceof FComplexType) {
-                // TODO fix parent
-                handleComplexType((FComplexType)o, null);
-            } else {
-                throw new Exception("Unknown child object: " + o.toString( ));
-            }
+    private void handleChild(FSchemaObject o, FComplexType parent) throws Exception {
+        if (o instanceof FElement) {
+            handleElement((FElement)o, parent);
+        } else if (o instanceof FComplexType) {
+            // TODO fix parent
+            handleComplexType((FComplexType)o, null);
+        } else {
+            throw new Exception("Unknown child object: " + o.toString( ));
+        }
+    }
+
+    /**
+     * The things the walker does on its way through the tree.
+     */
+    private enum Action {
+        ELEMENT, SCHEMA_TYPE, CHILD, END_TOP_LEVEL_ELEMENT, END_LOCAL_ELEMENT, END_TOP_LEVEL_COMPLEX_TYPE,
+        END_LOCAL_COMPLEX_TYPE
+    }
+
+    /**
+     * A step still to be taken: an action on a tree item and its parent.
+     */
+    private static final class Step {
+        private final Action action;
+        private final FSchemaObject item;
+        private final FSchemaObject parent;
+
+        Step(Action action, FSchemaObject item, FSchemaObject parent) {
+            this.action = action;
+            this.item = item;
+            this.parent = parent;
         }
     }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import fabric.wsdlschemaparser.schema.FElement;
+
+/**
+ * Selects the top-level elements walked by {@link FabricSchemaTreeWalker},
+ * by name and/or namespace. An element is walked if its name is one of the
+ * given names and its namespace is one of the given namespaces. An empty
+ * collection of names or namespaces does not restrict the elements.
+ */
+public class FabricTopLevelElementFilter {
+
+    /**
+     * The names of the elements to walk.
+     */
+    private final Set<String> names;
+
+    /**
+     * The namespaces of the elements to walk.
+     */
+    private final Set<String> namespaces;
+
+    /**
+     * Constructs a new filter.
+     * 
+     * @param names The names of the elements to walk, may be <code>null</code>.
+     * @param namespaces The namespaces of the elements to walk, may be
+     *        <code>null</code>.
+     */
+    public FabricTopLevelElementFilter(Collection<String> names, Collection<String> namespaces) {
+        this.names = (names != null) ? new HashSet<String>(names) : Collections.<String> emptySet( );
+        this.namespaces = (namespaces != null) ? new HashSet<String>(namespaces) : Collections.<String> emptySet( );
+    }
+
+    /**
+     * Decides whether a top-level element is walked.
+     * 
+     * @param element The top-level element.
+     * @return <code>true</code> if the element is walked.
+     */
+    public boolean accept(FElement element) {
+        return (names.isEmpty( ) || names.contains(element.getName( )))
+                && (namespaces.isEmpty( ) || namespaces.contains(element.getNamespace( )));
+    }
+
+    @Override
+    public String toString( ) {
+        return "names " + names + ", namespaces " + namespaces;
+    }
+}
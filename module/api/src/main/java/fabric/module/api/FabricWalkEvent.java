@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSimpleType;
+
+/**
+ * A single callback of {@link FabricSchemaTreeItemHandler} together with its
+ * arguments, to be passed on to handlers later or elsewhere.
+ */
+final class FabricWalkEvent {
+
+    /**
+     * The kinds of callbacks. The ordinals are part of the walk log format (see
+     * {@link FabricWalkRecorder}), so new kinds must be appended.
+     */
+    enum Kind {
+        START_SCHEMA, END_SCHEMA, START_TOP_LEVEL_ELEMENT, END_TOP_LEVEL_ELEMENT, START_LOCAL_ELEMENT,
+        END_LOCAL_ELEMENT, START_ELEMENT_REFERENCE, END_ELEMENT_REFERENCE, START_TOP_LEVEL_SIMPLE_TYPE,
+        END_TOP_LEVEL_SIMPLE_TYPE, START_LOCAL_SIMPLE_TYPE, END_LOCAL_SIMPLE_TYPE, START_TOP_LEVEL_COMPLEX_TYPE,
+        END_TOP_LEVEL_COMPLEX_TYPE, START_LOCAL_COMPLEX_TYPE, END_LOCAL_COMPLEX_TYPE, RECURSIVE_REFERENCE,
+        TYPE_REFERENCE
+    }
+
+    private final Kind kind;
+    private final Object item;
+    private final Object parent;
+
+    FabricWalkEvent(Kind kind, Object item, Object parent) {
+        this.kind = kind;
+        this.item = item;
+        this.parent = parent;
+    }
+
+    Kind getKind( ) {
+        return kind;
+    }
+
+    Object getItem( ) {
+        return item;
+    }
+
+    Object getParent( ) {
+        return parent;
+    }
+
+    /**
+     * Calls the corresponding method of the given handler.
+     */
+    void dispatch(FabricSchemaTreeItemHandler handler) throws Exception {
+        switch (kind) {
+            case START_SCHEMA:
+                handler.startSchema((FSchema)item);
+                break;
+            case END_SCHEMA:
+                handler.endSchema((FSchema)item);
+                break;
+            case START_TOP_LEVEL_ELEMENT:
+                handler.startTopLevelElement((FElement)item);
+                break;
+            case END_TOP_LEVEL_ELEMENT:
+                handler.endTopLevelElement((FElement)item);
+                break;
+            case START_LOCAL_ELEMENT:
+                handler.startLocalElement((FElement)item, (FComplexType)parent);
+                break;
+            case END_LOCAL_ELEMENT:
+                handler.endLocalElement((FElement)item, (FComplexType)parent);
+                break;
+            case START_ELEMENT_REFERENCE:
+                handler.startElementReference((FElement)item);
+                break;
+            case END_ELEMENT_REFERENCE:
+                handler.endElementReference((FElement)item);
+                break;
+            case START_TOP_LEVEL_SIMPLE_TYPE:
+                handler.startTopLevelSimpleType((FSimpleType)item, (FElement)parent);
+                break;
+            case END_TOP_LEVEL_SIMPLE_TYPE:
+                handler.endTopLevelSimpleType((FSimpleType)item, (FElement)parent);
+                break;
+            case START_LOCAL_SIMPLE_TYPE:
+                handler.startLocalSimpleType((FSimpleType)item, (FElement)parent);
+                break;
+            case END_LOCAL_SIMPLE_TYPE:
+                handler.endLocalSimpleType((FSimpleType)item, (FElement)parent);
+                break;
+            case START_TOP_LEVEL_COMPLEX_TYPE:
+                handler.startTopLevelComplexType((FComplexType)item, (FElement)parent);
+                break;
+            case END_TOP_LEVEL_COMPLEX_TYPE:
+                handler.endTopLevelComplexType((FComplexType)item, (FElement)parent);
+                break;
+            case START_LOCAL_COMPLEX_TYPE:
+                handler.startLocalComplexType((FComplexType)item, (FElement)parent);
+                break;
+            case END_LOCAL_COMPLEX_TYPE:
+                handler.endLocalComplexType((FComplexType)item, (FElement)parent);
+                break;
+            case RECURSIVE_REFERENCE:
+                handler.recursiveReference((FComplexType)item, (FElement)parent);
+                break;
+            case TYPE_REFERENCE:
+                handler.typeReference((FComplexType)item, (FElement)parent);
+                break;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fabric.module.api.FabricWalkEvent.Kind;
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSchemaObjectOutputStream;
+import fabric.wsdlschemaparser.schema.FSimpleType;
+
+/**
+ * Handler which records the callbacks of a walk into a walk log, so that
+ * modules can be run again later without parsing any XML Schema file (see
+ * {@link FabricWalkReplayer}).
+ * 
+ * The log is a gzipped object stream. It starts with a snapshot of the walked
+ * Schema object tree, followed by one entry per callback: the kind of the
+ * callback and its arguments. Since the arguments are part of the snapshot,
+ * each of them is written as a reference into it. Names are shared strings of
+ * the snapshot as well.
+ * 
+ * Every walk is written to the stream given to the constructor, which is
+ * closed at the end of the walk. If recording fails, the stream is closed at
+ * once. If the walk fails in another handler, {@link #close()} has to be
+ * called instead; the log then lacks the end of the walk and is rejected by
+ * the replayer.
+ */
+public class FabricWalkRecorder implements FabricSchemaTreeItemHandler {
+
+    /**
+     * The logging instance.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FabricWalkRecorder.class);
+
+    /**
+     * Identifies the walk log format; logs of any other format are rejected.
+     */
+    static final String FORMAT = "fabric-walk-log-1";
+
+    /**
+     * The stream the log is written to.
+     */
+    private final OutputStream stream;
+
+    /**
+     * The log of the current walk.
+     */
+    private FSchemaObjectOutputStream out;
+
+    /**
+     * The number of callbacks recorded in the current walk.
+     */
+    private int count;
+
+    /**
+     * Constructs a new recorder.
+     * 
+     * @param stream The stream to write the walk log to.
+     */
+    public FabricWalkRecorder(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public void startSchema(FSchema schema) throws Exception {
+        if (out != null) {
+            throw new IOException("Walk log has already been started");
+        }
+        try {
+            out = new FSchemaObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(stream)));
+            out.writeUTF(FORMAT);
+            out.writeSchema(schema);
+        } catch (IOException e) {
+            close( );
+            throw e;
+        }
+        count = 0;
+        record(new FabricWalkEvent(Kind.START_SCHEMA, schema, null));
+    }
+
+    @Override
+    public void endSchema(FSchema schema) throws Exception {
+        try {
+            record(new FabricWalkEvent(Kind.END_SCHEMA, schema, null));
+        } finally {
+            close( );
+        }
+        log.debug("Recorded {} walk events", count);
+    }
+
+    @Override
+    public void startTopLevelElement(FElement element) throws Exception {
+        record(new FabricWalkEvent(Kind.START_TOP_LEVEL_ELEMENT, element, null));
+    }
+
+    @Override
+    public void endTopLevelElement(FElement element) throws Exception {
+        record(new FabricWalkEvent(Kind.END_TOP_LEVEL_ELEMENT, element, null));
+    }
+
+    @Override
+    public void startLocalElement(FElement element, FComplexType parent) throws Exception {
+        record(new FabricWalkEvent(Kind.START_LOCAL_ELEMENT, element, parent));
+    }
+
+    @Override
+    public void endLocalElement(FElement element, FComplexType parent) throws Exception {
+        record(new FabricWalkEvent(Kind.END_LOCAL_ELEMENT, element, parent));
+    }
+
+    @Override
+    public void startElementReference(FElement element) throws Exception {
+        record(new FabricWalkEvent(Kind.START_ELEMENT_REFERENCE, element, null));
+    }
+
+    @Override
+    public void endElementReference(FElement element) throws Exception {
+        record(new FabricWalkEvent(Kind.END_ELEMENT_REFERENCE, element, null));
+    }
+
+    @Override
+    public void startTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.START_TOP_LEVEL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void endTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.END_TOP_LEVEL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void startLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.START_LOCAL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void endLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.END_LOCAL_SIMPLE_TYPE, type, parent));
+    }
+
+    @Override
+    public void startTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.START_TOP_LEVEL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void endTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.END_TOP_LEVEL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void startLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.START_LOCAL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void endLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.END_LOCAL_COMPLEX_TYPE, type, parent));
+    }
+
+    @Override
+    public void recursiveReference(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.RECURSIVE_REFERENCE, type, parent));
+    }
+
+    @Override
+    public void typeReference(FComplexType type, FElement parent) throws Exception {
+        record(new FabricWalkEvent(Kind.TYPE_REFERENCE, type, parent));
+    }
+
+    /**
+     * Closes the walk log and the stream it is written to. Has to be called
+     * after a walk which failed before {@link #endSchema(FSchema)}.
+     * 
+     * @throws IOException If closing the stream fails.
+     */
+    public void close( ) throws IOException {
+        final FSchemaObjectOutputStream o = out;
+        out = null;
+        try {
+            if (o != null) {
+                o.close( );
+            }
+        } finally {
+            // not closed by the log if flushing it fails
+            stream.close( );
+        }
+    }
+
+    /**
+     * Appends a callback to the log. If writing fails, the log is closed.
+     * 
+     * @param event The callback.
+     * @throws IOException If writing fails.
+     */
+    private void record(FabricWalkEvent event) throws IOException {
+        if (out == null) {
+            throw new IOException("Walk log has not been started by startSchema()");
+        }
+        try {
+            out.writeByte(event.getKind( ).ordinal( ));
+            out.writeObject(event.getItem( ));
+            out.writeObject(event.getParent( ));
+        } catch (IOException e) {
+            close( );
+            throw e;
+        }
+        count++;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fabric.module.api.FabricWalkEvent.Kind;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSchemaObjectInputStream;
+
+/**
+ * Replays a walk log written by {@link FabricWalkRecorder}. The handler
+ * receives the recorded callbacks, in the recorded order, with arguments
+ * restored from the log's snapshot of the Schema object tree. No XML Schema
+ * file is parsed and the tree is not walked again; in particular, handlers
+ * cannot skip any subtrees.
+ */
+public final class FabricWalkReplayer {
+
+    /**
+     * The logging instance.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FabricWalkReplayer.class);
+
+    /**
+     * Construct a new walk log replayer.
+     */
+    public FabricWalkReplayer( ) {
+        super( );
+    }
+
+    /**
+     * Replays a walk log from a file.
+     * 
+     * @param file The walk log.
+     * @param itemHandler The tree item handler to pass the callbacks on to.
+     *        If <code>null</code>, Fabric's default handler for Schema object
+     *        tree items is used.
+     * @return The Schema object tree restored from the log.
+     * @throws Exception If the log cannot be read or a handler fails.
+     */
+    public FSchema replay(File file, FabricSchemaTreeItemHandler itemHandler) throws Exception {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return replay(in, itemHandler);
+        } finally {
+            in.close( );
+        }
+    }
+
+    /**
+     * Replays a walk log.
+     * 
+     * @param stream The stream to read the walk log from.
+     * @param itemHandler The tree item handler to pass the callbacks on to.
+     *        If <code>null</code>, Fabric's default handler for Schema object
+     *        tree items is used.
+     * @return The Schema object tree restored from the log.
+     * @throws Exception If the log cannot be read or a handler fails.
+     */
+    public FSchema replay(InputStream stream, FabricSchemaTreeItemHandler itemHandler) throws Exception {
+        final FabricSchemaTreeItemHandler handler = (itemHandler != null) ? itemHandler
+                : new FabricDefaultHandler( );
+        final FSchema schema = new FSchema( );
+        final FSchemaObjectInputStream in = new FSchemaObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(stream)), schema);
+
+        if (!FabricWalkRecorder.FORMAT.equals(in.readUTF( ))) {
+            throw new IOException("Not a walk log of format " + FabricWalkRecorder.FORMAT);
+        }
+        in.readSchema( );
+
+        final Kind[] kinds = Kind.values( );
+        int count = 0;
+        Kind kind;
+        do {
+            final int ordinal = in.readUnsignedByte( );
+            if (ordinal >= kinds.length) {
+                throw new IOException("Unknown walk event " + ordinal);
+            }
+            kind = kinds[ordinal];
+            final Object item = in.readObject( );
+            final Object parent = in.readObject( );
+            new FabricWalkEvent(kind, item, parent).dispatch(handler);
+            count++;
+        } while (kind != Kind.END_SCHEMA);
+
+        log.debug("Replayed {} walk events", count);
+        return schema;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+
+public class FabricMultiplexHandlerTest {
+
+    private static FSchema schema;
+
+    /**
+     * The callbacks of a walk with a single handler.
+     */
+    private static List<String> expected;
+
+    @BeforeClass
+    public static void setUp( ) throws Exception {
+        schema = new FSchema(new File("src/test/resources/schemas/walk.xsd"));
+        RecordingHandler handler = new RecordingHandler( );
+        new FabricSchemaTreeWalker( ).walk(schema, handler);
+        expected = new ArrayList<String>(handler.getCallbacks( ));
+    }
+
+    @Test(timeout = 10000)
+    public void testSerialOrder( ) throws Exception {
+        List<String> callbacks = new ArrayList<String>( );
+        List<RecordingHandler> handlers = Arrays.asList(new RecordingHandler(callbacks, "A "),
+                new RecordingHandler(callbacks, "B "));
+        new FabricSchemaTreeWalker( ).walk(schema, new FabricMultiplexHandler(handlers));
+
+        /*
+        Tests
+         */
+        assertEquals(2 * expected.size( ), callbacks.size( ));
+        for (int i = 0; i < expected.size( ); i++) {
+            assertEquals("A " + expected.get(i), callbacks.get(2 * i));
+            assertEquals("B " + expected.get(i), callbacks.get(2 * i + 1));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentOrder( ) throws Exception {
+        List<RecordingHandler> handlers = Arrays.asList(new RecordingHandler( ), new RecordingHandler( ),
+                new RecordingHandler( ));
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(handlers, true);
+        new FabricSchemaTreeWalker( ).walk(schema, multiplexer);
+
+        /*
+        Tests
+         */
+        for (RecordingHandler handler : handlers) {
+            assertEquals(expected, handler.getCallbacks( ));
+        }
+        // no walk in progress any more
+        multiplexer.abort( );
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentFailure( ) throws Exception {
+        final Exception failure = new Exception("failing handler");
+        RecordingHandler failing = new RecordingHandler( ) {
+            @Override
+            public void startTopLevelElement(FElement element) throws Exception {
+                throw failure;
+            }
+        };
+        RecordingHandler other = new RecordingHandler( );
+
+        /*
+        Tests
+         */
+        try {
+            new FabricSchemaTreeWalker( ).walk(schema, new FabricMultiplexHandler(Arrays.asList(failing, other),
+                    true));
+            fail("The failure of a handler has to be reported.");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+        assertEquals(Collections.singletonList(expected.get(0)), failing.getCallbacks( ));
+        assertEquals(expected, other.getCallbacks( ));
+    }
+
+    @Test(timeout = 10000)
+    public void testAbort( ) throws Exception {
+        List<RecordingHandler> handlers = Arrays.asList(new RecordingHandler( ), new RecordingHandler( ));
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(handlers, true);
+
+        // a walk which fails after the first top-level element was started
+        FElement element = schema.getTopLevelObjectList( ).getTopLevelElements( ).get(0);
+        multiplexer.startSchema(schema);
+        multiplexer.startTopLevelElement(element);
+        multiplexer.abort( );
+
+        /*
+        Tests
+         */
+        for (RecordingHandler handler : handlers) {
+            assertEquals(expected.subList(0, 2), handler.getCallbacks( ));
+        }
+        assertTrue(expected.get(1).startsWith("startTopLevelElement " + element.getName( )));
+    }
+}
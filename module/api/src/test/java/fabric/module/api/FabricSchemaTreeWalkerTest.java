@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSequence;
+import fabric.wsdlschemaparser.schema.FString;
+import fabric.wsdlschemaparser.schema.FTopLevelObjectList;
+
+public class FabricSchemaTreeWalkerTest {
+
+    private static FSchema schema;
+
+    @BeforeClass
+    public static void setUp( ) throws Exception {
+        schema = new FSchema(new File("src/test/resources/schemas/walk.xsd"));
+    }
+
+    @Test(timeout = 10000)
+    public void testRecursiveWalkEquivalence( ) throws Exception {
+        for (FSchema tree : new FSchema[] { schema, chain(100) }) {
+            RecordingHandler recursive = new RecordingHandler( );
+            new RecursiveSchemaTreeWalker( ).walk(tree, recursive);
+            RecordingHandler iterative = new RecordingHandler( );
+            new FabricSchemaTreeWalker( ).walk(tree, iterative);
+
+            /*
+            Tests
+             */
+            assertEquals(recursive.getCallbacks( ), iterative.getCallbacks( ));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testDeepChain( ) throws Exception {
+        int depth = 50000;
+        RecordingHandler handler = new RecordingHandler( );
+        new FabricSchemaTreeWalker( ).walk(chain(depth), handler);
+
+        /*
+        Tests
+         */
+        // per level: start and end of the element and of its type
+        assertEquals(2 + 4 * (depth + 1), handler.getCallbacks( ).size( ));
+        assertEquals("startLocalElement E" + depth + " E" + (depth - 1), handler.getCallbacks( ).get(1 + 2 * depth));
+        assertEquals("endTopLevelElement E0 -", handler.getCallbacks( ).get(handler.getCallbacks( ).size( ) - 2));
+    }
+
+    @Test(timeout = 10000)
+    public void testSkipElement( ) throws Exception {
+        List<String> all = walk(new FabricSchemaTreeWalker( ), new RecordingHandler( ));
+        List<String> pruned = walk(new FabricSchemaTreeWalker( ), new RecordingHandler( ).skip("Person"));
+
+        /*
+        Tests
+         */
+        int start = all.indexOf("startTopLevelElement Person -");
+        int end = all.indexOf("endTopLevelElement Person -");
+        assertEquals(all.subList(0, start + 1), pruned.subList(0, start + 1));
+        assertEquals("endTopLevelElement Person -", pruned.get(start + 1));
+        assertEquals(all.subList(end + 1, all.size( )), pruned.subList(start + 2, pruned.size( )));
+    }
+
+    @Test(timeout = 10000)
+    public void testSkipComplexType( ) throws Exception {
+        List<String> callbacks = walk(new FabricSchemaTreeWalker( ), new RecordingHandler( ).skip("Address"));
+
+        /*
+        Tests
+         */
+        for (String parent : new String[] { "Home", "Work", "Company" }) {
+            int start = callbacks.indexOf("startTopLevelComplexType Address " + parent);
+            assertEquals("endTopLevelComplexType Address " + parent, callbacks.get(start + 1));
+        }
+        assertFalse(callbacks.contains("startLocalElement Street Address"));
+        // other types are still walked, and the pruned type is not left on the walk path
+        assertTrue(callbacks.contains("recursiveReference Node Child"));
+        assertEquals("endSchema - -", callbacks.get(callbacks.size( ) - 1));
+    }
+
+    @Test(timeout = 10000)
+    public void testTopLevelElementFilter( ) throws Exception {
+        List<String> all = walk(new FabricSchemaTreeWalker( ), new RecordingHandler( ));
+
+        FabricSchemaTreeWalker walker = new FabricSchemaTreeWalker( );
+        walker.setTopLevelElementFilter(new FabricTopLevelElementFilter(Arrays.asList("Company"), null));
+        List<String> byName = walk(walker, new RecordingHandler( ));
+
+        walker.setTopLevelElementFilter(new FabricTopLevelElementFilter(null, Arrays.asList("urn:fabric:test:walk")));
+        List<String> byNamespace = walk(walker, new RecordingHandler( ));
+
+        walker.setTopLevelElementFilter(new FabricTopLevelElementFilter(null, Arrays.asList("urn:fabric:test:other")));
+        List<String> none = walk(walker, new RecordingHandler( ));
+
+        walker.setTopLevelElementFilter(null);
+        List<String> unfiltered = walk(walker, new RecordingHandler( ));
+
+        /*
+        Tests
+         */
+        int company = all.indexOf("startTopLevelElement Company -");
+        assertEquals("startSchema - -", byName.get(0));
+        assertEquals(all.subList(company, all.size( )), byName.subList(1, byName.size( )));
+        assertEquals(all, byNamespace);
+        assertEquals(Arrays.asList("startSchema - -", "endSchema - -"), none);
+        assertEquals(all, unfiltered);
+    }
+
+    @Test(timeout = 10000)
+    public void testVisitTypesOnce( ) throws Exception {
+        List<String> all = walk(new FabricSchemaTreeWalker( ), new RecordingHandler( ));
+
+        FabricSchemaTreeWalker walker = new FabricSchemaTreeWalker( );
+        walker.setVisitTypesOnce(true);
+        List<String> once = walk(walker, new RecordingHandler( ));
+
+        /*
+        Tests
+         */
+        int work = all.indexOf("startLocalElement Work Person");
+        int workEnd = all.indexOf("endLocalElement Work Person");
+        int company = all.indexOf("startTopLevelElement Company -");
+        assertEquals(all.subList(0, work + 1), once.subList(0, work + 1));
+        assertEquals("typeReference Address Work", once.get(work + 1));
+        assertEquals("endLocalElement Work Person", once.get(work + 2));
+
+        // the recursive type is still reported as such while it is walked
+        assertTrue(once.contains("recursiveReference Node Child"));
+
+        int onceCompany = once.indexOf("startTopLevelElement Company -");
+        assertEquals(all.subList(workEnd, company + 1), once.subList(work + 2, onceCompany + 1));
+        assertEquals(Arrays.asList("typeReference Address Company", "endTopLevelElement Company -", "endSchema - -"),
+                once.subList(onceCompany + 1, once.size( )));
+    }
+
+    @Test(timeout = 10000)
+    public void testVisitTypesOnceAfterSkip( ) throws Exception {
+        // skips the content of Address below Home only
+        RecordingHandler handler = new RecordingHandler( ) {
+            private boolean skipNext;
+
+            @Override
+            public void startTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+                super.startTopLevelComplexType(type, parent);
+                skipNext = "Home".equals(parent.getName( ));
+            }
+
+            @Override
+            public boolean skipSubtree( ) {
+                boolean skip = skipNext;
+                skipNext = false;
+                return skip || super.skipSubtree( );
+            }
+        };
+        FabricSchemaTreeWalker walker = new FabricSchemaTreeWalker( );
+        walker.setVisitTypesOnce(true);
+        List<String> callbacks = walk(walker, handler);
+
+        /*
+        Tests
+         */
+        int home = callbacks.indexOf("startTopLevelComplexType Address Home");
+        assertEquals("endTopLevelComplexType Address Home", callbacks.get(home + 1));
+
+        // the skipped content is walked at the next reference
+        int work = callbacks.indexOf("startTopLevelComplexType Address Work");
+        assertEquals("startLocalElement Street Address", callbacks.get(work + 1));
+        assertFalse(callbacks.contains("typeReference Address Work"));
+        assertTrue(callbacks.contains("typeReference Address Company"));
+    }
+
+    private static List<String> walk(FabricSchemaTreeWalker walker, RecordingHandler handler) throws Exception {
+        walker.walk(schema, handler);
+        return handler.getCallbacks( );
+    }
+
+    /**
+     * Builds a Schema object tree of nested local elements: the top-level
+     * element E0 contains E1, which contains E2 and so on.
+     * 
+     * @param depth The number of local elements.
+     * @return The Schema object tree.
+     */
+    static FSchema chain(int depth) {
+        final FTopLevelObjectList tree = new FTopLevelObjectList("urn:fabric:test:chain");
+
+        FElement element = new FElement("E" + depth, new FString( ));
+        for (int i = depth - 1; i >= 0; i--) {
+            FComplexType type = new FSequence("E" + i);
+            type.addChildObject(element);
+            element = new FElement("E" + i, type);
+        }
+        element.setTopLevel(true);
+        tree.add(element);
+
+        return new FSchema( ) {
+            @Override
+            public FTopLevelObjectList getTopLevelObjectList( ) {
+                return tree;
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+
+public class FabricWalkRecorderTest {
+
+    private static FSchema schema;
+
+    @BeforeClass
+    public static void setUp( ) throws Exception {
+        schema = new FSchema(new File("src/test/resources/schemas/walk.xsd"));
+    }
+
+    @Test(timeout = 10000)
+    public void testRecordAndReplay( ) throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream( );
+        RecordingHandler walked = new RecordingHandler( );
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(Arrays.<FabricSchemaTreeItemHandler> asList(
+                walked, new FabricWalkRecorder(log)), false);
+        new FabricSchemaTreeWalker( ).walk(schema, multiplexer);
+
+        RecordingHandler replayed = new RecordingHandler( );
+        FSchema restored = new FabricWalkReplayer( ).replay(new ByteArrayInputStream(log.toByteArray( )), replayed);
+
+        /*
+        Tests
+         */
+        assertEquals(walked.getCallbacks( ), replayed.getCallbacks( ));
+        assertEquals(schema.getTopLevelObjectList( ).getTopLevelElements( ).size( ), restored
+                .getTopLevelObjectList( ).getTopLevelElements( ).size( ));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedWalk( ) throws Exception {
+        ClosingStream log = new ClosingStream( );
+        FabricWalkRecorder recorder = new FabricWalkRecorder(log);
+        RecordingHandler failing = new RecordingHandler( ) {
+            @Override
+            public void startTopLevelElement(FElement element) throws Exception {
+                throw new IllegalStateException("Handler failed");
+            }
+        };
+        FabricMultiplexHandler multiplexer = new FabricMultiplexHandler(Arrays.<FabricSchemaTreeItemHandler> asList(
+                recorder, failing), false);
+        try {
+            new FabricSchemaTreeWalker( ).walk(schema, multiplexer);
+            fail("Walk did not fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        recorder.close( );
+
+        /*
+        Tests
+         */
+        assertTrue(log.closed);
+        try {
+            new FabricWalkReplayer( ).replay(new ByteArrayInputStream(log.toByteArray( )), new RecordingHandler( ));
+            fail("Incomplete walk log was replayed");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedRecording( ) throws Exception {
+        final boolean[] closed = new boolean[1];
+        OutputStream log = new OutputStream( ) {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public void close( ) {
+                closed[0] = true;
+            }
+        };
+        try {
+            new FabricSchemaTreeWalker( ).walk(schema, new FabricWalkRecorder(log));
+            fail("Walk did not fail");
+        } catch (IOException e) {
+            // expected
+        }
+
+        /*
+        Tests
+         */
+        assertTrue(closed[0]);
+    }
+
+    /**
+     * Stream remembering whether it has been closed.
+     */
+    private static class ClosingStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public void close( ) throws IOException {
+            closed = true;
+            super.close( );
+        }
+    }
+}
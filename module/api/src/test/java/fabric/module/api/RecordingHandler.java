@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSchemaObject;
+import fabric.wsdlschemaparser.schema.FSimpleType;
+
+/**
+ * Handler which records every callback as a line of text: the name of the
+ * method, the name of the item and the name of its parent. It skips the
+ * content of the items whose names it is given.
+ */
+class RecordingHandler implements FabricPruningTreeItemHandler {
+
+    /**
+     * The recorded callbacks.
+     */
+    private final List<String> callbacks;
+
+    /**
+     * Prepended to every recorded callback.
+     */
+    private final String prefix;
+
+    /**
+     * The names of the items whose content is skipped.
+     */
+    private final Set<String> skipped = new HashSet<String>( );
+
+    /**
+     * The name of the item started last.
+     */
+    private String started;
+
+    /**
+     * Constructs a new handler with a list of its own.
+     */
+    RecordingHandler( ) {
+        this(Collections.synchronizedList(new ArrayList<String>( )), "");
+    }
+
+    /**
+     * Constructs a new handler recording into the given list, e.g. one shared
+     * with other handlers.
+     * 
+     * @param callbacks The list to record the callbacks into.
+     * @param prefix Prepended to every recorded callback.
+     */
+    RecordingHandler(List<String> callbacks, String prefix) {
+        this.callbacks = callbacks;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Skips the content of the items with the given name.
+     * 
+     * @param name The name of the items.
+     * @return This handler.
+     */
+    RecordingHandler skip(String name) {
+        skipped.add(name);
+        return this;
+    }
+
+    /**
+     * @return The recorded callbacks.
+     */
+    List<String> getCallbacks( ) {
+        return callbacks;
+    }
+
+    @Override
+    public boolean skipSubtree( ) {
+        return skipped.contains(started);
+    }
+
+    @Override
+    public void startSchema(FSchema schema) throws Exception {
+        record("startSchema", null, null);
+    }
+
+    @Override
+    public void endSchema(FSchema schema) throws Exception {
+        record("endSchema", null, null);
+    }
+
+    @Override
+    public void startTopLevelElement(FElement element) throws Exception {
+        start("startTopLevelElement", element, null);
+    }
+
+    @Override
+    public void endTopLevelElement(FElement element) throws Exception {
+        record("endTopLevelElement", element, null);
+    }
+
+    @Override
+    public void startLocalElement(FElement element, FComplexType parent) throws Exception {
+        start("startLocalElement", element, parent);
+    }
+
+    @Override
+    public void endLocalElement(FElement element, FComplexType parent) throws Exception {
+        record("endLocalElement", element, parent);
+    }
+
+    @Override
+    public void startElementReference(FElement element) throws Exception {
+        start("startElementReference", element, null);
+    }
+
+    @Override
+    public void endElementReference(FElement element) throws Exception {
+        record("endElementReference", element, null);
+    }
+
+    @Override
+    public void startTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        start("startTopLevelSimpleType", type, parent);
+    }
+
+    @Override
+    public void endTopLevelSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record("endTopLevelSimpleType", type, parent);
+    }
+
+    @Override
+    public void startLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        start("startLocalSimpleType", type, parent);
+    }
+
+    @Override
+    public void endLocalSimpleType(FSimpleType type, FElement parent) throws Exception {
+        record("endLocalSimpleType", type, parent);
+    }
+
+    @Override
+    public void startTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        start("startTopLevelComplexType", type, parent);
+    }
+
+    @Override
+    public void endTopLevelComplexType(FComplexType type, FElement parent) throws Exception {
+        record("endTopLevelComplexType", type, parent);
+    }
+
+    @Override
+    public void startLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        start("startLocalComplexType", type, parent);
+    }
+
+    @Override
+    public void endLocalComplexType(FComplexType type, FElement parent) throws Exception {
+        record("endLocalComplexType", type, parent);
+    }
+
+    @Override
+    public void recursiveReference(FComplexType type, FElement parent) throws Exception {
+        record("recursiveReference", type, parent);
+    }
+
+    @Override
+    public void typeReference(FComplexType type, FElement parent) throws Exception {
+        record("typeReference", type, parent);
+    }
+
+    private void start(String callback, FSchemaObject item, FSchemaObject parent) {
+        started = item.getName( );
+        record(callback, item, parent);
+    }
+
+    private void record(String callback, FSchemaObject item, FSchemaObject parent) {
+        callbacks.add(prefix + callback + " " + name(item) + " " + name(parent));
+    }
+
+    private static String name(FSchemaObject o) {
+        return (o == null) ? "-" : o.getName( );
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.module.api;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import fabric.wsdlschemaparser.schema.FComplexType;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FSchema;
+import fabric.wsdlschemaparser.schema.FSchemaObject;
+import fabric.wsdlschemaparser.schema.FSchemaType;
+import fabric.wsdlschemaparser.schema.FSimpleType;
+
+/**
+ * The recursive walk of the Schema object tree which
+ * {@link FabricSchemaTreeWalker} replaced, kept as a reference for the order
+ * of its callbacks.
+ */
+class RecursiveSchemaTreeWalker {
+
+    private final Set<FComplexType> typePath = Collections.newSetFromMap(new IdentityHashMap<FComplexType, Boolean>( ));
+
+    private FabricSchemaTreeItemHandler handler;
+
+    void walk(FSchema schema, FabricSchemaTreeItemHandler handler) throws Exception {
+        this.handler = handler;
+        typePath.clear( );
+
+        handler.startSchema(schema);
+        for (FElement e : schema.getTopLevelObjectList( ).getTopLevelElements( )) {
+            handleElement(e, null);
+        }
+        handler.endSchema(schema);
+    }
+
+    private void handleElement(FElement e, FComplexType parent) throws Exception {
+        if (e.isReference( )) {
+            handler.startElementReference(e);
+            handler.endElementReference(e);
+        } else if (e.isTopLevel( )) {
+            handler.startTopLevelElement(e);
+            handleSchemaType(e.getSchemaType( ), e);
+            handler.endTopLevelElement(e);
+        } else {
+            handler.startLocalElement(e, parent);
+            handleSchemaType(e.getSchemaType( ), e);
+            handler.endLocalElement(e, parent);
+        }
+    }
+
+    private void handleSchemaType(FSchemaType type, FElement parent) throws Exception {
+        if (type instanceof FSimpleType) {
+            FSimpleType simpleType = (FSimpleType)type;
+            if (simpleType.isTopLevel( )) {
+                handler.startTopLevelSimpleType(simpleType, parent);
+                handler.endTopLevelSimpleType(simpleType, parent);
+            } else {
+                handler.startLocalSimpleType(simpleType, parent);
+                handler.endLocalSimpleType(simpleType, parent);
+            }
+        } else {
+            handleComplexType((FComplexType)type, parent);
+        }
+    }
+
+    private void handleComplexType(FComplexType type, FElement parent) throws Exception {
+        if (typePath.contains(type)) {
+            handler.recursiveReference(type, parent);
+            return;
+        }
+
+        typePath.add(type);
+        try {
+            if (type.isTopLevel( )) {
+                handler.startTopLevelComplexType(type, parent);
+                handleComplexContent(type);
+                handler.endTopLevelComplexType(type, parent);
+            } else {
+                handler.startLocalComplexType(type, parent);
+                handleComplexContent(type);
+                handler.endLocalComplexType(type, parent);
+            }
+        } finally {
+            typePath.remove(type);
+        }
+    }
+
+    private void handleComplexContent(FComplexType parent) throws Exception {
+        for (FSchemaObject o : parent.getChildObjects( )) {
+            if (o instanceof FElement) {
+                handleElement((FElement)o, parent);
+            } else {
+                handleComplexType((FComplexType)o, null);
+            }
+        }
+    }
+}
@@ -29,6 +29,9 @@ package fabric.module.dot;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import org.apache.xmlbeans.SchemaType;
 import org.slf4j.LoggerFactory;
@@ -56,6 +59,11 @@ public class DotModule extends TreeWalkerBase {
 	
 	private BufferedWriter writer;
 
+	/**
+	 * Complex types currently being written. Recursive types are only linked, not written again.
+	 */
+	private final Set<FComplexType> typePath = Collections.newSetFromMap(new IdentityHashMap<FComplexType, Boolean>());
+
 	public DotModule(File dotFile, Workspace workspace) throws Exception {
 		//TODO Change dot module to use workspace
 		log.debug("New dot writer for output file {}", dotFile);
@@ -88,8 +96,16 @@ public class DotModule extends TreeWalkerBase {
 
 	@Override
 	public void handle(FComplexType ct) throws Exception {
-		writeType(ct);
-		handleComplexTypeChildren(ct);
+		if (!typePath.add(ct)) {
+			log.debug("Recursive reference to complex type {}", ct.getName());
+			return;
+		}
+		try {
+			writeType(ct);
+			handleComplexTypeChildren(ct);
+		} finally {
+			typePath.remove(ct);
+		}
 	}
 
 	private void handleElement(FElement elem, FComplexType parent) throws Exception {
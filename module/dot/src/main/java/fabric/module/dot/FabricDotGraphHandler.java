@@ -216,6 +216,20 @@ public class FabricDotGraphHandler extends FabricDefaultHandler {
         createGraphEdge(parent, node, null);
     }
 
+    @Override
+    public void recursiveReference(FComplexType type, FElement parent) throws Exception {
+        final DGraphNode node = getOrCreateGraphNode(type, type.getName( ),
+                type.isTopLevel( ) ? this.topLevelComplexTypeAttributes : this.localComplexTypeAttributes);
+        createGraphEdge(parent, node, this.edgeTopLevelTypeReference);
+    }
+
+    @Override
+    public void typeReference(FComplexType type, FElement parent) throws Exception {
+        final DGraphNode node = getOrCreateGraphNode(type, type.getName( ),
+                this.topLevelComplexTypeAttributes);
+        createGraphEdge(parent, node, this.edgeTopLevelTypeReference);
+    }
+
     /**
      * <p>
      * Creates and returns the corresponding graph node for the specified Schema
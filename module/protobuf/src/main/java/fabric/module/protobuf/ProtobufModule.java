@@ -27,8 +27,11 @@
 package fabric.module.protobuf;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +83,8 @@ public class ProtobufModule implements Module {
 
 	private Map<FElement, PMessage> generatedTopLevelElements = new HashMap<FElement, PMessage>();
 
+	private Set<FComplexType> complexTypesInProgress = Collections.newSetFromMap(new IdentityHashMap<FComplexType, Boolean>());
+
 	public ProtobufModule(File dotFile, Workspace workspace) throws Exception {
 		sourceFile = workspace.getProtobuf().getDefaultSourceFile();
 	}
@@ -94,8 +99,6 @@ public class ProtobufModule implements Module {
 	}
 
 	private PMessage getOrCreateTopLevelElementMessage(FElement element) {
-		// TODO do infinite loop detection for recursive data types
-
 		if (element.isReference())
 			element = element.getReferencedTopLevelElement();
 
@@ -162,13 +165,14 @@ public class ProtobufModule implements Module {
 
 			PMessage messageType = new PMessage(element.getName());
 
+			// register before handling the content, so recursive references resolve to this message
+			this.generatedTopLevelElements.put(element, messageType);
+
 			if (element.getSchemaType().isSimple())
 				handleSimpleType((FSimpleType) element.getSchemaType(), element, messageType, uniqueNumberTag);
 			else
 				handleComplexType((FComplexType) element.getSchemaType(), element.getName(), messageType);
 
-			this.generatedTopLevelElements.put(element, messageType);
-
 			if (parent == null)
 				sourceFile.add(messageType);
 			else
@@ -215,18 +219,27 @@ public class ProtobufModule implements Module {
 	private void handleComplexType(FComplexType type, String elementName, PMessage parent) {
 		log.debug("Handling complex type {}, parent message {}", type, parent);
 
-		// Types: FAll, FSequence, FChoice
-		if (type instanceof FChoice) {
-			// TODO Support by making the children optional
-			log.error("Choices are buggy, they are treated as sequence currently");
+		if (!complexTypesInProgress.add(type)) {
+			log.warn("Recursive complex type {} cannot be inlined, skipping recursive occurrence", type.getName());
+			return;
 		}
 
-		log.debug("Handling {} all/sequence/choice(s) of complex type {}", type.getChildObjects().size(), type);
-		
-		int uniqueNumberTag = 0;
-		for (FSchemaObject child : type.getChildObjects()) {
-			log.debug("Handling child {} of type {}", child.getName(), child.getClass().getName());
-			handleSchemaObject(child, elementName, parent, ++uniqueNumberTag);
+		try {
+			// Types: FAll, FSequence, FChoice
+			if (type instanceof FChoice) {
+				// TODO Support by making the children optional
+				log.error("Choices are buggy, they are treated as sequence currently");
+			}
+
+			log.debug("Handling {} all/sequence/choice(s) of complex type {}", type.getChildObjects().size(), type);
+			
+			int uniqueNumberTag = 0;
+			for (FSchemaObject child : type.getChildObjects()) {
+				log.debug("Handling child {} of type {}", child.getName(), child.getClass().getName());
+				handleSchemaObject(child, elementName, parent, ++uniqueNumberTag);
+			}
+		} finally {
+			complexTypesInProgress.remove(type);
 		}
 	}
 
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The names of the neighbours of the xs:any wildcards in one model group (sequence or choice), computed in a single
+ * pass over the group's children.
+ * 
+ * The wildcards split the children of the group into segments. The named siblings before a wildcard are the ones of
+ * the segment ending at it, the named siblings after it are the ones of the segment starting at it. Consecutive
+ * wildcards therefore share one name set.
+ */
+final class AnySiblings {
+
+    /** The local name of xs:any. */
+    private static final String ANY = "any";
+
+    /** The wildcard nodes of the group, mapped to their position among the wildcards. */
+    private final Map<SchemaNode, Integer> wildcards = new HashMap<SchemaNode, Integer>();
+
+    /** The names of the siblings between two wildcards; segment <i>k</i> ends at wildcard <i>k</i>. */
+    private final List<HashSet<String>> segments = new ArrayList<HashSet<String>>();
+
+    /** For every wildcard, the local name of the element right before it. */
+    private final List<String> previousElements = new ArrayList<String>();
+
+    // --------------------------------------------------------------------
+
+    private AnySiblings() {
+        segments.add(new HashSet<String>());
+    }
+
+    /**
+     * Scans the children of a model group.
+     * 
+     * @param group
+     *            the model group
+     * @return the neighbours of the group's wildcards
+     */
+    static AnySiblings of(SchemaNode group) {
+        AnySiblings result = new AnySiblings();
+        String previous = null;
+        for (SchemaNode n : group.getChildren()) {
+            result.add(n, n.getName(), n.getAttribute("name"), previous);
+            previous = n.getName();
+        }
+        return result;
+    }
+
+    private void add(SchemaNode node, String localName, String name, String previous) {
+        if (ANY.equals(localName)) {
+            wildcards.put(node, wildcards.size());
+            previousElements.add(previous);
+            segments.add(new HashSet<String>());
+        } else if (name != null) {
+            segments.get(segments.size() - 1).add(name);
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * @param wildcard
+     *            the node of a wildcard of the group
+     * @return <code>true</code> if the node is one of the group's wildcards
+     */
+    boolean contains(SchemaNode wildcard) {
+        return wildcards.containsKey(wildcard);
+    }
+
+    /**
+     * @param wildcard
+     *            the node of a wildcard of the group
+     * @return the names of the siblings between the previous wildcard and the given one
+     */
+    HashSet<String> getPreviousNames(SchemaNode wildcard) {
+        return segments.get(wildcards.get(wildcard));
+    }
+
+    /**
+     * @param wildcard
+     *            the node of a wildcard of the group
+     * @return the names of the siblings between the given wildcard and the next one
+     */
+    HashSet<String> getNextNames(SchemaNode wildcard) {
+        return segments.get(wildcards.get(wildcard) + 1);
+    }
+
+    /**
+     * @param wildcard
+     *            the node of a wildcard of the group
+     * @return the local name of the element right before the wildcard, or <code>null</code> if it is the first child
+     */
+    String getPreviousElementName(SchemaNode wildcard) {
+        return previousElements.get(wildcards.get(wildcard));
+    }
+}
@@ -30,8 +30,6 @@ public class DefaultValues {
 
 	public static final String XML_SCHEMA_NAMESPACE_URI  = "http://www.w3.org/2001/XMLSchema";
 
-	public static final int CYCLE_MAX_DEPTH = 4;
-
 	/**
 	 * The minimum possible year.
 	 */
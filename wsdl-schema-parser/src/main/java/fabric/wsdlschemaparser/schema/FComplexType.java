@@ -26,6 +26,7 @@
  */
 package fabric.wsdlschemaparser.schema;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -37,6 +38,19 @@ public abstract class FComplexType extends FSchemaType {
 
     // --------------------------------------------------------------------
     // Member variables
+    // --------------------------------------------------------------------
+
+	/**
+	 * The pairs of complex types which are being compared by
+	 * {@link #equals(FSchemaObject)} on the current thread.
+	 */
+	private static final ThreadLocal<List<FComplexType[]>> comparisons = new ThreadLocal<List<FComplexType[]>>() {
+		@Override
+		protected List<FComplexType[]> initialValue() {
+			return new ArrayList<FComplexType[]>();
+		}
+	};
+
     // --------------------------------------------------------------------
 
 	/**
@@ -212,14 +226,37 @@ public abstract class FComplexType extends FSchemaType {
 	@Override
 	public boolean equals(FSchemaObject other) {
 
+		// recursive types refer back to themselves, so identity must be checked first
+		if (other == this)
+			return true;
+
 		if (!(other instanceof FComplexType))
 			return false;
 
 		FComplexType otherType = (FComplexType) other;
 
+		// distinct recursive types reach the same pair again through their
+		// back-references; the pair is equal unless the ongoing comparison
+		// finds a difference elsewhere
+		List<FComplexType[]> inProgress = comparisons.get();
+		for (FComplexType[] pair : inProgress) {
+			if (pair[0] == this && pair[1] == otherType)
+				return true;
+		}
+
+		inProgress.add(new FComplexType[] { this, otherType });
+		try {
+			return equalMembers(otherType);
+		} finally {
+			inProgress.remove(inProgress.size() - 1);
+		}
+	}
+
+	private boolean equalMembers(FComplexType otherType) {
+
 		// test if this complex type is of the same type anyway
 		// since FAll != FChoice != FSequence
-		if (!getClass().getCanonicalName().equals(other.getClass().getCanonicalName()))
+		if (!getClass().getCanonicalName().equals(otherType.getClass().getCanonicalName()))
 			return false;
 
 		// test for the same attributes
@@ -35,9 +35,22 @@ public class FElement extends FSchemaObject {
     // TODO
     public static final int UNBOUNDED = 20;
 
-    public static final FElement BYTE_ARRAY = new FElement("", new FByte());
+    /**
+     * The ID of the objects of constants. It is never used by the objects of a Schema object tree.
+     */
+    private static final int CONSTANT_ID = 0;
+
+    public static final FElement BYTE_ARRAY;
 
     static {
+        // constants are shared by all trees and numbered apart from them, wherever this class is initialized
+        IdBlock constants = IdBlock.fixed(CONSTANT_ID);
+        constants.begin();
+        try {
+            BYTE_ARRAY = new FElement("", new FByte());
+        } finally {
+            constants.end();
+        }
         BYTE_ARRAY.setMaxOccursUnbounded();
     }
 
@@ -115,7 +128,7 @@ public class FElement extends FSchemaObject {
     /**
      * @param schemaType
      */
-    private void setSchemaType(FSchemaType schemaType) {
+    void setSchemaType(FSchemaType schemaType) {
         if (schemaType == null)
             throw new IllegalArgumentException("The referenced type can't be null!");
         this.schemaType = schemaType;
@@ -24,23 +24,42 @@
 package fabric.wsdlschemaparser.schema;
 
 import java.io.File;
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.xmlbeans.impl.xb.xsdschema.ImportDocument.Import;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
-import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
-import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
-import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Preconditions;
-
 public class FSchema {
+    /**
+     * The front-ends which read the Schema documents. Both build the same Schema object tree.
+     */
+    public enum Frontend {
+        /** Reads the documents into the XMLBeans object model. */
+        XMLBEANS,
+
+        /**
+         * Reads the documents with a StAX reader into a compact tree which only keeps the XML Schema elements (see
+         * {@link StaxSchemaReader}). The tree is released once the Schema object tree is built.
+         */
+        STREAMING
+    }
+
+    /**
+     * The system property setting the number of threads used to build the Schema object tree from documents read by
+     * XMLBeans. If greater than 1, the top-level components are built in parallel (see
+     * {@link ParallelSchemaTreeBuilder}).
+     */
+    public static final String THREADS_PROPERTY = "fabric.wsdlschemaparser.threads";
+
     /** */
     private final org.slf4j.Logger log = LoggerFactory.getLogger(FSchema.class);
 
@@ -50,18 +69,105 @@ public class FSchema {
     /** This Hashmap maps from namespaces to prefixes. It must be bijective! */
     private HashMap<String, String> prefixMap = new HashMap<String, String>();
 
-    private HashMap<String, URI> targetNamespaceToFileLocationMap = new HashMap<String, URI>();
+    /** The inverse of {@link #prefixMap}, mapping from prefixes to namespaces. */
+    private HashMap<String, String> namespaceMap = new HashMap<String, String>();
+
+    /** Maps from the target namespace of every schema (in the order the schemata were added) to its location. */
+    private LinkedHashMap<String, URI> targetNamespaceToFileLocationMap = new LinkedHashMap<String, URI>();
+
+    /** Index of the global components of all schemata, filled as schemata are added. */
+    private SchemaSymbolTable symbolTable = new SchemaSymbolTable();
+
+    /** Fetches and parses imported schemata in the background. */
+    private SchemaImportResolver importResolver;
+
+    /** Shares the names, namespaces and prefixes of all objects in the Schema object tree. */
+    private final NamePool namePool = new NamePool();
+
+    /** Measurements taken while loading the schemata and building the Schema object tree. */
+    private final SchemaStatistics statistics = new SchemaStatistics();
 
     FTopLevelObjectList topLevelObjectList = null;
 
     public FSchema() {
+        this(SchemaCatalog.getDefault());
+    }
 
+    /**
+     * Creates an empty FSchema object which resolves imports using the given catalog.
+     * 
+     * @param catalog
+     *            the catalog of local copies of imported schemata
+     */
+    public FSchema(SchemaCatalog catalog) {
+        this.importResolver = new SchemaImportResolver(catalog, statistics);
     }
 
     public FSchema(File xsdFile) throws Exception {
+        this(xsdFile, null);
+    }
+
+    /**
+     * Loads an XML Schema file, using a cache of parsed Schema object trees. If the cache holds an up-to-date tree
+     * for the file, none of the Schema documents is parsed. Otherwise the tree is built as usual and stored in the
+     * cache.
+     * 
+     * @param xsdFile
+     * @param cacheDirectory
+     *            the cache directory, or <code>null</code> to disable caching
+     * @throws Exception
+     */
+    public FSchema(File xsdFile, File cacheDirectory) throws Exception {
+        this(xsdFile, cacheDirectory, SchemaCatalog.getDefault());
+    }
+
+    /**
+     * Loads an XML Schema file like {@link #FSchema(File, File)}, resolving imports using the given catalog.
+     * 
+     * @param xsdFile
+     * @param cacheDirectory
+     *            the cache directory, or <code>null</code> to disable caching
+     * @param catalog
+     *            the catalog of local copies of imported schemata
+     * @throws Exception
+     */
+    public FSchema(File xsdFile, File cacheDirectory, SchemaCatalog catalog) throws Exception {
+        this(xsdFile, cacheDirectory, catalog, Frontend.XMLBEANS);
+    }
+
+    /**
+     * Loads an XML Schema file like {@link #FSchema(File, File, SchemaCatalog)}, reading the documents with the given
+     * front-end.
+     * 
+     * @param xsdFile
+     * @param cacheDirectory
+     *            the cache directory, or <code>null</code> to disable caching
+     * @param catalog
+     *            the catalog of local copies of imported schemata
+     * @param frontend
+     *            the front-end reading the Schema documents
+     * @throws Exception
+     */
+    public FSchema(File xsdFile, File cacheDirectory, SchemaCatalog catalog, Frontend frontend) throws Exception {
+        this(catalog);
+        FSchemaCache cache = (cacheDirectory != null) ? new FSchemaCache(cacheDirectory, catalog, frontend) : null;
+
+        if (cache != null && cache.load(xsdFile, this))
+            return;
+
         log.info("Parsing XML Schema from file: " + xsdFile);
-        addSchema(xsdFile);
-        topLevelObjectList = generateSchemaTrees(this.schemata);
+        if (frontend == Frontend.STREAMING) {
+            List<XsdNode> documents = new ArrayList<XsdNode>();
+            addStreamedSchema(readStreamedSchema(xsdFile.toURI()), xsdFile.toURI(), documents);
+            topLevelObjectList = generateSchemaTrees(new StreamedSchemaSource(documents));
+        } else {
+            addSchema(xsdFile);
+            generateTree();
+        }
+        log.debug("Name pool: {}", namePool);
+
+        if (cache != null)
+            cache.store(xsdFile, this);
     }
 
     /**
@@ -76,7 +182,7 @@ public class FSchema {
         int i = 0;
 
         String prefix = "ns" + i;
-        while (this.prefixMap.containsValue(prefix)) {
+        while (this.namespaceMap.containsKey(prefix)) {
             i++;
             prefix = "ns" + i;
         }
@@ -85,7 +191,9 @@ public class FSchema {
     }
 
     public void addSchema(File xsdFile) throws Exception {
+        long start = System.nanoTime();
         Schema schema = SchemaDocument.Factory.parse(xsdFile).getSchema();
+        statistics.addParseTime(xsdFile.toURI(), System.nanoTime() - start);
         addSchema(schema, xsdFile.toURI());
     }
 
@@ -93,15 +201,66 @@ public class FSchema {
         log.debug("Adding schema with target namespace {} and location {}", schema.getTargetNamespace(), location);
 
         schemata.add(schema);
-        targetNamespaceToFileLocationMap.put(schema.getTargetNamespace(), location);
+        symbolTable.addSchema(schema);
+        registerSchema(schema.getTargetNamespace(), location);
 
-        if (this.prefixMap.containsKey(schema.getTargetNamespace()))
-            throw new Exception("Namespace " + schema.getTargetNamespace() + " already defined by another schema!");
+        loadAllReferencedSchemata(schema);
+    }
 
-        String newPrefix = this.findUnusedNamespacePrefix(schema.getTargetNamespace());
-        this.prefixMap.put(schema.getTargetNamespace(), newPrefix);
+    /**
+     * Records the location of a schema and assigns a prefix to its target namespace.
+     * 
+     * @param targetNamespace
+     * @param location
+     * @throws Exception
+     *             if the target namespace is already defined by another schema
+     */
+    private void registerSchema(String targetNamespace, URI location) throws Exception {
+        targetNamespaceToFileLocationMap.put(targetNamespace, location);
 
-        loadAllReferencedSchemata(schema);
+        if (this.prefixMap.containsKey(targetNamespace))
+            throw new Exception("Namespace " + targetNamespace + " already defined by another schema!");
+
+        String newPrefix = this.findUnusedNamespacePrefix(targetNamespace);
+        putNamespacePrefix(targetNamespace, newPrefix);
+    }
+
+    /**
+     * Adds a schema read by the streaming front-end and, depth-first, all schemata it imports. The documents are
+     * collected in the order they are added.
+     * 
+     * @param schema
+     *            the root node of the schema document
+     * @param location
+     * @param documents
+     *            the list of documents added so far
+     * @throws Exception
+     */
+    private void addStreamedSchema(XsdNode schema, URI location, List<XsdNode> documents) throws Exception {
+        String targetNamespace = schema.getAttribute("targetNamespace");
+        log.debug("Adding schema with target namespace {} and location {}", targetNamespace, location);
+
+        documents.add(schema);
+        registerSchema(targetNamespace, location);
+
+        for (XsdNode importElement : schema.getChildren("import")) {
+            String namespace = importElement.getAttribute("namespace");
+            if (!isKnownTargetNamespace(namespace)) {
+                URI importLocationURI = importResolver.resolve(importElement.getAttribute("schemaLocation"),
+                        namespace, location);
+
+                log.debug("Importing schema with namespace {} from {}", namespace, importLocationURI);
+
+                addStreamedSchema(readStreamedSchema(importLocationURI), importLocationURI, documents);
+            }
+        }
+    }
+
+    private XsdNode readStreamedSchema(URI location) throws Exception {
+        long start = System.nanoTime();
+        XsdNode schema = StaxSchemaReader.read(location);
+        statistics.addParseTime(location, System.nanoTime() - start);
+        return schema;
     }
 
     /**
@@ -110,13 +269,64 @@ public class FSchema {
      * @return
      */
     public Collection<String> getNamespaces() {
-        ArrayList<String> list = new ArrayList<String>();
+        return new ArrayList<String>(this.targetNamespaceToFileLocationMap.keySet());
+    }
 
-        for (SchemaDocument.Schema schema : this.schemata) {
-            list.add(schema.getTargetNamespace());
+    /**
+     * Returns the locations of all schemata known to this FSchema object, by target namespace.
+     * 
+     * @return
+     */
+    Map<String, URI> getSchemaLocations() {
+        return this.targetNamespaceToFileLocationMap;
+    }
+
+    /**
+     * Returns the prefixes of all namespaces, by namespace.
+     * 
+     * @return
+     */
+    Map<String, String> getNamespacePrefixes() {
+        return this.prefixMap;
+    }
+
+    /**
+     * Returns the pool of the names, namespaces and prefixes used by this object's Schema object tree.
+     * 
+     * @return the name pool
+     */
+    NamePool getNamePool() {
+        return this.namePool;
+    }
+
+    /**
+     * Returns the measurements taken while loading this object's schemata and building its Schema object tree.
+     * 
+     * @return the statistics
+     */
+    SchemaStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Restores the state of an FSchema object from a snapshot (see {@link FSchemaCache}). The schema documents
+     * themselves are not part of the snapshot.
+     */
+    void restore(Map<String, URI> locations, Map<String, String> prefixes, FTopLevelObjectList tree) {
+        this.targetNamespaceToFileLocationMap.putAll(locations);
+        for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+            putNamespacePrefix(entry.getKey(), entry.getValue());
         }
+        this.topLevelObjectList = tree;
+    }
 
-        return list;
+    /**
+     * Returns the symbol table of the global components of all schemata known to this FSchema object.
+     * 
+     * @return
+     */
+    public SchemaSymbolTable getSymbolTable() {
+        return symbolTable;
     }
 
     /**
@@ -128,10 +338,10 @@ public class FSchema {
      *            a prefix
      */
     public String mapNSPrefixToNamespace(String prefix) {
-        for (String namespace : this.getNamespaces()) {
-            if (this.prefixMap.get(namespace).equals(prefix))
-                return namespace;
-        }
+        String namespace = this.namespaceMap.get(prefix);
+
+        if (namespace != null && isKnownTargetNamespace(namespace))
+            return namespace;
 
         return null;
     }
@@ -148,17 +358,25 @@ public class FSchema {
 
         if (ret == null) {
             ret = findUnusedNamespacePrefix(namespace);
-            this.prefixMap.put(namespace, ret);
+            putNamespacePrefix(namespace, ret);
         }
 
         return ret;
     }
 
+    private void putNamespacePrefix(String namespace, String prefix) {
+        String pooledNamespace = this.namePool.intern(namespace);
+        String pooledPrefix = this.namePool.intern(prefix);
+        this.prefixMap.put(pooledNamespace, pooledPrefix);
+        this.namespaceMap.put(pooledPrefix, pooledNamespace);
+    }
+
     /**
      * This methods goes through the list of schemata and dereferences all import-declarations it finds.
      * 
      * it tries to load files, if a schemaLocation is given, otherwise it will try to download the schema from the
-     * namespace URI.
+     * namespace URI. The whole import graph is fetched and parsed concurrently, but the schemata are added depth-first
+     * in declaration order, so namespace prefixes are assigned deterministically.
      * 
      * @param xmlSchema
      * 
@@ -175,42 +393,59 @@ public class FSchema {
         log.debug("XML Schema {} has {} import declarations. Resolving them.", xmlSchema.getTargetNamespace(),
                 imports.length);
 
+        URI enclosingSchemaLocation = getSchemaLocation(xmlSchema);
+        importResolver.prefetchImports(xmlSchema, enclosingSchemaLocation);
+
         /* Try to load the referenced schema */
         for (Import importElement : imports) {
-            URI enclosingSchemaLocationUrl = getSchemaLocation(xmlSchema);
-            File enclosingSchemaLocation = new File(enclosingSchemaLocationUrl.toURL().getFile()).getParentFile();
-
-            String importLocation = importElement.getSchemaLocation();
-
-            if (importLocation == null) {
-                log.debug("No import location supplied, trying to use the namespace URI {}",
-                        importElement.getNamespace());
-                try {
-                    URI uri = new URI(importElement.getNamespace());
-                    uri.toURL();
-                    importLocation = importElement.getNamespace();
-                } catch (MalformedURLException e) {
-                    log.debug("Unable to use {} as location: not a URL", importElement.getNamespace());
-                }
-            }
-
-            Preconditions.checkNotNull(importLocation, "Import location must not be null");
-
-            URI importLocationURI = new URI(importLocation);
-
-            if ("file".equals(importLocationURI.getScheme()))
-                importLocationURI = new File(enclosingSchemaLocation, importLocation).toURI();
-
-            log.debug("Imported schema suspected to be at {}", importLocationURI);
-
             if (!isKnownTargetNamespace(importElement.getNamespace())) {
-                log.debug("Importing schema with namespace {}", importElement.getNamespace());
+                URI importLocationURI = importResolver.resolve(importElement, enclosingSchemaLocation);
 
-                SchemaDocument doc = SchemaDocument.Factory.parse(importLocationURI.toURL());
+                log.debug("Importing schema with namespace {} from {}", importElement.getNamespace(),
+                        importLocationURI);
 
-                addSchema(doc.getSchema(), importLocationURI);
+                addSchema(importResolver.getSchema(importLocationURI), importLocationURI);
             }
+        }
+    }
+
+    /**
+     * Hands an already parsed schema document to the import resolver, so that importing it does not parse it again.
+     * 
+     * @param location
+     *            the location of the schema document
+     * @param schema
+     *            the parsed schema, which must not be shared with other FSchema objects
+     */
+    void preloadSchema(URI location, Schema schema) {
+        importResolver.preload(location, schema);
+    }
+
+    /**
+     * Returns the schema documents added to this FSchema object, by location.
+     * 
+     * @return
+     */
+    Map<URI, Schema> getSchemaDocuments() {
+        Map<URI, Schema> documents = new LinkedHashMap<URI, Schema>();
+        Iterator<Schema> it = this.schemata.iterator();
+        for (URI location : this.targetNamespaceToFileLocationMap.values()) {
+            documents.put(location, it.next());
+        }
+        return documents;
+    }
 
+    /**
+     * Builds the Schema object tree from all schemata added so far.
+     * 
+     * @throws Exception
+     */
+    void generateTree() throws Exception {
+        int threads = Integer.getInteger(THREADS_PROPERTY, 1);
+        if (threads > 1) {
+            topLevelObjectList = new ParallelSchemaTreeBuilder(this, this.schemata, threads).build();
+        } else {
+            topLevelObjectList = generateSchemaTrees(new XmlBeansSchemaSource(this.schemata, this.symbolTable));
         }
     }
 
@@ -218,32 +453,39 @@ public class FSchema {
         return topLevelObjectList;
     }
 
-    private FTopLevelObjectList generateSchemaTrees(Collection<Schema> schemata) {
+    /**
+     * Builds the Schema object tree from the documents of the given source.
+     * 
+     * @param source
+     * @return
+     */
+    private FTopLevelObjectList generateSchemaTrees(SchemaSource source) {
+        List<? extends SchemaNode> documents = source.getDocuments();
 
         /*
          * Defining one Namespace for all Schemata doesnt make much sense if you are dealing with multiple Schemata. But
          * for backwart compatiblity I will set it to the namespace of the first schema anyway. -- Dfo
          */
-        FTopLevelObjectList topLevelObjects = new FTopLevelObjectList(schemata.iterator().next().getTargetNamespace());
+        FTopLevelObjectList topLevelObjects = new FTopLevelObjectList(documents.get(0).getAttribute("targetNamespace"));
 
-        FSchemaTypeFactory factory = new FSchemaTypeFactory(this, schemata);
+        FSchemaTypeFactory factory = new FSchemaTypeFactory(this, source);
 
-        for (Schema schema : schemata) {
+        for (SchemaNode schema : documents) {
 
             /* Set current namespace */
-            factory.setNamespace(schema.getTargetNamespace());
+            factory.setNamespace(schema.getAttribute("targetNamespace"));
 
-            TopLevelSimpleType[] simpleTypeArray = schema.getSimpleTypeArray();
-            log.debug("Number of top-level simple types: " + simpleTypeArray.length);
-            topLevelObjects.addAll(factory.generateAll(simpleTypeArray));
+            List<? extends SchemaNode> simpleTypes = schema.getChildren("simpleType");
+            log.debug("Number of top-level simple types: " + simpleTypes.size());
+            topLevelObjects.addAll(factory.generateAllSimpleTypes(simpleTypes));
 
-            TopLevelComplexType[] complexTypeArray = schema.getComplexTypeArray();
-            log.debug("Number of top-level complex types: " + complexTypeArray.length);
-            topLevelObjects.addAll(factory.generateAll(complexTypeArray));
+            List<? extends SchemaNode> complexTypes = schema.getChildren("complexType");
+            log.debug("Number of top-level complex types: " + complexTypes.size());
+            topLevelObjects.addAll(factory.generateAllComplexTypes(complexTypes));
 
-            TopLevelElement[] elementArray = schema.getElementArray();
-            log.debug("Number of top-level elements: " + elementArray.length);
-            topLevelObjects.addAll(factory.generateAll(elementArray));
+            List<? extends SchemaNode> elements = schema.getChildren("element");
+            log.debug("Number of top-level elements: " + elements.size());
+            topLevelObjects.addAll(factory.generateAllElements(elements));
 
         }
 
@@ -251,12 +493,7 @@ public class FSchema {
     }
 
     private boolean isKnownTargetNamespace(String namespace) {
-        for (Schema schema : this.schemata) {
-            if (schema.getTargetNamespace().equals(namespace)) {
-                return true;
-            }
-        }
-        return false;
+        return this.targetNamespaceToFileLocationMap.containsKey(namespace);
     }
 
     private URI getSchemaLocation(SchemaDocument.Schema schema) throws Exception {
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * On-disk cache of parsed Schema object trees.
+ * 
+ * For every root Schema file, the cache directory holds one snapshot of the built {@link FTopLevelObjectList} together
+ * with the namespace locations and prefixes of the {@link FSchema} it belongs to. Snapshots are kept apart by the root
+ * file, the mappings of the {@link SchemaCatalog} imports were resolved with and the front-end that read the documents.
+ * A snapshot is validated against the MD5 digests of all schema documents that were loaded to build it, i.e. the root
+ * file and everything it transitively imports. As long as none of them has changed, {@link #load(File, FSchema)}
+ * restores the tree without parsing any of the documents.
+ * 
+ * Only trees built from local documents (files, or entries of jar files) are cached: the content of remote documents
+ * cannot be checked without fetching them.
+ * 
+ * Snapshots that cannot be read (corrupt, stale or written by another version of Fabric) are treated as cache misses.
+ */
+public class FSchemaCache {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaCache.class);
+
+    /** Identifies the snapshot format; snapshots of any other format are ignored. */
+    private static final String FORMAT = "fabric-schema-cache-2";
+
+    private static final String SUFFIX = ".fsc";
+
+    private final File directory;
+
+    private final SchemaCatalog catalog;
+
+    private final FSchema.Frontend frontend;
+
+    /**
+     * Creates a cache for trees whose imports are resolved with the given catalog and whose documents are read by the
+     * given front-end.
+     * 
+     * @param directory
+     *            the cache directory
+     * @param catalog
+     *            the catalog of local copies of imported schemata
+     * @param frontend
+     *            the front-end reading the Schema documents
+     */
+    public FSchemaCache(File directory, SchemaCatalog catalog, FSchema.Frontend frontend) {
+        Preconditions.checkNotNull(directory, "Cache directory must not be null");
+        Preconditions.checkNotNull(catalog, "Schema catalog must not be null");
+        Preconditions.checkNotNull(frontend, "Front-end must not be null");
+        this.directory = directory;
+        this.catalog = catalog;
+        this.frontend = frontend;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Restores the snapshot for the given root Schema file into the given (empty) FSchema object.
+     * 
+     * @param xsdFile
+     *            the root Schema file
+     * @param schema
+     *            the FSchema object to restore the snapshot into
+     * @return <code>true</code> if an up-to-date snapshot was found and restored, <code>false</code> otherwise
+     */
+    boolean load(File xsdFile, FSchema schema) {
+        File snapshot = getSnapshotFile(xsdFile);
+        if (!snapshot.isFile()) {
+            log.debug("No cached schema tree for {}", xsdFile);
+            return false;
+        }
+
+        try {
+            FSchemaObjectInputStream in = new FSchemaObjectInputStream(new GZIPInputStream(new BufferedInputStream(
+                    new FileInputStream(snapshot))), schema);
+            try {
+                if (!FORMAT.equals(in.readUTF())) {
+                    log.debug("Cached schema tree for {} has an unknown format", xsdFile);
+                    return false;
+                }
+
+                @SuppressWarnings("unchecked")
+                Map<URI, String> digests = (Map<URI, String>) in.readObject();
+                for (Map.Entry<URI, String> entry : digests.entrySet()) {
+                    if (!isLocal(entry.getKey()) || !entry.getValue().equals(digest(entry.getKey()))) {
+                        log.debug("Cached schema tree for {} is stale: {} has changed", xsdFile, entry.getKey());
+                        return false;
+                    }
+                }
+
+                in.readSchema();
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to read cached schema tree " + snapshot + ", ignoring it: " + e);
+            return false;
+        }
+
+        log.info("Loaded schema tree for {} from cache", xsdFile);
+        return true;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Stores a snapshot of the given FSchema object, which has been built from the given root Schema file. Failing to
+     * write the snapshot is not an error; the next run just won't find it. Trees that depend on remote documents are not
+     * stored.
+     * 
+     * @param xsdFile
+     *            the root Schema file
+     * @param schema
+     *            the FSchema object built from the file
+     */
+    void store(File xsdFile, FSchema schema) {
+        for (URI location : schema.getSchemaLocations().values()) {
+            if (!isLocal(location)) {
+                log.debug("Not caching schema tree for {}: it depends on the remote document {}", xsdFile, location);
+                return;
+            }
+        }
+
+        File snapshot = getSnapshotFile(xsdFile);
+
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create cache directory " + directory);
+            }
+
+            Map<URI, String> digests = new LinkedHashMap<URI, String>();
+            for (URI location : schema.getSchemaLocations().values()) {
+                digests.put(location, digest(location));
+            }
+
+            // write to a temporary file first, so concurrent runs never see a partial snapshot
+            File tmp = File.createTempFile(snapshot.getName(), ".tmp", directory);
+            FSchemaObjectOutputStream out = new FSchemaObjectOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp))));
+            try {
+                out.writeUTF(FORMAT);
+                out.writeObject(digests);
+                out.writeSchema(schema);
+            } finally {
+                out.close();
+            }
+
+            if (!tmp.renameTo(snapshot)) {
+                snapshot.delete();
+                if (!tmp.renameTo(snapshot)) {
+                    tmp.delete();
+                    throw new IOException("Unable to rename " + tmp + " to " + snapshot);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Unable to cache schema tree for " + xsdFile + ": " + e);
+            return;
+        }
+
+        log.debug("Cached schema tree for {} in {}", xsdFile, snapshot);
+    }
+
+    // --------------------------------------------------------------------
+
+    private File getSnapshotFile(File xsdFile) {
+        String path;
+        try {
+            path = xsdFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = xsdFile.getAbsolutePath();
+        }
+
+        String key = path + '\n' + frontend + '\n' + catalog.describe();
+        try {
+            return new File(directory, toHex(newDigest().digest(key.getBytes("UTF-8"))) + SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns whether a schema document can be read without going to the network, i.e. whether it is a file or an
+     * entry of a jar file.
+     */
+    private static boolean isLocal(URI location) {
+        String scheme = location.getScheme();
+        if ("file".equals(scheme))
+            return true;
+        if ("jar".equals(scheme)) {
+            String part = location.getSchemeSpecificPart();
+            return part != null && part.startsWith("file:");
+        }
+        return false;
+    }
+
+    /**
+     * Computes the digest of the content of a local schema document.
+     */
+    private static String digest(URI location) throws IOException {
+        MessageDigest md = newDigest();
+
+        InputStream in = "file".equals(location.getScheme()) ? new FileInputStream(new File(location)) : location
+                .toURL().openStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -26,25 +26,30 @@
  */
 package fabric.wsdlschemaparser.schema;
 
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.slf4j.LoggerFactory;
 
 /**
  * @author Marco Wegner
  */
-public abstract class FSchemaObject {
+public abstract class FSchemaObject implements Serializable {
 
 	// --------------------------------------------------------------------
 	// Static members
 	// --------------------------------------------------------------------
 
-	private final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaObject.class);
+	private static final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaObject.class);
+
+	private static final long serialVersionUID = 1L;
 
 	private FSchema fschema = null;
 
 	/**
 	 * Static counter for consecutively numbering the IDs.
 	 */
-	private static int s_id = 0;
+	private static final AtomicInteger s_id = new AtomicInteger();
 
 	/**
 	 * This object's name.
@@ -76,7 +81,8 @@ public abstract class FSchemaObject {
 	 * @param name
 	 */
 	public FSchemaObject(String name) {
-		this.id = ++s_id;
+		IdBlock block = IdBlock.current();
+		this.id = (block != null) ? block.allocate(this) : s_id.incrementAndGet();
 		setName(name);
 	}
 
@@ -89,11 +95,28 @@ public abstract class FSchemaObject {
 		String n = name;
 		if (n != null && n.equals(""))
 			n = null;
-		this.name = n;
+		this.name = intern(n);
 	}
 
+	/**
+	 * Sets the FSchema object this object belongs to. From now on the object's name and namespace are taken from
+	 * the FSchema object's name pool.
+	 * 
+	 * @param fschema
+	 */
 	public void setFSchema(FSchema fschema) {
 		this.fschema = fschema;
+		this.name = intern(this.name);
+		this.namespace = intern(this.namespace);
+	}
+
+	/**
+	 * @param s
+	 * @return the pooled string equal to <code>s</code>, or <code>s</code> itself if this object does not belong to
+	 *         an FSchema object yet
+	 */
+	private String intern(String s) {
+		return (this.fschema != null) ? this.fschema.getNamePool().intern(s) : s;
 	}
 
 	public FSchema getFSchema() {
@@ -125,6 +148,55 @@ public abstract class FSchemaObject {
 		return id;
 	}
 
+	/**
+	 * @return the ID most recently assigned to a new object
+	 */
+	static int getLastID() {
+		return s_id.get();
+	}
+
+	/**
+	 * Makes sure that objects created from now on do not reuse the IDs of objects restored from a snapshot.
+	 * 
+	 * @param lastID
+	 *            the highest ID in use
+	 */
+	static void reserveIDs(int lastID) {
+		int current = s_id.get();
+		while (current < lastID && !s_id.compareAndSet(current, lastID))
+			current = s_id.get();
+	}
+
+	/**
+	 * Reserves a range of consecutive IDs.
+	 * 
+	 * @param count
+	 *            the number of IDs to reserve
+	 * @return the first ID of the range
+	 */
+	static int allocateIDs(int count) {
+		return s_id.getAndAdd(count) + 1;
+	}
+
+	/**
+	 * Renumbers this object. Only used for objects numbered by an {@link IdBlock}.
+	 * 
+	 * @param id
+	 */
+	void setID(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Copies keep the ID of the original object.
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		FSchemaObject copy = (FSchemaObject) super.clone();
+		IdBlock.track(this, copy);
+		return copy;
+	}
+
 	/**
 	 * @return the namespace
 	 */
@@ -137,7 +209,7 @@ public abstract class FSchemaObject {
 	 *            the namespace to set
 	 */
 	public void setNamespace(String namespace) {
-		this.namespace = namespace;
+		this.namespace = intern(namespace);
 	}
 	
 	public int getNamespaceCount() {
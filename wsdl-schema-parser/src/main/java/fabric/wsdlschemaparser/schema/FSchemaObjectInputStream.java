@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Object input stream for Schema objects written by {@link FSchemaObjectOutputStream}. Every reference to the owning
+ * FSchema object is resolved to the FSchema object given to the constructor.
+ * 
+ * Only the classes a Schema object tree is made of can be read: the classes of this package, the <code>java.util</code>
+ * collections, {@link URI}, {@link BigInteger}, {@link BigDecimal} and the <code>java.lang</code> value classes they
+ * need. Any other class in the stream is rejected before it is loaded.
+ */
+public class FSchemaObjectInputStream extends ObjectInputStream {
+    private static final String PACKAGE_PREFIX = FSchemaObjectInputStream.class.getPackage().getName() + ".";
+
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(URI.class.getName(),
+            BigInteger.class.getName(), BigDecimal.class.getName(), Object.class.getName(), String.class.getName(),
+            Enum.class.getName(), Number.class.getName(), Boolean.class.getName(), Character.class.getName(),
+            Byte.class.getName(), Short.class.getName(), Integer.class.getName(), Long.class.getName(),
+            Float.class.getName(), Double.class.getName()));
+
+    private final FSchema schema;
+
+    public FSchemaObjectInputStream(InputStream in, FSchema schema) throws IOException {
+        super(in);
+        Preconditions.checkNotNull(schema, "FSchema object must not be null");
+        this.schema = schema;
+        enableResolveObject(true);
+    }
+
+    /**
+     * Restores the state written by {@link FSchemaObjectOutputStream#writeSchema(FSchema)} into the (empty) FSchema
+     * object of this stream.
+     * 
+     * @return the restored FSchema object
+     * @throws IOException
+     *             if reading fails
+     * @throws ClassNotFoundException
+     *             if the stream holds unknown classes
+     */
+    public FSchema readSchema() throws IOException, ClassNotFoundException {
+        @SuppressWarnings("unchecked")
+        Map<String, URI> locations = (Map<String, URI>) readObject();
+        @SuppressWarnings("unchecked")
+        Map<String, String> prefixes = (Map<String, String>) readObject();
+        FTopLevelObjectList tree = (FTopLevelObjectList) readObject();
+        int lastID = readInt();
+
+        schema.restore(locations, prefixes, tree);
+        FSchemaObject.reserveIDs(lastID);
+        return schema;
+    }
+
+    /**
+     * Returns whether objects of the given class may be read from a stream of Schema objects.
+     * 
+     * @param name
+     *            the name of the class, as given by {@link ObjectStreamClass#getName()}
+     * @return <code>true</code> if the class is part of a Schema object tree
+     */
+    public static boolean isAllowedClass(String name) {
+        int dimensions = 0;
+        while (dimensions < name.length() && name.charAt(dimensions) == '[')
+            dimensions++;
+        if (dimensions > 0) {
+            if (name.length() == dimensions + 1)
+                return true; // array of a primitive type
+            if (name.charAt(dimensions) != 'L' || !name.endsWith(";"))
+                return false;
+            name = name.substring(dimensions + 1, name.length() - 1);
+        }
+
+        if (name.startsWith(PACKAGE_PREFIX))
+            return name.indexOf('.', PACKAGE_PREFIX.length()) < 0;
+        if (name.startsWith("java.util.") && name.indexOf('.', "java.util.".length()) < 0)
+            return true;
+        return ALLOWED_CLASSES.contains(name);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        if (!isAllowedClass(desc.getName()))
+            throw new InvalidClassException(desc.getName(), "Class is not part of a Schema object tree");
+        return super.resolveClass(desc);
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+        throw new InvalidClassException("Proxy classes are not part of a Schema object tree");
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+        return obj instanceof FSchemaObjectOutputStream.FSchemaReference ? schema : obj;
+    }
+}
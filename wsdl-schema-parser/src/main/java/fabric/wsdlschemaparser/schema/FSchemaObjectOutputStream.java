@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.LinkedHashMap;
+
+/**
+ * Object output stream for Schema objects. The owning {@link FSchema} object is not serialized itself; every reference
+ * to it is written as a placeholder, which {@link FSchemaObjectInputStream} resolves to the FSchema object the stream is
+ * read into. The state of the FSchema object can be written once by {@link #writeSchema(FSchema)}.
+ */
+public class FSchemaObjectOutputStream extends ObjectOutputStream {
+
+    public FSchemaObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+        enableReplaceObject(true);
+    }
+
+    /**
+     * Writes the namespace locations, the namespace prefixes and the Schema object tree of the given FSchema object,
+     * to be restored by {@link FSchemaObjectInputStream#readSchema()}.
+     * 
+     * @param schema
+     *            the FSchema object to write
+     * @throws IOException
+     *             if writing fails
+     */
+    public void writeSchema(FSchema schema) throws IOException {
+        writeObject(new LinkedHashMap<String, URI>(schema.getSchemaLocations()));
+        writeObject(new LinkedHashMap<String, String>(schema.getNamespacePrefixes()));
+        writeObject(schema.getTopLevelObjectList());
+        writeInt(FSchemaObject.getLastID());
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) throws IOException {
+        return obj instanceof FSchema ? FSchemaReference.INSTANCE : obj;
+    }
+
+    /**
+     * Stands in for the owning FSchema object in the stream.
+     */
+    static final class FSchemaReference implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        static final FSchemaReference INSTANCE = new FSchemaReference();
+
+        private Object readResolve() throws ObjectStreamException {
+            return INSTANCE;
+        }
+    }
+}
@@ -23,10 +23,10 @@
  */
 package fabric.wsdlschemaparser.schema;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import org.apache.xmlbeans.SchemaType;
@@ -38,12 +38,19 @@ import org.slf4j.LoggerFactory;
 /**
  * Utility class for conveniently storing and retrieving the facets for a
  * Schema type.
+ * <p>
+ * The facets themselves are kept in an immutable {@link FacetSet}: integral
+ * values are stored in primitive <code>long</code> slots, and
+ * {@link BigInteger} or {@link BigDecimal} objects are only created for values
+ * which do not fit into a <code>long</code>. Modifying a restriction replaces
+ * the facet set, so clones of a type share their facets until one of them is
+ * changed.
  *
  * @author Marco Wegner
  */
 public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
 
-    private final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaTypeFactory.class);
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaTypeFactory.class);
 
     // --------------------------------------------------------------------
     // Attributes
@@ -55,9 +62,10 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
     private FSchemaType type;
 
     /**
-     * Used for mapping the facets to their values.
+     * The facets and their values. The facet set is never modified, it may be
+     * shared with clones of this object.
      */
-    private HashMap<Integer, Object> restrictions;
+    private FacetSet facets = FacetSet.EMPTY;
 
     // --------------------------------------------------------------------
     // Constructors
@@ -70,18 +78,6 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public FSchemaRestrictions(FSchemaType type) {
         this.type = type;
-        initRestrictions( );
-    }
-
-    // --------------------------------------------------------------------
-    // Initialisation
-    // --------------------------------------------------------------------
-
-    /**
-     * Initialises the facets' {@link HashMap}.
-     */
-    private void initRestrictions( ) {
-        restrictions = new HashMap<Integer, Object>( );
     }
 
     // --------------------------------------------------------------------
@@ -92,7 +88,7 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      * @return The number of facets.
      */
     public int getCount( ) {
-        return restrictions.size( );
+        return facets.size( );
     }
 
     // --------------------------------------------------------------------
@@ -111,12 +107,12 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
             throws UnsupportedRestrictionException {
         checkValidFacet(facetCode);
         sanitize(facetCode);
-        restrictions.put(facetCode, value);
+        facets = facets.with(facetCode, value);
     }
 
     public void removeRestriction(int facetCode) {
         checkValidFacet(facetCode);
-        restrictions.remove(facetCode);
+        facets = facets.without(facetCode);
     }
 
     // --------------------------------------------------------------------
@@ -132,7 +128,7 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
             return false;
         }
 
-        return restrictions.containsKey(facetCode);
+        return facets.contains(facetCode);
     }
 
     // --------------------------------------------------------------------
@@ -178,6 +174,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public byte getByteValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return (byte)facets.getLong(facetCode, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return 0;
+        }
+
         byte result = 0;
         Object o = getValue(facetCode);
 
@@ -208,6 +211,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public short getShortValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return (short)facets.getLong(facetCode, Short.MIN_VALUE, Short.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return 0;
+        }
+
         short result = 0;
         Object o = getValue(facetCode);
 
@@ -238,6 +248,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public int getIntegerValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return (int)facets.getLong(facetCode, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return 0;
+        }
+
         int result = 0;
         Object o = getValue(facetCode);
 
@@ -268,6 +285,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public long getLongValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return facets.getLong(facetCode, Long.MIN_VALUE, Long.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return 0L;
+        }
+
         long result = 0L;
         Object o = getValue(facetCode);
 
@@ -298,6 +322,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public float getFloatValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return facets.getLong(facetCode, Long.MIN_VALUE, Long.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return ((Number)facets.getObject(facetCode)).floatValue( );
+        }
+
         float result = 0.0f;
         Object o = getValue(facetCode);
 
@@ -328,6 +359,13 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public double getDoubleValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return facets.getLong(facetCode, Long.MIN_VALUE, Long.MAX_VALUE);
+        } else if (facets.isParsedNumber(facetCode)) {
+            return ((Number)facets.getObject(facetCode)).doubleValue( );
+        }
+
         double result = 0.0;
         Object o = getValue(facetCode);
 
@@ -358,6 +396,15 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public BigInteger getBigIntegerValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return BigInteger.valueOf(facets.getLong(facetCode, Long.MIN_VALUE, Long.MAX_VALUE));
+        } else if (facets.isParsedNumber(facetCode)) {
+            Object number = facets.getObject(facetCode);
+            // a decimal fails just as parsing its lexical form would
+            return number instanceof BigInteger ? (BigInteger)number : new BigInteger(number.toString( ));
+        }
+
         BigInteger result = null;
         Object o = getValue(facetCode);
 
@@ -387,6 +434,14 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public BigDecimal getBigDecimalValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return facets.getBigDecimal(facetCode);
+        } else if (facets.isParsedNumber(facetCode)) {
+            Object number = facets.getObject(facetCode);
+            return number instanceof BigDecimal ? (BigDecimal)number : new BigDecimal((BigInteger)number);
+        }
+
         BigDecimal result = null;
         Object o = getValue(facetCode);
 
@@ -415,6 +470,11 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
      */
     public String getStringValue(int facetCode)
             throws UnsupportedRestrictionException {
+        checkValidFacet(facetCode);
+        if (facets.isPrimitive(facetCode)) {
+            return Long.toString(facets.getLong(facetCode, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+
         String result = null;
         Object o = getValue(facetCode);
 
@@ -442,7 +502,7 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
     public Object getValue(int facetCode)
             throws UnsupportedRestrictionException {
         checkValidFacet(facetCode);
-        return restrictions.get(facetCode);
+        return facets.get(facetCode);
     }
 
     /**
@@ -561,13 +621,16 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
         if (!(other instanceof FSchemaRestrictions))
             return false;
 
-        FSchemaRestrictions otherRes = (FSchemaRestrictions)other;
+        FacetSet otherFacets = ((FSchemaRestrictions)other).facets;
+
+        if (facets == otherFacets)
+            return true;
 
-        if (restrictions.size( ) != otherRes.restrictions.size( ))
+        if (facets.mask != otherFacets.mask)
             return false;
 
-        for (Object o : restrictions.keySet( )) {
-            if (!equalsArrayRecursive(restrictions.get(o), otherRes.restrictions.get(o))) {
+        for (int code = 0; code < FacetSet.MAX_FACETS; code++) {
+            if (facets.contains(code) && !equalsArrayRecursive(facets.get(code), otherFacets.get(code))) {
                 return false;
             }
         }
@@ -727,16 +790,409 @@ public class FSchemaRestrictions extends FSchemaObject implements Cloneable {
         return facets;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Reads the facets of a restriction, independent of the front-end which read it.
+     *
+     * @param r The xs:restriction node.
+     */
+    void parse(SchemaNode r) {
+        List<Integer> validFacets = type.getValidFacets( );
+        if (validFacets != null) {
+            for (int fcode : validFacets) {
+                String facetName = getFacetName(fcode);
+                if (facetName == null) {
+                    log.warn("Restriction not supported!");
+                    continue;
+                }
+
+                List<? extends SchemaNode> facets = r.getChildren(facetName);
+                if (facets.isEmpty( )) {
+                    continue;
+                }
+
+                Object o;
+                if (fcode == SchemaType.FACET_ENUMERATION) {
+                    List<String> olist = new ArrayList<String>( );
+                    for (SchemaNode f : facets) {
+                        olist.add(f.getAttribute("value"));
+                    }
+                    o = olist.toArray( );
+                } else {
+                    o = facets.get(0).getAttribute("value");
+                }
+                setRestriction(fcode, o);
+            }
+        }
+    }
+
+    /**
+     * @param facetCode
+     * @return The local name of the facet's XML Schema element.
+     */
+    private static String getFacetName(int facetCode) {
+        switch (facetCode) {
+            case SchemaType.FACET_MIN_INCLUSIVE:
+                return "minInclusive";
+            case SchemaType.FACET_MAX_INCLUSIVE:
+                return "maxInclusive";
+            case SchemaType.FACET_MIN_EXCLUSIVE:
+                return "minExclusive";
+            case SchemaType.FACET_MAX_EXCLUSIVE:
+                return "maxExclusive";
+            case SchemaType.FACET_LENGTH:
+                return "length";
+            case SchemaType.FACET_MIN_LENGTH:
+                return "minLength";
+            case SchemaType.FACET_MAX_LENGTH:
+                return "maxLength";
+            case SchemaType.FACET_ENUMERATION:
+                return "enumeration";
+            case SchemaType.FACET_WHITE_SPACE:
+                return "whiteSpace";
+            case SchemaType.FACET_PATTERN:
+                return "pattern";
+            case SchemaType.FACET_TOTAL_DIGITS:
+                return "totalDigits";
+            case SchemaType.FACET_FRACTION_DIGITS:
+                return "fractionDigits";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Clones these restrictions for another type. The facets are not copied,
+     * since the facet set is immutable both objects can share it.
+     *
+     * @param fst The type the clone belongs to.
+     * @return The cloned restrictions.
+     */
     public FSchemaRestrictions clone(FSchemaType fst) {
         FSchemaRestrictions ret = null;
         try {
             ret = (FSchemaRestrictions) super.clone();
-            ret.restrictions = (HashMap<Integer, Object>) restrictions.clone();
             ret.type = fst;
         } catch (CloneNotSupportedException e) {
             log.error("Unable to clone FSchemaRestrictions object " + this.toString());
         }
         return ret;
     }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Immutable storage for a type's facets. A bit mask records which facets
+     * are present; integral values are kept in primitive <code>long</code>
+     * slots and all other values in an object array. Both arrays only hold the
+     * facets which are present, ordered by facet code.
+     * <p>
+     * For every facet a kind is recorded, so that {@link #get(int)} returns an
+     * object equal to the one which was originally set: facet values read from
+     * a Schema document are strings, built-in types set boxed numbers.
+     */
+    private static final class FacetSet implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of facet codes a facet set can hold.
+         */
+        static final int MAX_FACETS = 16;
+
+        /**
+         * The empty facet set which every restriction starts with.
+         */
+        static final FacetSet EMPTY = new FacetSet(0, 0, 0L, new long[0], new Object[0]);
+
+        /* Kinds of facet values */
+
+        private static final int OBJECT = 0;
+        private static final int LEXICAL_LONG = 1;
+        private static final int INTEGER = 2;
+        private static final int LONG = 3;
+        private static final int BIG_INTEGER = 4;
+        private static final int LEXICAL_BIG_INTEGER = 5;
+        private static final int LEXICAL_BIG_DECIMAL = 6;
+
+        /**
+         * The codes of all facets which are present.
+         */
+        final int mask;
+
+        /**
+         * The codes of all facets whose value is held in a <code>long</code>
+         * slot.
+         */
+        private final int primitiveMask;
+
+        /**
+         * Four bits per facet code holding the kind of the facet's value.
+         */
+        private final long kinds;
+
+        private final long[] longs;
+
+        private final Object[] objects;
+
+        private FacetSet(int mask, int primitiveMask, long kinds, long[] longs, Object[] objects) {
+            this.mask = mask;
+            this.primitiveMask = primitiveMask;
+            this.kinds = kinds;
+            this.longs = longs;
+            this.objects = objects;
+        }
+
+        int size( ) {
+            return Integer.bitCount(mask);
+        }
+
+        boolean contains(int code) {
+            return isSet(mask, code);
+        }
+
+        /**
+         * @param code The facet's code.
+         * @return <code>true</code> if the facet's value is held in a
+         *         <code>long</code> slot.
+         */
+        boolean isPrimitive(int code) {
+            return isSet(primitiveMask, code);
+        }
+
+        /**
+         * @param code The facet's code.
+         * @return <code>true</code> if the facet's value was read as a string
+         *         and is held as {@link BigInteger} or {@link BigDecimal}.
+         */
+        boolean isParsedNumber(int code) {
+            int kind = kind(code);
+            return kind == LEXICAL_BIG_INTEGER || kind == LEXICAL_BIG_DECIMAL;
+        }
+
+        /**
+         * Returns the value of a facet held in a <code>long</code> slot. A
+         * value read as a string which exceeds the given range yields 0, just as
+         * parsing the string would fail; numbers set directly are returned
+         * unchanged and narrowed by the caller.
+         *
+         * @param code The facet's code.
+         * @param min The smallest value of the requested type.
+         * @param max The largest value of the requested type.
+         * @return The facet's value.
+         */
+        long getLong(int code, long min, long max) {
+            long value = longs[rank(primitiveMask, code)];
+            if (kind(code) == LEXICAL_LONG && (value < min || value > max)) {
+                return 0L;
+            }
+            return value;
+        }
+
+        /**
+         * @param code The code of a facet held in a <code>long</code> slot.
+         * @return The facet's value as {@link BigDecimal}.
+         */
+        BigDecimal getBigDecimal(int code) {
+            long value = longs[rank(primitiveMask, code)];
+            if (kind(code) == LEXICAL_LONG) {
+                return BigDecimal.valueOf(value);
+            }
+            return BigDecimal.valueOf((double)value);
+        }
+
+        /**
+         * @param code The code of a facet not held in a <code>long</code>
+         *        slot.
+         * @return The stored object.
+         */
+        Object getObject(int code) {
+            return objects[rank(mask & ~primitiveMask, code)];
+        }
+
+        /**
+         * @param code The facet's code.
+         * @return The facet's value as it was set, or <code>null</code> if the
+         *         facet is not present.
+         */
+        Object get(int code) {
+            if (!contains(code)) {
+                return null;
+            }
+
+            if (!isPrimitive(code)) {
+                Object value = getObject(code);
+                return isParsedNumber(code) ? value.toString( ) : value;
+            }
+
+            long value = longs[rank(primitiveMask, code)];
+            switch (kind(code)) {
+                case INTEGER:
+                    return Integer.valueOf((int)value);
+                case LONG:
+                    return Long.valueOf(value);
+                case BIG_INTEGER:
+                    return BigInteger.valueOf(value);
+                default:
+                    return Long.toString(value);
+            }
+        }
+
+        /**
+         * @param code The facet's code.
+         * @param value The facet's new value.
+         * @return A facet set with the facet added or replaced.
+         */
+        FacetSet with(int code, Object value) {
+            if (code < 0 || code >= MAX_FACETS) {
+                throw new UnsupportedRestrictionException("" + code);
+            }
+
+            long[] allLongs = new long[MAX_FACETS];
+            Object[] allObjects = new Object[MAX_FACETS];
+            expand(allLongs, allObjects);
+
+            int kind = kindOf(value);
+            int newPrimitiveMask = primitiveMask & ~(1 << code);
+            allObjects[code] = null;
+            switch (kind) {
+                case OBJECT:
+                    allObjects[code] = value;
+                    break;
+                case LEXICAL_LONG:
+                    allLongs[code] = Long.parseLong((String)value);
+                    newPrimitiveMask |= 1 << code;
+                    break;
+                case LEXICAL_BIG_INTEGER:
+                    allObjects[code] = new BigInteger((String)value);
+                    break;
+                case LEXICAL_BIG_DECIMAL:
+                    allObjects[code] = new BigDecimal((String)value);
+                    break;
+                default:
+                    allLongs[code] = ((Number)value).longValue( );
+                    newPrimitiveMask |= 1 << code;
+            }
+
+            long newKinds = (kinds & ~(0xFL << (4 * code))) | ((long)kind << (4 * code));
+            return compact(mask | 1 << code, newPrimitiveMask, newKinds, allLongs, allObjects);
+        }
+
+        /**
+         * @param code The facet's code.
+         * @return A facet set without the facet.
+         */
+        FacetSet without(int code) {
+            if (!contains(code)) {
+                return this;
+            }
+
+            long[] allLongs = new long[MAX_FACETS];
+            Object[] allObjects = new Object[MAX_FACETS];
+            expand(allLongs, allObjects);
+
+            int bit = 1 << code;
+            return compact(mask & ~bit, primitiveMask & ~bit, kinds & ~(0xFL << (4 * code)), allLongs, allObjects);
+        }
+
+        /**
+         * Copies the stored values into arrays indexed by facet code.
+         */
+        private void expand(long[] allLongs, Object[] allObjects) {
+            int l = 0;
+            int o = 0;
+            for (int code = 0; code < MAX_FACETS; code++) {
+                if (isSet(primitiveMask, code)) {
+                    allLongs[code] = longs[l++];
+                } else if (isSet(mask, code)) {
+                    allObjects[code] = objects[o++];
+                }
+            }
+        }
+
+        private static FacetSet compact(int mask, int primitiveMask, long kinds, long[] allLongs, Object[] allObjects) {
+            if (mask == 0) {
+                return EMPTY;
+            }
+
+            long[] longs = new long[Integer.bitCount(primitiveMask)];
+            Object[] objects = new Object[Integer.bitCount(mask & ~primitiveMask)];
+            int l = 0;
+            int o = 0;
+            for (int code = 0; code < MAX_FACETS; code++) {
+                if (isSet(primitiveMask, code)) {
+                    longs[l++] = allLongs[code];
+                } else if (isSet(mask, code)) {
+                    objects[o++] = allObjects[code];
+                }
+            }
+            return new FacetSet(mask, primitiveMask, kinds, longs, objects);
+        }
+
+        /**
+         * Determines how a value is stored. Strings are only converted if they
+         * are the canonical representation of their number, so that
+         * {@link #get(int)} yields the very same string again.
+         */
+        private static int kindOf(Object value) {
+            if (value instanceof Integer) {
+                return INTEGER;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof BigInteger) {
+                return ((BigInteger)value).bitLength( ) < 64 ? BIG_INTEGER : OBJECT;
+            } else if (value instanceof String && isNumeric((String)value)) {
+                String lexical = (String)value;
+                try {
+                    if (Long.toString(Long.parseLong(lexical)).equals(lexical)) {
+                        return LEXICAL_LONG;
+                    }
+                } catch (NumberFormatException e) {
+                    // not a long value
+                }
+                try {
+                    if (new BigInteger(lexical).toString( ).equals(lexical)) {
+                        return LEXICAL_BIG_INTEGER;
+                    }
+                } catch (NumberFormatException e) {
+                    // not an integer value
+                }
+                try {
+                    if (new BigDecimal(lexical).toString( ).equals(lexical)) {
+                        return LEXICAL_BIG_DECIMAL;
+                    }
+                } catch (NumberFormatException e) {
+                    // not a decimal value
+                }
+            }
+            return OBJECT;
+        }
+
+        private static boolean isNumeric(String value) {
+            if (value.length( ) == 0) {
+                return false;
+            }
+            for (int i = 0; i < value.length( ); i++) {
+                if ("0123456789+-.eE".indexOf(value.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int kind(int code) {
+            return (int)(kinds >>> (4 * code)) & 0xF;
+        }
+
+        private static boolean isSet(int bits, int code) {
+            return code >= 0 && code < MAX_FACETS && (bits & (1 << code)) != 0;
+        }
+
+        /**
+         * @return The index of the facet's value among the facets in
+         *         <code>bits</code>.
+         */
+        private static int rank(int bits, int code) {
+            return Integer.bitCount(bits & ((1 << code) - 1));
+        }
+    }
 }
@@ -39,7 +39,7 @@ public abstract class FSchemaType extends FSchemaObject implements Cloneable {
     // Static attributes
     // --------------------------------------------------------------------
 
-    private final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaTypeFactory.class);
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(FSchemaTypeFactory.class);
 
     /**
      * This type's restrictions.
@@ -23,28 +23,30 @@
  */
 package fabric.wsdlschemaparser.schema;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.Stack;
 
 import javax.xml.namespace.QName;
 
 import org.apache.xmlbeans.SchemaType;
 import org.apache.xmlbeans.XmlObject;
-import org.apache.xmlbeans.impl.xb.xsdschema.*;
-import org.apache.xmlbeans.impl.xb.xsdschema.AnyDocument.Any;
-import org.apache.xmlbeans.impl.xb.xsdschema.RestrictionDocument.Restriction;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
-import org.apache.xmlbeans.impl.xb.xsdschema.SimpleContentDocument.SimpleContent;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 
 /**
+ * Builds the Schema object tree from XML Schema documents. The documents are read through {@link SchemaNode}s, so
+ * the same factory serves all front-ends (see {@link SchemaSource}).
+ * 
  * @author Marco Wegner
  */
 public class FSchemaTypeFactory {
@@ -54,33 +56,47 @@ public class FSchemaTypeFactory {
 
     private String namespace = null;
 
-    private SchemaHelper schemaHelper;
+    private SchemaSource source;
 
-    private List<FSchemaType> topLevelTypes;
+    /**
+     * The registry of top-level types, indexed by name. Every named type is built only once and the resulting node is
+     * shared by all elements referencing it, so it must not be modified afterwards (see {@link #copyIfShared}).
+     */
+    private Map<String, FSchemaType> topLevelTypes = new LinkedHashMap<String, FSchemaType>();
+
+    /**
+     * Top-level types built by other factories (see {@link ParallelSchemaTreeBuilder}). They are looked up like the
+     * types in {@link #topLevelTypes}, but never modified.
+     */
+    private Map<String, FSchemaType> sharedTypes = Collections.emptyMap();
 
     private Collection<FElement> list = new ArrayList<FElement>();;
 
     /**
-     * The backtrace of complex types. It is used for detecting cyclic dependencies in the Schema files. Stored in this
-     * object are the complex types' names.
+     * The complex types which are currently being built. A recursive reference to one of these types resolves to the
+     * node under construction, so cycles in the Schema become back-references in the generated object graph.
      */
-    private Stack<String> typeTrace;
+    private Map<SchemaNode, FComplexType> typesInProgress = new HashMap<SchemaNode, FComplexType>();
 
     private Stack<String> elemTrace;
 
     public FSchemaTypeFactory(FSchema fschema, Schema schema) {
-        this.fschema = fschema;
-        Set<Schema> schemas = new HashSet<Schema>();
-        schemas.add(schema);
-        schemaHelper = new SchemaHelper(schemas);
-        typeTrace = new Stack<String>();
-        elemTrace = new Stack<String>();
+        this(fschema, new XmlBeansSchemaSource(Collections.singleton(schema), new SchemaSymbolTable(
+                Collections.singleton(schema))));
     }
 
     public FSchemaTypeFactory(FSchema fschema, Collection<Schema> schema) {
+        this(fschema, new XmlBeansSchemaSource(schema, fschema.getSymbolTable()));
+    }
+
+    /**
+     * @param fschema
+     * @param source
+     *            the documents to build the types from
+     */
+    FSchemaTypeFactory(FSchema fschema, SchemaSource source) {
         this.fschema = fschema;
-        schemaHelper = new SchemaHelper(schema);
-        typeTrace = new Stack<String>();
+        this.source = source;
         elemTrace = new Stack<String>();
     }
 
@@ -89,24 +105,66 @@ public class FSchemaTypeFactory {
      * @return
      */
     public FElement generate(TopLevelElement elem) {
-        log.debug("Generating TopLevelElement");
+        return generateTopLevelElement(new XmlBeansSchemaNode(elem));
+    }
 
-        String name = elem.getName();
+    /**
+     * @param stype
+     * @return
+     */
+    public FSimpleType generate(TopLevelSimpleType stype) {
+        return generateTopLevelSimpleType(new XmlBeansSchemaNode(stype));
+    }
 
-        // cycle detection
-        if (isMaxDepthReached(elemTrace, name)) {
-            log.error("Cycle detected (elements), maxdepth reached");
-            log.debug("{}", elemTrace);
-            return null;
+    /**
+     * @param ctype
+     * @return
+     */
+    public FComplexType generate(TopLevelComplexType ctype) {
+        return generateTopLevelComplexType(new XmlBeansSchemaNode(ctype));
+    }
+
+    public Collection<FElement> generateAll(TopLevelElement[] elements) {
+        return generateAllElements(nodes(elements));
+    }
+
+    public Collection<FSimpleType> generateAll(TopLevelSimpleType[] types) {
+        return generateAllSimpleTypes(nodes(types));
+    }
+
+    public Collection<FComplexType> generateAll(TopLevelComplexType[] types) {
+        return generateAllComplexTypes(nodes(types));
+    }
+
+    private static List<SchemaNode> nodes(XmlObject[] objects) {
+        List<SchemaNode> nodes = new ArrayList<SchemaNode>(objects.length);
+        for (XmlObject o : objects) {
+            nodes.add(new XmlBeansSchemaNode(o));
         }
+        return nodes;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * @param elem
+     *            an xs:element node
+     * @return
+     */
+    FElement generateTopLevelElement(SchemaNode elem) {
+        log.debug("Generating TopLevelElement");
+
+        String name = elem.getAttribute("name");
 
         elemTrace.push(name);
 
         FElement element = generateElement(elem);
         FSchemaType schemaType = element.getSchemaType();
 
-        if (!schemaType.isTopLevel()) {
+        if (!schemaType.isTopLevel() && !name.equals(schemaType.getName())) {
+            schemaType = copyIfShared(schemaType);
             schemaType.setName(name);
+            element.setSchemaType(schemaType);
         }
         elemTrace.pop();
 
@@ -118,11 +176,12 @@ public class FSchemaTypeFactory {
 
     /**
      * @param stype
+     *            an xs:simpleType node
      * @return
      */
-    public FSimpleType generate(TopLevelSimpleType stype) {
+    FSimpleType generateTopLevelSimpleType(SchemaNode stype) {
 
-        String name = stype.getName();
+        String name = stype.getAttribute("name");
         log.debug("Generating TopLevelSimpleType: " + name);
 
         FSchemaType ftype = getTopLevelType(name);
@@ -138,14 +197,14 @@ public class FSchemaTypeFactory {
         /*
         Check for restrictions
          */
-        if (stype.isSetRestriction()) {
-            fst = generateSimpleRestrictionType(stype.getRestriction());
+        if (stype.isSetChild("restriction")) {
+            fst = generateSimpleRestrictionType(stype.getChild("restriction"));
         }
 
         /*
         Check if simple type is a xs:list
          */
-        else if (stype.isSetList()) {
+        else if (stype.isSetChild("list")) {
             fst = generateSimpleListType(stype);
         }
 
@@ -163,11 +222,12 @@ public class FSchemaTypeFactory {
 
     /**
      * @param ctype
+     *            an xs:complexType node
      * @return
      */
-    public FComplexType generate(TopLevelComplexType ctype) {
+    FComplexType generateTopLevelComplexType(SchemaNode ctype) {
 
-        String name = ctype.getName();
+        String name = ctype.getAttribute("name");
         log.debug("Generating TopLevelComplexType: " + name);
 
         FSchemaType ftype = getTopLevelType(name);
@@ -178,19 +238,16 @@ public class FSchemaTypeFactory {
             }
         }
 
-        // cycle detection
-        if (isMaxDepthReached(typeTrace, name)) {
-            log.error("Cycle detected (types), maxdepth reached");
-            log.debug("{}", typeTrace);
-            return null;
+        // recursive reference to a type which is still being built
+        FComplexType pending = typesInProgress.get(ctype);
+        if (pending != null) {
+            log.debug("Recursive reference to complex type {}", name);
+            fschema.getStatistics().addRecursiveReference();
+            return pending;
         }
 
-        typeTrace.push(name);
-
         FComplexType fct = generateComplexType(ctype, name);
 
-        typeTrace.pop();
-
         if (fct != null) {
             fct.setTopLevel(true);
             addTopLevelType(fct);
@@ -201,29 +258,29 @@ public class FSchemaTypeFactory {
         return fct;
     }
 
-    public Collection<FElement> generateAll(TopLevelElement[] elements) {
+    Collection<FElement> generateAllElements(List<? extends SchemaNode> elements) {
         //Collection<FSimpleType> list = new ArrayList<FElement>();
-        for (TopLevelElement elem : elements) {
-            elem.setName(ReservedNames.instance().getNewName(elem.getName()));
-            FElement tle = generate(elem);
+        for (SchemaNode elem : elements) {
+            elem.setAttribute("name", ReservedNames.instance().getNewName(elem.getAttribute("name")));
+            FElement tle = generateTopLevelElement(elem);
             if (tle != null) {
                 log.info(tle.getNamespace() + ":" + tle.getName() + " created.");
                 list.add(tle);
             } else {
-                log.warn("Top-level element was null after generating it: " + elem.getName());
+                log.warn("Top-level element was null after generating it: " + elem.getAttribute("name"));
             }
         }
         return list;
     }
 
-    public Collection<FSimpleType> generateAll(TopLevelSimpleType[] types) {
+    Collection<FSimpleType> generateAllSimpleTypes(List<? extends SchemaNode> types) {
         Collection<FSimpleType> list = new ArrayList<FSimpleType>();
-        for (TopLevelSimpleType stype : types) {
-            FSimpleType tlst = generate(stype);
+        for (SchemaNode stype : types) {
+            FSimpleType tlst = generateTopLevelSimpleType(stype);
             if (tlst != null) {
                 list.add(tlst);
             } else {
-                log.error("Top-level simple type was null after generating it: " + stype.getName());
+                log.error("Top-level simple type was null after generating it: " + stype.getAttribute("name"));
             }
         }
         return list;
@@ -231,14 +288,14 @@ public class FSchemaTypeFactory {
 
     // --------------------------------------------------------------------
 
-    public Collection<FComplexType> generateAll(TopLevelComplexType[] types) {
+    Collection<FComplexType> generateAllComplexTypes(List<? extends SchemaNode> types) {
         Collection<FComplexType> list = new ArrayList<FComplexType>();
-        for (TopLevelComplexType ctype : types) {
-            FComplexType tlct = generate(ctype);
+        for (SchemaNode ctype : types) {
+            FComplexType tlct = generateTopLevelComplexType(ctype);
             if (tlct != null) {
                 list.add(tlct);
             } else {
-                log.error("Top-level complex type was null after generating it: " + ctype.getName());
+                log.error("Top-level complex type was null after generating it: " + ctype.getAttribute("name"));
             }
         }
         return list;
@@ -250,21 +307,23 @@ public class FSchemaTypeFactory {
      * @param elem
      * @return
      */
-    private FElement generateElement(Element elem) {
-        elem.setName(ReservedNames.instance().getNewName(elem.getName()));
-        String elemName = elem.getName();
+    private FElement generateElement(SchemaNode elem) {
+        if (elem.isSetAttribute("name")) {
+            elem.setAttribute("name", ReservedNames.instance().getNewName(elem.getAttribute("name")));
+        }
+        String elemName = elem.getAttribute("name");
         log.debug("Element: " + elemName);
         FSchemaType ftype = null;
-        QName type = elem.getType();
+        QName type = elem.getQNameAttribute("type");
         if (type == null) {
             ftype = getTopLevelType(elemName);
             if (ftype == null) {
-                if (elem.isSetSimpleType()) {
-                    ftype = generateLocalSimpleType(elem.getSimpleType());
-                } else if (elem.isSetComplexType()) {
-                    ftype = generateComplexType(elem.getComplexType(), elemName);
-                } else if (elem.isSetRef()) {
-                    QName ref = elem.getRef();
+                if (elem.isSetChild("simpleType")) {
+                    ftype = generateLocalSimpleType(elem.getChild("simpleType"));
+                } else if (elem.isSetChild("complexType")) {
+                    ftype = generateComplexType(elem.getChild("complexType"), elemName);
+                } else if (elem.isSetAttribute("ref")) {
+                    QName ref = elem.getQNameAttribute("ref");
                     String elemRefName = ref.getLocalPart();
                     log.debug("Resolved reference (" + elemRefName + ")");
                     ftype = getReferencedType(ref);
@@ -286,41 +345,48 @@ public class FSchemaTypeFactory {
         }
         FElement schemaElement = new FElement(elemName, ftype);
 
-        // check the element for minOccurs, ...
-        if (elem.isSetMinOccurs()) {
-            Object o = elem.getMinOccurs();
-            if (o instanceof Number)
-                schemaElement.setMinOccurs(((Number) o).intValue());
-        }
-
-        // ... maxOccurs, ...
-        if (elem.isSetMaxOccurs()) {
-            Object o = elem.getMaxOccurs();
-            if (o instanceof Number)
-                schemaElement.setMaxOccurs(((Number) o).intValue());
-            else if (o instanceof String && ((String) o).equals("unbounded"))
-                schemaElement.setMaxOccursUnbounded();
-        }
+        // check the element for minOccurs and maxOccurs, ...
+        setOccurs(schemaElement, elem);
 
         // ... fixed value ...
-        if (elem.isSetFixed()) {
-            schemaElement.setFixedValue(elem.getFixed());
+        if (elem.isSetAttribute("fixed")) {
+            schemaElement.setFixedValue(elem.getAttribute("fixed"));
         }
 
         // ... and default value
-        if (elem.isSetDefault()) {
-            schemaElement.setDefaultValue(elem.getDefault());
+        if (elem.isSetAttribute("default")) {
+            schemaElement.setDefaultValue(elem.getAttribute("default"));
         }
 
-        if (elem.isSetRef()) {
+        if (elem.isSetAttribute("ref")) {
             schemaElement.setReference(true);
-            schemaElement.setName(elem.getRef().getLocalPart());
+            schemaElement.setName(elem.getQNameAttribute("ref").getLocalPart());
         }
 
         initObject(schemaElement);
         return schemaElement;
     }
 
+    /**
+     * @param schemaElement
+     * @param particle
+     *            the xs:element or xs:any node
+     */
+    private void setOccurs(FElement schemaElement, SchemaNode particle) {
+        String min = particle.getAttribute("minOccurs");
+        if (min != null) {
+            schemaElement.setMinOccurs(new BigInteger(min.trim()).intValue());
+        }
+
+        String max = particle.getAttribute("maxOccurs");
+        if (max != null) {
+            if ("unbounded".equals(max.trim()))
+                schemaElement.setMaxOccursUnbounded();
+            else
+                schemaElement.setMaxOccurs(new BigInteger(max.trim()).intValue());
+        }
+    }
+
     /**
      * Tries to get a top level type with the given QName. If this
      * is not successful then it generates a new top level type.
@@ -334,7 +400,7 @@ public class FSchemaTypeFactory {
         FSchemaType ftype = getTopLevelType(typeName);
         // if that has not been successful, then generate a new one
         if (ftype == null) {
-            if (schemaHelper.isXMLSchemaName(type)) {
+            if (DefaultValues.XML_SCHEMA_NAMESPACE_URI.equals(type.getNamespaceURI())) {
                 SchemaType st = SchemaHelper.getSchemaType(type);
                 if (st.getSimpleVariety() == SchemaType.ATOMIC) {
                     ftype = generateSimpleTypeFromBTC(st.getBuiltinTypeCode(), type.getNamespaceURI(), type.getLocalPart());
@@ -342,13 +408,13 @@ public class FSchemaTypeFactory {
                     throw new UnhandledSimpleVarietyException("SimpleVariety not handled: " + st.getSimpleVariety());
                 }
             } else {
-                XmlObject xo = schemaHelper.getByName(type);
-                if (xo instanceof SimpleType) {
-                    ftype = generate((TopLevelSimpleType) xo);
-                } else if (xo instanceof ComplexType) {
-                    ftype = generate((TopLevelComplexType) xo);
+                SchemaNode node = source.getType(type);
+                if (node == null) {
+                    throw new RuntimeException("Unknown type " + type);
+                } else if ("complexType".equals(node.getName())) {
+                    ftype = generateTopLevelComplexType(node);
                 } else {
-                    throw new RuntimeException();
+                    ftype = generateTopLevelSimpleType(node);
                 }
             }
         }
@@ -358,120 +424,66 @@ public class FSchemaTypeFactory {
 
     /**
      * @param any
+     * @param siblings the neighbours of the wildcards in the any's model group
      * @return
      */
-    private FElement generateElement(Any any) {
+    private FElement generateAnyElement(SchemaNode any, AnySiblings siblings) {
         String elemName = "any";
 
-        FSchemaType ftype = new FAny("String", getPriviousNodeNames(any), getNextNodeNames(any));
+        FSchemaType ftype = new FAny("String", siblings.getPreviousNames(any), siblings.getNextNames(any));
 
         int ecount = getElemNameCount(elemName);
         if (ecount > 1) {
             elemName += "_" + ecount;
         }
         FElement schemaElement = new FElement(elemName, ftype);
-        // check the element for minOccurs...
-        if (any.isSetMinOccurs()) {
-            Object o = any.getMinOccurs();
-            if (o instanceof Number)
-                schemaElement.setMinOccurs(((Number) o).intValue());
-        }
-        // ... and maxOccurs
-        if (any.isSetMaxOccurs()) {
-            Object o = any.getMaxOccurs();
-            if (o instanceof Number)
-                schemaElement.setMaxOccurs(((Number) o).intValue());
-            else if (o instanceof String && ((String) o).equals("unbounded"))
-                schemaElement.setMaxOccursUnbounded();
-        }
+        setOccurs(schemaElement, any);
 
         initObject(schemaElement);
         return schemaElement;
     }
 
-    /**
-     * Returns the value of the name attribute of the previous neighboring node of the given any-node
-     *
-     * @param any
-     * @return Name of previous the neighboring node
-     */
-    private HashSet<String> getPriviousNodeNames(Any any) {
-        HashSet<String> nodeNames = new HashSet<String>();
-        Node n = any.getDomNode().getPreviousSibling();
-        while (n != null) {
-            if (n.getNodeType() == Node.ELEMENT_NODE) {
-                if (n.getLocalName().equals("any")) {
-                    break;
-                }
-                if (n.hasAttributes()) {
-                    NamedNodeMap nodeAttr = n.getAttributes();
-                    if (nodeAttr.getNamedItem("name") != null) {
-                        nodeNames.add(nodeAttr.getNamedItem("name").getNodeValue());
-                    }
-                }
-            }
-            n = n.getPreviousSibling();
-        }
-        return nodeNames;
-    }
-
-    /**
-     * Returns the value of the name attribute of the next neighboring node of the given any-node
-     *
-     * @param any
-     * @return Name of next the neighboring node
-     */
-    private HashSet<String> getNextNodeNames(Any any) {
-        HashSet<String> nodeNames = new HashSet<String>();
-        Node n = any.getDomNode().getNextSibling();
-        while (n != null) {
-            if (n.getNodeType() == Node.ELEMENT_NODE) {
-                if (n.getLocalName().equals("any")) {
-                    break;
-                }
-                if (n.hasAttributes()) {
-                    NamedNodeMap nodeAttr = n.getAttributes();
-                    if (nodeAttr.getNamedItem("name") != null) {
-                        nodeNames.add(nodeAttr.getNamedItem("name").getNodeValue());
-                    }
-                }
-            }
-            n = n.getNextSibling();
-        }
-        return nodeNames;
-    }
-
     private FSchemaType getReferencedType(QName reference) {
         String elemRefName = reference.getLocalPart();
         FSchemaType ftype = getTopLevelType(elemRefName);
         if (ftype == null) {
-            TopLevelElement tle = (TopLevelElement) schemaHelper.getByName(reference);
-            FElement fse = generate(tle);
+            SchemaNode tle = source.getElement(reference);
+            if (tle == null) {
+                throw new RuntimeException("Unknown element " + reference);
+            }
+            // recursive reference to an element whose anonymous type is still being built
+            SchemaNode anonymousType = tle.getChild("complexType");
+            if (anonymousType != null && typesInProgress.containsKey(anonymousType)) {
+                log.debug("Recursive reference to element {}", elemRefName);
+                fschema.getStatistics().addRecursiveReference();
+                return typesInProgress.get(anonymousType);
+            }
+            FElement fse = generateTopLevelElement(tle);
             if (fse == null) {
                 return null;
             }
-            ftype = fse.getSchemaType();
+            ftype = copyIfShared(fse.getSchemaType());
             ftype.setName(elemRefName);
             addTopLevelType(ftype);
         }
         return ftype;
     }
 
-    private FSimpleType generateLocalSimpleType(LocalSimpleType stype) {
+    private FSimpleType generateLocalSimpleType(SchemaNode stype) {
         FSimpleType fst = null;
         log.debug("Generating LocalSimpleType");
 
         /*
         Check for restrictions
          */
-        if (stype.isSetRestriction()) {
-            fst = generateSimpleRestrictionType(stype.getRestriction());
+        if (stype.isSetChild("restriction")) {
+            fst = generateSimpleRestrictionType(stype.getChild("restriction"));
         }
 
         /*
         Check for xs:list
          */
-        else if (stype.isSetList()) {
+        else if (stype.isSetChild("list")) {
             fst = generateSimpleListType(stype);
         }
 
@@ -484,9 +496,9 @@ public class FSchemaTypeFactory {
      * @param stype
      * @return FSimpleType object
      */
-    private FList generateSimpleListType(SimpleType stype) {
+    private FList generateSimpleListType(SchemaNode stype) {
         FList fl = new FList();
-        QName itemType = stype.getList().getItemType();
+        QName itemType = stype.getChild("list").getQNameAttribute("itemType");
         FSimpleType fst = (FSimpleType) createTopLevelType(itemType);
         fl.setItemType(fst);
         return fl;
@@ -496,24 +508,10 @@ public class FSchemaTypeFactory {
      * @param restriction
      * @return
      */
-    private FSimpleType generateSimpleRestrictionType(Restriction restriction) {
-        QName base = restriction.getBase();
+    private FSimpleType generateSimpleRestrictionType(SchemaNode restriction) {
+        QName base = restriction.getQNameAttribute("base");
         log.debug("Generating SimpleType with base: " + base);
-        FSimpleType fst = (FSimpleType) createTopLevelType(base);
-        fst.getRestrictions().parse(restriction);
-        return fst;
-    }
-
-    /**
-     * @param restriction
-     * @return
-     * @throws UnsupportedRestrictionException
-     */
-    private FSimpleType generateSimpleRestrictionType(RestrictionType restriction)
-            throws UnsupportedRestrictionException {
-        QName base = restriction.getBase();
-        log.debug("Generating SimpleType with base: " + base);
-        FSimpleType fst = (FSimpleType) createTopLevelType(base);
+        FSimpleType fst = (FSimpleType) copyIfShared(createTopLevelType(base));
         fst.getRestrictions().parse(restriction);
         return fst;
     }
@@ -523,9 +521,9 @@ public class FSchemaTypeFactory {
      * because otherwise FComplexType objects created by this method
      * would not have any valid value for this field.
      */
-    private FComplexType generateComplexType(ComplexType ctype, String name) {
+    private FComplexType generateComplexType(SchemaNode ctype, String name) {
 
-        String typeName = ctype.getName();
+        String typeName = ctype.getAttribute("name");
         if (typeName == null) {
             log.debug("Generating LocalComplexType");
         } else {
@@ -533,23 +531,28 @@ public class FSchemaTypeFactory {
         }
 
         FComplexType fct = null;
-        if (ctype.isSetSequence()) {
-            fct = generateSequence(ctype);
-        } else if (ctype.isSetAll()) {
-            fct = generateAll(ctype);
-        } else if (ctype.isSetChoice()) {
-            fct = generateChoice(ctype);
-        } else if (ctype.isSetSimpleContent()) {
-            fct = generateSimpleContentCT(ctype);
-        } else if (ctype.isSetComplexContent()) {
-            fct = generateComplexContentCT(ctype);
-        }
-
-        if (fct == null && ctype.sizeOfAttributeArray() > 0) {
+        try {
+            if (ctype.isSetChild("sequence")) {
+                fct = generateSequence(ctype);
+            } else if (ctype.isSetChild("all")) {
+                fct = generateAll(ctype);
+            } else if (ctype.isSetChild("choice")) {
+                fct = generateChoice(ctype);
+            } else if (ctype.isSetChild("simpleContent")) {
+                fct = generateSimpleContentCT(ctype);
+            } else if (ctype.isSetChild("complexContent")) {
+                fct = generateComplexContentCT(ctype);
+            }
+        } finally {
+            typesInProgress.remove(ctype);
+        }
+
+        List<? extends SchemaNode> attributes = ctype.getChildren("attribute");
+        if (fct == null && !attributes.isEmpty()) {
             fct = new FSequence();
-            handleComplexTypeAttributes(fct, ctype.getAttributeArray());
+            handleComplexTypeAttributes(fct, attributes);
         }
-        if (ctype.isSetAnyAttribute()) {
+        if (ctype.isSetChild("anyAttribute")) {
             fct.setAnyAttribute(true);
         }
 
@@ -571,37 +574,36 @@ public class FSchemaTypeFactory {
      * @param ctype
      * @return
      */
-    private FSequence generateSequence(ComplexType ctype) {
-        FSequence fs = new FSequence(ctype.getName());
-        handleComplexTypeChildElements(fs, schemaHelper.getSequenceElements(ctype));
-        handleComplexTypeChildElements(fs, schemaHelper.getSequenceAny(ctype));
-        if (ctype.sizeOfAttributeArray() > 0) {
-            handleComplexTypeAttributes(fs, ctype.getAttributeArray());
-        }
-        handleComplexChildTypes(fs, ctype);
+    private FSequence generateSequence(SchemaNode ctype) {
+        FSequence fs = new FSequence(ctype.getAttribute("name"));
+        beginType(ctype, fs);
+        SchemaNode sequence = ctype.getChild("sequence");
+        handleComplexTypeChildElements(fs, sequence.getChildren("element"));
+        handleComplexTypeChildAnys(fs, sequence.getChildren("any"));
+        handleComplexTypeAttributes(fs, ctype.getChildren("attribute"));
+        handleComplexChildTypes(fs, sequence);
 
         initObject(fs);
         return fs;
     }
 
-    private FAll generateAll(ComplexType ctype) {
-        FAll fa = new FAll(ctype.getName());
-        handleComplexTypeChildElements(fa, schemaHelper.getAllElements(ctype));
-        if (ctype.sizeOfAttributeArray() > 0) {
-            handleComplexTypeAttributes(fa, ctype.getAttributeArray());
-        }
+    private FAll generateAll(SchemaNode ctype) {
+        FAll fa = new FAll(ctype.getAttribute("name"));
+        beginType(ctype, fa);
+        handleComplexTypeChildElements(fa, ctype.getChild("all").getChildren("element"));
+        handleComplexTypeAttributes(fa, ctype.getChildren("attribute"));
         initObject(fa);
         return fa;
     }
 
-    private FChoice generateChoice(ComplexType ctype) {
-        FChoice fc = new FChoice(ctype.getName());
-        handleComplexTypeChildElements(fc, schemaHelper.getChoiceElements(ctype));
-        handleComplexTypeChildElements(fc, schemaHelper.getChoiceAny(ctype));
-        if (ctype.sizeOfAttributeArray() > 0) {
-            handleComplexTypeAttributes(fc, ctype.getAttributeArray());
-        }
-        handleComplexChildTypes(fc, ctype);
+    private FChoice generateChoice(SchemaNode ctype) {
+        FChoice fc = new FChoice(ctype.getAttribute("name"));
+        beginType(ctype, fc);
+        SchemaNode choice = ctype.getChild("choice");
+        handleComplexTypeChildElements(fc, choice.getChildren("element"));
+        handleComplexTypeChildAnys(fc, choice.getChildren("any"));
+        handleComplexTypeAttributes(fc, ctype.getChildren("attribute"));
+        handleComplexChildTypes(fc, choice);
         initObject(fc);
         return fc;
     }
@@ -610,13 +612,11 @@ public class FSchemaTypeFactory {
      * @param fct
      * @param elements
      */
-    private void handleComplexTypeChildElements(FComplexType fct, Element[] elements) {
-        if (elements != null) {
-            for (Element elem : elements) {
-                FElement ee = generateElement(elem);
-                if (ee != null) {
-                    fct.addChildObject(ee);
-                }
+    private void handleComplexTypeChildElements(FComplexType fct, List<? extends SchemaNode> elements) {
+        for (SchemaNode elem : elements) {
+            FElement ee = generateElement(elem);
+            if (ee != null) {
+                fct.addChildObject(ee);
             }
         }
     }
@@ -625,22 +625,18 @@ public class FSchemaTypeFactory {
      * @param fct
      * @param anys
      */
-    private void handleComplexTypeChildElements(FComplexType fct, Any[] anys) {
-        if (anys != null) {
-            for (Any a : anys) {
+    private void handleComplexTypeChildAnys(FComplexType fct, List<? extends SchemaNode> anys) {
+        if (!anys.isEmpty()) {
+            // the neighbours are computed once per model group and shared by its wildcards
+            AnySiblings siblings = null;
+            for (SchemaNode a : anys) {
+                if (siblings == null || !siblings.contains(a)) {
+                    siblings = AnySiblings.of(a.getParent());
+                }
                 elemTrace.push("any");
-                FElement ee = generateElement(a);
+                FElement ee = generateAnyElement(a, siblings);
                 if (ee != null) {
-                    String prev = null;
-                    Node n = a.getDomNode().getPreviousSibling();
-                    while (n != null) {
-                        if (n.getNodeType() == Node.ELEMENT_NODE) {
-                            prev = n.getLocalName();
-                            break;
-                        }
-                        n = n.getPreviousSibling();
-                    }
-                    fct.addChildObjectAfter(ee, prev);
+                    fct.addChildObjectAfter(ee, siblings.getPreviousElementName(a));
                 }
             }
             while (!elemTrace.isEmpty()) {
@@ -654,15 +650,17 @@ public class FSchemaTypeFactory {
     }
 
     /**
+     * Adds the nested sequences and choices of a model group.
+     * 
      * @param fct
-     * @param ctype
+     * @param group
      */
-    private void handleComplexChildTypes(FComplexType fct, ComplexType ctype) {
-        for (ExplicitGroup eg : schemaHelper.getChildSequences(ctype)) {
-            fct.addChildObject(initObject(new FSequence(eg.getName())));
+    private void handleComplexChildTypes(FComplexType fct, SchemaNode group) {
+        for (SchemaNode eg : group.getChildren("sequence")) {
+            fct.addChildObject(initObject(new FSequence(eg.getAttribute("name"))));
         }
-        for (ExplicitGroup eg : schemaHelper.getChildChoices(ctype)) {
-            fct.addChildObject(initObject(new FChoice(eg.getName())));
+        for (SchemaNode eg : group.getChildren("choice")) {
+            fct.addChildObject(initObject(new FChoice(eg.getAttribute("name"))));
         }
     }
 
@@ -670,10 +668,10 @@ public class FSchemaTypeFactory {
      * @param fct
      * @param attributes
      */
-    private void handleComplexTypeAttributes(FComplexType fct, Attribute[] attributes) {
-        for (Attribute attr : attributes) {
-            SchemaType st = SchemaHelper.getSchemaType(attr.getType());
-            QName type = attr.getType();
+    private void handleComplexTypeAttributes(FComplexType fct, List<? extends SchemaNode> attributes) {
+        for (SchemaNode attr : attributes) {
+            QName type = attr.getQNameAttribute("type");
+            SchemaType st = SchemaHelper.getSchemaType(type);
 
             FSchemaType ft;
             if (st.getSimpleVariety() == SchemaType.ATOMIC) {
@@ -682,9 +680,9 @@ public class FSchemaTypeFactory {
                 throw new UnhandledSimpleVarietyException("SimpleVariety not handled: " + st.getSimpleVariety());
             }
 
-            FSchemaAttribute a = new FSchemaAttribute(attr.getName(), ft);
+            FSchemaAttribute a = new FSchemaAttribute(attr.getAttribute("name"), ft);
             initObject(a);
-            a.setRequired(attr.isSetUse() && attr.getUse().toString().equals("required"));
+            a.setRequired("required".equals(attr.getAttribute("use")));
             fct.addAttribute(a);
         }
     }
@@ -693,13 +691,13 @@ public class FSchemaTypeFactory {
      * @param ctype
      * @return
      */
-    private FComplexType generateSimpleContentCT(ComplexType ctype) {
-        SimpleContent simpleContent = ctype.getSimpleContent();
+    private FComplexType generateSimpleContentCT(SchemaNode ctype) {
+        SchemaNode simpleContent = ctype.getChild("simpleContent");
         FComplexType fct = null;
-        if (simpleContent.isSetExtension()) {
-            fct = generateSimpleContentExtension(simpleContent);
-        } else if (simpleContent.isSetRestriction()) {
-            fct = generateSimpleContentRestriction(simpleContent);
+        if (simpleContent.isSetChild("extension")) {
+            fct = generateSimpleContentExtension(simpleContent.getChild("extension"));
+        } else if (simpleContent.isSetChild("restriction")) {
+            fct = generateSimpleContentRestriction(simpleContent.getChild("restriction"));
         }
 
         if (fct != null) {
@@ -710,34 +708,30 @@ public class FSchemaTypeFactory {
     }
 
     /**
-     * @param simpleContent
+     * @param extension
      * @return
      */
-    private FComplexType generateSimpleContentExtension(SimpleContent simpleContent) {
+    private FComplexType generateSimpleContentExtension(SchemaNode extension) {
 
         FComplexType fct = new FSequence();
-        SimpleExtensionType extension = simpleContent.getExtension();
-        SchemaType st_base = SchemaHelper.getSchemaType(extension.getBase());
-        QName type = extension.getBase();
+        QName type = extension.getQNameAttribute("base");
+        SchemaType st_base = SchemaHelper.getSchemaType(type);
 
         FSimpleType fst = generateSimpleTypeFromBTC(st_base.getBuiltinTypeCode(), type.getNamespaceURI(), type.getLocalPart());
         fct.addChildObject(initObject(new FElement("value", fst)));
 
-        if (extension.sizeOfAttributeArray() > 0) {
-            handleComplexTypeAttributes(fct, extension.getAttributeArray());
-        }
+        handleComplexTypeAttributes(fct, extension.getChildren("attribute"));
 
         initObject(fct);
         return fct;
     }
 
     /**
-     * @param simpleContent
+     * @param restriction
      * @return
      */
-    private FComplexType generateSimpleContentRestriction(SimpleContent simpleContent) {
+    private FComplexType generateSimpleContentRestriction(SchemaNode restriction) {
         FComplexType fct = new FSequence();
-        SimpleRestrictionType restriction = simpleContent.getRestriction();
         FSimpleType fst = generateSimpleRestrictionType(restriction);
         fct.addChildObject(initObject(new FElement("value", fst)));
         initObject(fct);
@@ -748,45 +742,69 @@ public class FSchemaTypeFactory {
      * @param ctype
      * @return
      */
-    private FComplexType generateComplexContentCT(ComplexType ctype) {
+    private FComplexType generateComplexContentCT(SchemaNode ctype) {
         // TODO: Marco: xs:complexContent: Not yet implemented!
         log.error("xs:complexContent: Not yet implemented!");
         return null;
     }
 
     /**
+     * Registers a top-level type. If a type of the same name is already registered, the first one is kept.
+     * 
      * @param ftype
      */
     private void addTopLevelType(FSchemaType ftype) {
-        // lazy instantiation
-        if (topLevelTypes == null) {
-            topLevelTypes = new LinkedList<FSchemaType>();
+        if (getTopLevelType(ftype.getName()) == null) {
+            topLevelTypes.put(ftype.getName(), ftype);
         }
-        topLevelTypes.add(ftype);
     }
 
     // --------------------------------------------------------------------
 
     /**
+     * Returns the registered top-level type of the given name. The returned node is shared and must not be modified;
+     * use {@link #copyIfShared(FSchemaType)} to obtain a modifiable copy.
+     * 
      * @param typeName
      * @return
      */
     private FSchemaType getTopLevelType(String typeName) {
-        FSchemaType ftype = null;
-        if (topLevelTypes != null) {
-            for (FSchemaType f : topLevelTypes) {
-                if (f.getName().equals(typeName)) {                  
-                    ftype = f.clone();
-                    break;
-                }
+        FSchemaType ftype = topLevelTypes.get(typeName);
+        if (ftype == null) {
+            ftype = sharedTypes.get(typeName);
+            if (ftype != null) {
+                // a single factory would have built the type here, if nothing did before
+                IdBlock.reference(ftype);
             }
         }
         return ftype;
     }
 
-    private boolean isMaxDepthReached(Stack<String> trace, String name) {
-        int count = getNameCount(trace, name);
-        return (count >= DefaultValues.CYCLE_MAX_DEPTH);
+    /**
+     * Marks a complex type as being built, so recursive references to it resolve to the given node.
+     * 
+     * @param ctype
+     * @param fct
+     *            the node under construction
+     */
+    private void beginType(SchemaNode ctype, FComplexType fct) {
+        typesInProgress.put(ctype, fct);
+        fschema.getStatistics().updateNestingDepth(typesInProgress.size());
+    }
+
+    /**
+     * Returns a copy of the given type if it is a registered top-level type, or the type itself if it was built for
+     * exclusive use by the caller.
+     * 
+     * @param ftype
+     * @return a type that may be modified by the caller
+     */
+    private FSchemaType copyIfShared(FSchemaType ftype) {
+        if (ftype != null && getTopLevelType(ftype.getName()) == ftype) {
+            fschema.getStatistics().addClone();
+            return ftype.clone();
+        }
+        return ftype;
     }
 
     private int getElemNameCount(String elemName) {
@@ -814,6 +832,25 @@ public class FSchemaTypeFactory {
      * by this method would not have any valid value for these fields.
      */
     public FSimpleType generateSimpleTypeFromBTC(int builtinTypeCode, String namespace, String name) {
+        FSimpleType fst = createBuiltinType(builtinTypeCode);
+
+        initObject(fst);
+
+        // seidel: Added these two lines
+        fst.setNamespace(namespace);
+        fst.setName(name);
+
+        return fst;
+    }
+
+    /**
+     * Creates an empty simple type object for an XML Schema built-in type.
+     * 
+     * @param builtinTypeCode
+     *            one of the <code>SchemaType.BTC_*</code> constants
+     * @return
+     */
+    static FSimpleType createBuiltinType(int builtinTypeCode) {
         FSimpleType fst = null;
 
         switch (builtinTypeCode) {
@@ -971,12 +1008,6 @@ public class FSchemaTypeFactory {
                         "This shouldn't happen. If it does, someone has forgotten to add a case statement here");
         }
 
-        initObject(fst);
-
-        // seidel: Added these two lines
-        fst.setNamespace(namespace);
-        fst.setName(name);
-
         return fst;
     }
 
@@ -984,6 +1015,24 @@ public class FSchemaTypeFactory {
         return namespace;
     }
 
+    /**
+     * Returns the top-level types built by this factory, in the order they were registered.
+     * 
+     * @return
+     */
+    Map<String, FSchemaType> getTopLevelTypes() {
+        return topLevelTypes;
+    }
+
+    /**
+     * Sets the top-level types built by other factories. The map is not modified by this factory.
+     * 
+     * @param sharedTypes
+     */
+    void setSharedTypes(Map<String, FSchemaType> sharedTypes) {
+        this.sharedTypes = sharedTypes;
+    }
+
     public void setNamespace(String namespace) {
         this.namespace = namespace;
     }
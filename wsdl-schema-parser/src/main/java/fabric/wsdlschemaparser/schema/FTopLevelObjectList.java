@@ -26,6 +26,7 @@
  */
 package fabric.wsdlschemaparser.schema;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -34,9 +35,11 @@ import java.util.List;
 import org.slf4j.LoggerFactory;
 
 
-public class FTopLevelObjectList {
+public class FTopLevelObjectList implements Serializable {
 	private static final org.slf4j.Logger log = LoggerFactory.getLogger(FTopLevelObjectList.class);
 
+	private static final long serialVersionUID = 1L;
+
     private final String targetNamespace;
 
 	private List<FElement> topLevelElements;
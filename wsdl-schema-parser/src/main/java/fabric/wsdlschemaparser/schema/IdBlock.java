@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ * 
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ * 
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the Schema objects created by one thread independently of all other threads. Objects are numbered in the
+ * order of their creation with the negative IDs -1, -2, ...; once all blocks of a tree are complete,
+ * {@link #number(List, Map, Map)} moves the numbers into the global ID range. Besides its own objects, a block records
+ * where it referenced objects of other blocks (see {@link #reference(FSchemaObject)}). These are numbered at that
+ * point, as a single thread would have created them there. This way the IDs of a tree built by several threads do not
+ * depend on their scheduling.
+ * 
+ * A block may instead hand out one fixed ID to all objects created in it (see {@link #fixed(int)}). This is used for
+ * constants shared by all trees.
+ * 
+ * @see FSchemaObject#getID()
+ */
+final class IdBlock {
+
+    private static final ThreadLocal<IdBlock> current = new ThreadLocal<IdBlock>();
+
+    /** The objects created in this block, copies made of unnumbered objects, and referenced objects of other blocks. */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    private final boolean fixed;
+
+    private final int fixedID;
+
+    private int count = 0;
+
+    private boolean numbered = false;
+
+    /** The block of the current thread when {@link #begin()} was called. */
+    private IdBlock previous;
+
+    IdBlock() {
+        this(false, 0);
+    }
+
+    private IdBlock(boolean fixed, int fixedID) {
+        this.fixed = fixed;
+        this.fixedID = fixedID;
+    }
+
+    /**
+     * Creates a block which gives the same ID to all objects created in it. These objects are never renumbered.
+     * 
+     * @param id
+     *            an ID which is not used by the objects of any tree
+     * @return the block
+     */
+    static IdBlock fixed(int id) {
+        return new IdBlock(true, id);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns the block numbering the objects created by the current thread.
+     * 
+     * @return the block, or <code>null</code> if objects are numbered globally
+     */
+    static IdBlock current() {
+        return current.get();
+    }
+
+    /**
+     * Numbers all objects created by the current thread with this block, until {@link #end()} is called.
+     */
+    void begin() {
+        previous = current.get();
+        current.set(this);
+    }
+
+    /**
+     * Returns to the numbering which was in effect when {@link #begin()} was called.
+     */
+    void end() {
+        if (previous != null) {
+            current.set(previous);
+            previous = null;
+        } else {
+            current.remove();
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    int allocate(FSchemaObject object) {
+        if (fixed) {
+            return fixedID;
+        }
+        entries.add(new Entry(Entry.CREATED, object, null));
+        return -(++count);
+    }
+
+    /**
+     * Registers a copy of an object, which keeps the ID of the original. Copies of objects which have not been
+     * numbered yet are renumbered along with the original.
+     * 
+     * @param original
+     * @param copy
+     */
+    static void track(FSchemaObject original, FSchemaObject copy) {
+        IdBlock block = current();
+        if (block != null && !block.fixed && original.getID() < 0) {
+            block.entries.add(new Entry(Entry.COPY, copy, original));
+        }
+    }
+
+    /**
+     * Records that the current thread uses an object which may have been created in another block. If that block has
+     * not been numbered yet when this point is reached, it is numbered here.
+     * 
+     * @param object
+     */
+    static void reference(FSchemaObject object) {
+        IdBlock block = current();
+        if (block != null && !block.fixed && object.getID() < 0) {
+            block.entries.add(new Entry(Entry.REFERENCE, object, null));
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Renumbers the objects of the given blocks and releases the blocks. The blocks are numbered in the given order,
+     * except that a block is numbered at the first point another block references one of its objects, if that comes
+     * first. Replaced objects, and copies of them, get the ID of their replacement.
+     * 
+     * @param blocks
+     *            the blocks of a tree, in the order a single thread would have created them
+     * @param owners
+     *            maps from referenced objects to the blocks they were created in
+     * @param replacements
+     *            maps from objects which were created more than once to the object replacing them
+     */
+    static void number(List<IdBlock> blocks, Map<? extends FSchemaObject, IdBlock> owners,
+            Map<? extends FSchemaObject, ? extends FSchemaObject> replacements) {
+        int size = 0;
+        for (IdBlock block : blocks) {
+            size += block.count;
+        }
+
+        int nextID = FSchemaObject.allocateIDs(size);
+        for (IdBlock block : blocks) {
+            nextID = block.place(nextID, owners);
+        }
+
+        Map<FSchemaObject, FSchemaObject> originals = new IdentityHashMap<FSchemaObject, FSchemaObject>();
+        for (IdBlock block : blocks) {
+            for (Entry entry : block.entries) {
+                if (entry.kind == Entry.COPY) {
+                    originals.put(entry.object, entry.original);
+                }
+            }
+        }
+        for (IdBlock block : blocks) {
+            for (Entry entry : block.entries) {
+                if (entry.kind != Entry.REFERENCE) {
+                    entry.object.setID(resolve(entry.object, originals, replacements));
+                }
+            }
+            block.entries.clear();
+        }
+    }
+
+    /**
+     * Numbers the objects created in this block and in the blocks it references first.
+     * 
+     * @return the first ID following the numbered objects
+     */
+    private int place(int nextID, Map<? extends FSchemaObject, IdBlock> owners) {
+        if (numbered) {
+            return nextID;
+        }
+        numbered = true;
+
+        for (Entry entry : entries) {
+            if (entry.kind == Entry.CREATED) {
+                entry.object.setID(nextID++);
+            } else if (entry.kind == Entry.REFERENCE) {
+                IdBlock owner = owners.get(entry.object);
+                if (owner != null) {
+                    nextID = owner.place(nextID, owners);
+                }
+            }
+        }
+        return nextID;
+    }
+
+    /**
+     * Returns the ID of the object a copy or replaced object stands for.
+     */
+    private static int resolve(FSchemaObject object, Map<FSchemaObject, FSchemaObject> originals,
+            Map<? extends FSchemaObject, ? extends FSchemaObject> replacements) {
+        FSchemaObject o = object;
+        while (true) {
+            FSchemaObject next = replacements.get(o);
+            if (next == null) {
+                next = originals.get(o);
+            }
+            if (next == null) {
+                return o.getID();
+            }
+            o = next;
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    private static final class Entry {
+        static final int CREATED = 0;
+
+        static final int COPY = 1;
+
+        static final int REFERENCE = 2;
+
+        final int kind;
+
+        final FSchemaObject object;
+
+        /** The object a copy was made of. */
+        final FSchemaObject original;
+
+        Entry(int kind, FSchemaObject object, FSchemaObject original) {
+            this.kind = kind;
+            this.object = object;
+            this.original = original;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interns the local names, namespace URIs and prefixes used by the Schema objects of one {@link FSchema} object.
+ * XMLBeans returns a new string every time a name is read, so without interning every element, type and attribute
+ * of the tree would hold its own copy of e.g. the target namespace.
+ * <p>
+ * Unlike {@link String#intern()}, the pool is dropped together with its FSchema object. It may be used by several
+ * threads at once.
+ */
+final class NamePool {
+
+    /**
+     * Rough size of a string apart from its characters (object header, fields and character array header).
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns the pooled string equal to the given one, adding it to the pool if there is none.
+     * 
+     * @param s
+     *            the string, may be <code>null</code>
+     * @return the pooled string, or <code>null</code> if <code>s</code> is <code>null</code>
+     */
+    String intern(String s) {
+        if (s == null)
+            return null;
+
+        lookups.incrementAndGet();
+        String pooled = strings.putIfAbsent(s, s);
+        if (pooled == null)
+            return s;
+
+        if (pooled != s) {
+            duplicates.incrementAndGet();
+            savedBytes.addAndGet(STRING_OVERHEAD + 2L * s.length());
+        }
+        return pooled;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * @return the number of distinct strings in the pool
+     */
+    int size() {
+        return strings.size();
+    }
+
+    /**
+     * @return the number of strings passed to {@link #intern(String)}
+     */
+    long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * @return the number of copies which were replaced by a pooled string
+     */
+    long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return an estimate of the memory held by the replaced copies, in bytes
+     */
+    long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return size() + " distinct strings, " + getDuplicates() + " of " + getLookups()
+                + " lookups deduplicated, about " + getSavedBytes() / 1024 + " KiB saved";
+    }
+}
@@ -0,0 +1,622 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the Schema object tree of a set of schemata on several threads.
+ * 
+ * The top-level components are built in the order they use each other. Before the threads start, every declaration is
+ * scanned for the names of the types and elements it refers to. Components which have to be built by the same factory
+ * to get the result of a single factory are grouped into one task: components which refer to each other (directly or
+ * through a cycle), the types of one name, and the components referencing an element together with the element, as a
+ * reference registers the type of the element under its name. A task runs in a round after the tasks of the types it
+ * uses and sees the types they built, so every type is built exactly once.
+ * 
+ * The tasks of a round are independent of each other; their factories do not share any mutable state. Should two
+ * tasks still build a type of the same name (e.g. one a scan could not foresee), the types are merged in component
+ * order, the first type of a name winning as in a single factory, and references to the other one are redirected to
+ * the winning one. Object IDs are assigned per component (see {@link IdBlock}) and numbered in the order a single
+ * factory would have created the objects, so the resulting tree does not depend on the scheduling of the threads.
+ * 
+ * @see FSchema#THREADS_PROPERTY
+ */
+final class ParallelSchemaTreeBuilder {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(ParallelSchemaTreeBuilder.class);
+
+    private final FSchema fschema;
+
+    private final Collection<Schema> schemata;
+
+    private final int threads;
+
+    /** The merged top-level types of all factories. */
+    private final Map<String, FSchemaType> topLevelTypes = new LinkedHashMap<String, FSchemaType>();
+
+    /** Types which were built more than once, and their restrictions, mapped to the registered ones. */
+    private final Map<FSchemaObject, FSchemaObject> replacements = new IdentityHashMap<FSchemaObject, FSchemaObject>();
+
+    /** The ID blocks of the components which built the registered types. */
+    private final Map<FSchemaType, IdBlock> owners = new IdentityHashMap<FSchemaType, IdBlock>();
+
+    public ParallelSchemaTreeBuilder(FSchema fschema, Collection<Schema> schemata, int threads) {
+        this.fschema = fschema;
+        this.schemata = schemata;
+        this.threads = threads;
+    }
+
+    // --------------------------------------------------------------------
+
+    public FTopLevelObjectList build() throws Exception {
+        // all components in the order of a single factory
+        List<Component> components = new ArrayList<Component>();
+        Map<Schema, List<Component>> typeComponents = new LinkedHashMap<Schema, List<Component>>();
+        Map<Schema, List<Component>> elementComponents = new LinkedHashMap<Schema, List<Component>>();
+        for (Schema schema : schemata) {
+            List<Component> types = new ArrayList<Component>();
+            for (TopLevelSimpleType stype : schema.getSimpleTypeArray()) {
+                types.add(new Component(components.size() + types.size(), schema, stype, stype.getName()));
+            }
+            for (TopLevelComplexType ctype : schema.getComplexTypeArray()) {
+                types.add(new Component(components.size() + types.size(), schema, ctype, ctype.getName()));
+            }
+            typeComponents.put(schema, types);
+            components.addAll(types);
+
+            List<Component> elements = new ArrayList<Component>();
+            for (TopLevelElement elem : schema.getElementArray()) {
+                elements.add(new Component(components.size() + elements.size(), schema, elem, elem.getName()));
+            }
+            elementComponents.put(schema, elements);
+            components.addAll(elements);
+        }
+
+        List<List<ComponentTask>> rounds = planTasks(components);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "schema-tree-builder");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (List<ComponentTask> round : rounds) {
+                log.debug("Building {} groups of top-level components on {} threads", round.size(), threads);
+                runAll(executor, round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<IdBlock> blocks = new ArrayList<IdBlock>();
+        for (Component component : components) {
+            blocks.add(component.ids);
+        }
+        IdBlock.number(blocks, owners, replacements);
+
+        /*
+         * Assemble the list in the order of a single factory. The elements are added cumulatively, as
+         * FSchemaTypeFactory.generateAll(TopLevelElement[]) returns all elements generated so far.
+         */
+        FTopLevelObjectList topLevelObjects = new FTopLevelObjectList(schemata.iterator().next().getTargetNamespace());
+        List<FSchemaObject> elements = new ArrayList<FSchemaObject>();
+        Set<FSchemaObject> visited = Collections.newSetFromMap(new IdentityHashMap<FSchemaObject, Boolean>());
+        for (Schema schema : schemata) {
+            for (Component component : typeComponents.get(schema)) {
+                for (FSchemaObject o : component.result) {
+                    FSchemaType ftype = resolve((FSchemaType) o, component.declaration);
+                    relink(ftype, visited);
+                    topLevelObjects.add(ftype);
+                }
+            }
+            for (Component component : elementComponents.get(schema)) {
+                for (FSchemaObject o : component.result) {
+                    relink(o, visited);
+                    elements.add(o);
+                }
+            }
+            topLevelObjects.addAll(elements);
+        }
+
+        return topLevelObjects;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Groups the components into tasks and orders the tasks into rounds, so that the types a task uses are built in
+     * earlier rounds or by the task itself.
+     * 
+     * Types are identified by their local name, as in {@link FSchemaTypeFactory}. The names a component uses are those
+     * of the types it refers to, of the elements it references, and of its elements without a type, as such elements
+     * use the top-level type of their name if one has been built.
+     * 
+     * @param components
+     *            all components, in the order of a single factory
+     * @return the tasks of each round
+     */
+    private List<List<ComponentTask>> planTasks(List<Component> components) {
+        Map<String, List<Component>> elementDeclarations = new HashMap<String, List<Component>>();
+        for (Component component : components) {
+            if (component.declaration instanceof TopLevelElement) {
+                List<Component> declarations = elementDeclarations.get(component.name);
+                if (declarations == null) {
+                    declarations = new ArrayList<Component>();
+                    elementDeclarations.put(component.name, declarations);
+                }
+                declarations.add(component);
+            }
+        }
+
+        // components which have to share a factory, and the component registering each type name
+        UnionFind groups = new UnionFind(components.size());
+        Map<String, Component> providers = new HashMap<String, Component>();
+        List<Set<String>> uses = new ArrayList<Set<String>>();
+        for (Component component : components) {
+            Set<String> names = new LinkedHashSet<String>();
+            Set<String> references = new LinkedHashSet<String>();
+            scan(new XmlBeansSchemaNode(component.declaration), names, references);
+            uses.add(names);
+
+            if (!(component.declaration instanceof TopLevelElement)) {
+                provide(providers, groups, component.name, component);
+            }
+            for (String reference : references) {
+                List<Component> declarations = elementDeclarations.get(reference);
+                if (declarations != null) {
+                    for (Component element : declarations) {
+                        groups.union(component.position, element.position);
+                        provide(providers, groups, reference, element);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Group> byRoot = new LinkedHashMap<Integer, Group>();
+        for (Component component : components) {
+            int root = groups.find(component.position);
+            Group group = byRoot.get(root);
+            if (group == null) {
+                group = new Group();
+                byRoot.put(root, group);
+            }
+            group.components.add(component);
+            group.names.addAll(uses.get(component.position));
+        }
+        for (Group group : byRoot.values()) {
+            for (String name : group.names) {
+                Component provider = providers.get(name);
+                if (provider != null) {
+                    Group used = byRoot.get(groups.find(provider.position));
+                    if (used != group) {
+                        group.uses.add(used);
+                    }
+                }
+            }
+        }
+
+        // groups which use each other are merged; they are found in the order they can be built
+        List<List<Group>> cycles = new ArrayList<List<Group>>();
+        Tarjan tarjan = new Tarjan(cycles);
+        for (Group group : byRoot.values()) {
+            if (group.index < 0) {
+                tarjan.visit(group);
+            }
+        }
+
+        List<List<ComponentTask>> rounds = new ArrayList<List<ComponentTask>>();
+        for (List<Group> cycle : cycles) {
+            int round = 0;
+            List<Component> members = new ArrayList<Component>();
+            for (Group group : cycle) {
+                for (Group used : group.uses) {
+                    if (used.cycle != cycle) {
+                        round = Math.max(round, used.round + 1);
+                    }
+                }
+                members.addAll(group.components);
+            }
+            for (Group group : cycle) {
+                group.round = round;
+            }
+            Collections.sort(members);
+
+            while (rounds.size() <= round) {
+                rounds.add(new ArrayList<ComponentTask>());
+            }
+            rounds.get(round).add(new ComponentTask(members));
+        }
+        log.debug("Building {} top-level components in {} rounds", components.size(), rounds.size());
+        return rounds;
+    }
+
+    /**
+     * Records that a component registers a type of the given name. All components registering a name share one
+     * factory, which keeps the first of them as a single factory would.
+     */
+    private static void provide(Map<String, Component> providers, UnionFind groups, String name, Component component) {
+        Component provider = providers.get(name);
+        if (provider == null) {
+            providers.put(name, component);
+        } else {
+            groups.union(provider.position, component.position);
+        }
+    }
+
+    /**
+     * Collects the names of the types and elements a declaration refers to.
+     */
+    private static void scan(SchemaNode node, Set<String> names, Set<String> references) {
+        String kind = node.getName();
+        if ("annotation".equals(kind)) {
+            return;
+        }
+
+        for (String attribute : new String[] { "type", "base", "itemType" }) {
+            String value = node.getAttribute(attribute);
+            if (value != null) {
+                names.add(localPart(value));
+            }
+        }
+        String memberTypes = node.getAttribute("memberTypes");
+        if (memberTypes != null) {
+            for (String value : memberTypes.trim().split("\\s+")) {
+                names.add(localPart(value));
+            }
+        }
+
+        if ("element".equals(kind)) {
+            String ref = node.getAttribute("ref");
+            if (ref != null) {
+                names.add(localPart(ref));
+                references.add(localPart(ref));
+            } else if (!node.isSetAttribute("type") && node.isSetAttribute("name")) {
+                names.add(node.getAttribute("name"));
+            }
+        }
+
+        for (SchemaNode child : node.getChildren()) {
+            scan(child, names, references);
+        }
+    }
+
+    private static String localPart(String qname) {
+        String name = qname.trim();
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Runs one round of tasks, then merges their results.
+     */
+    private void runAll(ExecutorService executor, List<ComponentTask> tasks) throws Exception {
+        Map<String, FSchemaType> sharedTypes = Collections.unmodifiableMap(new LinkedHashMap<String, FSchemaType>(
+                topLevelTypes));
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (ComponentTask task : tasks) {
+            task.sharedTypes = sharedTypes;
+            futures.add(executor.submit(task));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception)
+                    throw (Exception) cause;
+                throw e;
+            }
+        }
+
+        List<Component> components = new ArrayList<Component>();
+        for (ComponentTask task : tasks) {
+            components.addAll(task.components);
+        }
+        Collections.sort(components);
+
+        for (Component component : components) {
+            for (FSchemaType ftype : component.registered) {
+                FSchemaType registered = topLevelTypes.get(ftype.getName());
+                if (registered == null) {
+                    topLevelTypes.put(ftype.getName(), ftype);
+                    owners.put(ftype, component.ids);
+                } else if (registered != ftype) {
+                    log.debug("Top-level type {} has been built more than once", ftype.getName());
+                    replacements.put(ftype, registered);
+                    replacements.put(ftype.getRestrictions(), registered.getRestrictions());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the type a single factory would have returned for a top-level type declaration: the registered type of
+     * the same name and kind, if any.
+     */
+    private FSchemaType resolve(FSchemaType ftype, XmlObject declaration) {
+        FSchemaType registered = topLevelTypes.get(ftype.getName());
+        if (declaration instanceof TopLevelSimpleType && registered instanceof FSimpleType) {
+            return registered;
+        }
+        if (declaration instanceof TopLevelComplexType && registered instanceof FComplexType) {
+            return registered;
+        }
+        return ftype;
+    }
+
+    /**
+     * Redirects all references to types which were built more than once to the registered type.
+     */
+    private void relink(FSchemaObject o, Set<FSchemaObject> visited) {
+        if (!visited.add(o)) {
+            return;
+        }
+
+        if (o instanceof FElement) {
+            FElement element = (FElement) o;
+            FSchemaObject replacement = replacements.get(element.getSchemaType());
+            if (replacement != null) {
+                element.setSchemaType((FSchemaType) replacement);
+            }
+            relink(element.getSchemaType(), visited);
+        } else if (o instanceof FList) {
+            FList list = (FList) o;
+            FSchemaObject replacement = replacements.get(list.getItemType());
+            if (replacement != null) {
+                list.setItemType((FSimpleType) replacement);
+            }
+        } else if (o instanceof FComplexType) {
+            for (FSchemaObject child : ((FComplexType) o).getChildObjects()) {
+                relink(child, visited);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * A top-level type or element declaration.
+     */
+    private static final class Component implements Comparable<Component> {
+
+        /** The position of the component in the order of a single factory. */
+        private final int position;
+
+        private final Schema schema;
+
+        private final XmlObject declaration;
+
+        private final String name;
+
+        private final IdBlock ids = new IdBlock();
+
+        private Collection<? extends FSchemaObject> result = Collections.emptyList();
+
+        /** The types registered while building the component. */
+        private final List<FSchemaType> registered = new ArrayList<FSchemaType>();
+
+        Component(int position, Schema schema, XmlObject declaration, String name) {
+            this.position = position;
+            this.schema = schema;
+            this.declaration = declaration;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Component other) {
+            return (position < other.position) ? -1 : ((position == other.position) ? 0 : 1);
+        }
+    }
+
+    /**
+     * Components which have to be built by the same factory.
+     */
+    private static final class Group {
+
+        private final List<Component> components = new ArrayList<Component>();
+
+        /** The names of the types and elements the components use. */
+        private final Set<String> names = new LinkedHashSet<String>();
+
+        /** The groups registering these names. */
+        private final Set<Group> uses = new LinkedHashSet<Group>();
+
+        private int index = -1;
+
+        private int lowLink;
+
+        private boolean onStack;
+
+        private List<Group> cycle;
+
+        private int round;
+    }
+
+    /**
+     * Disjoint sets of components, by position.
+     */
+    private static final class UnionFind {
+
+        private final int[] parents;
+
+        UnionFind(int size) {
+            parents = new int[size];
+            for (int i = 0; i < size; i++) {
+                parents[i] = i;
+            }
+        }
+
+        int find(int i) {
+            int root = i;
+            while (parents[root] != root) {
+                root = parents[root];
+            }
+            while (parents[i] != root) {
+                int parent = parents[i];
+                parents[i] = root;
+                i = parent;
+            }
+            return root;
+        }
+
+        void union(int i, int j) {
+            int a = find(i);
+            int b = find(j);
+            // the first component stays the representative
+            if (a < b) {
+                parents[b] = a;
+            } else if (b < a) {
+                parents[a] = b;
+            }
+        }
+    }
+
+    /**
+     * Tarjan's algorithm for the strongly connected components of the graph of groups using each other. The
+     * components are found in reverse topological order, i.e. a cycle is found after all groups it uses.
+     */
+    private static final class Tarjan {
+
+        private final List<List<Group>> cycles;
+
+        private final List<Group> stack = new ArrayList<Group>();
+
+        private int index = 0;
+
+        Tarjan(List<List<Group>> cycles) {
+            this.cycles = cycles;
+        }
+
+        void visit(Group group) {
+            group.index = index;
+            group.lowLink = index;
+            index++;
+            stack.add(group);
+            group.onStack = true;
+
+            for (Group used : group.uses) {
+                if (used.index < 0) {
+                    visit(used);
+                    group.lowLink = Math.min(group.lowLink, used.lowLink);
+                } else if (used.onStack) {
+                    group.lowLink = Math.min(group.lowLink, used.index);
+                }
+            }
+
+            if (group.lowLink == group.index) {
+                List<Group> cycle = new ArrayList<Group>();
+                Group member;
+                do {
+                    member = stack.remove(stack.size() - 1);
+                    member.onStack = false;
+                    member.cycle = cycle;
+                    cycle.add(member);
+                } while (member != group);
+                cycles.add(cycle);
+            }
+        }
+    }
+
+    /**
+     * Builds a group of top-level components with a factory of its own.
+     */
+    private final class ComponentTask implements Callable<Void> {
+
+        private final List<Component> components;
+
+        private Map<String, FSchemaType> sharedTypes;
+
+        ComponentTask(List<Component> components) {
+            this.components = components;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            FSchemaTypeFactory factory = new FSchemaTypeFactory(fschema, schemata);
+            factory.setSharedTypes(sharedTypes);
+            int elementCount = 0;
+
+            for (Component component : components) {
+                factory.setNamespace(component.schema.getTargetNamespace());
+                int known = factory.getTopLevelTypes().size();
+
+                component.ids.begin();
+                try {
+                    XmlObject declaration = component.declaration;
+                    if (declaration instanceof TopLevelSimpleType) {
+                        component.result = factory.generateAll(new TopLevelSimpleType[] {
+                                (TopLevelSimpleType) declaration });
+                    } else if (declaration instanceof TopLevelComplexType) {
+                        component.result = factory.generateAll(new TopLevelComplexType[] {
+                                (TopLevelComplexType) declaration });
+                    } else {
+                        // the factory returns all elements it generated so far
+                        List<FElement> elements = new ArrayList<FElement>(factory.generateAll(new TopLevelElement[] {
+                                (TopLevelElement) declaration }));
+                        component.result = elements.subList(elementCount, elements.size());
+                        elementCount = elements.size();
+                    }
+                } finally {
+                    component.ids.end();
+                }
+
+                int i = 0;
+                for (FSchemaType ftype : factory.getTopLevelTypes().values()) {
+                    if (i++ >= known) {
+                        component.registered.add(ftype);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
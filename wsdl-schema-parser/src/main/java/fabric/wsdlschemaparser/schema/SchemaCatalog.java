@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Maps namespaces and remote schema locations to local copies of the schema documents, so that imports can be
+ * resolved without network access.
+ * 
+ * The mappings are read from OASIS XML catalog files (<code>uri</code>, <code>system</code>, <code>rewriteURI</code>,
+ * <code>rewriteSystem</code>, <code>group</code> and <code>nextCatalog</code> entries) and from mirror directories. A
+ * mirror directory holds a copy of remote documents under their host name and path, e.g. the document for
+ * <code>http://schemas.xmlsoap.org/soap/encoding/</code> is expected at
+ * <code>schemas.xmlsoap.org/soap/encoding.xsd</code>. The catalog bundled with Fabric, which covers well-known
+ * namespaces like SOAP encoding and WSDL 1.1, is always consulted last.
+ * 
+ * Lookups are memoized; catalogs and mirrors are expected not to change while they are in use.
+ */
+public class SchemaCatalog {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(SchemaCatalog.class);
+
+    /**
+     * The system property listing catalog files to use by default, separated by {@link File#pathSeparator}.
+     */
+    public static final String CATALOG_PROPERTY = "fabric.wsdlschemaparser.catalog";
+
+    /**
+     * The system property listing mirror directories to use by default, separated by {@link File#pathSeparator}.
+     */
+    public static final String MIRROR_PROPERTY = "fabric.wsdlschemaparser.mirror";
+
+    /** The namespace of OASIS XML catalog files. */
+    private static final String CATALOG_NAMESPACE = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+    /** The catalog of the schema documents bundled with Fabric. */
+    private static final String BUNDLED_CATALOG = "catalog/catalog.xml";
+
+    /** Marks memoized lookups which did not find a document. */
+    private static final URI NOT_FOUND = URI.create("urn:fabric:catalog:not-found");
+
+    /** Maps from namespace, system ID or location to the location of a local copy, in declaration order. */
+    private final Map<String, URI> entries = new LinkedHashMap<String, URI>();
+
+    /** Maps from prefixes of namespaces or locations to the prefix of their local copies, in declaration order. */
+    private final Map<String, URI> rewrites = new LinkedHashMap<String, URI>();
+
+    private final Map<File, Boolean> mirrors = new LinkedHashMap<File, Boolean>();
+
+    private final ConcurrentMap<String, URI> lookups = new ConcurrentHashMap<String, URI>();
+
+    private final boolean bundled;
+
+    /** The catalog returned by {@link #getDefault()}, and the property values it was created from. */
+    private static SchemaCatalog defaultCatalog;
+
+    private static String defaultCatalogKey;
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Creates a catalog which only holds the bundled entries.
+     */
+    public SchemaCatalog() {
+        this(true);
+    }
+
+    private SchemaCatalog(boolean bundled) {
+        this.bundled = bundled;
+    }
+
+    /**
+     * Returns the catalog made up of the files and mirror directories given by {@link #CATALOG_PROPERTY} and
+     * {@link #MIRROR_PROPERTY}. The catalog is shared until the properties change.
+     * 
+     * @return the catalog
+     * @throws IllegalArgumentException
+     *             if one of the catalog files cannot be read
+     */
+    public static synchronized SchemaCatalog getDefault() {
+        String catalogs = System.getProperty(CATALOG_PROPERTY);
+        String mirrors = System.getProperty(MIRROR_PROPERTY);
+        String key = catalogs + File.pathSeparator + File.pathSeparator + mirrors;
+
+        if (defaultCatalog == null || !key.equals(defaultCatalogKey)) {
+            SchemaCatalog catalog = new SchemaCatalog();
+            for (String file : split(catalogs)) {
+                try {
+                    catalog.addCatalog(new File(file).toURI());
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Unable to read XML catalog " + file, e);
+                }
+            }
+            for (String directory : split(mirrors)) {
+                catalog.addMirror(new File(directory));
+            }
+            defaultCatalog = catalog;
+            defaultCatalogKey = key;
+        }
+        return defaultCatalog;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Adds the entries of an OASIS XML catalog file. Entries added first take precedence.
+     * 
+     * @param location
+     *            the location of the catalog file
+     * @throws Exception
+     *             if the catalog file cannot be read
+     */
+    public synchronized void addCatalog(URI location) throws Exception {
+        addCatalog(location.toURL());
+    }
+
+    private void addCatalog(URL location) throws Exception {
+        log.debug("Reading XML catalog {}", location);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Element root = builder.parse(location.toString()).getDocumentElement();
+
+        addEntries(root, location);
+        lookups.clear();
+    }
+
+    private void addEntries(Element parent, URL base) throws Exception {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!(node instanceof Element) || !CATALOG_NAMESPACE.equals(node.getNamespaceURI()))
+                continue;
+
+            Element entry = (Element) node;
+            String kind = entry.getLocalName();
+
+            if ("uri".equals(kind)) {
+                put(entries, entry.getAttribute("name"), new URL(base, entry.getAttribute("uri")));
+            } else if ("system".equals(kind)) {
+                put(entries, entry.getAttribute("systemId"), new URL(base, entry.getAttribute("uri")));
+            } else if ("rewriteURI".equals(kind)) {
+                put(rewrites, entry.getAttribute("uriStartString"), new URL(base, entry.getAttribute("rewritePrefix")));
+            } else if ("rewriteSystem".equals(kind)) {
+                put(rewrites, entry.getAttribute("systemIdStartString"),
+                        new URL(base, entry.getAttribute("rewritePrefix")));
+            } else if ("group".equals(kind)) {
+                addEntries(entry, base);
+            } else if ("nextCatalog".equals(kind)) {
+                addCatalog(new URL(base, entry.getAttribute("catalog")));
+            }
+        }
+    }
+
+    private static void put(Map<String, URI> map, String key, URL value) throws Exception {
+        if (!map.containsKey(key))
+            map.put(key, value.toURI());
+    }
+
+    /**
+     * Adds a directory holding copies of remote schema documents. Mirrors are consulted after the catalog entries.
+     * 
+     * @param directory
+     *            the mirror directory
+     */
+    public synchronized void addMirror(File directory) {
+        if (!directory.isDirectory())
+            log.warn("Schema mirror directory {} does not exist", directory);
+        mirrors.put(directory, Boolean.TRUE);
+        lookups.clear();
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Looks up the local copy of a schema document.
+     * 
+     * @param location
+     *            the location of the document, may be <code>null</code>
+     * @param namespace
+     *            the target namespace of the document, may be <code>null</code>
+     * @return the location of the local copy, or <code>null</code> if the catalog does not know the document
+     */
+    public URI resolve(String location, String namespace) {
+        URI result = (location != null) ? lookup(location) : null;
+        if (result == null && namespace != null)
+            result = lookup(namespace);
+        return result;
+    }
+
+    private URI lookup(String key) {
+        URI result = lookups.get(key);
+        if (result == null) {
+            result = find(key);
+            lookups.putIfAbsent(key, (result != null) ? result : NOT_FOUND);
+            if (result != null)
+                log.debug("Resolved {} to {} using the schema catalog", key, result);
+        }
+        return (result == NOT_FOUND) ? null : result;
+    }
+
+    private synchronized URI find(String key) {
+        URI result = entries.get(key);
+        if (result != null)
+            return result;
+
+        String longestPrefix = null;
+        for (String prefix : rewrites.keySet()) {
+            if (key.startsWith(prefix) && (longestPrefix == null || prefix.length() > longestPrefix.length()))
+                longestPrefix = prefix;
+        }
+        if (longestPrefix != null)
+            return URI.create(rewrites.get(longestPrefix) + key.substring(longestPrefix.length()));
+
+        String path = getMirrorPath(key);
+        if (path != null) {
+            for (File directory : mirrors.keySet()) {
+                File file = new File(directory, path);
+                if (file.isFile())
+                    return file.toURI();
+            }
+        }
+
+        return bundled ? Bundled.INSTANCE.find(key) : null;
+    }
+
+    /**
+     * Describes all mappings of this catalog in declaration order. Results that depend on how documents were resolved
+     * are keyed by this description (see {@link FSchemaCache}).
+     * 
+     * @return one line per entry, rewrite rule and mirror directory
+     */
+    synchronized String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, URI> entry : entries.entrySet())
+            sb.append("entry ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        for (Map.Entry<String, URI> rewrite : rewrites.entrySet())
+            sb.append("rewrite ").append(rewrite.getKey()).append(' ').append(rewrite.getValue()).append('\n');
+        for (File directory : mirrors.keySet())
+            sb.append("mirror ").append(directory.getAbsolutePath()).append('\n');
+        if (bundled)
+            sb.append(Bundled.INSTANCE.describe());
+        return sb.toString();
+    }
+
+    /**
+     * Returns the path of a document within a mirror directory: its host name and path, with <code>.xsd</code>
+     * appended if the path has no file extension.
+     */
+    private static String getMirrorPath(String key) {
+        URI uri;
+        try {
+            uri = new URI(key);
+        } catch (Exception e) {
+            return null;
+        }
+        if (uri.getHost() == null)
+            return null;
+
+        String path = (uri.getPath() == null) ? "" : uri.getPath();
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.lastIndexOf('.') <= path.lastIndexOf('/'))
+            path += ".xsd";
+
+        return uri.getHost() + path;
+    }
+
+    private static String[] split(String list) {
+        return (list == null || list.length() == 0) ? new String[0] : list.split(File.pathSeparator);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Holds the catalog bundled with Fabric; it is read when first needed.
+     */
+    private static class Bundled {
+        static final SchemaCatalog INSTANCE = new SchemaCatalog(false);
+
+        static {
+            try {
+                INSTANCE.addCatalog(SchemaCatalog.class.getResource(BUNDLED_CATALOG));
+            } catch (Exception e) {
+                log.error("Unable to read the bundled schema catalog: " + e);
+            }
+        }
+    }
+}
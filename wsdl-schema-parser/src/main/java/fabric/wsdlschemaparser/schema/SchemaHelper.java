@@ -25,8 +25,10 @@ package fabric.wsdlschemaparser.schema;
 
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Vector;
 
 import javax.xml.namespace.QName;
@@ -41,9 +43,7 @@ import org.apache.xmlbeans.impl.xb.xsdschema.Element;
 import org.apache.xmlbeans.impl.xb.xsdschema.ExplicitGroup;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
 import org.apache.xmlbeans.impl.xb.xsdschema.SimpleType;
-import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
 import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
-import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
 import org.slf4j.LoggerFactory;
 
 public class SchemaHelper {
@@ -52,13 +52,42 @@ public class SchemaHelper {
 	
 	protected Collection<Schema> schema = null;
 
+	/** Index of all global components of the schemata above */
+	protected SchemaSymbolTable symbolTable = null;
+
+	/**
+	 * Extension hierarchies and content models resolved so far, by complex
+	 * type. The cache is valid for {@link #cacheModificationCount} of the
+	 * symbol table and discarded as soon as schemata are added.
+	 */
+	private final Map<ComplexType, ContentModel> contentModels = new IdentityHashMap<ComplexType, ContentModel>();
+
+	private int cacheModificationCount = -1;
+
+	private long cacheHits = 0;
+
+	private long cacheMisses = 0;
+
 	// -------------------------------------------------------
 	/**
 	 * 
 	 * @param fabric.schema
 	 */
 	public SchemaHelper(Collection<Schema> schema) {
+		this(schema, new SchemaSymbolTable(schema));
+	}
+
+	// -------------------------------------------------------
+	/**
+	 * Creates a helper which uses an existing symbol table (e.g. the one
+	 * maintained by an FSchema object) instead of building its own.
+	 * 
+	 * @param schema
+	 * @param symbolTable symbol table containing all components of schema
+	 */
+	public SchemaHelper(Collection<Schema> schema, SchemaSymbolTable symbolTable) {
 		this.schema = schema;
+		this.symbolTable = symbolTable;
 	}
 
 	// -------------------------------------------------------
@@ -101,17 +130,8 @@ public class SchemaHelper {
 			log.error("Local fabric.schema contains no schemas");
 		else if (name.getNamespaceURI() == null)
 			log.error("Supplied name.getNamespaceURI[" + name.getNamespaceURI() + "] is null");
-		else
-		{
-			for (Schema s : this.schema)
-			{
-				if (s.getTargetNamespace() == null)
-					log.error("Local fabric.schema.getTargetNamespace[" + s.getTargetNamespace() + "] in schema "+s+" is null");
-				else if (s.getTargetNamespace().equals(name.getNamespaceURI()))
-					return true;	
-			}
-			
-		}
+		else if (symbolTable.containsNamespace(name.getNamespaceURI()))
+			return true;
 		log.error("isLocalName(QName name[" + name + "]): Invalid parameters supplied");
 		return false;
 	}
@@ -182,57 +202,34 @@ public class SchemaHelper {
 
 	// -------------------------------------------------------
 	/**
+	 * Looks up a global complex type, simple type or element (in this
+	 * order) by its qualified name.
 	 * 
 	 * @param name
 	 * @return
-	 * @todo resolve other namespaces too
 	 */
 	public XmlObject getByName(QName name) {
-		String ln = name.getLocalPart();
-		
-		for (Schema s : this.schema)
-		{
-			TopLevelComplexType[] cta = s.getComplexTypeArray();
-			for (int i = 0; i < cta.length; ++i)
-				if (cta[i].getName().equals(ln))
-					return cta[i];
-		}
-		for (Schema s : this.schema)
-		{
-			TopLevelSimpleType[] sta = s.getSimpleTypeArray();
-			for (int i = 0; i < sta.length; ++i)
-				if (sta[i].getName().equals(ln))
-					return sta[i];
-		}
-		for (Schema s : this.schema)
-		{
-			TopLevelElement[] tlea = s.getElementArray();
-			for (int i = 0; i < tlea.length; ++i)
-				if (tlea[i].getName().equals(ln))
-					return tlea[i];
-		}
+		XmlObject o = symbolTable.get(name);
 
-//		log.debug("local name not found [" + ln + "], namespace [" + name.getNamespaceURI() + "], local namespace["
-//				+ schema.getTargetNamespace() + "]");
+		if (o == null)
+			log.debug("name not found [" + name.getLocalPart() + "], namespace [" + name.getNamespaceURI() + "]");
 
-		log.debug("local name not found [" + ln + "], namespace [" + name.getNamespaceURI() + "]");
-		return null;
+		return o;
 	}
 
 	// -------------------------------------------------------
 	public ComplexType getComplexTypeByName(QName name) {
-		XmlObject o = getByName(name);
-		if (o instanceof ComplexType)
-			return (ComplexType) o;
-		return null;
+		return (ComplexType) symbolTable.get(name, SchemaSymbolTable.Kind.COMPLEX_TYPE);
 	}
 
 	// -------------------------------------------------------
 	public SimpleType getSimpleTypeByName(QName name) {
-		XmlObject o = getByName(name);
-		if (o instanceof SimpleType)
-			return (SimpleType) o;
-		return null;
+		return (SimpleType) symbolTable.get(name, SchemaSymbolTable.Kind.SIMPLE_TYPE);
+	}
+
+	// -------------------------------------------------------
+	public TopLevelElement getElementByName(QName name) {
+		return (TopLevelElement) symbolTable.get(name, SchemaSymbolTable.Kind.ELEMENT);
 	}
 
 	// -------------------------------------------------------
@@ -256,21 +253,31 @@ public class SchemaHelper {
 	 * @return
 	 */
 	public LinkedList<ComplexType> getExtensionHierarchy(ComplexType ct) {
-		LinkedList<ComplexType> ll = new LinkedList<ComplexType>();
-		getExtensionHierarchy(ct, ll);
-		return ll;
+		return new LinkedList<ComplexType>(extensionHierarchy(ct));
 	}
 
 	// -------------------------------------------------------
 	/**
-	 * 
+	 * Returns the cached extension hierarchy of a complex type. The hierarchy
+	 * of a type is built from the (cached) hierarchy of its base type.
 	 */
-	private void getExtensionHierarchy(ComplexType ct, LinkedList<ComplexType> ll) {
+	private LinkedList<ComplexType> extensionHierarchy(ComplexType ct) {
+		ContentModel cm = getContentModel(ct);
+		if (cm.hierarchy != null) {
+			cacheHits++;
+			return cm.hierarchy;
+		}
+		cacheMisses++;
+
 		ComplexType bt = getExtensionBaseType(ct);
 
+		LinkedList<ComplexType> ll = new LinkedList<ComplexType>();
 		ll.add(ct);
 		if (bt != null)
-			getExtensionHierarchy(bt, ll);
+			ll.addAll(extensionHierarchy(bt));
+
+		cm.hierarchy = ll;
+		return ll;
 	}
 
 	// -------------------------------------------------------
@@ -296,7 +303,18 @@ public class SchemaHelper {
 	 * 
 	 */
 	public Element[] getSequenceElements(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.sequenceElements != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.sequenceElements = collectSequenceElements(ct);
+		}
+		return cm.sequenceElements.clone();
+	}
+
+	private Element[] collectSequenceElements(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<Element> els = new Vector<Element>();
 
 		for (ComplexType t : ll) {
@@ -317,7 +335,18 @@ public class SchemaHelper {
 	}
 	
 	public Any[] getSequenceAny(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.sequenceAny != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.sequenceAny = collectSequenceAny(ct);
+		}
+		return cm.sequenceAny.clone();
+	}
+
+	private Any[] collectSequenceAny(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<Any> els = new Vector<Any>();
 
 		for (ComplexType t : ll) {
@@ -333,7 +362,18 @@ public class SchemaHelper {
 	}
 
 	public ExplicitGroup[] getChildSequences(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.childSequences != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.childSequences = collectChildSequences(ct);
+		}
+		return cm.childSequences.clone();
+	}
+
+	private ExplicitGroup[] collectChildSequences(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<ExplicitGroup> egs = new Vector<ExplicitGroup>();
 
 		for (ComplexType t : ll) {
@@ -379,7 +419,18 @@ public class SchemaHelper {
 	 * @return
 	 */
 	public Element[] getChoiceElements(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.choiceElements != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.choiceElements = collectChoiceElements(ct);
+		}
+		return cm.choiceElements.clone();
+	}
+
+	private Element[] collectChoiceElements(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<Element> els = new Vector<Element>();
 
 		for (Iterator<ComplexType> it = ll.iterator(); it.hasNext();) {
@@ -406,7 +457,18 @@ public class SchemaHelper {
 	 * @return
 	 */
 	public Any[] getChoiceAny(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.choiceAny != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.choiceAny = collectChoiceAny(ct);
+		}
+		return cm.choiceAny.clone();
+	}
+
+	private Any[] collectChoiceAny(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<Any> els = new Vector<Any>();
 
 		for (Iterator<ComplexType> it = ll.iterator(); it.hasNext();) {
@@ -434,7 +496,18 @@ public class SchemaHelper {
 	 * @return
 	 */
 	public ExplicitGroup[] getChildChoices(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.childChoices != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.childChoices = collectChildChoices(ct);
+		}
+		return cm.childChoices.clone();
+	}
+
+	private ExplicitGroup[] collectChildChoices(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<ExplicitGroup> egs = new Vector<ExplicitGroup>();
 
 		for (ComplexType t : ll) {
@@ -480,7 +553,18 @@ public class SchemaHelper {
 	 * @return
 	 */
 	public Element[] getAllElements(ComplexType ct) {
-		LinkedList<ComplexType> ll = getExtensionHierarchy(ct);
+		ContentModel cm = getContentModel(ct);
+		if (cm.allElements != null) {
+			cacheHits++;
+		} else {
+			cacheMisses++;
+			cm.allElements = collectAllElements(ct);
+		}
+		return cm.allElements.clone();
+	}
+
+	private Element[] collectAllElements(ComplexType ct) {
+		LinkedList<ComplexType> ll = extensionHierarchy(ct);
 		Vector<Element> els = new Vector<Element>();
 
 		for (Iterator<ComplexType> it = ll.iterator(); it.hasNext();) {
@@ -545,6 +629,65 @@ public class SchemaHelper {
 		return 1;
 	}
 
+	// -------------------------------------------------------
+	/**
+	 * @return the number of extension hierarchy and content model queries
+	 *         answered from the cache
+	 */
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	// -------------------------------------------------------
+	/**
+	 * @return the number of extension hierarchy and content model queries
+	 *         which had to be resolved
+	 */
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	// -------------------------------------------------------
+	/**
+	 * Returns the cache entry of a complex type. All entries are discarded if
+	 * schemata have been added to the symbol table since they were created.
+	 */
+	private ContentModel getContentModel(ComplexType ct) {
+		if (cacheModificationCount != symbolTable.getModificationCount()) {
+			contentModels.clear();
+			cacheModificationCount = symbolTable.getModificationCount();
+		}
+
+		ContentModel cm = contentModels.get(ct);
+		if (cm == null) {
+			cm = new ContentModel();
+			contentModels.put(ct, cm);
+		}
+		return cm;
+	}
+
+	// -------------------------------------------------------
+	/**
+	 * The resolved extension hierarchy and flattened content model of a
+	 * complex type. Each part is resolved when it is first queried.
+	 */
+	private static final class ContentModel {
+		LinkedList<ComplexType> hierarchy;
+
+		Element[] sequenceElements;
+
+		Any[] sequenceAny;
+
+		ExplicitGroup[] childSequences;
+
+		Element[] choiceElements;
+
+		Any[] choiceAny;
+
+		ExplicitGroup[] childChoices;
+
+		Element[] allElements;
+	}
 }
 
 /*+---------------------------------------------------------------+
@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+
+import org.apache.xmlbeans.impl.xb.xsdschema.ImportDocument.Import;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Resolves and parses the schemata imported by a schema document.
+ * 
+ * As soon as a schema is handed to {@link #prefetchImports(Schema, URI)}, the whole import graph reachable from it is
+ * parsed concurrently in the background. {@link #getSchema(URI)} then returns an already parsed document, waiting for
+ * it if necessary. The order in which the caller consumes the documents (and thus the order of namespace registration)
+ * is not affected by the order in which they are parsed.
+ * 
+ * Documents are cached by location. Each namespace is only fetched in advance from the first location it was seen
+ * at, so that imports of an already known namespace do not cause additional downloads.
+ * 
+ * Remote documents and imports without a schemaLocation are first looked up in a {@link SchemaCatalog}; only
+ * documents the catalog does not know are fetched from their location or namespace URI.
+ */
+class SchemaImportResolver {
+    private final org.slf4j.Logger log = LoggerFactory.getLogger(SchemaImportResolver.class);
+
+    /** Idle worker threads are discarded after this many seconds. */
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
+    private final ExecutorService executor;
+
+    private final SchemaCatalog catalog;
+
+    private final SchemaStatistics statistics;
+
+    /** Parsed (or currently parsing) documents by location. */
+    private final ConcurrentMap<URI, Future<Schema>> documents = new ConcurrentHashMap<URI, Future<Schema>>();
+
+    /** Maps from namespace to the location it is fetched from in advance. */
+    private final ConcurrentMap<String, URI> claimedNamespaces = new ConcurrentHashMap<String, URI>();
+
+    public SchemaImportResolver() {
+        this(SchemaCatalog.getDefault());
+    }
+
+    public SchemaImportResolver(SchemaCatalog catalog) {
+        this(catalog, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SchemaImportResolver(SchemaCatalog catalog, int threads) {
+        this(catalog, threads, new SchemaStatistics());
+    }
+
+    /**
+     * Creates a resolver which records the parse time of every document it parses.
+     * 
+     * @param catalog
+     * @param statistics
+     *            the statistics to record the parse times in
+     */
+    public SchemaImportResolver(SchemaCatalog catalog, SchemaStatistics statistics) {
+        this(catalog, Runtime.getRuntime().availableProcessors(), statistics);
+    }
+
+    public SchemaImportResolver(SchemaCatalog catalog, int threads, SchemaStatistics statistics) {
+        this.catalog = catalog;
+        this.statistics = statistics;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "schema-import-resolver");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Starts fetching all schemata imported by the given schema (and, transitively, by those schemata) in the
+     * background. Imports whose location cannot be determined are skipped here; they are reported once the caller
+     * actually resolves them.
+     * 
+     * @param schema
+     *            the importing schema
+     * @param location
+     *            the location of the importing schema
+     */
+    public void prefetchImports(Schema schema, URI location) {
+        claimedNamespaces.putIfAbsent(normalize(schema.getTargetNamespace()), location);
+
+        for (Import importElement : schema.getImportArray()) {
+            URI importLocation;
+            try {
+                importLocation = resolve(importElement, location);
+            } catch (Exception e) {
+                log.debug("Not prefetching import of namespace {}: {}", importElement.getNamespace(), e.toString());
+                continue;
+            }
+
+            if (claimedNamespaces.putIfAbsent(normalize(importElement.getNamespace()), importLocation) == null) {
+                submit(importLocation);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns the schema document at the given location. If it has been prefetched, this waits for the background
+     * parser to finish; otherwise the document is parsed right away.
+     * 
+     * @param location
+     *            the location of the schema document
+     * @return the parsed schema
+     * @throws Exception
+     *             if the document could not be loaded or parsed
+     */
+    public Schema getSchema(URI location) throws Exception {
+        Future<Schema> future = documents.get(location);
+        if (future == null) {
+            log.debug("Schema at {} was not prefetched, parsing it now", location);
+            FutureTask<Schema> task = new FutureTask<Schema>(new ParseTask(location));
+            future = documents.putIfAbsent(location, task);
+            if (future == null) {
+                task.run();
+                future = task;
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Makes an already parsed schema document available at the given location. A document which has already been
+     * fetched from that location is kept.
+     * 
+     * @param location
+     *            the location of the schema document
+     * @param schema
+     *            the parsed schema
+     */
+    public void preload(URI location, Schema schema) {
+        FutureTask<Schema> task = new FutureTask<Schema>(new ParsedTask(schema));
+        if (documents.putIfAbsent(location, task) == null) {
+            task.run();
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Determines the location of an imported schema, preferring a local copy known to the catalog.
+     * 
+     * @param importElement
+     *            the import declaration
+     * @param enclosingLocation
+     *            the location of the importing schema
+     * @return the location of the imported schema
+     * @throws Exception
+     *             if no location can be determined
+     */
+    public URI resolve(Import importElement, URI enclosingLocation) throws Exception {
+        return resolve(importElement.getSchemaLocation(), importElement.getNamespace(), enclosingLocation);
+    }
+
+    /**
+     * Determines the location of an imported schema from the attributes of its import declaration, preferring a
+     * local copy known to the catalog. Local documents are not looked up in the catalog.
+     * 
+     * @param schemaLocation
+     *            the schemaLocation attribute, may be <code>null</code>
+     * @param namespace
+     *            the namespace attribute, may be <code>null</code>
+     * @param enclosingLocation
+     *            the location of the importing schema
+     * @return the location of the imported schema
+     * @throws Exception
+     *             if no location can be determined
+     */
+    public URI resolve(String schemaLocation, String namespace, URI enclosingLocation) throws Exception {
+        URI location = null;
+        Exception failure = null;
+        try {
+            location = resolveImportLocation(schemaLocation, namespace, enclosingLocation);
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        if (location == null || !isLocal(location)) {
+            URI local = catalog.resolve(location == null ? null : location.toString(), namespace);
+            if (local != null)
+                return local;
+        }
+
+        if (failure != null)
+            throw failure;
+        return location;
+    }
+
+    /**
+     * Determines the location of an imported schema. If no schemaLocation is given, the namespace URI is used if it
+     * is a URL. Relative locations are resolved against the location of the importing schema.
+     * 
+     * @param importElement
+     *            the import declaration
+     * @param enclosingLocation
+     *            the location of the importing schema
+     * @return the location of the imported schema
+     * @throws Exception
+     *             if no location can be determined
+     */
+    public static URI resolveImportLocation(Import importElement, URI enclosingLocation) throws Exception {
+        return resolveImportLocation(importElement.getSchemaLocation(), importElement.getNamespace(),
+                enclosingLocation);
+    }
+
+    /**
+     * Determines the location of an imported schema from the attributes of its import declaration.
+     * 
+     * @param schemaLocation
+     *            the schemaLocation attribute, may be <code>null</code>
+     * @param namespace
+     *            the namespace attribute, may be <code>null</code>
+     * @param enclosingLocation
+     *            the location of the importing schema
+     * @return the location of the imported schema
+     * @throws Exception
+     *             if no location can be determined
+     * @see #resolveImportLocation(Import, URI)
+     */
+    public static URI resolveImportLocation(String schemaLocation, String namespace, URI enclosingLocation)
+            throws Exception {
+        String importLocation = schemaLocation;
+
+        if (importLocation == null && namespace != null) {
+            try {
+                URI uri = new URI(namespace);
+                uri.toURL();
+                importLocation = namespace;
+            } catch (MalformedURLException e) {
+                // not a URL, no location available
+            } catch (IllegalArgumentException e) {
+                // not an absolute URI, no location available
+            }
+        }
+
+        Preconditions.checkNotNull(importLocation, "Import location must not be null");
+
+        URI importLocationURI = new URI(importLocation);
+
+        if ("file".equals(importLocationURI.getScheme())) {
+            File enclosingDirectory = new File(enclosingLocation.toURL().getFile()).getParentFile();
+            importLocationURI = new File(enclosingDirectory, importLocation).toURI();
+        } else if (!importLocationURI.isAbsolute()) {
+            // documents bundled in a jar file have opaque URIs, which can only be resolved against as URLs
+            importLocationURI = enclosingLocation.isOpaque() ? new URL(enclosingLocation.toURL(), importLocation)
+                    .toURI() : enclosingLocation.resolve(importLocationURI);
+        }
+
+        return importLocationURI;
+    }
+
+    // --------------------------------------------------------------------
+
+    private void submit(URI location) {
+        FutureTask<Schema> task = new FutureTask<Schema>(new ParseTask(location));
+        if (documents.putIfAbsent(location, task) == null) {
+            log.debug("Prefetching schema at {}", location);
+            executor.execute(task);
+        }
+    }
+
+    private static boolean isLocal(URI location) {
+        return "file".equals(location.getScheme()) || "jar".equals(location.getScheme());
+    }
+
+    private static String normalize(String namespace) {
+        return namespace == null ? XMLConstants.NULL_NS_URI : namespace;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns a schema document which has been parsed before.
+     */
+    private static class ParsedTask implements Callable<Schema> {
+        private final Schema schema;
+
+        public ParsedTask(Schema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public Schema call() throws Exception {
+            return schema;
+        }
+    }
+
+    /**
+     * Parses a schema document and starts prefetching its own imports.
+     */
+    private class ParseTask implements Callable<Schema> {
+        private final URI location;
+
+        public ParseTask(URI location) {
+            this.location = location;
+        }
+
+        @Override
+        public Schema call() throws Exception {
+            long start = System.nanoTime();
+            Schema schema = SchemaDocument.Factory.parse(location.toURL()).getSchema();
+            statistics.addParseTime(location, System.nanoTime() - start);
+            prefetchImports(schema, location);
+            return schema;
+        }
+    }
+}
@@ -26,8 +26,17 @@ package fabric.wsdlschemaparser.schema;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -42,6 +51,8 @@ import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
 import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
 import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
 
+import com.google.common.base.Preconditions;
+
 
 
 /**
@@ -52,6 +63,7 @@ import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
 public class SchemaInfoDumper {
 	Schema schema = null;
 	SchemaHelper sh = null;
+	FSchema fschema = null;
 
 	/**
 	 * 
@@ -64,6 +76,27 @@ public class SchemaInfoDumper {
 		sh = new SchemaHelper(list);
 	}
 
+	/**
+	 * Dumps a schema together with statistics of the Schema object tree built from it.
+	 * 
+	 * @param schema
+	 * @param fschema the FSchema object built from the schema
+	 */
+	public SchemaInfoDumper(Schema schema, FSchema fschema) {
+		this(schema);
+		this.fschema = fschema;
+	}
+
+	/**
+	 * Reports statistics of the Schema object tree of an FSchema object
+	 * only (see {@link #dumpStatisticsTo(PrintWriter)}).
+	 * 
+	 * @param fschema
+	 */
+	public SchemaInfoDumper(FSchema fschema) {
+		this.fschema = fschema;
+	}
+
 	/**
 	 * 
 	 * @param fabric.schema
@@ -85,6 +118,7 @@ public class SchemaInfoDumper {
 	 * @throws Exception
 	 */
 	public void dumpTo(PrintWriter out) throws Exception {
+		Preconditions.checkState(schema != null, "No schema to dump");
 
 		out.println();
 		out.println("------------------ " + schema.getTargetNamespace() + " ------------------");
@@ -94,6 +128,186 @@ public class SchemaInfoDumper {
 		dumpTopLevelSimpleTypes(out);
 		dumpTopLevelElements(out);
 
+		if (fschema != null)
+			out.println("Name pool: " + fschema.getNamePool());
+	}
+
+	/**
+	 * Writes the statistics of the FSchema object as a JSON object: the
+	 * parse time of every schema document, figures of building the Schema
+	 * object tree and, for every top-level component, the number of nodes
+	 * and the estimated number of bytes of its subtree. A subtree ends at
+	 * other top-level types, which are reported on their own. Strings are
+	 * not included in the estimates, as they are shared (see
+	 * {@link NamePool}).
+	 * 
+	 * @param out
+	 */
+	public void dumpStatisticsTo(PrintWriter out) {
+		Preconditions.checkState(fschema != null, "No FSchema object to report on");
+		SchemaStatistics statistics = fschema.getStatistics();
+		FTopLevelObjectList tree = fschema.getTopLevelObjectList();
+
+		out.println("{");
+		out.println("  \"parseTimes\": [");
+		String separator = "";
+		for (Map.Entry<URI, Long> entry : statistics.getParseTimes().entrySet()) {
+			out.print(separator + "    {\"location\": " + quote(entry.getKey().toString()) + ", \"millis\": "
+					+ (entry.getValue() / 1000000.0) + "}");
+			separator = ",\n";
+		}
+		out.println();
+		out.println("  ],");
+		out.println("  \"clones\": " + statistics.getClones() + ",");
+		out.println("  \"recursiveReferences\": " + statistics.getRecursiveReferences() + ",");
+		out.println("  \"maxNestingDepth\": " + statistics.getMaxNestingDepth() + ",");
+		NamePool namePool = fschema.getNamePool();
+		out.println("  \"namePool\": {\"size\": " + namePool.size() + ", \"lookups\": " + namePool.getLookups()
+				+ ", \"duplicates\": " + namePool.getDuplicates() + ", \"savedBytes\": " + namePool.getSavedBytes()
+				+ "},");
+
+		int totalNodes = 0;
+		long totalBytes = 0;
+		out.println("  \"components\": [");
+		separator = "";
+		if (tree != null) {
+			// the lists may hold a component more than once
+			Set<FSchemaObject> components = Collections.newSetFromMap(new IdentityHashMap<FSchemaObject, Boolean>());
+			List<FSchemaObject> ordered = new ArrayList<FSchemaObject>(tree.getTopLevelTypes());
+			ordered.addAll(tree.getTopLevelElements());
+			for (FSchemaObject component : ordered) {
+				if (!components.add(component))
+					continue;
+
+				Set<FSchemaObject> subtree = Collections.newSetFromMap(new IdentityHashMap<FSchemaObject, Boolean>());
+				collectSubtree(component, component, subtree);
+				long bytes = 0;
+				for (FSchemaObject node : subtree) {
+					bytes += estimateSize(node);
+				}
+				totalNodes += subtree.size();
+				totalBytes += bytes;
+
+				out.print(separator + "    {\"kind\": " + quote(component instanceof FElement ? "element" : "type")
+						+ ", \"namespace\": " + quote(component.getNamespace()) + ", \"name\": "
+						+ quote(component.getName()) + ", \"nodes\": " + subtree.size() + ", \"estimatedBytes\": "
+						+ bytes + "}");
+				separator = ",\n";
+			}
+		}
+		out.println();
+		out.println("  ],");
+		out.println("  \"nodes\": " + totalNodes + ",");
+		out.println("  \"estimatedBytes\": " + totalBytes);
+		out.println("}");
+		out.flush();
+	}
+
+	/**
+	 * Collects the nodes of a component's subtree, stopping at other
+	 * top-level types and at nodes already visited.
+	 */
+	private static void collectSubtree(FSchemaObject component, FSchemaObject node, Set<FSchemaObject> subtree) {
+		if (node == null || !subtree.add(node))
+			return;
+
+		if (node instanceof FElement) {
+			FSchemaType type = ((FElement) node).getSchemaType();
+			if (type != null && (!type.isTopLevel() || type == component))
+				collectSubtree(component, type, subtree);
+		} else if (node instanceof FComplexType) {
+			for (FSchemaObject child : ((FComplexType) node).getAttributes())
+				collectSubtree(component, child, subtree);
+			for (FSchemaObject child : ((FComplexType) node).getChildObjects())
+				collectSubtree(component, child, subtree);
+		} else if (node instanceof FList) {
+			FSimpleType itemType = ((FList) node).getItemType();
+			if (itemType != null && !itemType.isTopLevel())
+				collectSubtree(component, itemType, subtree);
+		}
+	}
+
+	/** Estimated shallow sizes of objects, by class. */
+	private static final Map<Class<?>, Long> shallowSizes = new HashMap<Class<?>, Long>();
+
+	/**
+	 * Estimates the bytes retained by a node: the node itself, its facet
+	 * restrictions and the lists holding its children.
+	 */
+	private static long estimateSize(FSchemaObject node) {
+		long size = shallowSize(node.getClass());
+		for (Class<?> c = node.getClass(); c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+					continue;
+				try {
+					field.setAccessible(true);
+					Object value = field.get(node);
+					if (value instanceof List<?>)
+						size += shallowSize(ArrayList.class) + align(16 + 4 * ((List<?>) value).size());
+					else if (value instanceof FSchemaRestrictions)
+						size += shallowSize(FSchemaRestrictions.class);
+				} catch (IllegalAccessException e) {
+					// not accessible, not counted
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Estimates the size of an instance of a class, assuming a 12 byte
+	 * object header, 4 byte references and 8 byte alignment.
+	 */
+	private static synchronized long shallowSize(Class<?> clazz) {
+		Long size = shallowSizes.get(clazz);
+		if (size == null) {
+			long bytes = 12;
+			for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()))
+						continue;
+					Class<?> type = field.getType();
+					if (type == long.class || type == double.class)
+						bytes += 8;
+					else if (type == int.class || type == float.class || !type.isPrimitive())
+						bytes += 4;
+					else if (type == short.class || type == char.class)
+						bytes += 2;
+					else
+						bytes += 1;
+				}
+			}
+			size = align(bytes);
+			shallowSizes.put(clazz, size);
+		}
+		return size;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * Quotes a string as a JSON string literal.
+	 */
+	private static String quote(String s) {
+		if (s == null)
+			return "null";
+
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
 	}
 
 	/**
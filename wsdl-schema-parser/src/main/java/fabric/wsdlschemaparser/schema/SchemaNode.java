@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+/**
+ * An element of an XML Schema document, as read by one of the front-ends ({@link XmlBeansSchemaNode} for documents
+ * read by XMLBeans, {@link XsdNode} for documents read by {@link StaxSchemaReader}). {@link FSchemaTypeFactory} reads
+ * the documents through this interface only, so both front-ends build the Schema object tree with the same code.
+ * 
+ * Two nodes are equal if they stand for the same element of the same document.
+ */
+interface SchemaNode {
+
+    /**
+     * @return the local name of the element, e.g. "complexType"
+     */
+    String getName();
+
+    /**
+     * @return the parent node, or <code>null</code> for the xs:schema element
+     */
+    SchemaNode getParent();
+
+    /**
+     * @return the value of the unqualified attribute, or <code>null</code> if it is not set
+     */
+    String getAttribute(String attributeName);
+
+    boolean isSetAttribute(String attributeName);
+
+    /**
+     * Changes the value of an existing attribute.
+     */
+    void setAttribute(String attributeName, String value);
+
+    /**
+     * Resolves an attribute of type xs:QName (e.g. "type", "ref" or "base") in the namespace context of this node.
+     * 
+     * @return the qualified name, or <code>null</code> if the attribute is not set
+     */
+    QName getQNameAttribute(String attributeName);
+
+    /**
+     * @return all child elements, in document order
+     */
+    List<? extends SchemaNode> getChildren();
+
+    /**
+     * @return all child elements of the given local name, in document order
+     */
+    List<? extends SchemaNode> getChildren(String childName);
+
+    /**
+     * @return the first child element of the given local name, or <code>null</code>
+     */
+    SchemaNode getChild(String childName);
+
+    boolean isSetChild(String childName);
+}
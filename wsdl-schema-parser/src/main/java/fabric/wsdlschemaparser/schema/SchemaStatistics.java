@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measurements taken while an {@link FSchema} object is loaded: the time spent parsing each schema document and
+ * figures of the factories building the Schema object tree. Factories running in parallel share one instance, so all
+ * methods are thread-safe. The measurements are reported by {@link SchemaInfoDumper}.
+ */
+class SchemaStatistics {
+    /** Parse times in nanoseconds, by location. */
+    private final Map<URI, Long> parseTimes = new LinkedHashMap<URI, Long>();
+
+    /** The number of shared top-level types copied because they had to be modified. */
+    private final AtomicInteger clones = new AtomicInteger();
+
+    /** The number of references to complex types which were still being built. */
+    private final AtomicInteger recursiveReferences = new AtomicInteger();
+
+    /** The largest number of complex types which were being built at the same time by one factory. */
+    private final AtomicInteger maxNestingDepth = new AtomicInteger();
+
+    void addParseTime(URI location, long nanos) {
+        synchronized (parseTimes) {
+            parseTimes.put(location, nanos);
+        }
+    }
+
+    void addClone() {
+        clones.incrementAndGet();
+    }
+
+    void addRecursiveReference() {
+        recursiveReferences.incrementAndGet();
+    }
+
+    void updateNestingDepth(int depth) {
+        int max;
+        while (depth > (max = maxNestingDepth.get())) {
+            if (maxNestingDepth.compareAndSet(max, depth))
+                return;
+        }
+    }
+
+    /**
+     * Returns the parse times of all schema documents in nanoseconds, by location.
+     * 
+     * @return
+     */
+    Map<URI, Long> getParseTimes() {
+        synchronized (parseTimes) {
+            return new LinkedHashMap<URI, Long>(parseTimes);
+        }
+    }
+
+    int getClones() {
+        return clones.get();
+    }
+
+    int getRecursiveReferences() {
+        return recursiveReferences.get();
+    }
+
+    int getMaxNestingDepth() {
+        return maxNestingDepth.get();
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelComplexType;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelElement;
+import org.apache.xmlbeans.impl.xb.xsdschema.TopLevelSimpleType;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Symbol table of all global components (complex types, simple types and
+ * elements) declared in a set of XML Schema documents.
+ * 
+ * The table is keyed by the qualified name of a component and its kind, so
+ * that lookups take constant time and components of the same local name in
+ * different target namespaces do not shadow each other. It is filled once
+ * per schema document when the document is added to an {@link FSchema}.
+ */
+public class SchemaSymbolTable {
+
+    private final org.slf4j.Logger log = LoggerFactory.getLogger(SchemaSymbolTable.class);
+
+    /**
+     * The kinds of global components stored in the symbol table.
+     */
+    public enum Kind {
+        COMPLEX_TYPE, SIMPLE_TYPE, ELEMENT
+    }
+
+    /** Maps from component kind to a map from qualified name to component. */
+    private final Map<Kind, Map<QName, XmlObject>> symbols = new EnumMap<Kind, Map<QName, XmlObject>>(Kind.class);
+
+    /** The target namespaces of all schemas added so far. */
+    private final Set<String> namespaces = new HashSet<String>();
+
+    /** The number of schemas added so far. */
+    private int modificationCount = 0;
+
+    public SchemaSymbolTable() {
+        for (Kind kind : Kind.values()) {
+            symbols.put(kind, new HashMap<QName, XmlObject>());
+        }
+    }
+
+    public SchemaSymbolTable(Collection<Schema> schemata) {
+        this();
+        for (Schema schema : schemata) {
+            addSchema(schema);
+        }
+    }
+
+    /**
+     * Adds all global components of the given schema to the symbol table. If
+     * a component of the same name and kind is already known, the first
+     * declaration is kept.
+     * 
+     * @param schema
+     */
+    public void addSchema(Schema schema) {
+        String namespace = normalize(schema.getTargetNamespace());
+        namespaces.add(namespace);
+        modificationCount++;
+
+        for (TopLevelComplexType ct : schema.getComplexTypeArray()) {
+            put(Kind.COMPLEX_TYPE, namespace, ct.getName(), ct);
+        }
+        for (TopLevelSimpleType st : schema.getSimpleTypeArray()) {
+            put(Kind.SIMPLE_TYPE, namespace, st.getName(), st);
+        }
+        for (TopLevelElement e : schema.getElementArray()) {
+            put(Kind.ELEMENT, namespace, e.getName(), e);
+        }
+    }
+
+    private void put(Kind kind, String namespace, String localName, XmlObject component) {
+        Map<QName, XmlObject> map = symbols.get(kind);
+        QName name = new QName(namespace, localName);
+
+        if (map.containsKey(name)) {
+            log.warn("Duplicate declaration of {} {}, keeping the first one", kind, name);
+            return;
+        }
+        map.put(name, component);
+    }
+
+    /**
+     * Looks up a global component of the given kind.
+     * 
+     * @param name
+     * @param kind
+     * @return the component or null if there is no such component
+     */
+    public XmlObject get(QName name, Kind kind) {
+        if (name == null) {
+            return null;
+        }
+        return symbols.get(kind).get(new QName(normalize(name.getNamespaceURI()), name.getLocalPart()));
+    }
+
+    /**
+     * Looks up a global component of any kind. Complex types take precedence
+     * over simple types, which take precedence over elements.
+     * 
+     * @param name
+     * @return the component or null if there is no such component
+     */
+    public XmlObject get(QName name) {
+        for (Kind kind : Kind.values()) {
+            XmlObject o = get(name, kind);
+            if (o != null) {
+                return o;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param namespace
+     * @return true if a schema with the given target namespace has been added
+     */
+    public boolean containsNamespace(String namespace) {
+        return namespaces.contains(normalize(namespace));
+    }
+
+    /**
+     * Returns a counter which changes whenever a schema is added. Results
+     * derived from the symbol table are valid as long as the counter stays
+     * the same.
+     * 
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * @return the number of components of all kinds in this symbol table
+     */
+    public int size() {
+        int size = 0;
+        for (Map<QName, XmlObject> map : symbols.values()) {
+            size += map.size();
+        }
+        return size;
+    }
+
+    /**
+     * Schemas without a target namespace yield null, whereas qualified names
+     * without a namespace carry the empty string.
+     */
+    private static String normalize(String namespace) {
+        return namespace == null ? XMLConstants.NULL_NS_URI : namespace;
+    }
+}
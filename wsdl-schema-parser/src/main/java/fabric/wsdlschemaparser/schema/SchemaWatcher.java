@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps the schema documents of an XML Schema file and everything it transitively imports in memory and watches the
+ * local ones for changes.
+ * 
+ * {@link #load()} builds a new {@link FSchema} object, parsing only the documents which have changed since the last
+ * load (or have been imported for the first time). All other documents are taken from memory.
+ * 
+ * Only parsing is saved: the whole Schema object tree is built anew on every load, not just the components of the
+ * changed documents and of the documents depending on them. {@link FSchemaTypeFactory} builds the tree in one pass
+ * over all documents, resolving references between them and numbering the objects in that order, so there is no
+ * part of an existing tree which could be replaced on its own. A changed document may also affect the components of
+ * every document importing or including it.
+ * 
+ * Changes are detected by polling the modification time and size of the files; remote documents are assumed never to
+ * change. Only the XMLBeans front-end is supported.
+ */
+public class SchemaWatcher {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(SchemaWatcher.class);
+
+    private final File xsdFile;
+
+    private final SchemaCatalog catalog;
+
+    /** The unmodified documents loaded last, by location. */
+    private final Map<URI, Document> documents = new LinkedHashMap<URI, Document>();
+
+    /** The stamps of all watched files at the time the last load started. */
+    private final Map<URI, Stamp> seen = new HashMap<URI, Stamp>();
+
+    /** The locations of the documents parsed by the last load. */
+    private final Set<URI> parsed = new LinkedHashSet<URI>();
+
+    public SchemaWatcher(File xsdFile) {
+        this(xsdFile, SchemaCatalog.getDefault());
+    }
+
+    public SchemaWatcher(File xsdFile, SchemaCatalog catalog) {
+        Preconditions.checkNotNull(xsdFile, "Schema file must not be null");
+        this.xsdFile = xsdFile;
+        this.catalog = catalog;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Loads the XML Schema file, parsing only the documents which have changed since the last load.
+     * 
+     * @return a new FSchema object
+     * @throws Exception
+     *             if a document cannot be loaded or parsed
+     */
+    public FSchema load() throws Exception {
+        URI root = xsdFile.toURI();
+        Set<URI> changed = getChangedLocations();
+        seen.clear();
+        for (URI location : getWatchedLocations()) {
+            seen.put(location, Stamp.of(location));
+        }
+
+        FSchema schema = new FSchema(catalog);
+        for (Map.Entry<URI, Document> entry : documents.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                schema.preloadSchema(entry.getKey(), entry.getValue().copy());
+            }
+        }
+
+        if (changed.contains(root)) {
+            log.info("Parsing XML Schema from file: " + xsdFile);
+            schema.addSchema(xsdFile);
+        } else {
+            schema.addSchema(documents.get(root).copy(), root);
+        }
+
+        // keep unmodified copies before building the tree renames any of the components
+        Map<URI, Document> loaded = new LinkedHashMap<URI, Document>();
+        parsed.clear();
+        for (Map.Entry<URI, Schema> entry : schema.getSchemaDocuments().entrySet()) {
+            URI location = entry.getKey();
+            Document document = documents.get(location);
+            if (document == null || changed.contains(location)) {
+                if (!seen.containsKey(location)) {
+                    seen.put(location, Stamp.of(location));
+                }
+                document = new Document((Schema) entry.getValue().copy(), seen.get(location));
+                parsed.add(location);
+            }
+            loaded.put(location, document);
+        }
+        documents.clear();
+        documents.putAll(loaded);
+        log.debug("Parsed {} of {} schema documents: {}", new Object[] { parsed.size(), documents.size(), parsed });
+
+        schema.generateTree();
+        return schema;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns the locations of the watched files which have changed since they were parsed, i.e. the documents the
+     * next load will parse again.
+     * 
+     * @return the changed locations, empty if nothing has changed
+     */
+    public Set<URI> getChangedLocations() {
+        Set<URI> changed = new LinkedHashSet<URI>();
+        for (URI location : getWatchedLocations()) {
+            Document document = documents.get(location);
+            if (document == null || !document.stamp.equals(Stamp.of(location))) {
+                changed.add(location);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Waits until any of the watched files changes. Changes made since the last load started are reported right
+     * away; a file which has not been changed again since a failed load is not.
+     * 
+     * @param interval
+     *            the polling interval in milliseconds
+     * @return the changed locations
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     */
+    public Set<URI> awaitChanges(long interval) throws InterruptedException {
+        while (true) {
+            Set<URI> changed = new LinkedHashSet<URI>();
+            for (URI location : getWatchedLocations()) {
+                if (!Stamp.of(location).equals(seen.get(location))) {
+                    changed.add(location);
+                }
+            }
+            if (!changed.isEmpty()) {
+                return changed;
+            }
+            Thread.sleep(interval);
+        }
+    }
+
+    /**
+     * Returns the locations of all files which are watched: the XML Schema file and all documents loaded last.
+     */
+    private Set<URI> getWatchedLocations() {
+        Set<URI> locations = new LinkedHashSet<URI>(documents.keySet());
+        locations.add(xsdFile.toURI());
+        return locations;
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Returns the locations of the documents which have been parsed by the last load, as opposed to those taken from
+     * memory.
+     * 
+     * @return
+     */
+    public Set<URI> getParsedLocations() {
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * An unmodified schema document, together with the stamp of the file it was parsed from.
+     */
+    private static final class Document {
+        private final Schema schema;
+        private final Stamp stamp;
+
+        public Document(Schema schema, Stamp stamp) {
+            this.schema = schema;
+            this.stamp = stamp;
+        }
+
+        /** Returns a copy of the document, which may be modified while building a Schema object tree. */
+        public Schema copy() {
+            return (Schema) schema.copy();
+        }
+    }
+
+    /**
+     * The modification time and size of a file. All documents which are not local files share the same stamp.
+     */
+    private static final class Stamp {
+        private static final Stamp REMOTE = new Stamp(0, -1);
+
+        private final long lastModified;
+        private final long length;
+
+        private Stamp(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public static Stamp of(URI location) {
+            if (!"file".equals(location.getScheme())) {
+                return REMOTE;
+            }
+            File file = new File(location);
+            return new Stamp(file.lastModified(), file.length());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Stamp))
+                return false;
+            Stamp other = (Stamp) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) length;
+        }
+    }
+}
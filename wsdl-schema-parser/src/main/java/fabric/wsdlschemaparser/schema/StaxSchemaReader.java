@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.net.URI;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads an XML Schema document from a StAX event stream into a tree of {@link XsdNode}s.
+ * 
+ * Unlike the XMLBeans front-end, no object model or DOM of the whole document is built. Only the XML Schema elements
+ * and their attributes are retained; annotations, text content and elements of other namespaces are skipped while
+ * streaming.
+ */
+final class StaxSchemaReader {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(StaxSchemaReader.class);
+
+    private static final String[] NO_STRINGS = new String[0];
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    private StaxSchemaReader() {
+        // static methods only
+    }
+
+    /**
+     * Reads the XML Schema document at the given location.
+     * 
+     * @param location
+     *            the location of the document
+     * @return the node of the document's xs:schema element
+     * @throws Exception
+     *             if the document cannot be read or is not an XML Schema document
+     */
+    static XsdNode read(URI location) throws Exception {
+        log.debug("Reading XML Schema from {}", location);
+
+        InputStream in = new BufferedInputStream(location.toURL().openStream());
+        try {
+            XMLStreamReader reader;
+            synchronized (inputFactory) {
+                reader = inputFactory.createXMLStreamReader(location.toString(), in);
+            }
+            try {
+                return read(reader, location);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static XsdNode read(XMLStreamReader reader, URI location) throws Exception {
+        XsdNode root = null;
+        XsdNode current = null;
+        XsdNode.NamespaceScope scope = null;
+
+        /* depth of the element currently being skipped (0 if nothing is skipped) */
+        int skipDepth = 0;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (skipDepth > 0) {
+                    skipDepth++;
+                    continue;
+                }
+
+                String localName = reader.getLocalName();
+                if (!DefaultValues.XML_SCHEMA_NAMESPACE_URI.equals(reader.getNamespaceURI())
+                        || "annotation".equals(localName)) {
+                    skipDepth = 1;
+                    continue;
+                }
+
+                if (root == null && !"schema".equals(localName))
+                    throw new Exception("Not an XML Schema document: " + location);
+
+                int nsCount = reader.getNamespaceCount();
+                if (nsCount > 0) {
+                    String[] bindings = new String[nsCount * 2];
+                    for (int i = 0; i < nsCount; i++) {
+                        String prefix = reader.getNamespacePrefix(i);
+                        String uri = reader.getNamespaceURI(i);
+                        bindings[2 * i] = (prefix != null) ? prefix : "";
+                        bindings[2 * i + 1] = (uri != null) ? uri : "";
+                    }
+                    scope = new XsdNode.NamespaceScope(scope, bindings);
+                }
+
+                int attrCount = reader.getAttributeCount();
+                String[] attributes = (attrCount > 0) ? new String[attrCount * 2] : NO_STRINGS;
+                for (int i = 0; i < attrCount; i++) {
+                    attributes[2 * i] = reader.getAttributeLocalName(i);
+                    attributes[2 * i + 1] = reader.getAttributeValue(i);
+                }
+
+                current = new XsdNode(localName.intern(), attributes, scope, current);
+                if (root == null)
+                    root = current;
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (skipDepth > 0) {
+                    skipDepth--;
+                    continue;
+                }
+
+                current = current.getParent();
+                scope = (current != null) ? current.getScope() : null;
+            }
+        }
+
+        if (root == null)
+            throw new Exception("Not an XML Schema document: " + location);
+
+        return root;
+    }
+}
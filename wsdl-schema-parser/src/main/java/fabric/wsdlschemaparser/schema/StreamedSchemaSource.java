@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * The XML Schema documents read by the streaming front-end ({@link StaxSchemaReader}). All global components are
+ * indexed up front, which resolves forward references without a second read of the documents.
+ */
+final class StreamedSchemaSource implements SchemaSource {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(StreamedSchemaSource.class);
+
+    private final List<XsdNode> documents;
+
+    /** Global complex types and simple types of all documents, by qualified name. */
+    private final Map<QName, XsdNode> types = new HashMap<QName, XsdNode>();
+
+    /** Global elements of all documents, by qualified name. */
+    private final Map<QName, XsdNode> elements = new HashMap<QName, XsdNode>();
+
+    /**
+     * @param documents
+     *            the xs:schema nodes of all documents
+     */
+    StreamedSchemaSource(List<XsdNode> documents) {
+        this.documents = documents;
+        for (XsdNode schema : documents) {
+            String targetNamespace = schema.getAttribute("targetNamespace");
+            if (targetNamespace == null)
+                targetNamespace = "";
+            index(types, targetNamespace, schema.getChildren("complexType"));
+            index(types, targetNamespace, schema.getChildren("simpleType"));
+            index(elements, targetNamespace, schema.getChildren("element"));
+        }
+    }
+
+    private void index(Map<QName, XsdNode> map, String targetNamespace, List<XsdNode> components) {
+        for (XsdNode component : components) {
+            QName name = new QName(targetNamespace, component.getAttribute("name"));
+            if (map.containsKey(name)) {
+                log.warn("Duplicate declaration of {}, keeping the first one", name);
+            } else {
+                map.put(name, component);
+            }
+        }
+    }
+
+    public List<XsdNode> getDocuments() {
+        return documents;
+    }
+
+    public SchemaNode getType(QName name) {
+        return types.get(name);
+    }
+
+    public SchemaNode getElement(QName name) {
+        return elements.get(name);
+    }
+}
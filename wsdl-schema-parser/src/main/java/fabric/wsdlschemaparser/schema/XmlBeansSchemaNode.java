@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+
+/**
+ * A node of an XML Schema document read by XMLBeans. The node is a thin view of the XMLBeans object; it is created on
+ * demand and holds no state of its own.
+ */
+final class XmlBeansSchemaNode implements SchemaNode {
+
+    private final XmlObject object;
+
+    XmlBeansSchemaNode(XmlObject object) {
+        this.object = object;
+    }
+
+    /**
+     * @return the XMLBeans object of this node
+     */
+    XmlObject getObject() {
+        return object;
+    }
+
+    // --------------------------------------------------------------------
+
+    public String getName() {
+        XmlCursor cursor = object.newCursor();
+        try {
+            return cursor.getName().getLocalPart();
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    public SchemaNode getParent() {
+        XmlCursor cursor = object.newCursor();
+        try {
+            if (!cursor.toParent() || cursor.isStartdoc())
+                return null;
+            return new XmlBeansSchemaNode(cursor.getObject());
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    public String getAttribute(String attributeName) {
+        XmlCursor cursor = object.newCursor();
+        try {
+            return cursor.getAttributeText(new QName(attributeName));
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    public boolean isSetAttribute(String attributeName) {
+        return getAttribute(attributeName) != null;
+    }
+
+    public void setAttribute(String attributeName, String value) {
+        XmlCursor cursor = object.newCursor();
+        try {
+            if (!cursor.setAttributeText(new QName(attributeName), value))
+                throw new IllegalArgumentException("No attribute " + attributeName + " at <" + getName() + ">");
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    public QName getQNameAttribute(String attributeName) {
+        String value = getAttribute(attributeName);
+        if (value == null)
+            return null;
+
+        value = value.trim();
+        int colon = value.indexOf(':');
+        String prefix = (colon < 0) ? XMLConstants.DEFAULT_NS_PREFIX : value.substring(0, colon);
+        String namespace;
+        XmlCursor cursor = object.newCursor();
+        try {
+            namespace = cursor.namespaceForPrefix(prefix);
+        } finally {
+            cursor.dispose();
+        }
+
+        if (namespace == null) {
+            if (colon >= 0)
+                throw new IllegalArgumentException("Unbound namespace prefix in " + attributeName + "=\"" + value
+                        + "\" at <" + getName() + ">");
+            namespace = XMLConstants.NULL_NS_URI;
+        }
+
+        return new QName(namespace, value.substring(colon + 1), prefix);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Unlike {@link XsdNode#getChildren()}, the children include annotations and elements of other namespaces.
+     */
+    public List<XmlBeansSchemaNode> getChildren() {
+        return children(null);
+    }
+
+    public List<XmlBeansSchemaNode> getChildren(String childName) {
+        return children(childName);
+    }
+
+    public XmlBeansSchemaNode getChild(String childName) {
+        XmlCursor cursor = object.newCursor();
+        try {
+            for (boolean more = cursor.toFirstChild(); more; more = cursor.toNextSibling()) {
+                if (isSchemaElement(cursor.getName(), childName))
+                    return new XmlBeansSchemaNode(cursor.getObject());
+            }
+            return null;
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    public boolean isSetChild(String childName) {
+        return getChild(childName) != null;
+    }
+
+    /**
+     * @param childName
+     *            the local name of the XML Schema elements to return, or <code>null</code> for all child elements
+     */
+    private List<XmlBeansSchemaNode> children(String childName) {
+        List<XmlBeansSchemaNode> result = null;
+        XmlCursor cursor = object.newCursor();
+        try {
+            for (boolean more = cursor.toFirstChild(); more; more = cursor.toNextSibling()) {
+                if (childName == null || isSchemaElement(cursor.getName(), childName)) {
+                    if (result == null)
+                        result = new ArrayList<XmlBeansSchemaNode>();
+                    result.add(new XmlBeansSchemaNode(cursor.getObject()));
+                }
+            }
+        } finally {
+            cursor.dispose();
+        }
+        return (result != null) ? result : Collections.<XmlBeansSchemaNode> emptyList();
+    }
+
+    private static boolean isSchemaElement(QName name, String localName) {
+        return localName.equals(name.getLocalPart())
+                && DefaultValues.XML_SCHEMA_NAMESPACE_URI.equals(name.getNamespaceURI());
+    }
+
+    // --------------------------------------------------------------------
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof XmlBeansSchemaNode) && ((XmlBeansSchemaNode) obj).object == object;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(object);
+    }
+
+    @Override
+    public String toString() {
+        return object.toString();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+
+/**
+ * The XML Schema documents read by XMLBeans. Global components are looked up in a {@link SchemaSymbolTable}.
+ */
+final class XmlBeansSchemaSource implements SchemaSource {
+
+    private final List<XmlBeansSchemaNode> documents = new ArrayList<XmlBeansSchemaNode>();
+
+    private final SchemaSymbolTable symbolTable;
+
+    /**
+     * @param schemata
+     * @param symbolTable
+     *            symbol table containing all components of schemata
+     */
+    XmlBeansSchemaSource(Collection<Schema> schemata, SchemaSymbolTable symbolTable) {
+        for (Schema schema : schemata) {
+            documents.add(new XmlBeansSchemaNode(schema));
+        }
+        this.symbolTable = symbolTable;
+    }
+
+    public List<XmlBeansSchemaNode> getDocuments() {
+        return documents;
+    }
+
+    public SchemaNode getType(QName name) {
+        XmlObject o = symbolTable.get(name, SchemaSymbolTable.Kind.COMPLEX_TYPE);
+        if (o == null)
+            o = symbolTable.get(name, SchemaSymbolTable.Kind.SIMPLE_TYPE);
+        return (o != null) ? new XmlBeansSchemaNode(o) : null;
+    }
+
+    public SchemaNode getElement(QName name) {
+        XmlObject o = symbolTable.get(name, SchemaSymbolTable.Kind.ELEMENT);
+        return (o != null) ? new XmlBeansSchemaNode(o) : null;
+    }
+}
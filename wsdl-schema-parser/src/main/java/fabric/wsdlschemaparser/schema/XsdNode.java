@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+/**
+ * A compact node of an XML Schema document as read by {@link StaxSchemaReader}.
+ * 
+ * Only the XML Schema elements themselves and their attributes are kept. Text content, annotations and foreign
+ * elements are dropped while reading, so a tree of these nodes is much smaller than the corresponding XMLBeans object
+ * model and DOM. Namespace declarations are shared between all nodes in their scope.
+ */
+final class XsdNode implements SchemaNode {
+
+    /**
+     * The namespace declarations in scope of a node. A new scope is only created for elements which declare
+     * namespaces themselves.
+     */
+    static final class NamespaceScope {
+        private final NamespaceScope parent;
+
+        /** Pairs of prefix and namespace URI. The default namespace has the empty prefix. */
+        private final String[] bindings;
+
+        NamespaceScope(NamespaceScope parent, String[] bindings) {
+            this.parent = parent;
+            this.bindings = bindings;
+        }
+
+        String getNamespaceURI(String prefix) {
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix))
+                return XMLConstants.XML_NS_URI;
+
+            for (NamespaceScope scope = this; scope != null; scope = scope.parent) {
+                for (int i = 0; i < scope.bindings.length; i += 2) {
+                    if (scope.bindings[i].equals(prefix))
+                        return scope.bindings[i + 1];
+                }
+            }
+            return null;
+        }
+    }
+
+    // --------------------------------------------------------------------
+
+    private final String name;
+
+    /** Pairs of attribute name and value. */
+    private final String[] attributes;
+
+    private final NamespaceScope scope;
+
+    private final XsdNode parent;
+
+    private List<XsdNode> children = Collections.emptyList();
+
+    XsdNode(String name, String[] attributes, NamespaceScope scope, XsdNode parent) {
+        this.name = name;
+        this.attributes = attributes;
+        this.scope = scope;
+        this.parent = parent;
+        if (parent != null)
+            parent.addChild(this);
+    }
+
+    private void addChild(XsdNode child) {
+        if (children.isEmpty())
+            children = new ArrayList<XsdNode>(2);
+        children.add(child);
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * @return the local name of the XML Schema element, e.g. "complexType"
+     */
+    public String getName() {
+        return name;
+    }
+
+    public XsdNode getParent() {
+        return parent;
+    }
+
+    NamespaceScope getScope() {
+        return scope;
+    }
+
+    public String getAttribute(String attributeName) {
+        for (int i = 0; i < attributes.length; i += 2) {
+            if (attributes[i].equals(attributeName))
+                return attributes[i + 1];
+        }
+        return null;
+    }
+
+    public boolean isSetAttribute(String attributeName) {
+        return getAttribute(attributeName) != null;
+    }
+
+    /**
+     * Changes the value of an existing attribute.
+     */
+    public void setAttribute(String attributeName, String value) {
+        for (int i = 0; i < attributes.length; i += 2) {
+            if (attributes[i].equals(attributeName)) {
+                attributes[i + 1] = value;
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No attribute " + attributeName + " at <" + name + ">");
+    }
+
+    /**
+     * Resolves an attribute of type xs:QName (e.g. "type", "ref" or "base") in the namespace context of this node.
+     * 
+     * @return the qualified name, or <code>null</code> if the attribute is not set
+     */
+    public QName getQNameAttribute(String attributeName) {
+        String value = getAttribute(attributeName);
+        if (value == null)
+            return null;
+
+        value = value.trim();
+        int colon = value.indexOf(':');
+        String prefix = (colon < 0) ? XMLConstants.DEFAULT_NS_PREFIX : value.substring(0, colon);
+        String namespace = (scope != null) ? scope.getNamespaceURI(prefix) : null;
+
+        if (namespace == null) {
+            if (colon >= 0)
+                throw new IllegalArgumentException("Unbound namespace prefix in " + attributeName + "=\"" + value
+                        + "\" at <" + name + ">");
+            namespace = XMLConstants.NULL_NS_URI;
+        }
+
+        return new QName(namespace, value.substring(colon + 1), prefix);
+    }
+
+    // --------------------------------------------------------------------
+
+    public List<XsdNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return all child nodes of the given name, in document order
+     */
+    public List<XsdNode> getChildren(String childName) {
+        List<XsdNode> result = null;
+        for (XsdNode child : children) {
+            if (child.name.equals(childName)) {
+                if (result == null)
+                    result = new ArrayList<XsdNode>();
+                result.add(child);
+            }
+        }
+        return (result != null) ? result : Collections.<XsdNode> emptyList();
+    }
+
+    /**
+     * @return the first child node of the given name, or <code>null</code>
+     */
+    public XsdNode getChild(String childName) {
+        for (XsdNode child : children) {
+            if (child.name.equals(childName))
+                return child;
+        }
+        return null;
+    }
+
+    public boolean isSetChild(String childName) {
+        return getChild(childName) != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("<").append(name);
+        for (int i = 0; i < attributes.length; i += 2)
+            sb.append(' ').append(attributes[i]).append("=\"").append(attributes[i + 1]).append('"');
+        return sb.append('>').toString();
+    }
+}
@@ -25,18 +25,29 @@ package fabric.wsdlschemaparser.wsdl;
 
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.wsdl.Definition;
 
+import org.apache.xmlbeans.XmlOptions;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument;
 import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import com.ibm.wsdl.xml.WSDLReaderImpl;
 
@@ -45,6 +56,13 @@ import fabric.wsdlschemaparser.schema.FSchema;
 public class FWSDL {
 	private static final org.slf4j.Logger log = LoggerFactory.getLogger(FWSDL.class);
 
+	/**
+	 * The system property setting the number of threads converting the XML
+	 * Schemata embedded in a WSDL file. Defaults to the number of available
+	 * processors.
+	 */
+	public static final String THREADS_PROPERTY = "fabric.wsdlschemaparser.wsdl.threads";
+
 	private Set<FMethod> methods = new HashSet<FMethod>();
 
 	private FSchema schema = new FSchema();
@@ -53,54 +71,119 @@ public class FWSDL {
 		log.info("Reading WSDL definition from " + wsdlFile);
 
 		Definition wsdlDef = new WSDLReaderImpl().readWSDL(wsdlFile.getAbsolutePath());
-		Map<?, ?> wsdlNamespaces = wsdlDef.getNamespaces();
 
+		List<Element> schemaElements = new ArrayList<Element>();
 		if (wsdlDef.getTypes() != null) {
-			List<?> exEls = wsdlDef.getTypes().getExtensibilityElements();
-			for (int i = 0; i < exEls.size(); i++) {
-				Object a = exEls.get(i);
-
+			for (Object a : wsdlDef.getTypes().getExtensibilityElements()) {
 				/* Ignore Types != an XML Schema */
 				if (javax.wsdl.extensions.schema.Schema.class.isAssignableFrom(a.getClass())) {
-					javax.wsdl.extensions.schema.Schema containedSchema = (javax.wsdl.extensions.schema.Schema) a;
-
-					log.debug("Found XMLSchema in WSDL: " + containedSchema);
+					log.debug("Found XMLSchema in WSDL: " + a);
 
 					/* This is the root node of the XML Schema tree */
-					Element schemaElement = containedSchema.getElement();
-
-					/*
-					 * Go through all parent namespace declarations and copy
-					 * them into the tree of the XMLSchema.
-					 * (probably a little hacky)
-					 */
-					for (Object key : wsdlNamespaces.keySet()) {
-						String nsShort = (String) key;
-						String nsLong = (String) wsdlNamespaces.get(key);
-
-						if (schemaElement.getAttribute("xmlns:" + nsShort).length() == 0) {
-							schemaElement.setAttribute("xmlns:" + nsShort, nsLong);
-						}
-					}
+					schemaElements.add(((javax.wsdl.extensions.schema.Schema) a).getElement());
+				}
 
-					/* Fall back on global defininiton */
-					if (schemaElement.getAttribute("targetNamespace").length() == 0) {
-						schemaElement.setAttribute("targetNamespace", wsdlDef.getTargetNamespace());
-					}
+				// log.debug("Ignoring unknown ExtensibilityElement in WSDL (type: " + a.getClass() + ") --> " + a);
+			}
+		}
+
+		/*
+		 * TODO: more things to take care of when cutting out the
+		 * schema?
+		 */
+		for (Schema schemaDocument : parseSchemata(schemaElements, wsdlDef)) {
+			log.debug("Adding schema to FSchema: " + schemaDocument);
+			schema.addSchema(schemaDocument, wsdlFile.toURI());
+		}
+	}
 
-					/*
-					 * TODO: more things to take care of when cutting out the
-					 * schema?
-					 */
-					Schema schemaDocument = SchemaDocument.Factory.parse(schemaElement).getSchema();
-					log.debug("Adding schema to FSchema: " + schemaDocument);
-					schema.addSchema(schemaDocument, wsdlFile.toURI());
+	/**
+	 * Converts the XML Schemata embedded in a WSDL definition concurrently.
+	 * The schemata are returned in the order of their elements.
+	 * 
+	 * @param schemaElements the root nodes of the embedded XML Schemata
+	 * @param wsdlDef the WSDL definition
+	 * @return the converted schemata
+	 * @throws Exception if any of the schemata cannot be converted
+	 */
+	private List<Schema> parseSchemata(List<Element> schemaElements, final Definition wsdlDef) throws Exception {
+		/*
+		 * The namespace declarations of the WSDL definition are in scope in
+		 * every schema, unless the schema declares the prefix itself.
+		 */
+		Map<String, String> namespaces = new HashMap<String, String>();
+		for (Map.Entry<?, ?> entry : ((Map<?, ?>) wsdlDef.getNamespaces()).entrySet()) {
+			if (((String) entry.getKey()).length() > 0) {
+				namespaces.put((String) entry.getKey(), (String) entry.getValue());
+			}
+		}
+		final XmlOptions options = new XmlOptions().setLoadAdditionalNamespaces(namespaces);
+
+		int threads = Math.min(schemaElements.size(), Integer.getInteger(THREADS_PROPERTY,
+				Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+		try {
+			List<Future<Schema>> futures = new ArrayList<Future<Schema>>();
+			for (final Element schemaElement : schemaElements) {
+				FutureTask<Schema> task = new FutureTask<Schema>(new Callable<Schema>() {
+					@Override
+					public Schema call() throws Exception {
+						Schema schemaDocument = SchemaDocument.Factory.parse(schemaElement, options).getSchema();
+
+						/* Fall back on global defininiton */
+						if (schemaDocument.getTargetNamespace() == null
+								|| schemaDocument.getTargetNamespace().length() == 0) {
+							schemaDocument.setTargetNamespace(wsdlDef.getTargetNamespace());
+						}
+						return schemaDocument;
+					}
+				});
+
+				if (executor != null) {
+					// the DOM is read concurrently, so it must not be expanded lazily
+					expand(schemaElement);
+					executor.execute(task);
+				} else {
+					task.run();
 				}
+				futures.add(task);
+			}
 
-				// log.debug("Ignoring unknown ExtensibilityElement in WSDL (type: " + a.getClass() + ") --> " + a);
+			List<Schema> schemata = new ArrayList<Schema>();
+			for (Future<Schema> future : futures) {
+				try {
+					schemata.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception)
+						throw (Exception) cause;
+					throw e;
+				}
+			}
+			return schemata;
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
 		}
+	}
 
+	/**
+	 * Touches every node below the given node, so that a lazily built DOM
+	 * is fully built afterwards and can safely be read by several threads.
+	 */
+	private static void expand(Node node) {
+		node.getNodeValue();
+		NamedNodeMap attributes = node.getAttributes();
+		if (attributes != null) {
+			for (int i = 0; i < attributes.getLength(); i++) {
+				attributes.item(i).getNodeValue();
+			}
+		}
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			expand(child);
+		}
 	}
 
 	// -------------------------------------------------------------------------
@@ -139,10 +222,16 @@ public class FWSDL {
 		for (FMethod method : this.getMethods()) {
 			String opString = "Operation: " + method.getName() + "(";
 
-			opString += method.getParameters().getSchemaType().getName() + " " + method.getParameters().getName()
-					+ ", ";
+			if (method.getParameters() != null) {
+				opString += method.getParameters().getSchemaType().getName() + " " + method.getParameters().getName()
+						+ ", ";
+			}
 			opString += ") --> (";
-			opString += method.getReturnVal().getSchemaType().getName() + " " + method.getReturnVal().getName() + ", ";
+			// one-way operations have no return value
+			if (method.getReturnVal() != null) {
+				opString += method.getReturnVal().getSchemaType().getName() + " " + method.getReturnVal().getName()
+						+ ", ";
+			}
 			opString += ");";
 			ret += opString;
 		}
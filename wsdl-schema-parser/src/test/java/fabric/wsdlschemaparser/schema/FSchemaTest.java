@@ -0,0 +1,436 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.io.Files;
+
+import org.junit.Test;
+
+public class FSchemaTest {
+
+    @Test
+    public void testImportOrder() throws Exception {
+        // main imports a and b, a imports c, b imports c and a
+        FSchema schema = new FSchema(new File("src/test/resources/schemas/imports/main.xsd"));
+
+        /*
+        Tests
+         */
+        assertEquals("Imports have to be added depth-first in declaration order.",
+                Arrays.asList("urn:fabric:test:main", "urn:fabric:test:a", "urn:fabric:test:c", "urn:fabric:test:b"),
+                schema.getNamespaces());
+        assertEquals("ns0", schema.mapNamespaceToNSPrefix("urn:fabric:test:main"));
+        assertEquals("ns1", schema.mapNamespaceToNSPrefix("urn:fabric:test:a"));
+        assertEquals("ns2", schema.mapNamespaceToNSPrefix("urn:fabric:test:c"));
+        assertEquals("ns3", schema.mapNamespaceToNSPrefix("urn:fabric:test:b"));
+        assertEquals("urn:fabric:test:c", schema.mapNSPrefixToNamespace("ns2"));
+        assertNull(schema.mapNSPrefixToNamespace("ns4"));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File dir = Files.createTempDir();
+        File cache = new File(dir, "cache");
+        for (String name : new String[] { "main", "a", "b", "c" }) {
+            Files.copy(new File("src/test/resources/schemas/imports/" + name + ".xsd"), new File(dir, name + ".xsd"));
+        }
+        File main = new File(dir, "main.xsd");
+
+        FSchema cold = new FSchema(main, cache);
+        FSchema warm = new FSchema(main, cache);
+
+        /*
+        Tests
+         */
+        assertTrue("The cold run has to parse the schemata.", cold.getSymbolTable().size() > 0);
+        assertEquals("The warm run must not parse any schema.", 0, warm.getSymbolTable().size());
+        assertEquals(cold.getNamespaces(), warm.getNamespaces());
+        assertEquals("ns2", warm.mapNamespaceToNSPrefix("urn:fabric:test:c"));
+        FElement element = warm.getTopLevelObjectList().getTopLevelElement("CElement");
+        assertEquals("urn:fabric:test:c", element.getNamespace());
+        assertSame("Restored objects have to refer to the new FSchema object.", warm, element.getFSchema());
+
+        // trees read by another front-end or resolved with another catalog are cached apart
+        FSchema streamed = new FSchema(main, cache, SchemaCatalog.getDefault(), FSchema.Frontend.STREAMING);
+        assertEquals("ns2", streamed.mapNamespaceToNSPrefix("urn:fabric:test:c"));
+        SchemaCatalog catalog = new SchemaCatalog();
+        catalog.addMirror(dir);
+        FSchema mirrored = new FSchema(main, cache, catalog);
+        assertTrue("Another catalog must not reuse the cached tree.", mirrored.getSymbolTable().size() > 0);
+        assertEquals(0, new FSchema(main, cache, catalog).getSymbolTable().size());
+
+        // changing an imported schema invalidates the cached tree
+        FileWriter writer = new FileWriter(new File(dir, "c.xsd"), true);
+        writer.write("<!-- changed -->");
+        writer.close();
+        FSchema changed = new FSchema(main, cache);
+        assertTrue("A changed import has to be parsed again.", changed.getSymbolTable().size() > 0);
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void testForeignClassRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(Collections.singletonList(new File("foreign")));
+        out.close();
+
+        assertTrue(FSchemaObjectInputStream.isAllowedClass(FElement.class.getName()));
+        assertTrue(FSchemaObjectInputStream.isAllowedClass("[Ljava.util.HashMap;"));
+        assertTrue(!FSchemaObjectInputStream.isAllowedClass("[Ljava.io.File;"));
+
+        new FSchemaObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()), new FSchema()).readObject();
+    }
+
+    @Test
+    public void testCatalog() throws Exception {
+        File dir = Files.createTempDir();
+        File mirror = new File(dir, "mirror");
+        new File(mirror, "example.org/mirrored").mkdirs();
+        write(new File(dir, "main.xsd"), schema("urn:fabric:test:catalog",
+                "<xs:import namespace=\"http://example.org/cataloged\"/>"
+                        + "<xs:import namespace=\"http://example.org/mirrored/types\""
+                        + " schemaLocation=\"http://example.org/mirrored/types\"/>"
+                        + "<xs:element name=\"Main\" type=\"xs:string\"/>"));
+        write(new File(dir, "cataloged.xsd"), schema("http://example.org/cataloged",
+                "<xs:element name=\"Cataloged\" type=\"xs:string\"/>"));
+        write(new File(mirror, "example.org/mirrored/types.xsd"), schema("http://example.org/mirrored/types",
+                "<xs:element name=\"Mirrored\" type=\"xs:string\"/>"));
+        write(new File(dir, "catalog.xml"), "<catalog xmlns=\"urn:oasis:names:tc:entity:xmlns:xml:catalog\">"
+                + "<uri name=\"http://example.org/cataloged\" uri=\"cataloged.xsd\"/></catalog>");
+
+        SchemaCatalog catalog = new SchemaCatalog();
+        catalog.addCatalog(new File(dir, "catalog.xml").toURI());
+        catalog.addMirror(mirror);
+        FSchema schema = new FSchema(new File(dir, "main.xsd"), null, catalog);
+
+        /*
+        Tests
+         */
+        assertEquals(new File(dir, "cataloged.xsd").toURI(),
+                schema.getSchemaLocations().get("http://example.org/cataloged"));
+        assertEquals(new File(mirror, "example.org/mirrored/types.xsd").toURI(),
+                schema.getSchemaLocations().get("http://example.org/mirrored/types"));
+        assertEquals("urn:fabric:test:catalog", schema.getTopLevelObjectList().getTopLevelElement("Main")
+                .getNamespace());
+        assertEquals("http://example.org/mirrored/types", schema.getTopLevelObjectList()
+                .getTopLevelElement("Mirrored").getNamespace());
+        assertNull(catalog.resolve("http://example.org/unknown", null));
+
+        // well-known namespaces are resolved to the bundled copies
+        URI soapenc = new SchemaImportResolver(catalog).resolve(null, "http://schemas.xmlsoap.org/soap/encoding/",
+                new File(dir, "main.xsd").toURI());
+        assertTrue("SOAP encoding has to be resolved to the bundled copy.",
+                soapenc.toString().endsWith("catalog/soapenc.xsd"));
+        assertEquals("http://schemas.xmlsoap.org/soap/encoding/",
+                new SchemaImportResolver(catalog).getSchema(soapenc).getTargetNamespace());
+        URI wsdl = new SchemaImportResolver(catalog).resolve(null, "http://schemas.xmlsoap.org/wsdl/",
+                new File(dir, "main.xsd").toURI());
+        assertTrue("WSDL 1.1 has to be resolved to the bundled copy.", wsdl.toString().endsWith("catalog/wsdl.xsd"));
+        assertEquals("http://schemas.xmlsoap.org/wsdl/",
+                new SchemaImportResolver(catalog).getSchema(wsdl).getTargetNamespace());
+    }
+
+    @Test
+    public void testWatcher() throws Exception {
+        File dir = Files.createTempDir();
+        File main = new File(dir, "main.xsd");
+        File types = new File(dir, "types.xsd");
+        write(main, schema("urn:fabric:test:watch", "<xs:import namespace=\"urn:fabric:test:types\""
+                + " schemaLocation=\"types.xsd\"/><xs:element name=\"Main\" type=\"xs:string\"/>"));
+        write(types, schema("urn:fabric:test:types", "<xs:element name=\"First\" type=\"xs:int\"/>"));
+
+        SchemaWatcher watcher = new SchemaWatcher(main);
+        FSchema first = watcher.load();
+
+        /*
+        Tests
+         */
+        assertEquals(2, watcher.getParsedLocations().size());
+        assertTrue(watcher.getChangedLocations().isEmpty());
+        assertEquals(describe(new FSchema(main).getTopLevelObjectList().getTopLevelElements()),
+                describe(first.getTopLevelObjectList().getTopLevelElements()));
+
+        FSchema unchanged = watcher.load();
+        assertTrue("Unchanged documents must not be parsed again.", watcher.getParsedLocations().isEmpty());
+        assertEquals(describe(first.getTopLevelObjectList().getTopLevelElements()),
+                describe(unchanged.getTopLevelObjectList().getTopLevelElements()));
+
+        write(types, schema("urn:fabric:test:types", "<xs:element name=\"Second\" type=\"xs:int\"/>"));
+        types.setLastModified(types.lastModified() + 2000);
+        assertEquals(Collections.singleton(types.toURI()), watcher.awaitChanges(10));
+        assertEquals(Collections.singleton(types.toURI()), watcher.getChangedLocations());
+
+        FSchema changed = watcher.load();
+        assertEquals(Collections.singleton(types.toURI()), watcher.getParsedLocations());
+        assertNull(changed.getTopLevelObjectList().getTopLevelElement("First"));
+        assertEquals("urn:fabric:test:types", changed.getTopLevelObjectList().getTopLevelElement("Second")
+                .getNamespace());
+        assertEquals("urn:fabric:test:watch", changed.getTopLevelObjectList().getTopLevelElement("Main")
+                .getNamespace());
+    }
+
+    private static String schema(String targetNamespace, String content) {
+        return "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"" + targetNamespace
+                + "\">" + content + "</xs:schema>";
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    @Test
+    public void testStreamingFrontend() throws Exception {
+        for (String name : new String[] { "imports/main", "complex-types", "recursiveTypes", "enumerations" }) {
+            File xsd = new File("src/test/resources/schemas/" + name + ".xsd");
+            FSchema xmlBeans = new FSchema(xsd);
+            FSchema streamed = new FSchema(xsd, null, SchemaCatalog.getDefault(), FSchema.Frontend.STREAMING);
+
+            /*
+            Tests
+             */
+            assertEquals("The streaming front-end must not use XMLBeans.", 0, streamed.getSymbolTable().size());
+            assertEquals(xmlBeans.getNamespaces(), streamed.getNamespaces());
+            for (String namespace : xmlBeans.getNamespaces()) {
+                assertEquals(xmlBeans.mapNamespaceToNSPrefix(namespace), streamed.mapNamespaceToNSPrefix(namespace));
+            }
+            assertEquals(name, describe(xmlBeans.getTopLevelObjectList().getTopLevelElements()),
+                    describe(streamed.getTopLevelObjectList().getTopLevelElements()));
+        }
+    }
+
+    @Test
+    public void testParallelBuild() throws Exception {
+        for (String name : new String[] { "imports/main", "sharedTypes", "recursiveTypes", "references" }) {
+            File xsd = new File("src/test/resources/schemas/" + name + ".xsd");
+            FSchema sequential = new FSchema(xsd);
+            FSchema parallel;
+            System.setProperty(FSchema.THREADS_PROPERTY, "4");
+            try {
+                parallel = new FSchema(xsd);
+            } finally {
+                System.clearProperty(FSchema.THREADS_PROPERTY);
+            }
+
+            /*
+            Tests
+             */
+            assertEquals(name, describe(sequential.getTopLevelObjectList().getTopLevelElements()),
+                    describe(parallel.getTopLevelObjectList().getTopLevelElements()));
+            assertEquals(name, describe(sequential.getTopLevelObjectList().getTopLevelTypes()),
+                    describe(parallel.getTopLevelObjectList().getTopLevelTypes()));
+        }
+
+        // types built by several components are merged into one
+        System.setProperty(FSchema.THREADS_PROPERTY, "4");
+        try {
+            FTopLevelObjectList tree = new FSchema(new File("src/test/resources/schemas/sharedTypes.xsd"))
+                    .getTopLevelObjectList();
+            assertSame(tree.getTopLevelType("Address"), tree.getTopLevelElement("HomeAddress").getSchemaType());
+            assertSame(tree.getTopLevelType("Address"), tree.getTopLevelElement("WorkAddress").getSchemaType());
+        } finally {
+            System.clearProperty(FSchema.THREADS_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testParallelBuildInReferenceOrder() throws Exception {
+        // a chain of types which refer to the next one, closed into a cycle, and an element referenced by a type
+        StringBuilder content = new StringBuilder();
+        int length = 40;
+        for (int i = 0; i < length; i++) {
+            content.append("<xs:complexType name=\"T").append(i).append("\"><xs:sequence>")
+                    .append("<xs:element name=\"next\" type=\"T").append((i + 1) % length)
+                    .append("\" minOccurs=\"0\"/><xs:element ref=\"Leaf\"/></xs:sequence></xs:complexType>");
+        }
+        content.append("<xs:element name=\"Leaf\"><xs:complexType><xs:sequence>")
+                .append("<xs:element name=\"value\" type=\"xs:int\"/></xs:sequence></xs:complexType></xs:element>");
+        content.append("<xs:element name=\"Root\" type=\"T0\"/>");
+        File xsd = new File(Files.createTempDir(), "chain.xsd");
+        write(xsd, "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns=\"urn:fabric:test:chain\""
+                + " targetNamespace=\"urn:fabric:test:chain\">" + content + "</xs:schema>");
+
+        int sequentialFirst = FSchemaObject.getLastID();
+        FSchema sequential = new FSchema(xsd);
+        int sequentialIDs = FSchemaObject.getLastID() - sequentialFirst;
+        FSchema parallel;
+        int parallelFirst;
+        System.setProperty(FSchema.THREADS_PROPERTY, "4");
+        try {
+            parallelFirst = FSchemaObject.getLastID();
+            parallel = new FSchema(xsd);
+        } finally {
+            System.clearProperty(FSchema.THREADS_PROPERTY);
+        }
+        int parallelIDs = FSchemaObject.getLastID() - parallelFirst;
+
+        /*
+        Tests
+         */
+        assertEquals("Every type has to be built exactly once.", sequentialIDs, parallelIDs);
+        FTopLevelObjectList tree = parallel.getTopLevelObjectList();
+        assertEquals(describe(sequential.getTopLevelObjectList().getTopLevelTypes()),
+                describe(tree.getTopLevelTypes()));
+        assertEquals(ids(sequential.getTopLevelObjectList().getTopLevelElements(), sequentialFirst),
+                ids(tree.getTopLevelElements(), parallelFirst));
+        assertSame(tree.getTopLevelType("T0"), tree.getTopLevelElement("Root").getSchemaType());
+    }
+
+    @Test
+    public void testNamePool() throws Exception {
+        FSchema schema = new FSchema(new File("src/test/resources/schemas/imports/main.xsd"));
+        FTopLevelObjectList tree = schema.getTopLevelObjectList();
+        Map<String, String> namespaces = new HashMap<String, String>();
+
+        /*
+        Tests
+         */
+        for (FElement e : tree.getTopLevelElements()) {
+            for (FSchemaObject o : Arrays.asList(e, e.getSchemaType())) {
+                String namespace = o.getNamespace();
+                if (!namespaces.containsKey(namespace)) {
+                    namespaces.put(namespace, namespace);
+                }
+                assertSame("Objects of one namespace have to share the namespace string.",
+                        namespaces.get(namespace), namespace);
+            }
+        }
+        assertSame(schema.mapNamespaceToNSPrefix("urn:fabric:test:a"),
+                schema.mapNamespaceToNSPrefix(new String("urn:fabric:test:a")));
+        assertTrue("Duplicate names have to be replaced by pooled ones.",
+                schema.getNamePool().getDuplicates() > 0);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        File xsd = new File("src/test/resources/schemas/recursiveTypes.xsd");
+        FSchema schema = new FSchema(xsd);
+        StringWriter json = new StringWriter();
+        new SchemaInfoDumper(schema).dumpStatisticsTo(new PrintWriter(json));
+        SchemaStatistics statistics = schema.getStatistics();
+
+        /*
+        Tests
+         */
+        assertEquals(Collections.singleton(xsd.toURI()), statistics.getParseTimes().keySet());
+        assertTrue("Recursive references have to be counted.", statistics.getRecursiveReferences() > 0);
+        assertTrue(statistics.getMaxNestingDepth() > 0);
+        assertTrue(json.toString(), json.toString().startsWith("{"));
+        assertTrue(json.toString(), json.toString().contains("\"location\": \"" + xsd.toURI() + "\""));
+        assertTrue(json.toString(), json.toString().contains("\"recursiveReferences\": "
+                + statistics.getRecursiveReferences() + ","));
+        assertTrue(json.toString(), json.toString().contains("\"namePool\": {\"size\": " + schema.getNamePool().size()
+                + ", \"lookups\": " + schema.getNamePool().getLookups() + ", \"duplicates\": "
+                + schema.getNamePool().getDuplicates() + ", \"savedBytes\": " + schema.getNamePool().getSavedBytes()
+                + "},"));
+        for (FSchemaObject component : schema.getTopLevelObjectList().getTopLevelElements()) {
+            assertTrue(json.toString(), json.toString().contains("\"name\": \"" + component.getName()
+                    + "\", \"nodes\": "));
+        }
+    }
+
+    /**
+     * Lists the IDs of a Schema object tree in depth-first order, relative to the last ID before the tree was built.
+     */
+    private static List<Integer> ids(List<? extends FSchemaObject> objects, int first) {
+        List<Integer> ids = new ArrayList<Integer>();
+        Set<FSchemaObject> visited = Collections.newSetFromMap(new IdentityHashMap<FSchemaObject, Boolean>());
+        List<FSchemaObject> pending = new ArrayList<FSchemaObject>(objects);
+        while (!pending.isEmpty()) {
+            FSchemaObject o = pending.remove(0);
+            if (!visited.add(o)) {
+                continue;
+            }
+            ids.add(o.getID() - first);
+            if (o instanceof FElement) {
+                pending.add(0, ((FElement) o).getSchemaType());
+            } else if (o instanceof FComplexType) {
+                pending.addAll(0, ((FComplexType) o).getChildObjects());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Describes the structure of a Schema object tree: names, namespaces, classes, occurrences and restrictions.
+     */
+    private static String describe(List<? extends FSchemaObject> objects) throws Exception {
+        StringBuilder out = new StringBuilder();
+        for (FSchemaObject o : objects) {
+            describe(o, out, Collections.newSetFromMap(new IdentityHashMap<FSchemaObject, Boolean>()));
+        }
+        return out.toString();
+    }
+
+    private static void describe(FSchemaObject o, StringBuilder out, Set<FSchemaObject> path) throws Exception {
+        out.append('(').append(o.getClass().getSimpleName()).append(' ').append(o.getNamespace()).append(':')
+                .append(o.getName());
+        if (o instanceof FElement) {
+            FElement e = (FElement) o;
+            out.append(' ').append(e.getMinOccurs()).append("..").append(e.getMaxOccurs());
+            describe(e.getSchemaType(), out, path);
+        } else if (o instanceof FSimpleType) {
+            FSimpleType t = (FSimpleType) o;
+            for (int facet : t.getValidFacets()) {
+                if (t.getRestrictions().hasRestriction(facet)) {
+                    out.append(' ').append(facet).append('=')
+                            .append(Arrays.deepToString(new Object[] { t.getRestrictions().getValue(facet) }));
+                }
+            }
+        } else if (o instanceof FComplexType && path.add(o)) {
+            for (FSchemaObject child : ((FComplexType) o).getAttributes()) {
+                describe(child, out, path);
+            }
+            for (FSchemaObject child : ((FComplexType) o).getChildObjects()) {
+                describe(child, out, path);
+            }
+            path.remove(o);
+        }
+        out.append(')');
+    }
+}
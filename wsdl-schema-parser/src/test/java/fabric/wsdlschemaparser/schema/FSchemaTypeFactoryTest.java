@@ -27,6 +27,13 @@ import org.apache.log4j.*;
 import org.apache.xmlbeans.SchemaType;
 import org.junit.Test;
 import java.io.File;
+import java.io.FileWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -214,4 +221,155 @@ public class FSchemaTypeFactoryTest {
                 1,
                 temperature.getIntegerValue(SchemaType.FACET_FRACTION_DIGITS));
     }
+
+    @Test
+    public void testSharedTopLevelTypes() throws Exception {
+        File file = new File("src/test/resources/schemas/sharedTypes.xsd");
+        FSchema schema = new FSchema(file);
+        FTopLevelObjectList objectList = schema.getTopLevelObjectList();
+        FSchemaType home = objectList.getTopLevelElement("HomeAddress").getSchemaType();
+        FSchemaType work = objectList.getTopLevelElement("WorkAddress").getSchemaType();
+        FSchemaType shortString = objectList.getTopLevelType("ShortString");
+        FSchemaType shorterString = objectList.getTopLevelType("ShorterString");
+
+        /*
+        Tests
+         */
+        assertSame("HomeAddress and WorkAddress have to share the type Address.",
+                home, work);
+        assertNotSame("ShorterString must not modify its base type ShortString.",
+                shortString, shorterString);
+        assertEquals("Length of ShortString has to be restricted to 10.",
+                10,
+                shortString.getRestrictions().getIntegerValue(SchemaType.FACET_MAX_LENGTH));
+        assertEquals("Length of ShorterString has to be restricted to 5.",
+                5,
+                shorterString.getRestrictions().getIntegerValue(SchemaType.FACET_MAX_LENGTH));
+    }
+
+    @Test
+    public void testRecursiveTypes() throws Exception {
+        File file = new File("src/test/resources/schemas/recursiveTypes.xsd");
+        FSchema schema = new FSchema(file);
+        FTopLevelObjectList objectList = schema.getTopLevelObjectList();
+        FComplexType node = (FComplexType) objectList.getTopLevelElement("Tree").getSchemaType();
+        FComplexType folder = (FComplexType) objectList.getTopLevelElement("Root").getSchemaType();
+        FComplexType item = (FComplexType) objectList.getTopLevelElement("Item").getSchemaType();
+        FComplexType entry = (FComplexType) ((FElement) folder.getChildObjects().get(1)).getSchemaType();
+
+        /*
+        Tests
+         */
+        assertSame("Child of Node has to refer back to Node.",
+                node,
+                ((FElement) node.getChildObjects().get(1)).getSchemaType());
+        assertSame("SubFolder of Entry has to refer back to Folder.",
+                folder,
+                ((FElement) entry.getChildObjects().get(1)).getSchemaType());
+        assertSame("Referenced Item has to refer back to the type of Item.",
+                item,
+                ((FElement) item.getChildObjects().get(1)).getSchemaType());
+        assertEquals("Node must have exactly two children.",
+                2,
+                node.getChildObjects().size());
+    }
+
+    @Test
+    public void testRecursiveTypeEquality() throws Exception {
+        FSequence node = new FSequence("Node");
+        node.addChildObject(new FElement("Child", node));
+        FSequence otherNode = new FSequence("Node");
+        otherNode.addChildObject(new FElement("Child", otherNode));
+        FSequence folder = new FSequence("Folder");
+        FChoice entry = new FChoice("Entry");
+        folder.addChildObject(new FElement("Entry", entry));
+        entry.addChildObject(new FElement("SubFolder", folder));
+        FSequence otherFolder = new FSequence("Folder");
+        FChoice otherEntry = new FChoice("Entry");
+        otherFolder.addChildObject(new FElement("Entry", otherEntry));
+        otherEntry.addChildObject(new FElement("SubFolder", otherFolder));
+
+        /*
+        Tests
+         */
+        assertTrue("Equal recursive types have to be equal.", node.equals(otherNode));
+        assertTrue("Equal mutually recursive types have to be equal.", folder.equals(otherFolder));
+        assertFalse(node.equals(folder));
+        assertFalse(folder.equals(entry));
+    }
+
+    @Test
+    public void testRestrictionValues() throws Exception {
+        FDecimal decimal = new FDecimal("Temperature");
+        FSchemaRestrictions r = decimal.getRestrictions();
+        r.setRestriction(SchemaType.FACET_MIN_INCLUSIVE, "-40");
+        r.setRestriction(SchemaType.FACET_MAX_INCLUSIVE, "123456789012345678901234567890");
+        r.setRestriction(SchemaType.FACET_TOTAL_DIGITS, "+3");
+        r.setRestriction(SchemaType.FACET_FRACTION_DIGITS, 1);
+        FDecimal copy = (FDecimal) decimal.clone();
+        copy.getRestrictions().setRestriction(SchemaType.FACET_MIN_EXCLUSIVE, "-0.5");
+
+        /*
+        Tests
+         */
+        assertEquals("Lexical values have to be returned unchanged.",
+                "-40", r.getValue(SchemaType.FACET_MIN_INCLUSIVE));
+        assertEquals("Non-canonical values have to be returned unchanged.",
+                "+3", r.getValue(SchemaType.FACET_TOTAL_DIGITS));
+        assertEquals("Numbers have to be returned as they were set.",
+                Integer.valueOf(1), r.getValue(SchemaType.FACET_FRACTION_DIGITS));
+        assertEquals(-40, r.getByteValue(SchemaType.FACET_MIN_INCLUSIVE));
+        assertEquals(-40L, r.getLongValue(SchemaType.FACET_MIN_INCLUSIVE));
+        assertEquals(3, r.getIntegerValue(SchemaType.FACET_TOTAL_DIGITS));
+        assertEquals(new BigDecimal("-40"), r.getBigDecimalValue(SchemaType.FACET_MIN_INCLUSIVE));
+        assertEquals("Values exceeding a long have to be kept exactly.",
+                new BigInteger("123456789012345678901234567890"),
+                r.getBigIntegerValue(SchemaType.FACET_MAX_INCLUSIVE));
+        assertEquals("Values exceeding the requested type have to yield 0.",
+                0L, r.getLongValue(SchemaType.FACET_MAX_INCLUSIVE));
+        assertEquals("Temperature has to have whiteSpace and the four facets set above.",
+                5, r.getCount());
+
+        assertFalse("Modifying a clone must not affect the original.",
+                r.hasRestriction(SchemaType.FACET_MIN_EXCLUSIVE));
+        assertFalse("Setting minExclusive has to remove minInclusive.",
+                copy.getRestrictions().hasRestriction(SchemaType.FACET_MIN_INCLUSIVE));
+        assertEquals("-0.5", copy.getRestrictions().getStringValue(SchemaType.FACET_MIN_EXCLUSIVE));
+        assertEquals(0, copy.getRestrictions().getIntegerValue(SchemaType.FACET_MIN_EXCLUSIVE));
+        assertEquals(-0.5, copy.getRestrictions().getDoubleValue(SchemaType.FACET_MIN_EXCLUSIVE), 0.0);
+    }
+
+    @Test
+    public void testAnySiblings() throws Exception {
+        File file = File.createTempFile("anySiblings", ".xsd");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        writer.write("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+                + "<xs:element name=\"Wildcards\"><xs:complexType><xs:sequence>"
+                + "<xs:element name=\"a\" type=\"xs:int\"/><xs:any/>"
+                + "<xs:element name=\"b\" type=\"xs:int\"/><xs:element name=\"c\" type=\"xs:int\"/><xs:any/>"
+                + "<xs:element name=\"d\" type=\"xs:int\"/>"
+                + "</xs:sequence></xs:complexType></xs:element></xs:schema>");
+        writer.close();
+
+        for (FSchema.Frontend frontend : FSchema.Frontend.values()) {
+            FComplexType wildcards = (FComplexType) new FSchema(file, null, SchemaCatalog.getDefault(), frontend)
+                    .getTopLevelObjectList().getTopLevelElement("Wildcards").getSchemaType();
+            Map<String, FSchemaType> children = new HashMap<String, FSchemaType>();
+            for (FSchemaObject o : wildcards.getChildObjects()) {
+                children.put(o.getName(), ((FElement) o).getSchemaType());
+            }
+            FAny first = (FAny) children.get("any");
+            FAny second = (FAny) children.get("any_2");
+
+            /*
+            Tests
+             */
+            assertEquals(new HashSet<String>(Arrays.asList("a")), first.getPrevNodeNames());
+            assertEquals(new HashSet<String>(Arrays.asList("b", "c")), first.getNextNodeNames());
+            assertEquals(new HashSet<String>(Arrays.asList("d")), second.getNextNodeNames());
+            assertSame("Wildcards of one group have to share the names between them.",
+                    first.getNextNodeNames(), second.getPrevNodeNames());
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2010, Institute of Telematics (Dennis Pfisterer, Marco Wegner, Dennis Boldt, Sascha Seidel, Joss Widderich), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package fabric.wsdlschemaparser.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.xmlbeans.impl.xb.xsdschema.ComplexType;
+import org.apache.xmlbeans.impl.xb.xsdschema.Element;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument;
+import org.apache.xmlbeans.impl.xb.xsdschema.SchemaDocument.Schema;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaHelperTest {
+
+    private static final String NS_A = "http://example.org/a";
+
+    private static final String NS_B = "http://example.org/b";
+
+    private SchemaHelper helper;
+
+    private static Schema parse(String targetNamespace, String content) throws Exception {
+        return SchemaDocument.Factory.parse(
+                "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"" + targetNamespace
+                        + "\">" + content + "</xs:schema>").getSchema();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        List<Schema> schemata = new ArrayList<Schema>();
+        schemata.add(parse(NS_A, "<xs:complexType name=\"Address\"><xs:sequence>"
+                + "<xs:element name=\"street\" type=\"xs:string\"/></xs:sequence></xs:complexType>"
+                + "<xs:element name=\"Name\" type=\"xs:string\"/>"));
+        schemata.add(parse(NS_B, "<xs:simpleType name=\"Address\"><xs:restriction base=\"xs:string\"/>"
+                + "</xs:simpleType>"));
+        helper = new SchemaHelper(schemata);
+    }
+
+    @Test
+    public void testLookupIsNamespaceAware() {
+        assertEquals("Address", helper.getComplexTypeByName(new QName(NS_A, "Address")).getName());
+        assertNull(helper.getComplexTypeByName(new QName(NS_B, "Address")));
+        assertEquals("Address", helper.getSimpleTypeByName(new QName(NS_B, "Address")).getName());
+        assertNull(helper.getSimpleTypeByName(new QName(NS_A, "Address")));
+
+        assertTrue(helper.isLocalComplexType(new QName(NS_A, "Address")));
+        assertFalse(helper.isLocalSimpleType(new QName(NS_A, "Address")));
+        assertTrue(helper.isLocalSimpleType(new QName(NS_B, "Address")));
+    }
+
+    @Test
+    public void testElementLookup() {
+        assertEquals("Name", helper.getElementByName(new QName(NS_A, "Name")).getName());
+        assertNull(helper.getElementByName(new QName(NS_B, "Name")));
+        assertNull(helper.getByName(new QName(NS_A, "Unknown")));
+    }
+
+    @Test
+    public void testLocalNames() {
+        assertTrue(helper.isLocalName(new QName(NS_B, "Anything")));
+        assertFalse(helper.isLocalName(new QName("http://example.org/c", "Anything")));
+    }
+
+    @Test
+    public void testContentModelCache() throws Exception {
+        List<Schema> schemata = new ArrayList<Schema>();
+        schemata.add(SchemaDocument.Factory.parse(
+                "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns:a=\"" + NS_A
+                        + "\" targetNamespace=\"" + NS_A + "\">"
+                        + "<xs:complexType name=\"Base\"><xs:sequence>"
+                        + "<xs:element name=\"b\" type=\"xs:string\"/></xs:sequence></xs:complexType>"
+                        + "<xs:complexType name=\"Middle\"><xs:complexContent><xs:extension base=\"a:Base\">"
+                        + "<xs:sequence><xs:element name=\"m\" type=\"xs:string\"/></xs:sequence>"
+                        + "</xs:extension></xs:complexContent></xs:complexType>"
+                        + "<xs:complexType name=\"Derived\"><xs:complexContent><xs:extension base=\"a:Middle\">"
+                        + "<xs:sequence><xs:element name=\"d\" type=\"xs:string\"/></xs:sequence>"
+                        + "</xs:extension></xs:complexContent></xs:complexType>"
+                        + "</xs:schema>").getSchema());
+        SchemaSymbolTable symbolTable = new SchemaSymbolTable(schemata);
+        SchemaHelper cachingHelper = new SchemaHelper(schemata, symbolTable);
+        ComplexType derived = cachingHelper.getComplexTypeByName(new QName(NS_A, "Derived"));
+
+        /*
+        Tests
+         */
+        LinkedList<ComplexType> hierarchy = cachingHelper.getExtensionHierarchy(derived);
+        assertEquals(3, hierarchy.size());
+        assertEquals("Base", hierarchy.getLast().getName());
+        hierarchy.clear();
+        assertEquals("Cached hierarchies must not be exposed.", 3, cachingHelper.getExtensionHierarchy(derived).size());
+
+        Element[] elements = cachingHelper.getSequenceElements(derived);
+        assertEquals(3, elements.length);
+        assertEquals("d", elements[0].getName());
+        assertEquals("b", elements[2].getName());
+
+        long misses = cachingHelper.getCacheMisses();
+        long hits = cachingHelper.getCacheHits();
+        assertEquals(3, cachingHelper.getSequenceElements(derived).length);
+        assertEquals(misses, cachingHelper.getCacheMisses());
+        assertEquals(hits + 1, cachingHelper.getCacheHits());
+
+        // adding a schema invalidates the cache
+        symbolTable.addSchema(parse(NS_B, ""));
+        assertEquals(3, cachingHelper.getSequenceElements(derived).length);
+        assertTrue(cachingHelper.getCacheMisses() > misses);
+    }
+}
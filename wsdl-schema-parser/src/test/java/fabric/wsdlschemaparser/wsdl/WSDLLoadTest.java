@@ -23,6 +23,7 @@
  */
 package fabric.wsdlschemaparser.wsdl;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
 import java.io.File;
@@ -40,6 +41,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import de.uniluebeck.itm.tr.util.Logging;
+import fabric.wsdlschemaparser.schema.FElement;
+import fabric.wsdlschemaparser.schema.FString;
 
 public class WSDLLoadTest {
     private static Collection<File> wsdlFiles;
@@ -87,4 +90,43 @@ public class WSDLLoadTest {
         }
 
     }
+
+    @Test
+    public void testParallelSchemaConversion() throws Exception {
+        File wsdlFile = new File("src/test/resources/wsdls/wsauth-multiple-schemata.wsdl");
+        FWSDL sequential;
+        FWSDL parallel;
+        System.setProperty(FWSDL.THREADS_PROPERTY, "1");
+        try {
+            sequential = new FWSDL(wsdlFile);
+            System.setProperty(FWSDL.THREADS_PROPERTY, "4");
+            parallel = new FWSDL(wsdlFile);
+        } finally {
+            System.clearProperty(FWSDL.THREADS_PROPERTY);
+        }
+
+        /*
+        Tests
+         */
+        assertEquals(Arrays.asList("urn:WSAuthStructs", "urn:WSAuth"), parallel.getSchema().getNamespaces());
+        assertEquals(sequential.getSchema().getNamespaces(), parallel.getSchema().getNamespaces());
+        assertEquals(sequential.getSchema().getSymbolTable().size(), parallel.getSchema().getSymbolTable().size());
+    }
+
+    @Test
+    public void testToStringOneWayOperation() throws Exception {
+        FWSDL wsdl = new FWSDL(new File("src/test/resources/wsdls/wsauth-multiple-schemata.wsdl"));
+        FMethod oneWay = new FMethod("notify");
+        oneWay.setParameters(new FElement("message", new FString()));
+        wsdl.add(oneWay);
+        wsdl.add(new FMethod("ping"));
+
+        /*
+        Tests
+         */
+        String string = wsdl.toString();
+        assertTrue(string, string.contains("Operation: notify(" + oneWay.getParameters().getSchemaType().getName()
+                + " message, ) --> ();"));
+        assertTrue(string, string.contains("Operation: ping() --> ();"));
+    }
 }